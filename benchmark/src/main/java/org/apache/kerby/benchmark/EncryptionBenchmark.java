@@ -0,0 +1,107 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.benchmark;
+
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.crypto.CheckSumHandler;
+import org.apache.kerby.kerberos.kerb.crypto.EncTypeHandler;
+import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
+import org.apache.kerby.kerberos.kerb.crypto.cksum.provider.AbstractUnkeyedCheckSumTypeHandler;
+import org.apache.kerby.kerberos.kerb.type.base.CheckSum;
+import org.apache.kerby.kerberos.kerb.type.base.CheckSumType;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptedData;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.KeyUsage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypt, decrypt and keyed checksum of each encryption type, with the
+ * sizes of a small and a large encrypted part.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EncryptionBenchmark {
+
+    @Param({"DES_CBC_CRC", "DES_CBC_MD5", "DES3_CBC_SHA1", "RC4_HMAC",
+        "AES128_CTS_HMAC_SHA1_96", "AES256_CTS_HMAC_SHA1_96",
+        "CAMELLIA128_CTS_CMAC", "CAMELLIA256_CTS_CMAC"})
+    private String encType;
+
+    @Param({"128", "1024"})
+    private int size;
+
+    private EncryptionKey key;
+    private CheckSumType checkSumType;
+    private boolean keyedCheckSum;
+    private byte[] plainText;
+    private byte[] cipher;
+
+    @Setup
+    public void setup() throws KrbException {
+        EncryptionType type = EncryptionType.valueOf(encType);
+        EncTypeHandler handler = EncryptionHandler.getEncHandler(type);
+        key = EncryptionHandler.random2Key(type);
+        checkSumType = handler.checksumType();
+        keyedCheckSum = !(CheckSumHandler.getCheckSumHandler(checkSumType)
+            instanceof AbstractUnkeyedCheckSumTypeHandler);
+
+        plainText = new byte[size];
+        new Random(size).nextBytes(plainText);
+        cipher = EncryptionHandler.encrypt(plainText, key, KeyUsage.KDC_REP_TICKET).getCipher();
+    }
+
+    @Benchmark
+    public EncryptedData encrypt() throws KrbException {
+        return EncryptionHandler.encrypt(plainText, key, KeyUsage.KDC_REP_TICKET);
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws KrbException {
+        // Some types decrypt in place
+        return EncryptionHandler.decrypt(cipher.clone(), key, KeyUsage.KDC_REP_TICKET);
+    }
+
+    @Benchmark
+    public CheckSum checksum() throws KrbException {
+        if (!keyedCheckSum) {
+            return CheckSumHandler.checksum(checkSumType, plainText);
+        }
+        return CheckSumHandler.checksumWithKey(checkSumType, plainText,
+            key.getKeyData(), KeyUsage.TGS_REQ_AUTH_CKSUM);
+    }
+}
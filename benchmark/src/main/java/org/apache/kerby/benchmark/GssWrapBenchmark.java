@@ -0,0 +1,161 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.benchmark;
+
+import org.apache.kerby.kerberos.kerb.client.JaasKrbUtil;
+import org.apache.kerby.kerberos.kerb.gss.KerbyGssProvider;
+import org.apache.kerby.kerberos.kerb.server.SimpleKdcServer;
+import org.apache.kerby.util.NetworkUtil;
+import org.ietf.jgss.GSSContext;
+import org.ietf.jgss.GSSCredential;
+import org.ietf.jgss.GSSException;
+import org.ietf.jgss.GSSManager;
+import org.ietf.jgss.GSSName;
+import org.ietf.jgss.MessageProp;
+import org.ietf.jgss.Oid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.security.auth.Subject;
+import java.io.File;
+import java.security.PrivilegedExceptionAction;
+import java.security.Security;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per message cost of GSS wrap and unwrap with confidentiality, between an
+ * initiator and an acceptor context of the Kerby GSS provider. The contexts
+ * are established through the GSS API against a {@link SimpleKdcServer} on
+ * loopback, with the default encryption types of the KDC, so an AES128
+ * session key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class GssWrapBenchmark {
+    private static final String PASSWORD = "123456";
+    private static final String KRB5_MECH_OID = "1.2.840.113554.1.2.2";
+
+    @Param({"1024", "65536"})
+    private int messageSize;
+
+    private SimpleKdcServer kdcServer;
+    private GSSContext initiator;
+    private GSSContext acceptor;
+    private byte[] message;
+    private byte[] token;
+
+    @Setup
+    public void setup() throws Exception {
+        File workDir = new File(System.getProperty("test.dir", "target"), "gss-wrap-benchmark");
+        if (!workDir.exists() && !workDir.mkdirs()) {
+            throw new IllegalStateException("Failed to create work dir " + workDir);
+        }
+
+        kdcServer = new SimpleKdcServer();
+        kdcServer.setWorkDir(workDir);
+        kdcServer.setAllowUdp(false);
+        kdcServer.setKdcTcpPort(NetworkUtil.getServerPort());
+        kdcServer.init();
+        kdcServer.start();
+
+        String realm = kdcServer.getKdcSetting().getKdcRealm();
+        String clientPrincipal = "gss-client@" + realm;
+        String servicePrincipal = "gss-service/localhost@" + realm;
+        kdcServer.createPrincipal(clientPrincipal, PASSWORD);
+        kdcServer.createPrincipal(servicePrincipal, PASSWORD);
+        File keytab = new File(workDir, "gss-service.keytab");
+        kdcServer.exportPrincipal(servicePrincipal, keytab);
+
+        Security.insertProviderAt(new KerbyGssProvider(), 1);
+        GSSManager manager = GSSManager.getInstance();
+        Oid krb5Oid = new Oid(KRB5_MECH_OID);
+        Subject clientSubject = JaasKrbUtil.loginUsingPassword(clientPrincipal, PASSWORD);
+        Subject serviceSubject = JaasKrbUtil.loginUsingKeytab(servicePrincipal, keytab);
+
+        initiator = Subject.doAs(clientSubject, (PrivilegedExceptionAction<GSSContext>) () -> {
+            GSSCredential cred = manager.createCredential(
+                manager.createName(clientPrincipal, GSSName.NT_USER_NAME),
+                GSSCredential.DEFAULT_LIFETIME, krb5Oid, GSSCredential.INITIATE_ONLY);
+            GSSContext context = manager.createContext(
+                manager.createName(servicePrincipal, GSSName.NT_USER_NAME),
+                krb5Oid, cred, GSSContext.DEFAULT_LIFETIME);
+            context.requestMutualAuth(true);
+            context.requestConf(true);
+            context.requestInteg(true);
+            return context;
+        });
+        acceptor = Subject.doAs(serviceSubject, (PrivilegedExceptionAction<GSSContext>) () ->
+            manager.createContext((GSSCredential) null));
+
+        byte[] inToken = new byte[0];
+        while (!initiator.isEstablished()) {
+            byte[] request = initiate(clientSubject, inToken);
+            if (request != null) {
+                inToken = accept(serviceSubject, request);
+            }
+        }
+
+        message = new byte[messageSize];
+        new Random().nextBytes(message);
+        token = initiator.wrap(message, 0, message.length, new MessageProp(0, true));
+    }
+
+    private byte[] initiate(Subject subject, byte[] inToken) throws Exception {
+        return Subject.doAs(subject, (PrivilegedExceptionAction<byte[]>) () ->
+            initiator.initSecContext(inToken, 0, inToken.length));
+    }
+
+    private byte[] accept(Subject subject, byte[] inToken) throws Exception {
+        return Subject.doAs(subject, (PrivilegedExceptionAction<byte[]>) () ->
+            acceptor.acceptSecContext(inToken, 0, inToken.length));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        initiator.dispose();
+        acceptor.dispose();
+        kdcServer.stop();
+    }
+
+    @Benchmark
+    @Fork(1)
+    @Warmup(iterations = 5)
+    public byte[] wrap() throws GSSException {
+        return initiator.wrap(message, 0, message.length, new MessageProp(0, true));
+    }
+
+    @Benchmark
+    @Fork(1)
+    @Warmup(iterations = 5)
+    public byte[] unwrap() throws GSSException {
+        return acceptor.unwrap(token, 0, token.length, new MessageProp(0, true));
+    }
+}
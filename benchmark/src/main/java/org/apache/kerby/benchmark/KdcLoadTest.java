@@ -0,0 +1,300 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.benchmark;
+
+import org.apache.kerby.kerberos.kdc.identitybackend.JsonIdentityBackend;
+import org.apache.kerby.kerberos.kdc.impl.NettyKdcServerImpl;
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.client.KrbClient;
+import org.apache.kerby.kerberos.kerb.client.KrbConfig;
+import org.apache.kerby.kerberos.kerb.identity.backend.MemoryIdentityBackend;
+import org.apache.kerby.kerberos.kerb.server.KdcConfigKey;
+import org.apache.kerby.kerberos.kerb.server.SimpleKdcServer;
+import org.apache.kerby.kerberos.kerb.type.ticket.TgtTicket;
+import org.apache.kerby.util.NetworkUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end load test of the KDC. Starts a {@link SimpleKdcServer} on
+ * loopback and drives AS or TGS exchanges from a number of client
+ * threads, each with its own client principal and {@link KrbClient}, then
+ * reports the throughput and the latency percentiles of the exchanges
+ * done after the warm up.
+ *
+ * It's configured with system properties:
+ * <ul>
+ *     <li>threads: the number of client threads, 10 by default</li>
+ *     <li>duration: the seconds to measure, 30 by default</li>
+ *     <li>warmup: the seconds to run before measuring, 10 by default</li>
+ *     <li>exchange: as or tgs, as by default</li>
+ *     <li>backend: memory, json or the class name of an identity backend,
+ *     memory by default</li>
+ *     <li>transport: default or netty, default by default</li>
+ *     <li>protocol: tcp or udp, tcp by default</li>
+ *     <li>test.dir: where the KDC work directory is made, target by
+ *     default</li>
+ * </ul>
+ * For example:
+ * java -Dthreads=50 -Dexchange=tgs -Dtransport=netty
+ *     -cp ... org.apache.kerby.benchmark.KdcLoadTest
+ */
+public class KdcLoadTest {
+    private static final String PASSWORD = "123456";
+    private static final String SERVICE_PRINCIPAL = "test-service/localhost";
+
+    private final int threads;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final boolean tgsExchange;
+    private final String backend;
+    private final boolean nettyTransport;
+    private final boolean udp;
+    private final File workDir;
+
+    private SimpleKdcServer kdcServer;
+
+    public KdcLoadTest(int threads, int durationSeconds, int warmupSeconds,
+                       String exchange, String backend, String transport,
+                       String protocol, File workDir) {
+        this.threads = threads;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.tgsExchange = "tgs".equalsIgnoreCase(exchange);
+        this.backend = backend;
+        this.nettyTransport = "netty".equalsIgnoreCase(transport);
+        this.udp = "udp".equalsIgnoreCase(protocol);
+        this.workDir = workDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File testDir = new File(System.getProperty("test.dir", "target"));
+        KdcLoadTest loadTest = new KdcLoadTest(
+            Integer.getInteger("threads", 10),
+            Integer.getInteger("duration", 30),
+            Integer.getInteger("warmup", 10),
+            System.getProperty("exchange", "as"),
+            System.getProperty("backend", "memory"),
+            System.getProperty("transport", "default"),
+            System.getProperty("protocol", "tcp"),
+            new File(testDir, "kdc-load-test"));
+
+        loadTest.setUp();
+        try {
+            loadTest.run();
+        } finally {
+            loadTest.tearDown();
+        }
+    }
+
+    public void setUp() throws KrbException {
+        if (!workDir.exists() && !workDir.mkdirs()) {
+            throw new KrbException("Failed to create work dir " + workDir);
+        }
+
+        kdcServer = new SimpleKdcServer();
+        kdcServer.setWorkDir(workDir);
+        if (udp) {
+            kdcServer.setAllowTcp(false);
+            kdcServer.setKdcUdpPort(NetworkUtil.getServerPort());
+        } else {
+            kdcServer.setAllowUdp(false);
+            kdcServer.setKdcTcpPort(NetworkUtil.getServerPort());
+        }
+        kdcServer.getBackendConfig().setString(KdcConfigKey.KDC_IDENTITY_BACKEND, backendClass());
+        if ("json".equalsIgnoreCase(backend)) {
+            File jsonFile = new File(workDir, "json-backend.json");
+            if (jsonFile.exists() && !jsonFile.delete()) {
+                throw new KrbException("Failed to delete " + jsonFile);
+            }
+            kdcServer.getBackendConfig().setString(JsonIdentityBackend.JSON_IDENTITY_BACKEND_DIR,
+                workDir.getAbsolutePath());
+        }
+        if (nettyTransport) {
+            kdcServer.setInnerKdcImpl(new NettyKdcServerImpl(kdcServer.getKdcSetting()));
+        }
+        kdcServer.init();
+        kdcServer.start();
+
+        kdcServer.createPrincipal(SERVICE_PRINCIPAL, PASSWORD);
+        for (int i = 0; i < threads; i++) {
+            kdcServer.createPrincipal(clientPrincipal(i), PASSWORD);
+        }
+    }
+
+    private String backendClass() {
+        if ("memory".equalsIgnoreCase(backend)) {
+            return MemoryIdentityBackend.class.getName();
+        } else if ("json".equalsIgnoreCase(backend)) {
+            return JsonIdentityBackend.class.getName();
+        }
+        return backend;
+    }
+
+    private String clientPrincipal(int i) {
+        return "load-client" + i + "@" + kdcServer.getKdcSetting().getKdcRealm();
+    }
+
+    private KrbClient newClient() throws KrbException {
+        KrbClient client = new KrbClient(new KrbConfig());
+        client.setKdcRealm(kdcServer.getKdcSetting().getKdcRealm());
+        client.setKdcHost(kdcServer.getKdcSetting().getKdcHost());
+        if (udp) {
+            client.setAllowTcp(false);
+            client.setKdcUdpPort(kdcServer.getKdcUdpPort());
+        } else {
+            client.setAllowUdp(false);
+            client.setKdcTcpPort(kdcServer.getKdcTcpPort());
+        }
+        client.init();
+        return client;
+    }
+
+    public void run() throws Exception {
+        System.out.println("KDC load test: " + threads + " threads, "
+            + (tgsExchange ? "TGS" : "AS") + " exchange, " + backend + " backend, "
+            + (nettyTransport ? "netty" : "default") + " transport over " + (udp ? "UDP" : "TCP"));
+
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch go = new CountDownLatch(1);
+        final long[] window = new long[2];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Latencies>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final String principal = clientPrincipal(i);
+                futures.add(executor.submit(new Callable<Latencies>() {
+                    @Override
+                    public Latencies call() throws Exception {
+                        KrbClient client = newClient();
+                        TgtTicket tgt = tgsExchange ? client.requestTgt(principal, PASSWORD) : null;
+                        ready.countDown();
+                        go.await();
+                        return exchange(client, principal, tgt, window[0], window[1]);
+                    }
+                }));
+            }
+
+            ready.await();
+            window[0] = System.nanoTime() + warmupNanos;
+            window[1] = window[0] + durationNanos;
+            go.countDown();
+
+            Latencies all = new Latencies();
+            long errors = 0;
+            for (Future<Latencies> future : futures) {
+                Latencies latencies = future.get();
+                all.addAll(latencies);
+                errors += latencies.errors;
+            }
+            report(all, errors);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Latencies exchange(KrbClient client, String principal, TgtTicket tgt,
+                               long measureStart, long measureEnd) {
+        Latencies latencies = new Latencies();
+        long now = System.nanoTime();
+        while (now < measureEnd) {
+            long start = now;
+            boolean failed = false;
+            try {
+                if (tgsExchange) {
+                    client.requestSgt(tgt, SERVICE_PRINCIPAL);
+                } else {
+                    client.requestTgt(principal, PASSWORD);
+                }
+            } catch (KrbException e) {
+                failed = true;
+            }
+            now = System.nanoTime();
+            if (start >= measureStart && now <= measureEnd) {
+                if (failed) {
+                    latencies.errors++;
+                } else {
+                    latencies.add(now - start);
+                }
+            }
+        }
+        return latencies;
+    }
+
+    private void report(Latencies all, long errors) {
+        long[] values = all.toSortedArray();
+        double seconds = durationNanos / 1e9;
+        System.out.printf("Exchanges: %d, errors: %d, throughput: %.1f/s%n",
+            values.length, errors, values.length / seconds);
+        if (values.length > 0) {
+            System.out.printf("Latency (ms): p50 %.3f, p99 %.3f, p999 %.3f, max %.3f%n",
+                percentile(values, 0.5) / 1e6, percentile(values, 0.99) / 1e6,
+                percentile(values, 0.999) / 1e6, values[values.length - 1] / 1e6);
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public void tearDown() throws KrbException {
+        if (kdcServer != null) {
+            kdcServer.stop();
+        }
+    }
+
+    /**
+     * The latencies of the exchanges of a thread, in nanoseconds.
+     */
+    private static final class Latencies {
+        private long[] values = new long[1024];
+        private int size;
+        private long errors;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -29,12 +29,10 @@ import org.codehaus.jettison.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
@@ -490,15 +488,7 @@ public class HasAuthAdminClient implements Kadmin {
 
         try {
             httpConn.connect();
-            InputStream inputStream = httpConn.getResponseCode() == 200
-                    ? httpConn.getInputStream() : httpConn.getErrorStream();
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(inputStream));
-            String s;
-            StringBuilder result = new StringBuilder();
-            while ((s = reader.readLine()) != null) {
-                result.append(s);
-            }
+            String result = HasClientUtil.getResponse(httpConn).trim();
             if (httpConn.getResponseCode() == 200) {
                 System.out.println(result);
             } else {
@@ -23,13 +23,14 @@ import org.apache.commons.text.RandomStringGenerator;
 import org.apache.kerby.has.common.HasConfig;
 import org.apache.kerby.has.common.HasConfigKey;
 import org.apache.kerby.has.common.HasException;
-import org.apache.kerby.has.common.ssl.SSLFactory;
 import org.apache.kerby.has.common.util.HasUtil;
 import org.apache.kerby.has.common.util.URLConnectionFactory;
 import org.apache.kerby.kerberos.kerb.KrbCodec;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.KrbRuntime;
+import org.apache.kerby.kerberos.kerb.ccache.Credential;
 import org.apache.kerby.kerberos.kerb.ccache.CredentialCache;
+import org.apache.kerby.kerberos.kerb.ccache.MemoryCredentialCache;
 import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
 import org.apache.kerby.kerberos.kerb.provider.TokenEncoder;
 import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
@@ -46,18 +47,18 @@ import org.apache.kerby.kerberos.kerb.type.kdc.KdcRep;
 import org.apache.kerby.kerberos.kerb.type.ticket.TgtTicket;
 import org.apache.kerby.util.IOUtil;
 import org.apache.kerby.util.SysUtil;
+import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
@@ -65,13 +66,16 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * HAS client
@@ -234,79 +238,13 @@ public class HasClient {
             throw new HasException("Failed to decode the auth token. " + e.getMessage());
         }
 
-        JSONObject json = null;
-        int responseStatus = 0;
-        boolean success = false;
-        if (config.getHttpsPort() != null && config.getHttpsHost() != null) {
-            String sslClientConfPath = clientConfigFolder + "/ssl-client.conf";
-            config.setString(SSLFactory.SSL_HOSTNAME_VERIFIER_KEY, "ALLOW_ALL");
-            config.setString(SSLFactory.SSL_CLIENT_CONF_KEY, sslClientConfPath);
-            config.setBoolean(SSLFactory.SSL_REQUIRE_CLIENT_CERT_KEY, false);
-
-            URLConnectionFactory connectionFactory = URLConnectionFactory
-                .newDefaultURLConnectionFactory(config);
-
-            URL url;
-            String[] hosts = config.getHttpsHost().split(",");
-            for (String host : hosts) {
-                try {
-                    url = new URL("https://" + host.trim() + ":" + config.getHttpsPort()
-                        + "/has/v1?type=" + type + "&authToken=" + tokenString);
-                } catch (MalformedURLException e) {
-                    LOG.warn("Failed to get url. " + e.toString());
-                    continue;
-                }
-                HttpURLConnection conn;
-                try {
-                    conn = (HttpURLConnection) connectionFactory.openConnection(url);
-                } catch (IOException e) {
-                    LOG.warn("Failed to open connection. " + e.toString());
-                    continue;
-                }
-
-                conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-                try {
-                    conn.setRequestMethod("PUT");
-                } catch (ProtocolException e) {
-                    LOG.warn("Failed to set request method. " + e.toString());
-                    continue;
-                }
-                conn.setDoOutput(true);
-                conn.setDoInput(true);
-                try {
-                    conn.connect();
-
-                    responseStatus = conn.getResponseCode();
-                    switch (responseStatus) {
-                        case 200:
-                        case 201:
-                            BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                            StringBuilder sb = new StringBuilder();
-                            String line;
-                            while ((line = br.readLine()) != null) {
-                                sb.append(line + "\n");
-                            }
-                            br.close();
-
-                            json = new JSONObject(sb.toString());
-                    }
-
-                } catch (IOException | JSONException e) {
-                    LOG.warn("ERROR! " + e.toString());
-                    continue;
-                }
-
-                if (responseStatus == 200 || responseStatus == 201) {
-                    success = true;
-                    break;
-                }
-            }
-            if (!success) {
-                throw new HasException("Failed: HTTP error code : "
-                    + responseStatus);
-            }
-        } else {
-            throw new HasException("Please set https host and port.");
+        String response = putRequest(config, "/has/v1?type=" + type + "&authToken=" + tokenString,
+            null, "application/json; charset=UTF-8");
+        JSONObject json;
+        try {
+            json = new JSONObject(response);
+        } catch (JSONException e) {
+            throw new HasException("Failed to parse the response. " + e.getMessage());
         }
 
         try {
@@ -318,6 +256,118 @@ public class HasClient {
         }
     }
 
+    /**
+     * Request the TGTs of many user tokens in one request, for instance to
+     * bootstrap many service identities. The server verifies the tokens and
+     * issues the tickets concurrently. The tickets aren't stored in the
+     * credential cache.
+     * @param authTokens auth tokens
+     * @param type login type
+     * @param config HAS config
+     * @return The TGTs in the order of the tokens, null for a failed token
+     * @throws HasException e
+     */
+    public List<TgtTicket> requestTgts(List<AuthToken> authTokens, String type, HasConfig config)
+        throws HasException {
+        this.type = type;
+        TokenEncoder tokenEncoder = KrbRuntime.getTokenProvider("JWT").createTokenEncoder();
+        JSONArray tokens = new JSONArray();
+        for (AuthToken authToken : authTokens) {
+            try {
+                tokens.put(tokenEncoder.encodeAsString(authToken));
+            } catch (KrbException e) {
+                throw new HasException("Failed to encode the auth token. " + e.getMessage());
+            }
+        }
+
+        String response = putRequest(config, "/has/v1/batch?type=" + type,
+            tokens.toString().getBytes(StandardCharsets.UTF_8), "application/json; charset=UTF-8");
+        JSONArray results;
+        try {
+            results = new JSONArray(response);
+        } catch (JSONException e) {
+            throw new HasException("Failed to parse the response. " + e.getMessage());
+        }
+        if (results.length() != authTokens.size()) {
+            throw new HasException("Expected " + authTokens.size() + " responses but got "
+                + results.length());
+        }
+
+        List<TgtTicket> tgts = new ArrayList<>(authTokens.size());
+        for (int i = 0; i < results.length(); i++) {
+            String passPhrase = (String) authTokens.get(i).getAttributes().get("passPhrase");
+            TgtTicket tgt = null;
+            try {
+                tgt = handleResponse(results.getJSONObject(i), passPhrase, false);
+            } catch (HasException | JSONException e) {
+                LOG.warn("Failed to get the tgt of token " + i + ". " + e.getMessage());
+            }
+            tgts.add(tgt);
+        }
+        return tgts;
+    }
+
+    /**
+     * Send a PUT request to the HAS servers, trying each of them until one
+     * responds.
+     * @return The response body
+     */
+    private String putRequest(HasConfig config, String path, byte[] body, String contentType)
+        throws HasException {
+        if (config.getHttpsPort() == null || config.getHttpsHost() == null) {
+            throw new HasException("Please set https host and port.");
+        }
+        String sslClientConfPath = clientConfigFolder + "/ssl-client.conf";
+        URLConnectionFactory connectionFactory = HasClientUtil.getConnectionFactory(sslClientConfPath);
+
+        int responseStatus = 0;
+        URL url;
+        String[] hosts = config.getHttpsHost().split(",");
+        for (String host : hosts) {
+            try {
+                url = new URL("https://" + host.trim() + ":" + config.getHttpsPort() + path);
+            } catch (MalformedURLException e) {
+                LOG.warn("Failed to get url. " + e.toString());
+                continue;
+            }
+            HttpURLConnection conn;
+            try {
+                conn = (HttpURLConnection) connectionFactory.openConnection(url);
+            } catch (IOException e) {
+                LOG.warn("Failed to open connection. " + e.toString());
+                continue;
+            }
+
+            conn.setRequestProperty("Content-Type", contentType);
+            try {
+                conn.setRequestMethod("PUT");
+            } catch (ProtocolException e) {
+                LOG.warn("Failed to set request method. " + e.toString());
+                continue;
+            }
+            conn.setDoOutput(true);
+            conn.setDoInput(true);
+            try {
+                conn.connect();
+                if (body != null) {
+                    try (OutputStream out = conn.getOutputStream()) {
+                        out.write(body);
+                    }
+                }
+
+                responseStatus = conn.getResponseCode();
+                // Read to the end even on error, so the connection is reused
+                String response = HasClientUtil.getResponse(conn);
+                if (responseStatus == 200 || responseStatus == 201) {
+                    return response;
+                }
+            } catch (IOException e) {
+                LOG.warn("ERROR! " + e.toString());
+            }
+        }
+        throw new HasException("Failed: HTTP error code : " + responseStatus);
+    }
+
     private File loadSslClientConf(HasConfig config, String sslClientConfPath) throws HasException {
         File sslClientConf = new File(sslClientConfPath);
         if (!sslClientConf.exists()) {
@@ -389,12 +439,21 @@ public class HasClient {
     }
 
     public TgtTicket handleResponse(JSONObject json, String passPhrase)
+        throws HasException {
+        return handleResponse(json, passPhrase, true);
+    }
+
+    private TgtTicket handleResponse(JSONObject json, String passPhrase, boolean store)
         throws HasException {
         KrbMessage kdcRep = getKrbMessage(json);
 
         KrbMessageType messageType = kdcRep.getMsgType();
         if (messageType == KrbMessageType.AS_REP) {
-            return processResponse((KdcRep) kdcRep, passPhrase);
+            TgtTicket tgtTicket = getTgtTicket((KdcRep) kdcRep, passPhrase);
+            if (store) {
+                storeTgtTicket(tgtTicket);
+            }
+            return tgtTicket;
         } else if (messageType == KrbMessageType.KRB_ERROR) {
             KrbError error = (KrbError) kdcRep;
             LOG.error("HAS server response with message: "
@@ -407,6 +466,13 @@ public class HasClient {
 
     public TgtTicket processResponse(KdcRep kdcRep, String passPhrase)
         throws HasException {
+        TgtTicket tgtTicket = getTgtTicket(kdcRep, passPhrase);
+        storeTgtTicket(tgtTicket);
+        return tgtTicket;
+    }
+
+    private TgtTicket getTgtTicket(KdcRep kdcRep, String passPhrase)
+        throws HasException {
 
         PrincipalName clientPrincipal = kdcRep.getCname();
         String clientRealm = kdcRep.getCrealm();
@@ -438,14 +504,18 @@ public class HasClient {
         TgtTicket tgtTicket = getTicket(kdcRep);
         LOG.debug("Ticket expire time: " + tgtTicket.getEncKdcRepPart().getEndTime());
 
-        storeTgtTicket(tgtTicket);
-
         return tgtTicket;
 
     }
 
     private void storeTgtTicket(TgtTicket tgtTicket) throws HasException {
         String ccacheName = getCcacheName();
+        if (MemoryCredentialCache.isMemoryCache(ccacheName)) {
+            // Added, not initialized, as the cache may be shared with other clients
+            LOG.debug("Storing the tgt to the memory credential cache.");
+            MemoryCredentialCache.getInstance(ccacheName).addCredential(new Credential(tgtTicket));
+            return;
+        }
         File ccacheFile = new File(ccacheName);
         LOG.debug("Storing the tgt to the credential cache file.");
         if (!ccacheFile.exists()) {
@@ -24,35 +24,97 @@ import org.apache.kerby.has.common.HasException;
 import org.apache.kerby.has.common.ssl.SSLFactory;
 import org.apache.kerby.has.common.util.URLConnectionFactory;
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class HasClientUtil {
+    private static final Logger LOG = LoggerFactory.getLogger(HasClientUtil.class);
+
+    private static final ConcurrentMap<String, URLConnectionFactory> CONNECTION_FACTORIES =
+        new ConcurrentHashMap<>();
 
     public static HttpURLConnection getHttpsConnection(HasConfig hasConfig, URL url, boolean isSpnego)
             throws Exception {
-        HasConfig conf = new HasConfig();
-
-        conf.setString(SSLFactory.SSL_HOSTNAME_VERIFIER_KEY, "ALLOW_ALL");
         String sslClientConf = hasConfig.getSslClientConf();
         File sslClientConfFile = new File(sslClientConf);
         if (!sslClientConfFile.exists()) {
             throw new HasException("The ssl client config file "
                 + sslClientConf + " does not exist.");
         }
+
+        URLConnectionFactory connectionFactory = getConnectionFactory(sslClientConf);
+        return (HttpURLConnection) connectionFactory.openConnection(url, isSpnego, hasConfig);
+    }
+
+    /**
+     * Get the connection factory of the ssl client config. It's created once
+     * for the config, so the trust store is loaded once and the connections
+     * share the SSL socket factory, which lets the JDK keep the connections
+     * to the HAS server alive and reuse them.
+     *
+     * @param sslClientConf the ssl client config file
+     * @return the connection factory
+     */
+    public static URLConnectionFactory getConnectionFactory(String sslClientConf) {
+        URLConnectionFactory connectionFactory = CONNECTION_FACTORIES.get(sslClientConf);
+        if (connectionFactory != null) {
+            return connectionFactory;
+        }
+
+        HasConfig conf = new HasConfig();
+        conf.setString(SSLFactory.SSL_HOSTNAME_VERIFIER_KEY, "ALLOW_ALL");
         conf.setString(SSLFactory.SSL_CLIENT_CONF_KEY, sslClientConf);
         conf.setBoolean(SSLFactory.SSL_REQUIRE_CLIENT_CERT_KEY, false);
+        try {
+            connectionFactory = URLConnectionFactory.newSslURLConnectionFactory(conf);
+        } catch (IOException | GeneralSecurityException | HasException e) {
+            // Not cached, so the config is loaded again once fixed
+            LOG.debug("Cannot load the ssl client config " + sslClientConf
+                + ". Fallback to system-generic settings.", e);
+            return URLConnectionFactory.newDefaultURLConnectionFactory(conf);
+        }
+        URLConnectionFactory existing = CONNECTION_FACTORIES.putIfAbsent(sslClientConf, connectionFactory);
+        if (existing != null) {
+            connectionFactory.destroy();
+            return existing;
+        }
+        return connectionFactory;
+    }
 
-        URLConnectionFactory connectionFactory = URLConnectionFactory
-                .newDefaultURLConnectionFactory(conf);
-        return (HttpURLConnection) connectionFactory.openConnection(url, isSpnego, hasConfig);
+    /**
+     * Close the connection factory of the ssl client config, releasing its
+     * SSL factory. The next connection creates a new one.
+     *
+     * @param sslClientConf the ssl client config file
+     */
+    public static void closeConnectionFactory(String sslClientConf) {
+        URLConnectionFactory connectionFactory = CONNECTION_FACTORIES.remove(sslClientConf);
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    /**
+     * Close the connection factories of all the ssl client configs, like
+     * when the HAS client is no longer used in the process.
+     */
+    public static void closeConnectionFactories() {
+        for (String sslClientConf : CONNECTION_FACTORIES.keySet()) {
+            closeConnectionFactory(sslClientConf);
+        }
     }
 
     /**
@@ -106,6 +168,14 @@ public class HasClientUtil {
         return url;
     }
 
+    /**
+     * Read the whole response, or the error of the server. The stream is read
+     * to the end and closed, so the connection can be reused.
+     *
+     * @param httpConn the connection
+     * @return the response
+     * @throws IOException e
+     */
     public static String getResponse(HttpURLConnection httpConn) throws IOException {
         StringBuilder data = new StringBuilder();
 
@@ -114,11 +184,11 @@ public class HasClientUtil {
             throw new IOException("Failed to get the InputStream");
         }
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
-            String s;
-            while ((s = br.readLine()) != null) {
-                data.append(s);
-                data.append(System.getProperty("line.separator"));
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                data.append(buffer, 0, read);
             }
             return data.toString();
         }
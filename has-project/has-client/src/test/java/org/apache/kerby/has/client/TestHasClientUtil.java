@@ -0,0 +1,134 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.has.client;
+
+import org.apache.kerby.has.common.util.URLConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TestHasClientUtil {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private String sslClientConf;
+
+    @Before
+    public void setUp() throws Exception {
+        File trustStore = tmpFolder.newFile("truststore.jks");
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        try (OutputStream out = new FileOutputStream(trustStore)) {
+            keyStore.store(out, "trustP".toCharArray());
+        }
+
+        File confFile = tmpFolder.newFile("ssl-client.conf");
+        String conf = "ssl.client.truststore.location = " + trustStore.getAbsolutePath() + "\n"
+            + "ssl.client.truststore.password = trustP\n";
+        Files.write(confFile.toPath(), conf.getBytes(StandardCharsets.UTF_8));
+        sslClientConf = confFile.getAbsolutePath();
+    }
+
+    @After
+    public void tearDown() {
+        HasClientUtil.closeConnectionFactories();
+    }
+
+    @Test
+    public void testConnectionFactory() {
+        URLConnectionFactory factory = HasClientUtil.getConnectionFactory(sslClientConf);
+        assertSame(factory, HasClientUtil.getConnectionFactory(sslClientConf));
+
+        // The cache is emptied, the next connection creates a new factory
+        HasClientUtil.closeConnectionFactories();
+        URLConnectionFactory newFactory = HasClientUtil.getConnectionFactory(sslClientConf);
+        assertNotSame(factory, newFactory);
+        assertSame(newFactory, HasClientUtil.getConnectionFactory(sslClientConf));
+    }
+
+    @Test
+    public void testGetResponse() throws Exception {
+        String body = "{\n  \"success\": \"true\",\n  \"krbMessage\": \"line1\nline2\"\n}\n";
+        assertEquals(body, HasClientUtil.getResponse(new StubConnection(200, body)));
+        assertEquals("Not found.\n", HasClientUtil.getResponse(new StubConnection(404, "Not found.\n")));
+    }
+
+    /**
+     * A connection answering the given status and body, the body as the
+     * error stream of the error statuses.
+     */
+    private static class StubConnection extends HttpURLConnection {
+        private final int status;
+        private final byte[] body;
+
+        StubConnection(int status, String body) throws IOException {
+            super(new URL("http://localhost/"));
+            this.status = status;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int getResponseCode() {
+            return status;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+}
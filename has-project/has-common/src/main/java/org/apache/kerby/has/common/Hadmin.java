@@ -21,6 +21,7 @@ package org.apache.kerby.has.common;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Server side admin facilities from remote, similar to MIT kadmin remote mode.
@@ -30,6 +31,14 @@ public interface Hadmin {
 
     List<String> addPrincByRole(String host, String role) throws HasException;
 
+    /**
+     * Add the principals of many hosts and roles at once.
+     * @param hostRoles The roles of each host
+     * @return The result messages, one for each principal
+     * @throws HasException e
+     */
+    List<String> addPrincsByRoles(Map<String, List<String>> hostRoles) throws HasException;
+
     File getKeytabByHostAndRole(String host, String role) throws HasException;
 
     void getHostRoles();
@@ -17,6 +17,8 @@
 */
 package org.apache.kerby.has.common.ssl;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.kerby.has.common.HasConfig;
@@ -49,11 +51,19 @@ import static org.apache.kerby.has.common.util.PlatformName.IBM_JAVA;
  *
  * This factory is used to configure HTTPS in Hadoop HTTP based endpoints, both
  * client and server.
+ *
+ * The SSL configuration file, the keystore and the truststore are checked
+ * for changes at the truststore reload interval, when a change is found the
+ * SSLContext is built again and swapped in, so the sessions trusted with the
+ * old material aren't resumed. Use {@link SSLFactoryCache} to share a factory, and
+ * so the TLS sessions of its SSLContext, in a process.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
 public class SSLFactory implements ConnectionConfigurator {
 
+  private static final Log LOG = LogFactory.getLog(SSLFactory.class);
+
   @InterfaceAudience.Private
   public enum Mode {
     CLIENT, SERVER
@@ -80,9 +90,14 @@ public class SSLFactory implements ConnectionConfigurator {
   private HasConfig conf;
   private Mode mode;
   private boolean requireClientCert;
-  private SSLContext context;
+  private volatile SSLContext context;
+  private volatile SSLSocketFactory socketFactory;
   private HostnameVerifier hostnameVerifier;
   private KeyStoresFactory keystoresFactory;
+  private File sslConfFile;
+  private long reloadInterval;
+  private long lastModified;
+  private volatile long nextReloadCheck;
 
   private String[] enabledProtocols = null;
 
@@ -106,6 +121,9 @@ public class SSLFactory implements ConnectionConfigurator {
 
     keystoresFactory = new KeyStoresFactory();
     keystoresFactory.setConf(sslConf);
+    reloadInterval = sslConf.getLong(KeyStoresFactory.resolvePropertyName(mode,
+        KeyStoresFactory.SSL_TRUSTSTORE_RELOAD_INTERVAL_TPL_KEY),
+        KeyStoresFactory.DEFAULT_SSL_TRUSTSTORE_RELOAD_INTERVAL);
 
     enabledProtocols = new String[] {"TLSv1", "TLSv1.1", "TLSv1.2"};
   }
@@ -119,8 +137,9 @@ public class SSLFactory implements ConnectionConfigurator {
     } else {
       sslConfResource = conf.getString(SSLFactory.SSL_SERVER_CONF_KEY);
     }
+    sslConfFile = new File(sslConfResource);
     try {
-      sslConf.addIniConfig(new File(sslConfResource));
+      sslConf.addIniConfig(sslConfFile);
     } catch (IOException e) {
       throw new HasException(e);
     }
@@ -136,14 +155,79 @@ public class SSLFactory implements ConnectionConfigurator {
    * configuration.
    */
   public void init() throws GeneralSecurityException, IOException {
-    keystoresFactory.init(mode);
-    context = SSLContext.getInstance("TLS");
-    context.init(keystoresFactory.getKeyManagers(),
-                 keystoresFactory.getTrustManagers(), null);
-    context.getDefaultSSLParameters().setProtocols(enabledProtocols);
+    lastModified = getLastModified(keystoresFactory.getConf());
+    context = createContext(keystoresFactory);
+    socketFactory = context.getSocketFactory();
+    nextReloadCheck = System.currentTimeMillis() + reloadInterval;
     hostnameVerifier = getHostnameVerifier(conf);
   }
 
+  private SSLContext createContext(KeyStoresFactory factory)
+      throws GeneralSecurityException, IOException {
+    factory.init(mode);
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(factory.getKeyManagers(),
+                    factory.getTrustManagers(), null);
+    sslContext.getDefaultSSLParameters().setProtocols(enabledProtocols);
+    return sslContext;
+  }
+
+  /**
+   * The last modification time of the SSL configuration file and of the
+   * keystore and truststore it names.
+   */
+  private long getLastModified(HasConfig sslConf) {
+    long modified = sslConfFile.lastModified();
+    for (String locationKey : new String[] {KeyStoresFactory.SSL_KEYSTORE_LOCATION_TPL_KEY,
+        KeyStoresFactory.SSL_TRUSTSTORE_LOCATION_TPL_KEY}) {
+      String location = sslConf.getString(KeyStoresFactory.resolvePropertyName(mode, locationKey), "");
+      if (!location.isEmpty()) {
+        modified = Math.max(modified, new File(location).lastModified());
+      }
+    }
+    return modified;
+  }
+
+  /**
+   * Builds the SSLContext again if the SSL configuration file, the keystore
+   * or the truststore changed, checked once per reload interval. If the new
+   * material can't be loaded, e.g. a keystore being written, the current
+   * SSLContext is kept and the check is done again at the next interval.
+   */
+  private void reloadIfModified() {
+    long now = System.currentTimeMillis();
+    if (now < nextReloadCheck) {
+      return;
+    }
+    synchronized (this) {
+      if (now < nextReloadCheck) {
+        return;
+      }
+      nextReloadCheck = now + reloadInterval;
+      if (getLastModified(keystoresFactory.getConf()) == lastModified) {
+        return;
+      }
+
+      KeyStoresFactory newFactory = new KeyStoresFactory();
+      try {
+        HasConfig sslConf = readSSLConfiguration(mode);
+        newFactory.setConf(sslConf);
+        long modified = getLastModified(sslConf);
+        context = createContext(newFactory);
+        socketFactory = context.getSocketFactory();
+        lastModified = modified;
+      } catch (HasException | GeneralSecurityException | IOException e) {
+        newFactory.destroy();
+        LOG.warn("Failed to reload the SSL configuration "
+            + sslConfFile + ", keeping the current one", e);
+        return;
+      }
+      keystoresFactory.destroy();
+      keystoresFactory = newFactory;
+      LOG.info("Reloaded the SSL configuration " + sslConfFile);
+    }
+  }
+
   private HostnameVerifier getHostnameVerifier(HasConfig conf)
       throws GeneralSecurityException, IOException {
     return getHostnameVerifier(StringUtils.toUpperCase(
@@ -173,7 +257,7 @@ public class SSLFactory implements ConnectionConfigurator {
   /**
    * Releases any resources being used.
    */
-  public void destroy() {
+  public synchronized void destroy() {
     keystoresFactory.destroy();
   }
   /**
@@ -181,7 +265,7 @@ public class SSLFactory implements ConnectionConfigurator {
    *
    * @return the SSLFactory KeyStoresFactory instance.
    */
-  public KeyStoresFactory getKeystoresFactory() {
+  public synchronized KeyStoresFactory getKeystoresFactory() {
     return keystoresFactory;
   }
 
@@ -196,6 +280,7 @@ public class SSLFactory implements ConnectionConfigurator {
    */
   public SSLEngine createSSLEngine()
     throws GeneralSecurityException, IOException {
+    reloadIfModified();
     SSLEngine sslEngine = context.createSSLEngine();
     if (mode == Mode.CLIENT) {
       sslEngine.setUseClientMode(true);
@@ -221,11 +306,14 @@ public class SSLFactory implements ConnectionConfigurator {
     if (mode != Mode.SERVER) {
       throw new IllegalStateException("Factory is in CLIENT mode");
     }
+    reloadIfModified();
     return context.getServerSocketFactory();
   }
 
   /**
-   * Returns a configured SSLSocketFactory.
+   * Returns the SSLSocketFactory of the current SSLContext. The same instance
+   * is returned until the SSLContext is reloaded, so the JDK can keep the
+   * connections made with it alive and reuse them.
    *
    * @return the configured SSLSocketFactory.
    * @throws GeneralSecurityException thrown if the SSLSocketFactory could not
@@ -238,7 +326,8 @@ public class SSLFactory implements ConnectionConfigurator {
     if (mode != Mode.CLIENT) {
       throw new IllegalStateException("Factory is in CLIENT mode");
     }
-    return context.getSocketFactory();
+    reloadIfModified();
+    return socketFactory;
   }
 
   /**
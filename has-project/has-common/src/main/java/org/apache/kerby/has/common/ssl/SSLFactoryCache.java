@@ -0,0 +1,119 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.has.common.ssl;
+
+import org.apache.kerby.has.common.HasConfig;
+import org.apache.kerby.has.common.HasException;
+import org.apache.kerby.has.common.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Process wide cache of the initialized {@link SSLFactory} instances, keyed
+ * by the mode, the SSL configuration file, the hostname verifier and
+ * whether client certificates are required. The keystores are loaded once
+ * per key instead of per connection factory, and the users of a key share
+ * the SSLContext, so its TLS sessions are resumed across them.
+ *
+ * The factories are reference counted, each {@link #acquire} is matched by
+ * a {@link #release}, and the factory is destroyed when the last user
+ * releases it.
+ */
+public final class SSLFactoryCache {
+
+  private static final Map<String, Entry> ENTRIES = new HashMap<>();
+
+  private SSLFactoryCache() {
+  }
+
+  /**
+   * Returns the factory of the configuration, creating and initializing it
+   * if it's not in use.
+   *
+   * @param mode SSLFactory mode, client or server.
+   * @param conf configuration from where the SSLFactory configuration is read.
+   * @return the initialized factory.
+   * @throws HasException thrown if the SSL configuration can't be read.
+   * @throws GeneralSecurityException thrown if an SSL initialization error
+   * happened.
+   * @throws IOException thrown if an IO error happened while loading the
+   * keystores.
+   */
+  public static synchronized SSLFactory acquire(SSLFactory.Mode mode, HasConfig conf)
+      throws HasException, GeneralSecurityException, IOException {
+    String key = getKey(mode, conf);
+    Entry entry = ENTRIES.get(key);
+    if (entry == null) {
+      SSLFactory factory = new SSLFactory(mode, conf);
+      factory.init();
+      entry = new Entry(factory);
+      ENTRIES.put(key, entry);
+    }
+    entry.refCount++;
+    return entry.factory;
+  }
+
+  /**
+   * Releases a factory returned by {@link #acquire}, destroying it when it's
+   * no longer in use.
+   *
+   * @param factory the factory to release.
+   */
+  public static synchronized void release(SSLFactory factory) {
+    Iterator<Entry> iterator = ENTRIES.values().iterator();
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entry.factory == factory) {
+        if (--entry.refCount == 0) {
+          iterator.remove();
+          factory.destroy();
+        }
+        return;
+      }
+    }
+  }
+
+  private static String getKey(SSLFactory.Mode mode, HasConfig conf) {
+    String sslConfResource = mode == SSLFactory.Mode.CLIENT
+        ? conf.getString(SSLFactory.SSL_CLIENT_CONF_KEY)
+        : conf.getString(SSLFactory.SSL_SERVER_CONF_KEY);
+    String sslConfPath = sslConfResource == null ? ""
+        : new File(sslConfResource).getAbsolutePath();
+    String verifier = StringUtils.toUpperCase(
+        conf.getString(SSLFactory.SSL_HOSTNAME_VERIFIER_KEY, "DEFAULT").trim());
+    boolean requireClientCert = conf.getBoolean(SSLFactory.SSL_REQUIRE_CLIENT_CERT_KEY,
+        SSLFactory.DEFAULT_SSL_REQUIRE_CLIENT_CERT);
+    return mode + "|" + sslConfPath + "|" + verifier + "|" + requireClientCert;
+  }
+
+  private static final class Entry {
+    private final SSLFactory factory;
+    private int refCount;
+
+    Entry(SSLFactory factory) {
+      this.factory = factory;
+    }
+  }
+}
@@ -25,12 +25,12 @@ import org.apache.kerby.has.common.spnego.AuthenticatedURL;
 import org.apache.kerby.has.common.spnego.AuthenticationException;
 import org.apache.kerby.has.common.spnego.KerberosHasAuthenticator;
 import org.apache.kerby.has.common.ssl.SSLFactory;
+import org.apache.kerby.has.common.ssl.SSLFactoryCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -55,6 +55,8 @@ public class URLConnectionFactory {
    // 1 minute
   public static final int DEFAULT_SOCKET_TIMEOUT = 60 * 1000;
   private final ConnectionConfigurator connConfigurator;
+  private final SSLFactory sslFactory;
+  private boolean destroyed;
 
   private static final ConnectionConfigurator DEFAULT_TIMEOUT_CONN_CONFIGURATOR
       = new ConnectionConfigurator() {
@@ -91,47 +93,95 @@ public class URLConnectionFactory {
           e);
       conn = DEFAULT_TIMEOUT_CONN_CONFIGURATOR;
     }
-    return new URLConnectionFactory(conn);
+    return new URLConnectionFactory(conn, getSslFactory(conn));
+  }
+
+  /**
+   * Construct a new URLConnectionFactory that loads the SSL certificates of
+   * the configuration, failing rather than falling back to the system
+   * settings. The connections of a factory share one SSL socket factory,
+   * so they can be kept alive and reused.
+   * @param conf The has config
+   * @return URLConnectionFactory The URL connection factory.
+   * @throws IOException e
+   * @throws GeneralSecurityException e
+   * @throws HasException e
+   */
+  public static URLConnectionFactory newSslURLConnectionFactory(HasConfig conf)
+      throws IOException, GeneralSecurityException, HasException {
+    ConnectionConfigurator conn = newSslConnConfigurator(DEFAULT_SOCKET_TIMEOUT, conf);
+    return new URLConnectionFactory(conn, getSslFactory(conn));
   }
 
   URLConnectionFactory(ConnectionConfigurator connConfigurator) {
+    this(connConfigurator, null);
+  }
+
+  private URLConnectionFactory(ConnectionConfigurator connConfigurator, SSLFactory sslFactory) {
     this.connConfigurator = connConfigurator;
+    this.sslFactory = sslFactory;
+  }
+
+  private static SSLFactory getSslFactory(ConnectionConfigurator conn) {
+    return conn instanceof SslConnConfigurator ? ((SslConnConfigurator) conn).factory : null;
   }
 
   /**
-   * Create a new ConnectionConfigurator for SSL connections
+   * Releases the SSL factory of the connection factory to
+   * {@link SSLFactoryCache}, once the factory is no longer used.
+   */
+  public synchronized void destroy() {
+    if (sslFactory != null && !destroyed) {
+      destroyed = true;
+      SSLFactoryCache.release(sslFactory);
+    }
+  }
+
+  /**
+   * Create a new ConnectionConfigurator for SSL connections. The SSL factory
+   * is shared through {@link SSLFactoryCache}, and its socket factory is
+   * taken per connection, the same one until a reloaded keystore replaces
+   * it.
    */
   private static ConnectionConfigurator newSslConnConfigurator(
       final int defaultTimeout, HasConfig conf)
       throws IOException, GeneralSecurityException, HasException {
-    final SSLFactory factory;
-    final SSLSocketFactory sf;
-    final HostnameVerifier hv;
-    final int connectTimeout;
-    final int readTimeout;
-
-    factory = new SSLFactory(SSLFactory.Mode.CLIENT, conf);
-    factory.init();
-    sf = factory.createSSLSocketFactory();
-    hv = factory.getHostnameVerifier();
-
-    connectTimeout = defaultTimeout;
-
-    readTimeout = defaultTimeout;
-
-    return new ConnectionConfigurator() {
-      @Override
-      public HttpURLConnection configure(HttpURLConnection conn)
-          throws IOException {
-        if (conn instanceof HttpsURLConnection) {
-          HttpsURLConnection c = (HttpsURLConnection) conn;
-          c.setSSLSocketFactory(sf);
-          c.setHostnameVerifier(hv);
+    return new SslConnConfigurator(SSLFactoryCache.acquire(SSLFactory.Mode.CLIENT, conf),
+        defaultTimeout, defaultTimeout);
+  }
+
+  /**
+   * Configures the connections with the socket factory and the hostname
+   * verifier of an SSL factory.
+   */
+  private static final class SslConnConfigurator implements ConnectionConfigurator {
+    private final SSLFactory factory;
+    private final HostnameVerifier hv;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    SslConnConfigurator(SSLFactory factory, int connectTimeout, int readTimeout) {
+      this.factory = factory;
+      this.hv = factory.getHostnameVerifier();
+      this.connectTimeout = connectTimeout;
+      this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public HttpURLConnection configure(HttpURLConnection conn)
+        throws IOException {
+      if (conn instanceof HttpsURLConnection) {
+        HttpsURLConnection c = (HttpsURLConnection) conn;
+        try {
+          c.setSSLSocketFactory(factory.createSSLSocketFactory());
+        } catch (GeneralSecurityException e) {
+          throw new IOException(e);
         }
-        URLConnectionFactory.setTimeouts(conn, connectTimeout, readTimeout);
-        return conn;
+        c.setHostnameVerifier(hv);
       }
-    };
+      URLConnectionFactory.setTimeouts(conn, connectTimeout, readTimeout);
+      return conn;
+    }
   }
 
   /**
@@ -0,0 +1,106 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.has.common.ssl;
+
+import org.apache.kerby.has.common.HasConfig;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestSSLFactoryCache {
+  private static final long RELOAD_INTERVAL = 50;
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File trustStore;
+  private HasConfig conf;
+
+  @Before
+  public void setUp() throws Exception {
+    trustStore = tmpFolder.newFile("truststore.jks");
+    KeyStore keyStore = KeyStore.getInstance("JKS");
+    keyStore.load(null, null);
+    try (OutputStream out = new FileOutputStream(trustStore)) {
+      keyStore.store(out, "trustP".toCharArray());
+    }
+
+    File confFile = tmpFolder.newFile("ssl-client.conf");
+    String sslConf = "ssl.client.truststore.location = " + trustStore.getAbsolutePath() + "\n"
+        + "ssl.client.truststore.password = trustP\n"
+        + "ssl.client.truststore.reload.interval = " + RELOAD_INTERVAL + "\n";
+    Files.write(confFile.toPath(), sslConf.getBytes(StandardCharsets.UTF_8));
+
+    conf = new HasConfig();
+    conf.setString(SSLFactory.SSL_HOSTNAME_VERIFIER_KEY, "ALLOW_ALL");
+    conf.setString(SSLFactory.SSL_CLIENT_CONF_KEY, confFile.getAbsolutePath());
+  }
+
+  @Test
+  public void testAcquireAndRelease() throws Exception {
+    SSLFactory factory = SSLFactoryCache.acquire(SSLFactory.Mode.CLIENT, conf);
+    SSLFactory shared = SSLFactoryCache.acquire(SSLFactory.Mode.CLIENT, conf);
+    assertSame(factory, shared);
+
+    // Still in use, so not destroyed
+    SSLFactoryCache.release(shared);
+    assertSame(factory, SSLFactoryCache.acquire(SSLFactory.Mode.CLIENT, conf));
+    SSLFactoryCache.release(factory);
+    SSLFactoryCache.release(factory);
+
+    // Destroyed on the last release, the next acquire creates another one
+    SSLFactory created = SSLFactoryCache.acquire(SSLFactory.Mode.CLIENT, conf);
+    try {
+      assertNotSame(factory, created);
+    } finally {
+      SSLFactoryCache.release(created);
+    }
+  }
+
+  @Test
+  public void testReloadIfModified() throws Exception {
+    SSLFactory factory = SSLFactoryCache.acquire(SSLFactory.Mode.CLIENT, conf);
+    try {
+      SSLSocketFactory socketFactory = factory.createSSLSocketFactory();
+      Thread.sleep(2 * RELOAD_INTERVAL);
+      assertSame(socketFactory, factory.createSSLSocketFactory());
+
+      // Touching the truststore builds a new SSLContext at the next check
+      assertTrue(trustStore.setLastModified(trustStore.lastModified() + 10000));
+      Thread.sleep(2 * RELOAD_INTERVAL);
+      assertNotSame(socketFactory, factory.createSSLSocketFactory());
+    } finally {
+      SSLFactoryCache.release(factory);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.has.plugins.server;
+
+import org.apache.kerby.util.SaltedDigestCache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A short lived cache of the successful authentications of a plugin, so a
+ * login storm, like the one of a cluster restart, doesn't hit the user
+ * store once per login. Only successes are cached, for the configured time
+ * to live, and a zero time to live disables the cache.
+ *
+ * An entry is keyed by the salted digest of the user and the credential,
+ * so the credentials aren't kept in memory.
+ */
+public class AuthCache {
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final long ttl;
+    private final SaltedDigestCache<Long> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param ttl The milliseconds a success is kept, 0 to disable the cache
+     */
+    public AuthCache(long ttl) {
+        this(ttl, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param ttl The milliseconds a success is kept, 0 to disable the cache
+     * @param capacity The max number of successes kept
+     */
+    public AuthCache(long ttl, final int capacity) {
+        this.ttl = ttl;
+        this.entries = new SaltedDigestCache<>(capacity);
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * Query to know if the user has been authenticated with the credential
+     * within the time to live.
+     * @param user The user
+     * @param credential The credential
+     * @return true if the success is cached
+     */
+    public boolean isAuthenticated(String user, String credential) {
+        if (!isEnabled() || user == null || credential == null) {
+            return false;
+        }
+        ByteBuffer key = digest(user, credential);
+        Long expireTime = entries.get(key);
+        boolean authenticated = expireTime != null && System.currentTimeMillis() < expireTime;
+        if (expireTime != null && !authenticated) {
+            entries.remove(key, expireTime);
+        }
+        if (authenticated) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return authenticated;
+    }
+
+    /**
+     * Cache the success of the user authenticated with the credential.
+     * @param user The user
+     * @param credential The credential
+     */
+    public void authenticated(String user, String credential) {
+        if (isEnabled() && user != null && credential != null) {
+            entries.put(digest(user, credential), System.currentTimeMillis() + ttl);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private ByteBuffer digest(String user, String credential) {
+        return entries.digest(user.getBytes(StandardCharsets.UTF_8),
+            credential.getBytes(StandardCharsets.UTF_8));
+    }
+}
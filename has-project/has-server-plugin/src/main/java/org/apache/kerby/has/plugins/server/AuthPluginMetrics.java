@@ -0,0 +1,151 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.has.plugins.server;
+
+import org.apache.kerby.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The metrics of a plugin that authenticates against a pooled user store:
+ * the hits and misses of its {@link AuthCache}, and the times spent waiting
+ * for a pooled connection. They are registered as an MXBean once the pool
+ * is created.
+ */
+public class AuthPluginMetrics implements AuthPluginMetricsMXBean {
+    private static final Logger LOG = LoggerFactory.getLogger(AuthPluginMetrics.class);
+
+    private final AuthCache authCache;
+    private final LatencyHistogram poolWaitTimes = new LatencyHistogram();
+    private ObjectName objectName;
+
+    /**
+     * @param authCache The cache of the successful authentications
+     */
+    public AuthPluginMetrics(AuthCache authCache) {
+        this.authCache = authCache;
+    }
+
+    /**
+     * Get the name the metrics of a plugin are registered under.
+     * @param loginType The login type of the plugin
+     * @return The MXBean name
+     * @throws MalformedObjectNameException if the name is invalid
+     */
+    public static ObjectName getObjectName(String loginType) throws MalformedObjectNameException {
+        return new ObjectName("org.apache.kerby:type=HasServerPluginMetrics,name="
+            + ObjectName.quote(loginType));
+    }
+
+    /**
+     * Record the time spent waiting for a pooled connection.
+     * @param nanos The wait time in nanoseconds
+     */
+    public void recordPoolWait(long nanos) {
+        poolWaitTimes.record(nanos);
+    }
+
+    /**
+     * Get the times spent waiting for a pooled connection.
+     * @return The wait times
+     */
+    public LatencyHistogram getPoolWaitTimeHistogram() {
+        return poolWaitTimes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAuthCacheHits() {
+        return authCache.getHits();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAuthCacheMisses() {
+        return authCache.getMisses();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getAuthCacheSize() {
+        return authCache.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Double> getPoolWaitTimes() {
+        Map<String, Double> result = new TreeMap<>();
+        poolWaitTimes.snapshot().summarize(result, "pool_wait");
+        return result;
+    }
+
+    /**
+     * Register the metrics as an MXBean, unless some are already registered
+     * under the name.
+     * @param loginType The login type of the plugin
+     */
+    public synchronized void register(String loginType) {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            ObjectName newName = getObjectName(loginType);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(newName)) {
+                LOG.warn("Plugin metrics MBean " + newName + " already registered, not registering it");
+                return;
+            }
+            server.registerMBean(this, newName);
+            objectName = newName;
+        } catch (JMException e) {
+            LOG.warn("Failed to register the plugin metrics MBean", e);
+        }
+    }
+
+    /**
+     * Unregister the MXBean, if registered.
+     */
+    public synchronized void unregister() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn("Failed to unregister the plugin metrics MBean", e);
+            }
+            objectName = null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.has.plugins.server;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link AuthPluginMetrics}.
+ */
+public interface AuthPluginMetricsMXBean {
+
+    /**
+     * @return The number of authentications found in the cache
+     */
+    long getAuthCacheHits();
+
+    /**
+     * @return The number of authentications not found in the cache
+     */
+    long getAuthCacheMisses();
+
+    /**
+     * @return The number of successes in the cache
+     */
+    int getAuthCacheSize();
+
+    /**
+     * @return The count, mean, p50, p99, p999 and max times in microseconds
+     * spent waiting for a pooled connection, like "pool_wait.p99"
+     */
+    Map<String, Double> getPoolWaitTimes();
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.kerby.has.plugins.server.ldap;
 
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
@@ -24,52 +25,129 @@ import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.ldap.model.name.Rdn;
 import org.apache.directory.api.ldap.model.password.PasswordUtil;
-import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.apache.directory.ldap.client.api.DefaultPoolableLdapConnectionFactory;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
 import org.apache.kerby.has.common.HasException;
+import org.apache.kerby.has.plugins.server.AuthCache;
+import org.apache.kerby.has.plugins.server.AuthPluginMetrics;
 import org.apache.kerby.has.plugins.server.ldap.conf.LDAPServerConf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Authenticates the users against the LDAP server of ldap-server.ini. The
+ * users are looked up over a pool of connections bound as the configured
+ * dn, and the successes may be cached for a short time.
+ */
 public class LDAPUtils {
     public static final Logger LOG = LoggerFactory.getLogger(LDAPUtils.class);
 
     private static String ldapServerConfDir = "/etc/has/";
     private static LDAPServerConf ldapServerConf = null;
+    private static AuthCache authCache = new AuthCache(0);
+    private static AuthPluginMetrics metrics;
+    private static volatile LdapConnectionPool connectionPool;
     static {
         try {
             ldapServerConf = new LDAPServerConf(ldapServerConfDir);
+            authCache = new AuthCache(TimeUnit.SECONDS.toMillis(ldapServerConf.getAuthCacheTtl()));
         } catch (Exception e) {
             LOG.error("load conf failed,", e);
         }
+        metrics = new AuthPluginMetrics(authCache);
+    }
+
+    /**
+     * Get the cache of the successful authentications.
+     * @return The cache, disabled unless auth_cache_ttl is set
+     */
+    public static AuthCache getAuthCache() {
+        return authCache;
+    }
+
+    /**
+     * Get the metrics of the cache and of the connection pool, registered
+     * as an MXBean once the pool is created.
+     * @return The metrics
+     */
+    public static AuthPluginMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static LdapConnectionPool getConnectionPool() throws HasException {
+        LdapConnectionPool pool = connectionPool;
+        if (pool == null) {
+            synchronized (LDAPUtils.class) {
+                pool = connectionPool;
+                if (pool == null) {
+                    if (ldapServerConf == null) {
+                        throw new HasException("The ldap server conf isn't loaded.");
+                    }
+                    pool = createConnectionPool(ldapServerConf);
+                    connectionPool = pool;
+                    metrics.register("LDAP");
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static LdapConnectionPool createConnectionPool(LDAPServerConf conf) {
+        LdapConnectionConfig config = new LdapConnectionConfig();
+        config.setLdapHost(conf.getHost());
+        config.setLdapPort(Integer.parseInt(conf.getPort()));
+        config.setName(conf.getBindDN());
+        config.setCredentials(conf.getBindPwd());
+
+        GenericObjectPoolConfig<LdapConnection> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(conf.getPoolSize());
+        poolConfig.setMaxIdle(conf.getPoolSize());
+        poolConfig.setMaxWaitMillis(conf.getPoolMaxWait());
+        // Connections dropped by the server are replaced on borrow
+        poolConfig.setTestOnBorrow(true);
+        return new LdapConnectionPool(new DefaultPoolableLdapConnectionFactory(config), poolConfig);
     }
 
     public static boolean doUserAuth(String user, String pwd)
         throws HasException, IOException, LdapInvalidAttributeValueException {
-        LdapNetworkConnection connection = new LdapNetworkConnection(
-            ldapServerConf.getHost(), Integer.parseInt(ldapServerConf.getPort()));
-        try {
-            connection.bind(ldapServerConf.getBindDN(), ldapServerConf.getBindPwd());
-        } catch (LdapException e) {
-            connection.close();
-            throw new HasException("Failed to bind. " + e.getMessage());
+        if (authCache.isAuthenticated(user, pwd)) {
+            return true;
         }
+
         Dn dn;
         try {
             dn = new Dn(new Rdn(ldapServerConf.getUserNameAttr(), user),
                 new Dn(ldapServerConf.getBaseDN()));
         } catch (LdapInvalidDnException e) {
-            connection.close();
             throw new HasException(e.getMessage());
         }
+
+        LdapConnectionPool pool = getConnectionPool();
+        long start = System.nanoTime();
+        LdapConnection connection;
+        try {
+            connection = pool.getConnection();
+        } catch (LdapException e) {
+            throw new HasException("Failed to get a bound connection. " + e.getMessage());
+        } finally {
+            metrics.recordPoolWait(System.nanoTime() - start);
+        }
         Entry entry;
         try {
             entry = connection.lookup(dn);
         } catch (LdapException e) {
             throw new HasException(e.getMessage());
         } finally {
-            connection.close();
+            try {
+                pool.releaseConnection(connection);
+            } catch (LdapException e) {
+                LOG.warn("Failed to release the ldap connection. " + e.getMessage());
+            }
         }
 
         if (entry == null) {
@@ -77,6 +155,7 @@ public class LDAPUtils {
         }
         try {
             if (PasswordUtil.compareCredentials(pwd.getBytes(), entry.get("userpassword").getBytes())) {
+                authCache.authenticated(user, pwd);
                 return true;
             } else {
                 throw new HasException("Wrong user password.");
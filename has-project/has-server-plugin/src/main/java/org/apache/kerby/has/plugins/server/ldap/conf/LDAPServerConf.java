@@ -29,6 +29,9 @@ public class LDAPServerConf {
     private String bindPwd = null;
     private String host;
     private String port;
+    private int poolSize = 8;
+    private long poolMaxWait = 5000;
+    private long authCacheTtl = 0;
 
     public LDAPServerConf(String confDir) throws Exception {
         if (confDir == null) {
@@ -43,6 +46,20 @@ public class LDAPServerConf {
         baseDN = ini.get("ldap", "base_dn");
         bindDN = ini.get("ldap", "bind_dn");
         bindPwd = ini.get("ldap", "bind_password");
+
+        // Optional, the connection pool and the cache of the successes
+        String value = ini.get("ldap", "pool_size");
+        if (value != null) {
+            poolSize = Integer.parseInt(value.trim());
+        }
+        value = ini.get("ldap", "pool_max_wait");
+        if (value != null) {
+            poolMaxWait = Long.parseLong(value.trim());
+        }
+        value = ini.get("users", "auth_cache_ttl");
+        if (value != null) {
+            authCacheTtl = Long.parseLong(value.trim());
+        }
     }
 
     public String getHost() {
@@ -92,4 +109,37 @@ public class LDAPServerConf {
     public void setBindPwd(String bindPwd) {
         this.bindPwd = bindPwd;
     }
+
+    /**
+     * @return The max number of pooled connections
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * @return The max milliseconds to wait for a pooled connection
+     */
+    public long getPoolMaxWait() {
+        return poolMaxWait;
+    }
+
+    public void setPoolMaxWait(long poolMaxWait) {
+        this.poolMaxWait = poolMaxWait;
+    }
+
+    /**
+     * @return The seconds a successful authentication is cached, 0 if not
+     */
+    public long getAuthCacheTtl() {
+        return authCacheTtl;
+    }
+
+    public void setAuthCacheTtl(long authCacheTtl) {
+        this.authCacheTtl = authCacheTtl;
+    }
 }
@@ -17,7 +17,10 @@
  */
 package org.apache.kerby.has.plugins.server.mysql;
 
+import com.alibaba.druid.pool.DruidDataSource;
 import org.apache.commons.dbutils.DbUtils;
+import org.apache.kerby.has.plugins.server.AuthCache;
+import org.apache.kerby.has.plugins.server.AuthPluginMetrics;
 import org.apache.kerby.has.server.AbstractHasServerPlugin;
 import org.apache.kerby.has.server.HasAuthenException;
 import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
@@ -27,13 +30,23 @@ import org.slf4j.LoggerFactory;
 import java.sql.ResultSet;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Authenticates the users against the has_user table of the MySQL database
+ * set by the environment. The queries run over a pool of connections, and
+ * the successes may be cached for a short time.
+ */
 public class MySQLHasServerPlugin extends AbstractHasServerPlugin {
     private static final Logger LOG = LoggerFactory.getLogger(MySQLHasServerPlugin.class);
 
+    private final AuthCache authCache = new AuthCache(
+        TimeUnit.SECONDS.toMillis(getEnvLong("mysqlAuthCacheTtl", 0)));
+    private final AuthPluginMetrics metrics = new AuthPluginMetrics(authCache);
+    private volatile DruidDataSource dataSource;
+
     /**
      * {@inheritDoc}
      */
@@ -42,6 +55,23 @@ public class MySQLHasServerPlugin extends AbstractHasServerPlugin {
         return "MySQL";
     }
 
+    /**
+     * Get the cache of the successful authentications.
+     * @return The cache, disabled unless mysqlAuthCacheTtl is set
+     */
+    public AuthCache getAuthCache() {
+        return authCache;
+    }
+
+    /**
+     * Get the metrics of the cache and of the connection pool, registered
+     * as an MXBean once the pool is created.
+     * @return The metrics
+     */
+    public AuthPluginMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -60,20 +90,21 @@ public class MySQLHasServerPlugin extends AbstractHasServerPlugin {
         String user = (String) userToken.getAttributes().get("user");
         String secret = (String) userToken.getAttributes().get("secret");
 
-        String mysqlUrl = System.getenv("mysqlUrl");
-        if (mysqlUrl == null || mysqlUrl.isEmpty()) {
-            throw new HasAuthenException("Please set the mysqlUrl.");
+        if (!authCache.isAuthenticated(user, secret)) {
+            checkUser(user, secret);
+            authCache.authenticated(user, secret);
         }
-        mysqlUrl = mysqlUrl.replace("jdbc:mysql:", "jdbc:mysql:thin:");
-        String mysqlUser = System.getenv("mysqlUser");
-        if (mysqlUser == null || mysqlUser.isEmpty()) {
-            throw new HasAuthenException("Please set the mysqlUser.");
-        }
-        String mysqlPasswd = System.getenv("mysqlPasswd");
-        if (mysqlPasswd == null || mysqlPasswd.isEmpty()) {
-            throw new HasAuthenException("Please set the mysqlPasswd.");
-        }
-        Connection connection = startConnection(mysqlUrl, mysqlUser, mysqlPasswd);
+
+        authToken.setIssuer(userToken.getIssuer());
+        authToken.setSubject(user);
+        authToken.setExpirationTime(userToken.getExpiredTime());
+
+        authToken.addAttribute("userName", user);
+        authToken.addAttribute("passPhrase", user + secret);
+    }
+
+    private void checkUser(String user, String secret) throws HasAuthenException {
+        Connection connection = getConnection();
 
         ResultSet res = null;
         PreparedStatement preStm = null;
@@ -87,6 +118,8 @@ public class MySQLHasServerPlugin extends AbstractHasServerPlugin {
             if (res.next() && res.getInt(1) > 0) {
                 LOG.debug("UserName: {}", user);
             } else {
+                DbUtils.closeQuietly(res);
+                DbUtils.closeQuietly(preStm);
                 String sql = "SELECT COUNT(*) FROM `has_user` WHERE user_name = ?";
                 preStm = connection.prepareStatement(sql);
                 preStm.setString(1, user);
@@ -110,36 +143,93 @@ public class MySQLHasServerPlugin extends AbstractHasServerPlugin {
         } finally {
             DbUtils.closeQuietly(preStm);
             DbUtils.closeQuietly(res);
+            // Gives the connection back to the pool
             DbUtils.closeQuietly(connection);
         }
-
-        authToken.setIssuer(userToken.getIssuer());
-        authToken.setSubject(user);
-        authToken.setExpirationTime(userToken.getExpiredTime());
-
-        authToken.addAttribute("userName", user);
-        authToken.addAttribute("passPhrase", user + secret);
     }
 
     /**
-     * Start the MySQL connection.
+     * Get a connection from the pool, created the first time.
      */
-    private Connection startConnection(String url, String user,
-        String password) throws HasAuthenException {
-        Connection connection;
+    private Connection getConnection() throws HasAuthenException {
+        DruidDataSource pool = getDataSource();
+        long start = System.nanoTime();
         try {
-            Class.forName("org.drizzle.jdbc.DrizzleDriver");
-            connection = DriverManager.getConnection(url, user, password);
-            if (!connection.isClosed()) {
-                LOG.info("Succeeded in connecting to MySQL.");
+            return pool.getConnection();
+        } catch (SQLException e) {
+            throw new HasAuthenException("Failed to connect to MySQL. "
+                    + "Please check MySQL URL, username and password. ", e);
+        } finally {
+            metrics.recordPoolWait(System.nanoTime() - start);
+        }
+    }
+
+    private DruidDataSource getDataSource() throws HasAuthenException {
+        DruidDataSource pool = dataSource;
+        if (pool == null) {
+            synchronized (this) {
+                pool = dataSource;
+                if (pool == null) {
+                    pool = createDataSource();
+                    dataSource = pool;
+                    metrics.register(getLoginType());
+                }
             }
-        } catch (ClassNotFoundException e) {
-            throw new HasAuthenException("JDBC Driver Class not found. ", e);
+        }
+        return pool;
+    }
+
+    private DruidDataSource createDataSource() throws HasAuthenException {
+        String mysqlUrl = System.getenv("mysqlUrl");
+        if (mysqlUrl == null || mysqlUrl.isEmpty()) {
+            throw new HasAuthenException("Please set the mysqlUrl.");
+        }
+        mysqlUrl = mysqlUrl.replace("jdbc:mysql:", "jdbc:mysql:thin:");
+        String mysqlUser = System.getenv("mysqlUser");
+        if (mysqlUser == null || mysqlUser.isEmpty()) {
+            throw new HasAuthenException("Please set the mysqlUser.");
+        }
+        String mysqlPasswd = System.getenv("mysqlPasswd");
+        if (mysqlPasswd == null || mysqlPasswd.isEmpty()) {
+            throw new HasAuthenException("Please set the mysqlPasswd.");
+        }
+        int poolSize = (int) getEnvLong("mysqlPoolSize", 8);
+
+        DruidDataSource pool = new DruidDataSource();
+        pool.setDriverClassName("org.drizzle.jdbc.DrizzleDriver");
+        pool.setUrl(mysqlUrl);
+        pool.setUsername(mysqlUser);
+        pool.setPassword(mysqlPasswd);
+        pool.setMaxActive(poolSize);
+        pool.setMinIdle(Math.min(poolSize, 2));
+        pool.setMaxWait(getEnvLong("mysqlPoolMaxWait", 5000));
+        pool.setTestWhileIdle(true);
+        pool.setValidationQuery("SELECT 1");
+        pool.setMinEvictableIdleTimeMillis(300000);
+        pool.setTimeBetweenEvictionRunsMillis(90000);
+        pool.setPoolPreparedStatements(true);
+        pool.setMaxPoolPreparedStatementPerConnectionSize(2);
+        try {
+            pool.init();
         } catch (SQLException e) {
+            pool.close();
             throw new HasAuthenException("Failed to connect to MySQL. "
                     + "Please check MySQL URL, username and password. ", e);
         }
+        LOG.info("Succeeded in connecting to MySQL.");
+        return pool;
+    }
 
-        return connection;
+    private static long getEnvLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid {}: {}, using {}", name, value, defaultValue);
+            return defaultValue;
+        }
     }
 }
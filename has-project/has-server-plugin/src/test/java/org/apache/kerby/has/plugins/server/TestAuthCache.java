@@ -0,0 +1,64 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.has.plugins.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAuthCache {
+
+    @Test
+    public void testAuthenticated() {
+        AuthCache cache = new AuthCache(60000, 2);
+        Assert.assertTrue(cache.isEnabled());
+        Assert.assertFalse(cache.isAuthenticated("alice", "secret"));
+
+        cache.authenticated("alice", "secret");
+        Assert.assertTrue(cache.isAuthenticated("alice", "secret"));
+        Assert.assertFalse(cache.isAuthenticated("alice", "wrong"));
+        Assert.assertFalse(cache.isAuthenticated("bob", "secret"));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+
+        // The least recently used success is dropped
+        cache.authenticated("bob", "secret");
+        cache.authenticated("carol", "secret");
+        Assert.assertEquals(2, cache.size());
+        Assert.assertFalse(cache.isAuthenticated("alice", "secret"));
+    }
+
+    @Test
+    public void testExpired() throws InterruptedException {
+        AuthCache cache = new AuthCache(10);
+        cache.authenticated("alice", "secret");
+        Thread.sleep(20);
+        Assert.assertFalse(cache.isAuthenticated("alice", "secret"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        AuthCache cache = new AuthCache(0);
+        Assert.assertFalse(cache.isEnabled());
+        cache.authenticated("alice", "secret");
+        Assert.assertFalse(cache.isAuthenticated("alice", "secret"));
+        Assert.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.has.plugins.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class TestAuthPluginMetrics {
+
+    @Test
+    public void testMetrics() throws Exception {
+        AuthCache cache = new AuthCache(60000);
+        AuthPluginMetrics metrics = new AuthPluginMetrics(cache);
+        cache.authenticated("alice", "secret");
+        cache.isAuthenticated("alice", "secret");
+        cache.isAuthenticated("bob", "secret");
+        metrics.recordPoolWait(TimeUnit.MILLISECONDS.toNanos(2));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = AuthPluginMetrics.getObjectName("Test");
+        metrics.register("Test");
+        try {
+            Assert.assertTrue(server.isRegistered(name));
+            Assert.assertEquals(1L, server.getAttribute(name, "AuthCacheHits"));
+            Assert.assertEquals(1L, server.getAttribute(name, "AuthCacheMisses"));
+            Assert.assertEquals(1, server.getAttribute(name, "AuthCacheSize"));
+
+            Map<String, Double> waits = metrics.getPoolWaitTimes();
+            Assert.assertEquals(1.0, waits.get("pool_wait.count"), 0);
+            Assert.assertTrue(waits.get("pool_wait.max") >= 2000);
+            Assert.assertNotNull(server.getAttribute(name, "PoolWaitTimes"));
+
+            // Another plugin of the same type doesn't replace the registered one
+            new AuthPluginMetrics(new AuthCache(0)).register("Test");
+            Assert.assertEquals(1L, server.getAttribute(name, "AuthCacheHits"));
+        } finally {
+            metrics.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.kerby.has.plugins.server;
 
 import org.apache.kerby.has.common.HasException;
+import org.apache.kerby.has.server.HasServerPlugin;
 import org.apache.kerby.has.server.HasServerPluginRegistry;
 import org.junit.Assert;
 import org.junit.Test;
@@ -40,4 +41,11 @@ public class TestHasServerPluginRegistry {
       HasServerPluginRegistry.createPlugin(name);
     }
   }
+
+  @Test
+  public void testGetPlugin() throws HasException {
+    HasServerPlugin plugin = HasServerPluginRegistry.getPlugin("MySQL");
+    Assert.assertSame(plugin, HasServerPluginRegistry.getPlugin("MySQL"));
+    Assert.assertNotSame(plugin, HasServerPluginRegistry.createPlugin("MySQL"));
+  }
 }
@@ -24,8 +24,10 @@ import org.apache.hadoop.http.HttpConfig;
 import org.apache.kerby.has.common.HasConfig;
 import org.apache.kerby.has.common.HasException;
 import org.apache.kerby.has.common.util.HasUtil;
+import org.apache.kerby.has.server.kdc.HasKdcHandler;
 import org.apache.kerby.has.server.web.WebConfigKey;
 import org.apache.kerby.has.server.web.WebServer;
+import org.apache.kerby.has.server.web.rest.AsRequestApi;
 import org.apache.kerby.kerberos.kdc.impl.NettyKdcServerImpl;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.admin.kadmin.local.LocalKadmin;
@@ -38,6 +40,7 @@ import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackend;
 import org.apache.kerby.kerberos.kerb.keytab.Keytab;
 import org.apache.kerby.kerberos.kerb.server.KdcServer;
 import org.apache.kerby.kerberos.kerb.server.KdcUtil;
+import org.apache.kerby.kerberos.kerb.server.preauth.token.VerifiedTokenCache;
 import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
 import org.apache.kerby.util.IOUtil;
 import org.slf4j.Logger;
@@ -60,6 +63,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Pattern;
 
 /**
@@ -72,6 +76,9 @@ public class HasServer {
 
     private KrbSetting krbSetting;
     private KdcServer kdcServer;
+    private volatile HasKdcHandler kdcHandler;
+    private final VerifiedTokenCache tokenCache = new VerifiedTokenCache();
+    private volatile ThreadPoolExecutor batchExecutor;
     private WebServer webServer;
     private File confDir;
     private File workDir;
@@ -114,6 +121,36 @@ public class HasServer {
         return kdcServer;
     }
 
+    /**
+     * Get the handler issuing the TGTs of the HAS logins, shared by the
+     * requests of the web server.
+     *
+     * @return The handler, null if the KDC server isn't started
+     */
+    public HasKdcHandler getKdcHandler() {
+        return kdcHandler;
+    }
+
+    /**
+     * Get the cache of the tokens already decoded, shared by the requests
+     * of the web server.
+     *
+     * @return The token cache
+     */
+    public VerifiedTokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    /**
+     * Get the executor verifying the tokens and issuing the tickets of the
+     * batch requests of the web server.
+     *
+     * @return The executor, null if the web server isn't started
+     */
+    public ThreadPoolExecutor getBatchExecutor() {
+        return batchExecutor;
+    }
+
     public WebServer getWebServer() {
         return webServer;
     }
@@ -163,6 +200,7 @@ public class HasServer {
         } catch (KrbException e) {
             throw new HasException("Failed to start kdc server. " + e.getMessage());
         }
+        kdcHandler = new HasKdcHandler(this);
         try {
             HasUtil.setEnableConf(new File(confDir, "has-server.conf"), "false");
         } catch (Exception e) {
@@ -609,6 +647,7 @@ public class HasServer {
     }
 
     public void stopKdcServer() {
+        kdcHandler = null;
         try {
             kdcServer.stop();
         } catch (KrbException e) {
@@ -679,6 +718,10 @@ public class HasServer {
         } catch (IOException e) {
             throw new HasException("Errors occurred when enable conf. " + e.getMessage());
         }
+        if (batchExecutor == null || batchExecutor.isShutdown()) {
+            batchExecutor = AsRequestApi.newBatchExecutor(
+                Runtime.getRuntime().availableProcessors(), AsRequestApi.MAX_QUEUED_TOKENS);
+        }
         webServer.setWebServerAttribute(this);
     }
 
@@ -692,6 +735,20 @@ public class HasServer {
         }
     }
 
+    /**
+     * Stop the web server and the KDC server if started, and the executor
+     * of the batch requests.
+     */
+    public void stopHasServer() {
+        stopWebServer();
+        if (kdcServer != null) {
+            stopKdcServer();
+        }
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+        }
+    }
+
     public static void main(String[] args) {
         if (args[0].equals("-start")) {
             String confDirPath = args[1];
@@ -735,8 +792,7 @@ public class HasServer {
             }
         } else if (args[0].equals("-stop")) {
             if (server != null) {
-                server.stopWebServer();
-                server.stopKdcServer();
+                server.stopHasServer();
             }
         } else {
             System.exit(2);
@@ -19,6 +19,10 @@ package org.apache.kerby.has.server;
 
 import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
 
+/**
+ * The server side of a HAS login type. An instance is shared by the
+ * logins, so it has to be thread safe.
+ */
 public interface HasServerPlugin {
         /**
          * Get the login module type ID, used to distinguish this module from others.
@@ -31,6 +31,7 @@ public class HasServerPluginRegistry {
     static final Logger LOG = LoggerFactory.getLogger(HasServerPluginRegistry.class);
 
     private static Map<String, Class> allPlugins = new ConcurrentHashMap<>();
+    private static Map<String, HasServerPlugin> sharedPlugins = new ConcurrentHashMap<>();
 
     static {
         ServiceLoader<HasServerPlugin> plugins = ServiceLoader.load(HasServerPlugin.class);
@@ -60,4 +61,24 @@ public class HasServerPluginRegistry {
             throw new HasException(e.getMessage());
         }
     }
+
+    /**
+     * Get the plugin of the name, created the first time and then shared,
+     * so the plugins have to be thread safe.
+     *
+     * @param name The login type of the plugin
+     * @return The shared plugin
+     * @throws HasException if the plugin isn't registered or can't be created
+     */
+    public static HasServerPlugin getPlugin(String name) throws HasException {
+        HasServerPlugin serverPlugin = sharedPlugins.get(name);
+        if (serverPlugin == null) {
+            serverPlugin = createPlugin(name);
+            HasServerPlugin existing = sharedPlugins.putIfAbsent(name, serverPlugin);
+            if (existing != null) {
+                serverPlugin = existing;
+            }
+        }
+        return serverPlugin;
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.apache.kerby.has.server.admin;
 
+import org.apache.kerby.KOptions;
 import org.apache.kerby.has.common.Hadmin;
 import org.apache.kerby.has.common.HasException;
 import org.apache.kerby.has.common.util.HasUtil;
@@ -38,7 +39,11 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class LocalHadmin implements Hadmin {
     public static final Logger LOG = LoggerFactory.getLogger(LocalHadmin.class);
@@ -80,23 +85,46 @@ public class LocalHadmin implements Hadmin {
 
     @Override
     public List<String> addPrincByRole(String host, String role) throws HasException {
+        return addPrincsByRoles(Collections.singletonMap(host, Collections.singletonList(role)));
+    }
+
+    @Override
+    public List<String> addPrincsByRoles(Map<String, List<String>> hostRoles) throws HasException {
         List<String> result = new ArrayList<>();
-        String realm = "/" + host + "@" + kadmin.getKdcConfig().getKdcRealm();
-        String[] princs = HostRoleType.valueOf(role).getPrincs();
-        if (princs == null) {
-            LOG.error("Cannot find the role of : " + role);
-            result.add("Cannot find the role of : " + role);
+        List<String> principals = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : hostRoles.entrySet()) {
+            String realm = "/" + entry.getKey() + "@" + kadmin.getKdcConfig().getKdcRealm();
+            for (String role : entry.getValue()) {
+                String[] princs = HostRoleType.valueOf(role).getPrincs();
+                if (princs == null) {
+                    LOG.error("Cannot find the role of : " + role);
+                    result.add("Cannot find the role of : " + role);
+                    continue;
+                }
+                for (String princ : princs) {
+                    principals.add(princ + realm);
+                }
+            }
+        }
+        if (principals.isEmpty()) {
             return result;
         }
-        for (String princ : princs) {
-            try {
-                kadmin.addPrincipal(princ + realm);
-                LOG.info("Success to add princ: " + princ + realm);
-                result.add("Success to add princ: " + princ + realm);
-            } catch (KrbException e) {
-                String message = e.getMessage();
-                LOG.info(message);
-                result.add(message);
+
+        Set<String> added;
+        try {
+            added = new HashSet<>(kadmin.addPrincipals(principals, null, new KOptions()));
+        } catch (KrbException e) {
+            String message = e.getMessage();
+            LOG.info(message);
+            result.add(message);
+            return result;
+        }
+        for (String principal : principals) {
+            if (added.remove(principal)) {
+                LOG.info("Success to add princ: " + principal);
+                result.add("Success to add princ: " + principal);
+            } else {
+                result.add("Principal already exists: " + principal);
             }
         }
         return result;
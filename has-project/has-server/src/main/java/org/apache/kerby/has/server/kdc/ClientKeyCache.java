@@ -0,0 +1,87 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.has.server.kdc;
+
+import org.apache.kerby.has.common.util.HasUtil;
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.util.SaltedDigestCache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A bounded cache of the client keys derived from the pass phrases of the
+ * HAS logins. The string to key of the AES types runs thousands of PBKDF2
+ * iterations, so a client logging in again and again derives its key once,
+ * and again only when its pass phrase changes.
+ *
+ * An entry is keyed by the salted digest of the principal, which is the
+ * salt of the key, the encryption type and the pass phrase, so the pass
+ * phrases aren't kept in memory.
+ */
+public class ClientKeyCache {
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final SaltedDigestCache<EncryptionKey> keys;
+
+    public ClientKeyCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The max number of keys kept
+     */
+    public ClientKeyCache(final int capacity) {
+        this.keys = new SaltedDigestCache<>(capacity);
+    }
+
+    /**
+     * Get the key of the client, deriving it from the pass phrase if it's
+     * not cached.
+     * @param principal The client principal name, used as the salt
+     * @param passPhrase The pass phrase
+     * @param type The encryption type
+     * @return The client key
+     * @throws KrbException e
+     */
+    public EncryptionKey getClientKey(String principal, String passPhrase,
+                                      EncryptionType type) throws KrbException {
+        ByteBuffer key = keys.digest(principal.getBytes(StandardCharsets.UTF_8),
+            ByteBuffer.allocate(4).putInt(type.getValue()).array(),
+            passPhrase.getBytes(StandardCharsets.UTF_8));
+        EncryptionKey clientKey = keys.get(key);
+        if (clientKey == null) {
+            // Derived out of the lock, a racing login may derive it too
+            clientKey = HasUtil.getClientKey(principal, passPhrase, type);
+            keys.put(key, clientKey);
+        }
+        return clientKey;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public void clear() {
+        keys.clear();
+    }
+}
@@ -19,7 +19,6 @@
  */
 package org.apache.kerby.has.server.kdc;
 
-import org.apache.kerby.has.common.util.HasUtil;
 import org.apache.kerby.has.server.HasServer;
 import org.apache.kerby.kerberos.kerb.KrbCodec;
 import org.apache.kerby.kerberos.kerb.KrbErrorCode;
@@ -58,14 +57,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Issues the TGTs of the HAS logins. It's built once when the KDC server
+ * is started and shared by the requests of the web server, so it only
+ * holds state that doesn't change once built.
+ */
 public class HasKdcHandler {
     private static final Logger LOG = LoggerFactory.getLogger(HasKdcHandler.class);
 
-    private KdcContext kdcContext;
-    private KrbContext krbContext;
-    private KdcServer kdcServer;
+    private final KdcContext kdcContext;
+    private final KrbContext krbContext;
+    private final List<String> audiences;
+    private final List<EncryptionType> encryptionTypes;
+    private final EncryptionType bestType;
+    private final long ticketValidTime;
+    private final ClientKeyCache clientKeys = new ClientKeyCache();
 
     /**
      * Constructor with has server.
@@ -75,8 +84,17 @@ public class HasKdcHandler {
     public HasKdcHandler(HasServer hasServer) {
         this.krbContext = new KrbContext();
         this.krbContext.init(hasServer.getKrbSetting());
-        this.kdcServer = hasServer.getKdcServer();
-        prepareHandler(kdcServer);
+        KdcServer kdcServer = hasServer.getKdcServer();
+        // The tokens of the logins are issued by has
+        kdcServer.getKdcConfig().setString(KdcConfigKey.TOKEN_ISSUERS, "has");
+        this.kdcContext = prepareHandler(kdcServer);
+
+        this.audiences = Collections.singletonList(getAudience("krbtgt"));
+        this.encryptionTypes = Collections.unmodifiableList(
+            EncryptionUtil.orderEtypesByStrength(krbContext.getConfig().getEncryptionTypes()));
+        this.bestType = EncryptionUtil.getBestEncryptionType(encryptionTypes,
+            kdcContext.getConfig().getEncryptionTypes());
+        this.ticketValidTime = krbContext.getTicketValidTime();
     }
 
     public KrbContext getKrbContext() {
@@ -87,16 +105,13 @@ public class HasKdcHandler {
         return kdcContext;
     }
 
-    private KdcServer getKdcServer() {
-        return kdcServer;
-    }
-
-    private void prepareHandler(KdcServer kdcServer) {
-        this.kdcContext = new KdcContext(kdcServer.getKdcSetting());
-        this.kdcContext.setIdentityService(kdcServer.getIdentityService());
+    private KdcContext prepareHandler(KdcServer kdcServer) {
+        KdcContext context = new KdcContext(kdcServer.getKdcSetting());
+        context.setIdentityService(kdcServer.getIdentityService());
         PreauthHandler preauthHandler = new PreauthHandler();
         preauthHandler.init();
-        this.kdcContext.setPreauthHandler(preauthHandler);
+        context.setPreauthHandler(preauthHandler);
+        return context;
     }
 
     private String getAudience(String name) {
@@ -124,18 +139,11 @@ public class HasKdcHandler {
     public KrbMessage handleMessage(AuthToken authToken, String passPhrase) throws KrbException {
 
         // set the audiences
-        List<String> auds = new ArrayList<>();
-        String audience = getAudience("krbtgt");
-        auds.add(audience);
-        authToken.setAudiences(auds);
+        authToken.setAudiences(audiences);
 
         AsReq asReq = createAsReq(authToken);
         KdcRequest kdcRequest = new AsRequest(asReq, kdcContext);
         kdcRequest.setHttps(true);
-        List<EncryptionType> requestedTypes = getEncryptionTypes();
-        EncryptionType bestType = EncryptionUtil.getBestEncryptionType(requestedTypes,
-                kdcContext.getConfig().getEncryptionTypes());
-
         if (bestType == null) {
             LOG.error("Can't get the best encryption type.");
             throw new KrbException(KrbErrorCode.KDC_ERR_ETYPE_NOSUPP);
@@ -149,13 +157,10 @@ public class HasKdcHandler {
         clientPrincipal.setRealm(clientRealm);
 
         // Set the client key
-        EncryptionKey clientKey = HasUtil.getClientKey(clientPrincipal.getName(),
+        EncryptionKey clientKey = clientKeys.getClientKey(clientPrincipal.getName(),
             passPhrase, bestType);
         kdcRequest.setClientKey(clientKey);
 
-        // Set the token issuers
-        getKdcServer().getKdcConfig().setString(KdcConfigKey.TOKEN_ISSUERS, "has");
-
         KrbMessage krbResponse;
 
         try {
@@ -266,7 +271,7 @@ public class HasKdcHandler {
         PrincipalName sName = getServerPrincipal();
         body.setSname(sName);
 
-        body.setTill(new KerberosTime(startTime + krbContext.getTicketValidTime()));
+        body.setTill(new KerberosTime(startTime + ticketValidTime));
 
         int nonce = krbContext.generateNonce();
         body.setNonce(nonce);
@@ -311,7 +316,6 @@ public class HasKdcHandler {
     }
 
     public List<EncryptionType> getEncryptionTypes() {
-        List<EncryptionType> encryptionTypes = krbContext.getConfig().getEncryptionTypes();
-        return EncryptionUtil.orderEtypesByStrength(encryptionTypes);
+        return encryptionTypes;
     }
 }
@@ -29,6 +29,7 @@ import org.apache.kerby.has.common.HasConfig;
 import org.apache.kerby.has.common.HasException;
 import org.apache.kerby.has.server.HasServer;
 import org.apache.kerby.has.server.web.rest.AsRequestApi;
+import org.apache.kerby.kerberos.kerb.server.preauth.token.VerifiedTokenCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +40,7 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 public class WebServer {
     public static final Logger LOG = LoggerFactory.getLogger(WebServer.class);
@@ -50,6 +52,8 @@ public class WebServer {
     private InetSocketAddress httpsAddress;
 
     protected static final String HAS_SERVER_ATTRIBUTE_KEY = "hasserver";
+    protected static final String TOKEN_CACHE_ATTRIBUTE_KEY = "hastokencache";
+    protected static final String BATCH_EXECUTOR_ATTRIBUTE_KEY = "hasbatchexecutor";
 
     public WebServer(HasConfig conf) {
         this.conf = conf;
@@ -211,12 +215,22 @@ public class WebServer {
 
     public void setWebServerAttribute(HasServer hasServer) {
         httpServer.setAttribute(HAS_SERVER_ATTRIBUTE_KEY, hasServer);
+        httpServer.setAttribute(TOKEN_CACHE_ATTRIBUTE_KEY, hasServer.getTokenCache());
+        httpServer.setAttribute(BATCH_EXECUTOR_ATTRIBUTE_KEY, hasServer.getBatchExecutor());
     }
 
     public static HasServer getHasServerFromContext(ServletContext context) {
         return (HasServer) context.getAttribute(HAS_SERVER_ATTRIBUTE_KEY);
     }
 
+    public static VerifiedTokenCache getTokenCacheFromContext(ServletContext context) {
+        return (VerifiedTokenCache) context.getAttribute(TOKEN_CACHE_ATTRIBUTE_KEY);
+    }
+
+    public static ThreadPoolExecutor getBatchExecutorFromContext(ServletContext context) {
+        return (ThreadPoolExecutor) context.getAttribute(BATCH_EXECUTOR_ATTRIBUTE_KEY);
+    }
+
     /**
      * Get http policy.
      *
@@ -17,6 +17,7 @@
  */
 package org.apache.kerby.has.server.web.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.codec.binary.Base64;
@@ -32,11 +33,13 @@ import org.apache.kerby.has.server.web.rest.param.AuthTokenParam;
 import org.apache.kerby.has.server.web.rest.param.TypeParam;
 import org.apache.kerby.kerberos.kerb.KrbRuntime;
 import org.apache.kerby.kerberos.kerb.provider.TokenDecoder;
+import org.apache.kerby.kerberos.kerb.server.preauth.token.VerifiedTokenCache;
 import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
 import org.apache.kerby.kerberos.kerb.type.base.KrbMessage;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
@@ -45,15 +48,41 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * HAS web methods implementation.
  */
 @Path("")
 public class AsRequestApi {
+    /**
+     * The max number of tokens of a batch request.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * The max number of tokens waiting for the batch executor. A batch that
+     * doesn't fit is rejected with 503 rather than queued without bound.
+     */
+    public static final int MAX_QUEUED_TOKENS = 4 * MAX_BATCH_SIZE;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     @Context
     private ServletContext context;
@@ -81,81 +110,240 @@ public class AsRequestApi {
         return asRequest(type.getValue(), authToken.getValue());
     }
 
+    /**
+     * Handle HTTP PUT request of a batch of tokens, given as a JSON array of
+     * token strings in the body. The tokens are verified and the tickets
+     * issued concurrently, and the response is a JSON array streamed in the
+     * order of the tokens, each element as the response of a single token.
+     * The batch is rejected as a whole with 503 when the tokens don't fit
+     * in the queue of the executor.
+     *
+     * @param type the authentication type
+     * @param body the JSON array of the auth tokens
+     * @return Response the AS request responses
+     */
+    @PUT
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON + "; " + JettyUtils.UTF_8)
+    public Response asRequests(
+        @QueryParam(TypeParam.NAME) @DefaultValue(TypeParam.DEFAULT)
+        final TypeParam type,
+        final String body
+    ) {
+        if (!httpRequest.isSecure()) {
+            return Response.status(Response.Status.FORBIDDEN).entity("HTTPS required.\n").build();
+        }
+        String[] tokens;
+        try {
+            tokens = body == null || body.isEmpty() ? null : MAPPER.readValue(body, String[].class);
+        } catch (IOException e) {
+            WebServer.LOG.error("Failed to parse the auth tokens. " + e.getMessage());
+            tokens = null;
+        }
+        if (tokens == null || tokens.length == 0) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("A JSON array of auth tokens is expected.\n").build();
+        }
+        if (tokens.length > MAX_BATCH_SIZE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity("At most " + MAX_BATCH_SIZE + " auth tokens are allowed.\n").build();
+        }
+
+        final HasServer hasServer = WebServer.getHasServerFromContext(context);
+        final VerifiedTokenCache tokenCache = WebServer.getTokenCacheFromContext(context);
+        final String loginType = type.getValue();
+        List<Callable<Map<String, Object>>> tasks = new ArrayList<>(tokens.length);
+        for (final String tokenStr : tokens) {
+            tasks.add(new Callable<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> call() {
+                    return handleToken(hasServer, tokenCache, loginType, tokenStr);
+                }
+            });
+        }
+        final List<Future<Map<String, Object>>> results = submitAll(
+            WebServer.getBatchExecutorFromContext(context), tasks);
+        if (results == null) {
+            WebServer.LOG.warn("Rejected a batch of " + tokens.length + " tokens, too many tokens queued.");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity("Too many auth tokens in progress, retry later.\n").build();
+        }
+
+        StreamingOutput stream = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                try (JsonGenerator generator = MAPPER.getFactory().createGenerator(output)) {
+                    generator.writeStartArray();
+                    for (Future<Map<String, Object>> result : results) {
+                        generator.writeObject(getResult(result));
+                        generator.flush();
+                    }
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return Response.ok(stream).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Create the executor of the batch requests, with daemon threads and a
+     * bounded queue.
+     *
+     * @param threads The number of threads
+     * @param queueCapacity The max number of tasks waiting for a thread
+     * @return The executor, rejecting the tasks beyond the queue capacity
+     */
+    public static ThreadPoolExecutor newBatchExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "has-batch-asrequest-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    /**
+     * Submit all the tasks of a batch, or none: if the executor rejects a
+     * task, the ones already submitted are cancelled and purged from the
+     * queue.
+     *
+     * @param executor The executor
+     * @param tasks The tasks
+     * @return The futures in the order of the tasks, null if rejected
+     */
+    static <T> List<Future<T>> submitAll(ThreadPoolExecutor executor, List<Callable<T>> tasks) {
+        List<Future<T>> results = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                results.add(executor.submit(task));
+            }
+        } catch (RejectedExecutionException e) {
+            for (Future<T> result : results) {
+                result.cancel(true);
+            }
+            executor.purge();
+            return null;
+        }
+        return results;
+    }
+
+    private static Map<String, Object> getResult(Future<Map<String, Object>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error("Interrupted while handling the token.");
+        } catch (ExecutionException e) {
+            WebServer.LOG.error("Failed to handle the token. " + e.getCause());
+            return error("Failed to handle the token. " + e.getCause().getMessage());
+        }
+    }
+
+    private static Map<String, Object> error(String errMessage) {
+        Map<String, Object> m = new TreeMap<>();
+        m.put("success", "false");
+        m.put("krbMessage", errMessage);
+        return m;
+    }
+
     private Response asRequest(String type, String tokenStr) {
         if (httpRequest.isSecure()) {
             final HasServer hasServer = WebServer.getHasServerFromContext(context);
-            String errMessage = null;
+            final VerifiedTokenCache tokenCache = WebServer.getTokenCacheFromContext(context);
             String js = null;
-            ObjectMapper mapper = new ObjectMapper();
-            final Map<String, Object> m = new TreeMap<>();
-            if (hasServer.getKdcServer() == null) {
-                errMessage = "Please start the has KDC server.";
-            } else if (tokenStr != null && !tokenStr.isEmpty()) {
-                HasKdcHandler kdcHandler = new HasKdcHandler(hasServer);
+            try {
+                js = MAPPER.writeValueAsString(handleToken(hasServer, tokenCache, type, tokenStr));
+            } catch (JsonProcessingException e) {
+                WebServer.LOG.error("Failed write values to string." + e.getMessage());
+            }
+            return Response.ok(js).type(MediaType.APPLICATION_JSON).build();
+        }
+        return Response.status(Response.Status.FORBIDDEN).entity("HTTPS required.\n").build();
+    }
 
+    /**
+     * Verify the token with the plugin of the type and issue the TGT.
+     *
+     * @return The response, with the success and the AS-REP or the error
+     */
+    private static Map<String, Object> handleToken(HasServer hasServer, VerifiedTokenCache tokenCache,
+                                                   String type, String tokenStr) {
+        String errMessage = null;
+        final Map<String, Object> m = new TreeMap<>();
+        final HasKdcHandler kdcHandler = hasServer.getKdcHandler();
+        if (kdcHandler == null) {
+            errMessage = "Please start the has KDC server.";
+        } else if (tokenStr != null && !tokenStr.isEmpty()) {
+            byte[] tokenValue = tokenStr.getBytes(StandardCharsets.UTF_8);
+            VerifiedTokenCache.VerifiedToken verified = tokenCache.get(tokenValue);
+            AuthToken authToken = null;
+            if (verified != null) {
+                authToken = verified.getAuthToken();
+            } else {
                 TokenDecoder tokenDecoder = KrbRuntime.getTokenProvider("JWT").createTokenDecoder();
-
-                AuthToken authToken = null;
                 try {
                     authToken = tokenDecoder.decodeFromString(tokenStr);
+                    if (authToken != null) {
+                        tokenCache.put(tokenValue, authToken, tokenDecoder.isSigned());
+                    }
                 } catch (IOException e) {
                     errMessage = "Failed to decode the token string." + e.getMessage();
                     WebServer.LOG.error(errMessage);
                 }
-                HasServerPlugin tokenPlugin = null;
+            }
+            HasServerPlugin tokenPlugin = null;
+            try {
+                tokenPlugin = HasServerPluginRegistry.getPlugin(type);
+            } catch (HasException e) {
+                errMessage = "Failed to get the plugin: " + type + ". " + e.getMessage();
+                WebServer.LOG.error(errMessage);
+            }
+            AuthToken verifiedAuthToken = null;
+            if (tokenPlugin != null) {
                 try {
-                    tokenPlugin = HasServerPluginRegistry.createPlugin(type);
-                } catch (HasException e) {
-                    errMessage = "Failed to get the plugin: " + type + ". " + e.getMessage();
+                    verifiedAuthToken = tokenPlugin.authenticate(authToken);
+                } catch (HasAuthenException e) {
+                    errMessage = "Failed to verify auth token. " + e.getMessage();
                     WebServer.LOG.error(errMessage);
+                    verifiedAuthToken = null;
                 }
-                AuthToken verifiedAuthToken = null;
-                if (tokenPlugin != null) {
+            }
+
+            if (verifiedAuthToken != null) {
+                KrbMessage asRep = kdcHandler.getResponse(verifiedAuthToken,
+                    (String) verifiedAuthToken.getAttributes().get("passPhrase"));
+
+                if (asRep != null) {
+                    Base64 base64 = new Base64(0);
                     try {
-                        verifiedAuthToken = tokenPlugin.authenticate(authToken);
-                    } catch (HasAuthenException e) {
-                        errMessage = "Failed to verify auth token. " + e.getMessage();
+                        m.put("type", tokenPlugin.getLoginType());
+                        m.put("success", "true");
+                        m.put("krbMessage", base64.encodeToString(asRep.encode()));
+                    } catch (IOException e) {
+                        errMessage = "Failed to encode KrbMessage. " + e.getMessage();
                         WebServer.LOG.error(errMessage);
-                        verifiedAuthToken = null;
                     }
+                } else {
+                    errMessage = "Failed to get KrbMessage.";
+                    WebServer.LOG.error(errMessage);
                 }
 
-                if (verifiedAuthToken != null) {
-                    KrbMessage asRep = kdcHandler.getResponse(verifiedAuthToken,
-                        (String) verifiedAuthToken.getAttributes().get("passPhrase"));
-
-                    if (asRep != null) {
-                        Base64 base64 = new Base64(0);
-                        try {
-                            m.put("type", tokenPlugin.getLoginType());
-                            m.put("success", "true");
-                            m.put("krbMessage", base64.encodeToString(asRep.encode()));
-                        } catch (IOException e) {
-                            errMessage = "Failed to encode KrbMessage. " + e.getMessage();
-                            WebServer.LOG.error(errMessage);
-                        }
-                    } else {
-                        errMessage = "Failed to get KrbMessage.";
-                        WebServer.LOG.error(errMessage);
-                    }
-
-                }
-            } else {
-                errMessage = "The token string should not be empty.";
-                WebServer.LOG.error(errMessage);
             }
+        } else {
+            errMessage = "The token string should not be empty.";
+            WebServer.LOG.error(errMessage);
+        }
 
-            if (errMessage != null) {
-                m.put("success", "false");
-                m.put("krbMessage", errMessage);
-            }
-            try {
-                js = mapper.writeValueAsString(m);
-            } catch (JsonProcessingException e) {
-                WebServer.LOG.error("Failed write values to string." + e.getMessage());
-            }
-            return Response.ok(js).type(MediaType.APPLICATION_JSON).build();
+        if (errMessage != null) {
+            m.put("success", "false");
+            m.put("krbMessage", errMessage);
         }
-        return Response.status(Response.Status.FORBIDDEN).entity("HTTPS required.\n").build();
+        return m;
     }
 }
@@ -49,7 +49,9 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -108,16 +110,18 @@ public class HadminApi {
                 }
                 WebServer.LOG.info("Request to create principals by JSON : \n" + data.toString());
                 JSONArray hostArray = new JSONObject(data.toString()).optJSONArray("HOSTS");
+                Map<String, List<String>> hostRoles = new LinkedHashMap<>();
                 for (int i = 0; i < hostArray.length(); i++) {
                     JSONObject host = (JSONObject) hostArray.get(i);
-                    String[] roles = host.getString("hostRoles").split(",");
-                    for (String role : roles) {
-                        List<String> strs = hasAdmin.addPrincByRole(host.getString("name"), role.toUpperCase());
-                        for (String str : strs) {
-                            results.put(str);
-                        }
+                    List<String> roles = hostRoles.computeIfAbsent(host.getString("name"),
+                        name -> new ArrayList<>());
+                    for (String role : host.getString("hostRoles").split(",")) {
+                        roles.add(role.toUpperCase());
                     }
                 }
+                for (String str : hasAdmin.addPrincsByRoles(hostRoles)) {
+                    results.put(str);
+                }
                 return Response.ok(results.toString()).build();
             } catch (Exception e) {
                 WebServer.LOG.error("Failed to create principals, because : " + e.getMessage());
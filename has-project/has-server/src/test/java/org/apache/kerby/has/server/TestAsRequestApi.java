@@ -0,0 +1,102 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.has.server;
+
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import org.apache.kerby.kerberos.kerb.KrbRuntime;
+import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import java.util.Date;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestAsRequestApi extends TestRestApiBase {
+
+    @Test
+    public void testBatchAsRequest() throws Exception {
+        kdcInit();
+
+        WebResource webResource = getWebResource("batch").queryParam("type", "Unknown");
+        ClientResponse response = webResource.type(MediaType.APPLICATION_JSON)
+            .put(ClientResponse.class, "[\"token1\", \"token2\", \"\"]");
+        assertEquals(200, response.getStatus());
+
+        // A response for each token, in the order of the tokens
+        JSONArray results = new JSONArray(response.getEntity(String.class));
+        assertEquals(3, results.length());
+        for (int i = 0; i < results.length(); i++) {
+            assertEquals("false", results.getJSONObject(i).getString("success"));
+        }
+        JSONObject last = results.getJSONObject(2);
+        assertEquals("The token string should not be empty.", last.getString("krbMessage"));
+
+        response = webResource.type(MediaType.APPLICATION_JSON).put(ClientResponse.class, "[]");
+        assertEquals(400, response.getStatus());
+        response = webResource.type(MediaType.APPLICATION_JSON).put(ClientResponse.class, "{}");
+        assertEquals(400, response.getStatus());
+    }
+
+    private static String createToken(String user, String pwd) throws Exception {
+        AuthToken token = KrbRuntime.getTokenProvider("JWT").createTokenFactory().createToken();
+        token.setSubject(user);
+        token.setExpirationTime(new Date(System.currentTimeMillis() + 60000));
+        token.addAttribute("pwd", pwd);
+        return KrbRuntime.getTokenProvider("JWT").createTokenEncoder().encodeAsString(token);
+    }
+
+    @Test
+    public void testMixedBatchAsRequest() throws Exception {
+        kdcInit();
+
+        String good = createToken("user1", TestHasServerPlugin.PASSWORD);
+        String bad = createToken("user2", "wrong");
+        WebResource webResource = getWebResource("batch")
+            .queryParam("type", TestHasServerPlugin.LOGIN_TYPE);
+        ClientResponse response = webResource.type(MediaType.APPLICATION_JSON)
+            .put(ClientResponse.class, "[\"" + good + "\", \"" + bad + "\", \"" + good + "\"]");
+        assertEquals(200, response.getStatus());
+
+        // One bad token doesn't fail the others
+        JSONArray results = new JSONArray(response.getEntity(String.class));
+        assertEquals(3, results.length());
+        assertEquals("true", results.getJSONObject(0).getString("success"));
+        assertEquals(TestHasServerPlugin.LOGIN_TYPE, results.getJSONObject(0).getString("type"));
+        assertEquals("false", results.getJSONObject(1).getString("success"));
+        assertEquals("Failed to verify auth token. Wrong password",
+            results.getJSONObject(1).getString("krbMessage"));
+        assertEquals("true", results.getJSONObject(2).getString("success"));
+    }
+
+    @Test
+    public void testStopHasServer() {
+        ThreadPoolExecutor executor = getHasServer().getBatchExecutor();
+        assertNotNull(executor);
+        getHasServer().stopHasServer();
+        assertTrue(executor.isShutdown());
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.has.server;
+
+import org.apache.kerby.has.server.kdc.ClientKeyCache;
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestClientKeyCache {
+    private static final String PRINCIPAL = "alice@HADOOP.COM";
+
+    @Test
+    public void testGetClientKey() throws KrbException {
+        ClientKeyCache cache = new ClientKeyCache(2);
+        EncryptionType type = EncryptionType.AES128_CTS_HMAC_SHA1_96;
+        EncryptionKey key = cache.getClientKey(PRINCIPAL, "secret", type);
+        Assert.assertEquals(EncryptionHandler.string2Key(PRINCIPAL, "secret", type), key);
+        Assert.assertSame(key, cache.getClientKey(PRINCIPAL, "secret", type));
+        Assert.assertEquals(1, cache.size());
+
+        // A new pass phrase or another type derives a new key
+        EncryptionKey changed = cache.getClientKey(PRINCIPAL, "changed", type);
+        Assert.assertNotEquals(key, changed);
+        EncryptionKey aes256 = cache.getClientKey(PRINCIPAL, "secret",
+            EncryptionType.AES256_CTS_HMAC_SHA1_96);
+        Assert.assertEquals(EncryptionType.AES256_CTS_HMAC_SHA1_96, aes256.getKeyType());
+
+        // The least recently used key is dropped
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotSame(key, cache.getClientKey(PRINCIPAL, "secret", type));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+}
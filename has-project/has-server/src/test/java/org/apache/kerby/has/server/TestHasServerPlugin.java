@@ -0,0 +1,53 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.has.server;
+
+import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
+
+/**
+ * A plugin for the tests, authenticating the tokens with the test password.
+ */
+public class TestHasServerPlugin extends AbstractHasServerPlugin {
+    public static final String LOGIN_TYPE = "Test";
+    public static final String PASSWORD = "test_pwd";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLoginType() {
+        return LOGIN_TYPE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doAuthenticate(AuthToken userToken, AuthToken authToken) throws HasAuthenException {
+        String pwd = (String) userToken.getAttributes().get("pwd");
+        if (!PASSWORD.equals(pwd)) {
+            throw new HasAuthenException("Wrong password");
+        }
+        authToken.setIssuer("has");
+        authToken.setSubject(userToken.getSubject());
+        authToken.setExpirationTime(userToken.getExpiredTime());
+        authToken.addAttribute("passPhrase", pwd);
+    }
+}
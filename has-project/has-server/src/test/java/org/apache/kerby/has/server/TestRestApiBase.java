@@ -109,10 +109,7 @@ public class TestRestApiBase {
 
     @After
     public void stopHasServer() {
-        server.stopWebServer();
-        if (server.getKdcServer() != null) {
-            server.stopKdcServer();
-        }
+        server.stopHasServer();
         if (keyStoreDir.exists()) {
             FileUtil.fullyDelete(keyStoreDir);
         }
@@ -132,6 +129,10 @@ public class TestRestApiBase {
         }
     }
 
+    protected HasServer getHasServer() {
+        return server;
+    }
+
     protected WebResource getWebResource(String restName) {
         String apiUrl = "https://" + address + "/has/v1/" + restName;
         HasConfig clientConf = new HasConfig();
@@ -258,6 +259,7 @@ public class TestRestApiBase {
                     StandardCharsets.UTF_8));
 
             System.out.println(reader.readLine());
+            connectionFactory.destroy();
         } catch (IOException | AuthenticationException e) {
             System.err.println("Failed to create principals by hostRoles. " + e.toString());
             System.exit(6);
@@ -74,6 +74,7 @@ public class TestWebServer {
 
   @After
   public void tearDown() throws Exception {
+    connectionFactory.destroy();
     FileUtil.fullyDelete(keyStoreDir);
   }
 
@@ -0,0 +1,91 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.has.server.web.rest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestBatchExecutor {
+
+    private static List<Callable<Integer>> tasks(int count, final CountDownLatch release) {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    release.await();
+                    return value;
+                }
+            });
+        }
+        return tasks;
+    }
+
+    @Test
+    public void testSubmitAll() throws Exception {
+        ThreadPoolExecutor executor = AsRequestApi.newBatchExecutor(2, 4);
+        try {
+            CountDownLatch release = new CountDownLatch(0);
+            List<Future<Integer>> results = AsRequestApi.submitAll(executor, tasks(6, release));
+            assertNotNull(results);
+            for (int i = 0; i < 6; i++) {
+                assertEquals(i, (int) results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOverload() throws Exception {
+        ThreadPoolExecutor executor = AsRequestApi.newBatchExecutor(1, 2);
+        try {
+            // The thread is busy with the first task, the second one waits
+            CountDownLatch release = new CountDownLatch(1);
+            List<Future<Integer>> running = AsRequestApi.submitAll(executor, tasks(2, release));
+            assertNotNull(running);
+            assertEquals(1, executor.getQueue().size());
+
+            // A batch that doesn't fit is rejected as a whole, its first
+            // task doesn't stay in the queue
+            assertNull(AsRequestApi.submitAll(executor, tasks(2, release)));
+            assertEquals(1, executor.getQueue().size());
+
+            release.countDown();
+            assertEquals(0, (int) running.get(0).get());
+            assertEquals(1, (int) running.get(1).get());
+            assertTrue(executor.getQueue().isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -252,6 +252,16 @@ public class JsonIdentityBackend extends AbstractIdentityBackend {
         return principals;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<String> doGetIdentities(String prefix, String startAfter,
+                                           int limit) throws KrbException {
+        checkAndReload();
+        return selectPage(identities.keySet(), prefix, startAfter, limit);
+    }
+
     private void initGsonBuilder() {
         GsonBuilder gsonBuilder = new GsonBuilder();
         gsonBuilder.registerTypeAdapter(EncryptionKey.class, new EncryptionKeyAdapter());
@@ -307,9 +317,8 @@ public class JsonIdentityBackend extends AbstractIdentityBackend {
 
         @Override
         public BatchTrans addIdentity(KrbIdentity identity) throws KrbException {
-            if (identity != null
-                    && identities.containsKey(identity.getPrincipalName())) {
-                identities.put(identity.getPrincipalName(), identity);
+            if (identity != null) {
+                identities.putIfAbsent(identity.getPrincipalName(), identity);
             }
             return this;
         }
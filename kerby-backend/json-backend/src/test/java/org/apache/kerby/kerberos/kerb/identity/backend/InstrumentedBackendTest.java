@@ -0,0 +1,129 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.identity.backend;
+
+import org.apache.kerby.config.Conf;
+import org.apache.kerby.config.Config;
+import org.apache.kerby.kerberos.kdc.identitybackend.JsonIdentityBackend;
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.CacheableIdentityService;
+import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackendMetrics.Operation;
+import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Instrumented Json backend test
+ */
+public class InstrumentedBackendTest extends BackendTestBase {
+    private static File jsonBackendFile;
+
+    @BeforeClass
+    public static void setup() throws KrbException {
+        File testDir = new File(System.getProperty("test.dir", "target"));
+        jsonBackendFile = new File(testDir, "instrumented-json-identity-backend-file");
+        String jsonBackendFileString = jsonBackendFile.getAbsolutePath();
+
+        Config backendConfig = new Conf();
+        backendConfig.setString(JsonIdentityBackend.JSON_IDENTITY_BACKEND_DIR,
+                jsonBackendFileString);
+        backendConfig.setString(InstrumentedIdentityBackend.METRICS_NAME, "instrumented-json");
+        backend = new InstrumentedIdentityBackend(new JsonIdentityBackend(backendConfig));
+        backend.initialize();
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        InstrumentedIdentityBackend instrumented = (InstrumentedIdentityBackend) backend;
+        IdentityBackendMetrics metrics = instrumented.getMetrics();
+        metrics.reset();
+
+        KrbIdentity identity = BackendTestUtil.createOneIdentity("metrics@EXAMPLE.COM");
+        backend.addIdentity(identity);
+        backend.getIdentity(identity.getPrincipalName());
+        assertThatThrownBy(() -> backend.getIdentity(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(metrics.getLatencyHistogram(Operation.ADD_IDENTITY).getCount()).isEqualTo(1);
+        assertThat(metrics.getLatencyHistogram(Operation.GET_IDENTITY).getCount()).isEqualTo(2);
+        assertThat(metrics.getErrorCount(Operation.GET_IDENTITY)).isEqualTo(1);
+        assertThat(metrics.getInFlightCount(Operation.GET_IDENTITY)).isZero();
+        assertThat(metrics.getLatencies()).containsKeys("add_identity.p99", "get_identity.max");
+
+        backend.getExistingIdentities(Collections.singleton(identity.getPrincipalName()));
+        assertThat(metrics.getLatencyHistogram(Operation.GET_EXISTING_IDENTITIES).getCount()).isEqualTo(1);
+        assertThat(metrics.getLatencyHistogram(Operation.GET_IDENTITY).getCount()).isEqualTo(2);
+
+        // A cache layered on the backend records its hits and misses
+        CacheableIdentityService cache = new CacheableIdentityService(new Conf(), backend);
+        cache.getIdentity(identity.getPrincipalName());
+        cache.getIdentity(identity.getPrincipalName());
+        assertThat(metrics.getCacheMisses()).isEqualTo(1);
+        assertThat(metrics.getCacheHits()).isEqualTo(1);
+        assertThat(metrics.getLatencyHistogram(Operation.GET_IDENTITY).getCount()).isEqualTo(3);
+
+        backend.deleteIdentity(identity.getPrincipalName());
+        assertThat(metrics.getOperationCounts()).containsEntry("delete_identity", 1L);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(
+            "org.apache.kerby:type=IdentityBackendMetrics,name=\"instrumented-json\"");
+        backend.start();
+        try {
+            assertThat(server.isRegistered(name)).isTrue();
+            assertThat(server.getAttribute(name, "CacheHits")).isNotNull();
+        } finally {
+            backend.stop();
+        }
+        assertThat(server.isRegistered(name)).isFalse();
+    }
+
+    @Test
+    public void testUnwrap() throws Exception {
+        IdentityBackend json = InstrumentedIdentityBackend.unwrap(backend);
+        assertThat(json).isInstanceOf(JsonIdentityBackend.class);
+        assertThat(InstrumentedIdentityBackend.unwrap(json)).isSameAs(json);
+
+        // The instrumented backend and the one under it have the same metrics name
+        ObjectName name = InstrumentedIdentityBackend.getObjectName(backend);
+        assertThat(name.getKeyProperty("name")).isEqualTo("\"instrumented-json\"");
+        assertThat(InstrumentedIdentityBackend.getObjectName(json)).isEqualTo(name);
+        assertThat(InstrumentedIdentityBackend.getObjectName(new JsonIdentityBackend(new Conf()))
+            .getKeyProperty("name")).contains(JsonIdentityBackend.class.getName());
+    }
+
+    @AfterClass
+    public static void cleanJsonBackendFile() {
+        if (jsonBackendFile.exists()) {
+            jsonBackendFile.delete();
+        }
+    }
+}
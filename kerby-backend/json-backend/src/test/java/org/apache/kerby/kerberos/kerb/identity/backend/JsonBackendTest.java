@@ -23,11 +23,16 @@ import org.apache.kerby.config.Conf;
 import org.apache.kerby.config.Config;
 import org.apache.kerby.kerberos.kdc.identitybackend.JsonIdentityBackend;
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.BatchTrans;
+import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
 
 import java.io.File;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 /**
  * Json backend test
  */
@@ -47,6 +52,31 @@ public class JsonBackendTest extends BackendTestBase {
         backend.initialize();
     }
 
+    @Test
+    public void testBatchTransAdd() throws KrbException {
+        KrbIdentity[] identities = BackendTestUtil.createManyIdentities();
+
+        BatchTrans trans = backend.startBatchTrans();
+        for (KrbIdentity identity : identities) {
+            trans.addIdentity(identity);
+        }
+        trans.commit();
+
+        for (KrbIdentity identity : identities) {
+            assertThat(backend.getIdentity(identity.getPrincipalName())).isNotNull();
+        }
+
+        trans = backend.startBatchTrans();
+        for (KrbIdentity identity : identities) {
+            trans.deleteIdentity(identity.getPrincipalName());
+        }
+        trans.commit();
+
+        for (KrbIdentity identity : identities) {
+            assertThat(backend.getIdentity(identity.getPrincipalName())).isNull();
+        }
+    }
+
     @AfterClass
     public static void cleanJsonBackendFile() {
         if (jsonBackendFile.exists()) {
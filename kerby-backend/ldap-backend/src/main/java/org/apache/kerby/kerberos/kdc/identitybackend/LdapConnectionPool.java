@@ -0,0 +1,159 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kdc.identitybackend;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapOtherException;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size pool of bound connections to one LDAP host. Each connection
+ * is used by one thread at a time, so concurrent lookups from the KDC
+ * worker threads no longer queue up behind a single connection.
+ */
+class LdapConnectionPool {
+    private static final Logger LOG = LoggerFactory.getLogger(LdapConnectionPool.class);
+
+    private final String host;
+    private final String bindDn;
+    private final String bindPassword;
+    private final long waitTimeout;
+    private final List<LdapConnection> connections;
+    private final BlockingQueue<LdapConnection> idleConnections;
+
+    /**
+     * Create a pool over the given connections, which are not bound yet.
+     * @param host The host the connections point to
+     * @param connections The connections to be pooled
+     * @param bindDn The dn used to bind the connections
+     * @param bindPassword The password used to bind the connections
+     * @param waitTimeout Max milliseconds to wait for an idle connection
+     */
+    LdapConnectionPool(String host, List<LdapConnection> connections,
+                       String bindDn, String bindPassword, long waitTimeout) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("No ldap connection for host[" + host + "]");
+        }
+        this.host = host;
+        this.bindDn = bindDn;
+        this.bindPassword = bindPassword;
+        this.waitTimeout = waitTimeout;
+        this.connections = Collections.unmodifiableList(new ArrayList<>(connections));
+        this.idleConnections = new ArrayBlockingQueue<>(connections.size());
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    int getSize() {
+        return connections.size();
+    }
+
+    /**
+     * Bind all the connections and make them available.
+     * @throws LdapException e
+     */
+    void start() throws LdapException {
+        for (LdapConnection connection : connections) {
+            connection.bind(bindDn, bindPassword);
+            idleConnections.add(connection);
+        }
+    }
+
+    /**
+     * Take an idle connection, waiting up to the configured timeout. The
+     * connection is re-established first if it has been dropped.
+     * @return A bound connection, to be given back with {@link #release}
+     * @throws LdapException if no connection became available in time
+     */
+    LdapConnection acquire() throws LdapException {
+        LdapConnection connection;
+        try {
+            connection = idleConnections.poll(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LdapOtherException("Interrupted while waiting for ldap connection to host["
+                    + host + "]", e);
+        }
+        if (connection == null) {
+            throw new LdapOtherException("Timed out waiting for ldap connection to host["
+                    + host + "]");
+        }
+
+        try {
+            if (!connection.isConnected() || !connection.isAuthenticated()) {
+                LOG.info("Reconnecting to ldap host[" + host + "].");
+                connection.connect();
+                connection.bind(bindDn, bindPassword);
+            }
+        } catch (LdapException e) {
+            idleConnections.offer(connection);
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Give back a connection obtained from {@link #acquire}.
+     * @param connection The connection
+     */
+    void release(LdapConnection connection) {
+        if (connection != null) {
+            idleConnections.offer(connection);
+        }
+    }
+
+    /**
+     * Close all the connections, whether idle or not.
+     * @throws IOException e
+     */
+    void close() throws IOException {
+        IOException cause = null;
+        idleConnections.clear();
+        for (LdapConnection connection : connections) {
+            try {
+                if (connection.isConnected()) {
+                    connection.close();
+                }
+            } catch (IOException e) {
+                LOG.error("Catch exception when close connection with host[" + host + "].");
+                if (cause == null) {
+                    cause = e;
+                } else {
+                    cause.addSuppressed(e);
+                }
+            }
+        }
+        if (cause != null) {
+            throw cause;
+        }
+    }
+}
@@ -27,6 +27,8 @@ import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.exception.LdapOtherException;
+import org.apache.directory.api.ldap.model.filter.FilterEncoder;
 import org.apache.directory.api.ldap.model.message.ModifyRequest;
 import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
 import org.apache.directory.api.ldap.model.message.SearchScope;
@@ -49,20 +51,35 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * An LDAP based backend implementation.
+ * An LDAP based backend implementation. A pool of bound connections is kept
+ * per host, reads are spread over all the configured hosts and updates go to
+ * the current primary host, failing over to the other one on error.
  */
 public class LdapIdentityBackend extends AbstractIdentityBackend {
-    private int currentConnectionIndex = 0;
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 4;
+    private static final long DEFAULT_CONNECTION_WAIT_TIMEOUT = 30000L;
+    private static final int DEFAULT_BATCH_SEARCH_SIZE = 100;
+    private static final String PRINCIPAL_OBJECT_CLASS_FILTER = "(objectclass=krb5principal)";
+
+    private final AtomicInteger currentConnectionIndex = new AtomicInteger(0);
+    private final AtomicInteger readConnectionIndex = new AtomicInteger(0);
     private Map<String, LdapConnection> connections = new HashMap<>();
+    private Map<String, LdapConnectionPool> pools = new HashMap<>();
 
-    //The LdapConnection, may be LdapNetworkConnection or LdapCoreSessionConnection
-    private LdapConnection connection;
     private String[] hosts;
     //This is used as a flag to represent the connection whether is
     // LdapNetworkConnection object or not
@@ -97,7 +114,6 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
             throw new IllegalArgumentException("Only one ldap connection provided, but two needed "
                     + "when set ha hosts[" + config.getString("host") + "]");
         }
-        this.connection = connection;
         String hostConfig = getConfig().getString("host");
         hosts = new String[]{hostConfig};
         connections.put(hostConfig, connection);
@@ -115,30 +131,40 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
                     + "] not equal to ldap connections[" + connections.size() + "].");
         }
         this.connections = new HashMap<>(connections);
-        connection = connections.get(hosts[currentConnectionIndex]);
     }
 
     /**
-     * Start the connection for the initialize()
+     * Start the connection for the initialize(). When the connections are
+     * not given by the caller, "connection_pool_size" connections are
+     * opened to each host.
      */
     private void startConnection() throws LdapException {
+        int poolSize = getConfig().getInt("connection_pool_size", DEFAULT_CONNECTION_POOL_SIZE);
+        long waitTimeout = getConfig().getLong("connection_wait_timeout", DEFAULT_CONNECTION_WAIT_TIMEOUT);
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Invalid ldap connection pool size: " + poolSize);
+        }
         if (isLdapNetworkConnection) {
             String hostConfig = getConfig().getString("host");
             hosts = hostConfig.trim().split(",");
             if (hosts.length > 2) {
                 throw new IllegalArgumentException("More than two ldap hosts is not supported.");
             }
-            for (String host: hosts) {
-                LdapConnection connection =
-                        new LdapNetworkConnection(host, getConfig().getInt("port"));
-                connections.put(host, connection);
-            }
-            String currentHost = hosts[currentConnectionIndex];
-            connection = connections.get(currentHost);
         }
-        for (LdapConnection connection: connections.values()) {
-            connection.bind(getConfig().getString("admin_dn"),
-                    getConfig().getString("admin_pw"));
+
+        for (String host : hosts) {
+            List<LdapConnection> hostConnections = new ArrayList<>();
+            if (isLdapNetworkConnection) {
+                for (int i = 0; i < poolSize; i++) {
+                    hostConnections.add(new LdapNetworkConnection(host, getConfig().getInt("port")));
+                }
+            } else {
+                hostConnections.add(connections.get(host));
+            }
+            LdapConnectionPool pool = new LdapConnectionPool(host, hostConnections,
+                    getConfig().getString("admin_dn"), getConfig().getString("admin_pw"), waitTimeout);
+            pools.put(host, pool);
+            pool.start();
         }
         LOG.info("Start connection with ldap host[" + getConfig().getString("host") + "]");
     }
@@ -176,14 +202,10 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
      */
     private void closeConnection() throws IOException {
         IOException cause = null;
-        for (Map.Entry<String, LdapConnection> entry: connections.entrySet()) {
-            LdapConnection connection = entry.getValue();
+        for (LdapConnectionPool pool : pools.values()) {
             try {
-                if (connection.isConnected()) {
-                    connection.close();
-                }
+                pool.close();
             } catch (IOException e) {
-                LOG.error("Catch exception when close connection with host[" + entry.getKey() + "].");
                 if (cause == null) {
                     cause = e;
                 } else {
@@ -191,6 +213,7 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
                 }
             }
         }
+        pools.clear();
         if (cause != null) {
             throw cause;
         }
@@ -275,7 +298,7 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
                     toGeneralizedTime(identity.getExpireTime()));
             new FailoverInvocationHandler<Void>() {
                 @Override
-                public Void execute() throws LdapException {
+                public Void execute(LdapConnection connection) throws LdapException {
                     connection.add(entry);
                     return null;
                 }
@@ -295,35 +318,79 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
      */
     @Override
     protected KrbIdentity doGetIdentity(String principalName) throws KrbException {
-        KrbIdentity krbIdentity = new KrbIdentity(principalName);
-        String searchFilter =
-            String.format("(&(objectclass=krb5principal)(krb5PrincipalName=%s))", principalName);
+        List<Entry> entries;
         try {
-            EntryCursor cursor = new FailoverInvocationHandler<EntryCursor>() {
-                @Override
-                public EntryCursor execute() throws LdapException {
-                    return connection.search(getConfig().getString("base_dn"), searchFilter,
-                        SearchScope.SUBTREE, "dn");
-                }
-            }.run();
+            entries = searchEntries(toPrincipalFilter(Collections.singletonList(principalName)),
+                    "*", "+");
+        } catch (LdapException e) {
+            throw new KrbException("Failed to retrieve identity", e);
+        }
 
-            // there should be at most one entry with this principal name
-            if (cursor == null || !cursor.next()) {
-                return null;
-            }
-            Dn dn = cursor.get().getDn();
-            cursor.close();
+        // there should be at most one entry with this principal name
+        if (entries.isEmpty()) {
+            return null;
+        }
+        return toIdentity(principalName, entries.get(0));
+    }
 
-            Entry entry = new FailoverInvocationHandler<Entry>() {
-                @Override
-                public Entry execute() throws LdapException {
-                    return connection.lookup(dn, "*", "+");
+    /**
+     * Get the identities of many principals at once. The principals are
+     * looked up with one search per "batch_search_size" names, using an OR
+     * filter, instead of one search per principal.
+     * @param principalNames The principal names
+     * @return The found identities keyed by principal name, the ones that
+     *         don't exist are left out
+     * @throws KrbException e
+     */
+    public Map<String, KrbIdentity> batchGetIdentities(Collection<String> principalNames)
+            throws KrbException {
+        int batchSize = getConfig().getInt("batch_search_size", DEFAULT_BATCH_SEARCH_SIZE);
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(principalNames));
+        Map<String, KrbIdentity> identities = new LinkedHashMap<>();
+
+        for (int from = 0; from < names.size(); from += batchSize) {
+            List<String> batch = names.subList(from, Math.min(from + batchSize, names.size()));
+            List<Entry> entries;
+            try {
+                entries = searchEntries(toPrincipalFilter(batch), "*", "+");
+            } catch (LdapException e) {
+                throw new KrbException("Failed to retrieve identities", e);
+            }
+            for (Entry entry : entries) {
+                Attribute krb5PrincipalNameAt = entry.get(KerberosAttribute.KRB5_PRINCIPAL_NAME_AT);
+                if (krb5PrincipalNameAt == null) {
+                    continue;
                 }
-            }.run();
-            if (entry == null) {
-                return null;
+                String principalName;
+                try {
+                    principalName = krb5PrincipalNameAt.getString();
+                } catch (LdapInvalidAttributeValueException e) {
+                    throw new KrbException("Failed to retrieve identities", e);
+                }
+                identities.put(principalName, toIdentity(principalName, entry));
             }
+        }
+        return identities;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The principals are looked up with the batched searches of
+     * batchGetIdentities.
+     */
+    @Override
+    protected Set<String> doGetExistingIdentities(Collection<String> principalNames)
+            throws KrbException {
+        return new HashSet<>(batchGetIdentities(principalNames).keySet());
+    }
 
+    /**
+     * Build an identity from the entry of the principal.
+     */
+    private KrbIdentity toIdentity(String principalName, Entry entry) throws KrbException {
+        KrbIdentity krbIdentity = new KrbIdentity(principalName);
+        try {
             LdapIdentityGetHelper getHelper = new LdapIdentityGetHelper(entry);
             krbIdentity.setPrincipal(getHelper.getPrincipalName());
             krbIdentity.setKeyVersion(getHelper.getKeyVersion());
@@ -335,8 +402,6 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
             krbIdentity.setLocked(getHelper.getLocked());
         } catch (LdapException e) {
             throw new KrbException("Failed to retrieve identity", e);
-        } catch (CursorException e) {
-            throw new KrbException("Failed to retrieve identity", e);
         } catch (ParseException e) {
             throw new KrbException("Failed to retrieve identity", e);
         } catch (IOException e) {
@@ -346,6 +411,50 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
         return krbIdentity;
     }
 
+    /**
+     * Build the search filter matching any of the principal names.
+     */
+    private static String toPrincipalFilter(Collection<String> principalNames) {
+        StringBuilder filter = new StringBuilder("(&").append(PRINCIPAL_OBJECT_CLASS_FILTER).append("(|");
+        for (String principalName : principalNames) {
+            filter.append('(').append(KerberosAttribute.KRB5_PRINCIPAL_NAME_AT).append('=')
+                    .append(FilterEncoder.encodeFilterValue(principalName)).append(')');
+        }
+        return filter.append("))").toString();
+    }
+
+    /**
+     * Search the base dn on one of the replicas, reading all the results
+     * before the connection is given back to its pool.
+     */
+    private List<Entry> searchEntries(String filter, String... attributes) throws LdapException {
+        return new FailoverInvocationHandler<List<Entry>>() {
+            @Override
+            public List<Entry> execute(LdapConnection connection) throws LdapException {
+                List<Entry> entries = new ArrayList<>();
+                EntryCursor cursor = connection.search(getConfig().getString("base_dn"), filter,
+                        SearchScope.SUBTREE, attributes);
+                if (cursor == null) {
+                    return entries;
+                }
+                try {
+                    while (cursor.next()) {
+                        entries.add(cursor.get());
+                    }
+                } catch (CursorException e) {
+                    throw new LdapOtherException("Failed to read search results", e);
+                } finally {
+                    try {
+                        cursor.close();
+                    } catch (IOException e) {
+                        LOG.error("With IOException when closing EntryCursor. " + e);
+                    }
+                }
+                return entries;
+            }
+        }.runOnReplica();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -372,7 +481,7 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
                     + identity.isLocked());
             new FailoverInvocationHandler<Void>() {
                 @Override
-                public Void execute() throws LdapException {
+                public Void execute(LdapConnection connection) throws LdapException {
                     connection.modify(modifyRequest);
                     return null;
                 }
@@ -394,7 +503,7 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
             Dn dn = toDn(principalName);
             new FailoverInvocationHandler<Void>() {
                 @Override
-                public Void execute() throws LdapException {
+                public Void execute(LdapConnection connection) throws LdapException {
                     connection.delete(dn);
                     return null;
                 }
@@ -425,42 +534,100 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
     @Override
     protected Iterable<String> doGetIdentities() {
         List<String> identityNames = new ArrayList<>();
-        EntryCursor cursor;
-        Entry entry;
         try {
-            cursor = new FailoverInvocationHandler<EntryCursor>() {
-                @Override
-                public EntryCursor execute() throws LdapException {
-                    return connection.search(getConfig().getString("base_dn"), "(objectclass=krb5principal)",
-                        SearchScope.SUBTREE, KerberosAttribute.KRB5_PRINCIPAL_NAME_AT);
-                }
-            }.run();
-            if (cursor == null) {
-                return null;
-            }
-            while (cursor.next()) {
-                entry = cursor.get();
+            List<Entry> entries = searchEntries(PRINCIPAL_OBJECT_CLASS_FILTER,
+                    KerberosAttribute.KRB5_PRINCIPAL_NAME_AT);
+            for (Entry entry : entries) {
                 Attribute krb5PrincipalNameAt = entry.get(KerberosAttribute.KRB5_PRINCIPAL_NAME_AT);
                 if (krb5PrincipalNameAt != null) {
                     identityNames.add(krb5PrincipalNameAt.getString());
                 }
             }
-            cursor.close();
             Collections.sort(identityNames);
         } catch (LdapException e) {
             LOG.error("With LdapException when LdapConnection searching. " + e);
-        } catch (CursorException e) {
-            LOG.error("With CursorException when EntryCursor getting. " + e);
-        } catch (IOException e) {
-            LOG.error("With IOException when closing EntryCursor. " + e);
         }
         return identityNames;
     }
 
-    private void performFailover() {
-        currentConnectionIndex = (currentConnectionIndex + 1) % hosts.length;
-        String host = hosts[currentConnectionIndex];
-        connection = connections.get(host);
+    /**
+     * {@inheritDoc}
+     *
+     * The search results are read as they come so only the page is kept in
+     * memory. The krb5PrincipalName attribute has no substring or ordering
+     * matching rule in the Kerberos schema, so the prefix and the start
+     * point can't be pushed down to the search filter.
+     */
+    @Override
+    protected List<String> doGetIdentities(String prefix, String startAfter,
+                                           int limit) throws KrbException {
+        try {
+            return new FailoverInvocationHandler<List<String>>() {
+                @Override
+                public List<String> execute(LdapConnection connection) throws LdapException {
+                    EntryCursor cursor = connection.search(getConfig().getString("base_dn"),
+                        PRINCIPAL_OBJECT_CLASS_FILTER, SearchScope.SUBTREE, KerberosAttribute.KRB5_PRINCIPAL_NAME_AT);
+                    if (cursor == null) {
+                        return new ArrayList<>();
+                    }
+                    try {
+                        return selectPage(new LdapPrincipalNames(cursor), prefix, startAfter, limit);
+                    } catch (IllegalStateException e) {
+                        throw new LdapOtherException("Failed to read search results", e);
+                    } finally {
+                        try {
+                            cursor.close();
+                        } catch (IOException e) {
+                            LOG.error("With IOException when closing EntryCursor. " + e);
+                        }
+                    }
+                }
+            }.runOnReplica();
+        } catch (LdapException e) {
+            throw new KrbException("Failed to get identities", e);
+        }
+    }
+
+    /**
+     * Iterates the principal names of the entries read by a search cursor.
+     */
+    private static class LdapPrincipalNames implements Iterable<String>, Iterator<String> {
+        private final EntryCursor cursor;
+        private String next;
+
+        LdapPrincipalNames(EntryCursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && cursor.next()) {
+                    Attribute krb5PrincipalNameAt = cursor.get().get(KerberosAttribute.KRB5_PRINCIPAL_NAME_AT);
+                    if (krb5PrincipalNameAt != null) {
+                        next = krb5PrincipalNameAt.getString();
+                    }
+                }
+            } catch (LdapException | CursorException e) {
+                throw new IllegalStateException(e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = null;
+            return result;
+        }
     }
 
     private boolean isHa() {
@@ -471,22 +638,59 @@ public class LdapIdentityBackend extends AbstractIdentityBackend {
         return false;
     }
 
+    /**
+     * Run an operation with a connection borrowed from the pool of a host,
+     * retrying once on the other host when HA is set.
+     */
     abstract class FailoverInvocationHandler<T> {
-        public abstract T execute() throws LdapException;
+        public abstract T execute(LdapConnection connection) throws LdapException;
 
+        /**
+         * Run against the current primary host, and fail over to the other
+         * host on error. Used for the updates.
+         */
         public T run() throws LdapException {
+            int index = currentConnectionIndex.get();
             try {
-                return execute();
+                return executeOn(hosts[index]);
             } catch (LdapException e) {
                 if (!isHa()) {
                     throw e;
                 }
-                String host = hosts[currentConnectionIndex];
-                LOG.error("Catch exception with ldap host[" + host + "].", e);
-                performFailover();
-                host = hosts[currentConnectionIndex];
-                LOG.info("Failover to ldap host:" + host + ".");
-                return execute();
+                LOG.error("Catch exception with ldap host[" + hosts[index] + "].", e);
+                int next = (index + 1) % hosts.length;
+                currentConnectionIndex.compareAndSet(index, next);
+                LOG.info("Failover to ldap host:" + hosts[next] + ".");
+                return executeOn(hosts[next]);
+            }
+        }
+
+        /**
+         * Run against the hosts in turn so that the reads are spread over
+         * all the replicas, and retry on the other host on error.
+         */
+        public T runOnReplica() throws LdapException {
+            int index = (readConnectionIndex.getAndIncrement() & Integer.MAX_VALUE) % hosts.length;
+            try {
+                return executeOn(hosts[index]);
+            } catch (LdapException e) {
+                if (!isHa()) {
+                    throw e;
+                }
+                int next = (index + 1) % hosts.length;
+                LOG.error("Catch exception with ldap host[" + hosts[index] + "], retry with host["
+                        + hosts[next] + "].", e);
+                return executeOn(hosts[next]);
+            }
+        }
+
+        private T executeOn(String host) throws LdapException {
+            LdapConnectionPool pool = pools.get(host);
+            LdapConnection connection = pool.acquire();
+            try {
+                return execute(connection);
+            } finally {
+                pool.release(connection);
             }
         }
     }
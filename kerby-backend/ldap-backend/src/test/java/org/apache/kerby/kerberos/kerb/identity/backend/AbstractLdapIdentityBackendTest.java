@@ -23,9 +23,19 @@ import org.apache.directory.server.core.api.DirectoryService;
 import org.apache.directory.server.ldap.LdapServer;
 import org.apache.kerby.kerberos.kdc.identitybackend.LdapIdentityBackend;
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.junit.After;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 public abstract class AbstractLdapIdentityBackendTest extends  BackendTest {
     protected LdapIdentityBackend backend;
 
@@ -81,4 +91,62 @@ public abstract class AbstractLdapIdentityBackendTest extends  BackendTest {
     public void testGetIdentities() throws KrbException {
         testGetIdentities(backend);
     }
+
+    @Test
+    public void testGetIdentitiesPaged() throws KrbException {
+        testGetIdentitiesPaged(backend);
+    }
+
+    @Test
+    public void testGetExistingIdentities() throws KrbException {
+        testGetExistingIdentities(backend);
+    }
+
+    @Test
+    public void testBatchGetIdentities() throws KrbException {
+        KrbIdentity[] identities = BackendTestUtil.createManyIdentities();
+        for (KrbIdentity identity : identities) {
+            backend.addIdentity(identity);
+        }
+
+        List<String> names = new ArrayList<>();
+        names.add(identities[0].getPrincipalName());
+        names.add(identities[3].getPrincipalName());
+        names.add("nonexistent@EXAMPLE.COM");
+        Map<String, KrbIdentity> found = backend.batchGetIdentities(names);
+        assertThat(found).hasSize(2);
+        assertThat(found.get(identities[0].getPrincipalName())).isEqualTo(identities[0]);
+        assertThat(found.get(identities[3].getPrincipalName())).isEqualTo(identities[3]);
+
+        //tearDown
+        for (KrbIdentity identity : identities) {
+            backend.deleteIdentity(identity.getPrincipalName());
+        }
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        KrbIdentity[] identities = BackendTestUtil.createManyIdentities();
+        for (KrbIdentity identity : identities) {
+            backend.addIdentity(identity);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<KrbIdentity>> results = new ArrayList<>();
+            for (KrbIdentity identity : identities) {
+                results.add(executor.submit(() -> backend.getIdentity(identity.getPrincipalName())));
+            }
+            for (int i = 0; i < identities.length; i++) {
+                assertThat(results.get(i).get()).isEqualTo(identities[i]);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //tearDown
+        for (KrbIdentity identity : identities) {
+            backend.deleteIdentity(identity.getPrincipalName());
+        }
+    }
 }
@@ -29,7 +29,6 @@ import org.apache.kerby.kerberos.kerb.type.KerberosTime;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Comparator;
@@ -44,26 +43,44 @@ public class KrbIdentitySerializer implements ElementSerializer<KrbIdentity> {
     /** the static instance of the serializer */
     public static final KrbIdentitySerializer INSTANCE = new KrbIdentitySerializer();
 
+    /** kvno, flags, the flag mask, creation and expiration times, and the number of keys */
+    private static final int FIXED_FIELDS_SIZE = 4 + 4 + 1 + 8 + 8 + 4;
+
+    /** the type and the length of a key */
+    private static final int KEY_HEADER_SIZE = 4 + 4;
+
     /** comparator for KrbIdentity */
     private KrbIdentityComparator comparator = KrbIdentityComparator.INSTANCE;
 
+    /**
+     * {@inheritDoc}
+     *
+     * The size of the entry is computed first, so the fields are written
+     * into one presized buffer whose backing array is returned as it is.
+     */
     @Override
     public byte[] serialize(KrbIdentity entry) {
-        
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-
         try {
-            // the principalName
-            out.write(StringSerializer.INSTANCE.serialize(entry.getPrincipalName()));
-            
+            // the principalName, already with its length prefix
+            byte[] principal = StringSerializer.INSTANCE.serialize(entry.getPrincipalName());
+
+            Map<EncryptionType, EncryptionKey> keys = entry.getKeys();
+            int size = principal.length + FIXED_FIELDS_SIZE;
+            for (EncryptionKey ek : keys.values()) {
+                size += KEY_HEADER_SIZE + ek.getKeyData().length;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.put(principal);
+
             // key version
-            out.write(IntSerializer.serialize(entry.getKeyVersion()));
-            
-            out.write(IntSerializer.serialize(entry.getKdcFlags()));
-            
+            buffer.putInt(entry.getKeyVersion());
+
+            buffer.putInt(entry.getKdcFlags());
+
             // mask for disabled and lock flags
             byte mask = 0;
-            
+
             if (entry.isDisabled()) {
                 mask |= 1 << 1;
             }
@@ -71,28 +88,26 @@ public class KrbIdentitySerializer implements ElementSerializer<KrbIdentity> {
             if (entry.isLocked()) {
                 mask |= 1 << 2;
             }
-            
-            out.write(mask);
-            
+
+            buffer.put(mask);
+
             // creation time
-            out.write(LongSerializer.serialize(entry.getCreatedTime().getTime()));
-            
+            buffer.putLong(entry.getCreatedTime().getTime());
+
             // expiration time
-            out.write(LongSerializer.serialize(entry.getExpireTime().getTime()));
-            
-            Map<EncryptionType, EncryptionKey> keys = entry.getKeys();
+            buffer.putLong(entry.getExpireTime().getTime());
+
             // num keys
-            out.write(IntSerializer.serialize(keys.size()));
-            
+            buffer.putInt(keys.size());
+
             for (EncryptionKey ek : keys.values()) {
-                int type = ek.getKeyType().getValue();
-                out.write(IntSerializer.serialize(type));
                 byte[] data = ek.getKeyData();
-                out.write(IntSerializer.serialize(data.length));
-                out.write(data);
+                buffer.putInt(ek.getKeyType().getValue());
+                buffer.putInt(data.length);
+                buffer.put(data);
             }
-            
-            return out.toByteArray();
+
+            return buffer.array();
         } catch (Exception e) {
             throw new IllegalStateException("Failed to serialize the identity " + entry);
         }
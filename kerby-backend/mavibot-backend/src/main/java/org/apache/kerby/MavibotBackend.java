@@ -26,9 +26,11 @@ import org.apache.directory.mavibot.btree.KeyCursor;
 import org.apache.directory.mavibot.btree.PersistedBTreeConfiguration;
 import org.apache.directory.mavibot.btree.RecordManager;
 import org.apache.directory.mavibot.btree.Tuple;
+import org.apache.directory.mavibot.btree.TupleCursor;
 import org.apache.directory.mavibot.btree.exception.KeyNotFoundException;
 import org.apache.directory.mavibot.btree.serializer.StringSerializer;
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.BatchTrans;
 import org.apache.kerby.kerberos.kerb.identity.backend.AbstractIdentityBackend;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.slf4j.Logger;
@@ -38,6 +40,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * A backend based on Apache Mavibot(an MVCC BTree library).
@@ -96,6 +100,80 @@ public class MavibotBackend extends AbstractIdentityBackend {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean supportBatchTrans() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The updates are kept in the returned transaction until it's committed,
+     * and then written all at once while holding the backend write lock.
+     */
+    @Override
+    public BatchTrans startBatchTrans() throws KrbException {
+        return new MavibotBatchTrans();
+    }
+
+    /**
+     * Load many identities at once. The identities are checked first, so
+     * nothing is written when one of them already exists, and then inserted
+     * in principal name order, which keeps the updated pages of the tree
+     * next to each other in the cache.
+     *
+     * @param identities the identities to add, none of them may exist yet
+     * @return the number of loaded identities
+     * @throws KrbException e
+     */
+    public synchronized int bulkLoad(Iterable<KrbIdentity> identities) throws KrbException {
+        TreeMap<String, KrbIdentity> sorted = new TreeMap<>();
+        for (KrbIdentity identity : identities) {
+            String p = identity.getPrincipalName();
+            if (sorted.put(p, identity) != null) {
+                throw new KrbException("Identity appears twice " + p);
+            }
+            try {
+                if (database.hasKey(p)) {
+                    throw new KrbException("Identity already exists " + p);
+                }
+            } catch (IOException e) {
+                throw new KrbException("Failed to check the identity " + p);
+            } catch (KeyNotFoundException e) {
+                throw new KrbException("No such identity exists " + p);
+            }
+        }
+
+        for (Map.Entry<String, KrbIdentity> entry : sorted.entrySet()) {
+            try {
+                database.insert(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                throw new KrbException("Failed to add the identity " + entry.getKey());
+            }
+        }
+        LOG.info("Bulk loaded {} identities", sorted.size());
+
+        return sorted.size();
+    }
+
+    private KrbIdentity insertIdentity(KrbIdentity identity) throws KrbException {
+        String p = identity.getPrincipalName();
+        try {
+            if (database.hasKey(p)) {
+                throw new KrbException("Identity already exists " + p);
+            }
+
+            return database.insert(p, identity);
+        } catch (KeyNotFoundException e) {
+            throw new KrbException("No such identity exists " + p);
+        } catch (IOException e) {
+            throw new KrbException("Failed to add the identity " + p);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -120,6 +198,48 @@ public class MavibotBackend extends AbstractIdentityBackend {
         return keys;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The tree is browsed from the first key of the page on.
+     */
+    @Override
+    protected List<String> doGetIdentities(String prefix, String startAfter,
+                                           int limit) throws KrbException {
+        String from = startAfter;
+        if (from == null || prefix != null && prefix.compareTo(from) > 0) {
+            from = prefix;
+        }
+
+        List<String> keys = new ArrayList<>();
+        TupleCursor<String, KrbIdentity> cursor = null;
+        try {
+            if (from == null) {
+                cursor = database.browse();
+            } else {
+                cursor = database.browseFrom(from);
+            }
+            while (keys.size() < limit && cursor.hasNext()) {
+                String key = cursor.next().getKey();
+                if (startAfter != null && key.compareTo(startAfter) <= 0) {
+                    continue;
+                }
+                if (prefix != null && !key.startsWith(prefix)) {
+                    break;
+                }
+                keys.add(key);
+            }
+        } catch (Exception e) {
+            throw new KrbException("Errors occurred while fetching the principals", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        return keys;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -140,18 +260,7 @@ public class MavibotBackend extends AbstractIdentityBackend {
      */
     @Override
     protected synchronized KrbIdentity doAddIdentity(KrbIdentity identity) throws KrbException {
-        String p = identity.getPrincipalName();
-        try {
-            if (database.hasKey(p)) {
-                throw new KrbException("Identity already exists " + p);
-            }
-            
-            return database.insert(p, identity);
-        } catch (KeyNotFoundException e) {
-            throw new KrbException("No such identity exists " + p);
-        } catch (IOException e) {
-            throw new KrbException("Failed to add the identity " + p);
-        }
+        return insertIdentity(identity);
     }
 
     /**
@@ -159,6 +268,10 @@ public class MavibotBackend extends AbstractIdentityBackend {
      */
     @Override
     protected synchronized KrbIdentity doUpdateIdentity(KrbIdentity identity) throws KrbException {
+        return replaceIdentity(identity);
+    }
+
+    private KrbIdentity replaceIdentity(KrbIdentity identity) throws KrbException {
         String p = identity.getPrincipalName();
         try {
             if (!database.hasKey(p)) {
@@ -199,4 +312,101 @@ public class MavibotBackend extends AbstractIdentityBackend {
             throw new KrbException("Failed to close the database", e);
         }
     }
+
+    /**
+     * Keeps the updates in memory and applies them in order on commit. On
+     * rollback the pending updates are dropped, nothing has been written.
+     * When an update fails on commit, the ones already applied are undone,
+     * so the batch is applied either whole or not at all.
+     */
+    class MavibotBatchTrans implements BatchTrans {
+        private final List<PendingUpdate> updates = new ArrayList<>();
+
+        @Override
+        public void commit() throws KrbException {
+            synchronized (MavibotBackend.this) {
+                // The state of the principals before the batch, a delete
+                // when there was no identity
+                List<PendingUpdate> undo = new ArrayList<>(updates.size());
+                try {
+                    for (PendingUpdate update : updates) {
+                        undo.add(new PendingUpdate(doGetIdentity(update.principalName),
+                            update.principalName, false));
+                        if (update.identity == null) {
+                            doDeleteIdentity(update.principalName);
+                        } else if (update.isAdd) {
+                            insertIdentity(update.identity);
+                        } else {
+                            replaceIdentity(update.identity);
+                        }
+                    }
+                } catch (KrbException e) {
+                    restore(undo);
+                    throw e;
+                } finally {
+                    updates.clear();
+                }
+            }
+        }
+
+        private void restore(List<PendingUpdate> undo) {
+            for (int i = undo.size() - 1; i >= 0; i--) {
+                PendingUpdate previous = undo.get(i);
+                try {
+                    if (database.hasKey(previous.principalName)) {
+                        database.delete(previous.principalName);
+                    }
+                    if (previous.identity != null) {
+                        database.insert(previous.principalName, previous.identity);
+                    }
+                } catch (Exception e) {
+                    LOG.error("Failed to undo the update of the identity " + previous.principalName, e);
+                }
+            }
+        }
+
+        @Override
+        public void rollback() throws KrbException {
+            updates.clear();
+        }
+
+        @Override
+        public BatchTrans addIdentity(KrbIdentity identity) throws KrbException {
+            if (identity != null) {
+                updates.add(new PendingUpdate(identity, identity.getPrincipalName(), true));
+            }
+            return this;
+        }
+
+        @Override
+        public BatchTrans updateIdentity(KrbIdentity identity) throws KrbException {
+            if (identity != null) {
+                updates.add(new PendingUpdate(identity, identity.getPrincipalName(), false));
+            }
+            return this;
+        }
+
+        @Override
+        public BatchTrans deleteIdentity(String principalName) throws KrbException {
+            if (principalName != null) {
+                updates.add(new PendingUpdate(null, principalName, false));
+            }
+            return this;
+        }
+    }
+
+    /**
+     * An update kept by a batch transaction, a delete when there's no identity.
+     */
+    private static class PendingUpdate {
+        private final KrbIdentity identity;
+        private final String principalName;
+        private final boolean isAdd;
+
+        PendingUpdate(KrbIdentity identity, String principalName, boolean isAdd) {
+            this.identity = identity;
+            this.principalName = principalName;
+            this.isAdd = isAdd;
+        }
+    }
 }
@@ -21,15 +21,18 @@ package org.apache.kerby;
 
 
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.BatchTrans;
 import org.apache.kerby.kerberos.kerb.identity.backend.BackendTestBase;
 import org.apache.kerby.kerberos.kerb.identity.backend.BackendTestUtil;
 import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackend;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -86,4 +89,84 @@ public class MavibotBackendTest extends BackendTestBase {
             backend.deleteIdentity(identity.getPrincipalName());
         }
     }
+
+    @Test
+    public void testBulkLoad() throws KrbException {
+        List<KrbIdentity> identities = BackendTestUtil.createManyIdentities(50);
+        Collections.shuffle(identities);
+
+        assertThat(((MavibotBackend) backend).bulkLoad(identities)).isEqualTo(50);
+
+        for (KrbIdentity identity : identities) {
+            assertThat(backend.getIdentity(identity.getPrincipalName())).isEqualTo(identity);
+        }
+
+        for (KrbIdentity identity : identities) {
+            backend.deleteIdentity(identity.getPrincipalName());
+        }
+    }
+
+    @Test
+    public void testBatchTrans() throws KrbException {
+        assertTrue(backend.supportBatchTrans());
+        List<KrbIdentity> identities = BackendTestUtil.createManyIdentities(3);
+
+        BatchTrans trans = backend.startBatchTrans();
+        trans.addIdentity(identities.get(0)).addIdentity(identities.get(1));
+        trans.commit();
+        assertThat(backend.getIdentity(identities.get(0).getPrincipalName())).isNotNull();
+        assertThat(backend.getIdentity(identities.get(1).getPrincipalName())).isNotNull();
+
+        KrbIdentity disabled = identities.get(0);
+        disabled.setDisabled(true);
+        trans = backend.startBatchTrans();
+        trans.updateIdentity(disabled)
+            .deleteIdentity(identities.get(1).getPrincipalName())
+            .addIdentity(identities.get(2));
+        trans.commit();
+        assertThat(backend.getIdentity(disabled.getPrincipalName()).isDisabled()).isTrue();
+        assertThat(backend.getIdentity(identities.get(1).getPrincipalName())).isNull();
+        assertThat(backend.getIdentity(identities.get(2).getPrincipalName())).isNotNull();
+
+        trans = backend.startBatchTrans();
+        trans.deleteIdentity(identities.get(0).getPrincipalName());
+        trans.rollback();
+        assertThat(backend.getIdentity(identities.get(0).getPrincipalName())).isNotNull();
+
+        backend.deleteIdentity(identities.get(0).getPrincipalName());
+        backend.deleteIdentity(identities.get(2).getPrincipalName());
+    }
+
+    @Test
+    public void testBatchTransFailure() throws KrbException {
+        List<KrbIdentity> identities = BackendTestUtil.createManyIdentities(3);
+        KrbIdentity existing = identities.get(1);
+        backend.addIdentity(existing);
+
+        // The last add fails, the update and the first add are undone
+        KrbIdentity disabled = new KrbIdentity(existing.getPrincipalName());
+        disabled.setDisabled(true);
+        BatchTrans trans = backend.startBatchTrans();
+        trans.addIdentity(identities.get(0))
+            .updateIdentity(disabled)
+            .addIdentity(existing);
+        KrbException error = null;
+        try {
+            trans.commit();
+        } catch (KrbException e) {
+            error = e;
+        }
+        assertThat(error).isNotNull();
+        assertThat(backend.getIdentity(identities.get(0).getPrincipalName())).isNull();
+        assertThat(backend.getIdentity(existing.getPrincipalName()).isDisabled()).isFalse();
+
+        // The failed updates aren't replayed
+        trans.addIdentity(identities.get(2));
+        trans.commit();
+        assertThat(backend.getIdentity(identities.get(0).getPrincipalName())).isNull();
+        assertThat(backend.getIdentity(identities.get(2).getPrincipalName())).isNotNull();
+
+        backend.deleteIdentity(existing.getPrincipalName());
+        backend.deleteIdentity(identities.get(2).getPrincipalName());
+    }
 }
@@ -36,9 +36,13 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.PreparedStatement;
 import javax.sql.rowset.serial.SerialBlob;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * A MySQL based backend implementation.
@@ -48,6 +52,7 @@ public class MySQLIdentityBackend extends AbstractIdentityBackend {
     private String identityTable;
     private static DruidDataSource dataSource = null;
     private static final Logger LOG = LoggerFactory.getLogger(MySQLIdentityBackend.class);
+    private static final int MAX_IN_LIST_SIZE = 500;
 
     /**
      * Constructing an instance using specified config that contains anything
@@ -398,6 +403,60 @@ public class MySQLIdentityBackend extends AbstractIdentityBackend {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The principals are queried with one IN list per 500 names. The names
+     * are matched like doGetIdentity does, ignoring the case as the default
+     * MySQL collation does.
+     */
+    @Override
+    protected Set<String> doGetExistingIdentities(Collection<String> principalNames)
+            throws KrbException {
+        List<String> names = new ArrayList<>(principalNames);
+        Set<String> found = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Connection connection = null;
+        PreparedStatement preSmt = null;
+        ResultSet result = null;
+        try {
+            connection = dataSource.getConnection();
+            for (int from = 0; from < names.size(); from += MAX_IN_LIST_SIZE) {
+                List<String> batch = names.subList(from, Math.min(from + MAX_IN_LIST_SIZE, names.size()));
+                StringBuilder statement = new StringBuilder("SELECT principal FROM ")
+                    .append(identityTable).append(" WHERE principal IN (?");
+                for (int i = 1; i < batch.size(); i++) {
+                    statement.append(", ?");
+                }
+                statement.append(")");
+                preSmt = connection.prepareStatement(statement.toString());
+                for (int i = 0; i < batch.size(); i++) {
+                    preSmt.setString(i + 1, batch.get(i));
+                }
+                result = preSmt.executeQuery();
+                while (result.next()) {
+                    found.add(result.getString("principal"));
+                }
+                DbUtils.closeQuietly(result);
+                DbUtils.closeQuietly(preSmt);
+            }
+        } catch (SQLException e) {
+            LOG.error("Error occurred while getting identities.", e);
+            throw new KrbException("Failed to get identities. ", e);
+        } finally {
+            DbUtils.closeQuietly(preSmt);
+            DbUtils.closeQuietly(result);
+            DbUtils.closeQuietly(connection);
+        }
+
+        Set<String> existing = new HashSet<>();
+        for (String name : names) {
+            if (found.contains(name)) {
+                existing.add(name);
+            }
+        }
+        return existing;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -428,4 +487,59 @@ public class MySQLIdentityBackend extends AbstractIdentityBackend {
 
         return identityNames;
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The prefix, the start and the limit are pushed down to the query,
+     * which seeks and orders on the primary key. The names are matched,
+     * compared and ordered by the collation of the principal column, so the
+     * continuation token is only meaningful to this backend and the order of
+     * the pages may differ from the Java String order of the other backends.
+     */
+    @Override
+    protected List<String> doGetIdentities(String prefix, String startAfter,
+                                           int limit) throws KrbException {
+        List<String> identityNames = new ArrayList<>();
+        Connection connection = null;
+        PreparedStatement preSmt = null;
+        ResultSet result = null;
+        try {
+            connection = dataSource.getConnection();
+            StringBuilder statement = new StringBuilder("SELECT principal FROM ")
+                .append(identityTable).append(" WHERE 1 = 1");
+            if (prefix != null) {
+                statement.append(" AND principal LIKE ? ESCAPE '!'");
+            }
+            if (startAfter != null) {
+                statement.append(" AND principal > ?");
+            }
+            statement.append(" ORDER BY principal LIMIT ?");
+            preSmt = connection.prepareStatement(statement.toString());
+
+            int index = 1;
+            if (prefix != null) {
+                preSmt.setString(index++, prefix.replace("!", "!!").replace("%", "!%")
+                    .replace("_", "!_") + "%");
+            }
+            if (startAfter != null) {
+                preSmt.setString(index++, startAfter);
+            }
+            preSmt.setInt(index, limit);
+
+            result = preSmt.executeQuery();
+            while (result.next()) {
+                identityNames.add(result.getString("principal"));
+            }
+        } catch (SQLException e) {
+            LOG.error("Error occurred while getting identities.", e);
+            throw new KrbException("Failed to get identities. ", e);
+        } finally {
+            DbUtils.closeQuietly(preSmt);
+            DbUtils.closeQuietly(result);
+            DbUtils.closeQuietly(connection);
+        }
+
+        return identityNames;
+    }
 }
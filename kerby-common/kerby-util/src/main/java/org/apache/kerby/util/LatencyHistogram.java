@@ -0,0 +1,167 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.util;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of latencies in nanoseconds, with log linear
+ * buckets like HdrHistogram: each power of two is split in 16 buckets, so
+ * a percentile is off by at most 1/16 of its value. Recording is a few
+ * atomic increments without allocation.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     * @param nanos The latency in nanoseconds, negative ones count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Take a copy of the histogram, to compute the percentiles on. It's
+     * not atomic, recordings can be partly seen while it's taken.
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketCounts[i] = counts.get(i);
+            total += bucketCounts[i];
+        }
+        return new Snapshot(bucketCounts, total, sum.sum(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * The highest value counted in the bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * A copy of the histogram counts.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count > 0 ? (double) sum / count : 0;
+        }
+
+        /**
+         * Get the latency at or under which the given part of the latencies
+         * are, like 0.99 for the 99th percentile.
+         * @param percentile The percentile, from 0 to 1
+         * @return The latency in nanoseconds, 0 if none was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Put the count, mean, p50, p99, p999 and max latencies in
+         * microseconds, under the prefix followed by ".count", ".mean" and
+         * so on. Nothing is put if no latency was recorded.
+         * @param result The map to put the latencies in
+         * @param prefix The prefix of the keys
+         */
+        public void summarize(Map<String, Double> result, String prefix) {
+            if (count == 0) {
+                return;
+            }
+            result.put(prefix + ".count", (double) count);
+            result.put(prefix + ".mean", getMean() / 1000);
+            result.put(prefix + ".p50", getValueAtPercentile(0.5) / 1000.0);
+            result.put(prefix + ".p99", getValueAtPercentile(0.99) / 1000.0);
+            result.put(prefix + ".p999", getValueAtPercentile(0.999) / 1000.0);
+            result.put(prefix + ".max", max / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache keyed by the SHA-256 of some secret parts, like a
+ * token or a pass phrase, salted with a random secret of the cache. The
+ * parts aren't kept in memory, and their digests can't be matched against
+ * the digests of guesses without the salt. The least recently used entries
+ * are dropped when the cache is full.
+ *
+ * A lookup digests the parts once with {@link #digest(byte[]...)}, then
+ * gets, puts or removes by the digest. Values that expire are removed by
+ * the caller with {@link #remove(ByteBuffer, Object)}, which keeps an entry
+ * put again meanwhile.
+ *
+ * @param <V> The type of the values
+ */
+public class SaltedDigestCache<V> {
+    private final Map<ByteBuffer, V> entries;
+    private final byte[] salt = new byte[16];
+
+    /**
+     * @param capacity The max number of entries kept
+     */
+    public SaltedDigestCache(final int capacity) {
+        this.entries = new LinkedHashMap<ByteBuffer, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 4306128594734927375L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, V> eldest) {
+                return size() > capacity;
+            }
+        };
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * Get the salted digest of the parts. Each part is digested after its
+     * length, so parts that concatenate to the same bytes differ.
+     * @param parts The parts of the key
+     * @return The digest to look the entry up by
+     */
+    public ByteBuffer digest(byte[]... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 isn't available", e);
+        }
+        digest.update(salt);
+        for (byte[] part : parts) {
+            digest.update(ByteBuffer.allocate(4).putInt(part.length).array());
+            digest.update(part);
+        }
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    /**
+     * @param key The digest of the parts
+     * @return The value, null if not cached
+     */
+    public V get(ByteBuffer key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * @param key The digest of the parts
+     * @param value The value, replacing the one cached if any
+     */
+    public void put(ByteBuffer key, V value) {
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * Remove the entry if it's still the given value.
+     * @param key The digest of the parts
+     * @param value The value to remove
+     */
+    public void remove(ByteBuffer key, V value) {
+        synchronized (entries) {
+            entries.remove(key, value);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
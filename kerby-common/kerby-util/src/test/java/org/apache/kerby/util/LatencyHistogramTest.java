@@ -0,0 +1,75 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.util;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(1000);
+        assertThat(snapshot.getMax()).isEqualTo(1000000);
+        assertThat(snapshot.getMean()).isCloseTo(500500.0, within(0.1));
+        // Buckets are 1/16 of a power of two wide
+        assertThat(snapshot.getValueAtPercentile(0.5)).isBetween(500000L, 500000L + 500000L / 16);
+        assertThat(snapshot.getValueAtPercentile(0.99)).isBetween(990000L, 990000L + 990000L / 16);
+        assertThat(snapshot.getValueAtPercentile(1.0)).isEqualTo(1000000);
+        assertThat(new LatencyHistogram().snapshot().getValueAtPercentile(0.99)).isZero();
+    }
+
+    @Test
+    public void testBuckets() {
+        long previous = -1;
+        for (int bucket = 0; bucket < 960; bucket++) {
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            assertThat(highest).isGreaterThan(previous);
+            assertThat(LatencyHistogram.bucketOf(highest)).isEqualTo(bucket);
+            assertThat(LatencyHistogram.bucketOf(previous + 1)).isEqualTo(bucket);
+            previous = highest;
+        }
+        assertThat(previous).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testSummarize() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Map<String, Double> result = new TreeMap<>();
+        histogram.snapshot().summarize(result, "empty");
+        assertThat(result).isEmpty();
+
+        histogram.record(2000);
+        histogram.snapshot().summarize(result, "op");
+        assertThat(result).containsEntry("op.count", 1.0).containsEntry("op.max", 2.0)
+            .containsKeys("op.mean", "op.p50", "op.p99", "op.p999");
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SaltedDigestCacheTest {
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testDigest() {
+        SaltedDigestCache<String> cache = new SaltedDigestCache<>(10);
+        assertThat(cache.digest(bytes("user"), bytes("secret")))
+            .isEqualTo(cache.digest(bytes("user"), bytes("secret")));
+        // The parts are delimited
+        assertThat(cache.digest(bytes("user"), bytes("secret")))
+            .isNotEqualTo(cache.digest(bytes("users"), bytes("ecret")));
+        // Each cache has its own salt
+        assertThat(cache.digest(bytes("user"), bytes("secret")))
+            .isNotEqualTo(new SaltedDigestCache<String>(10).digest(bytes("user"), bytes("secret")));
+    }
+
+    @Test
+    public void testLru() {
+        SaltedDigestCache<String> cache = new SaltedDigestCache<>(2);
+        ByteBuffer a = cache.digest(bytes("a"));
+        ByteBuffer b = cache.digest(bytes("b"));
+        cache.put(a, "A");
+        cache.put(b, "B");
+        assertThat(cache.get(a)).isEqualTo("A");
+
+        // b is the least recently used
+        cache.put(cache.digest(bytes("c")), "C");
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(b)).isNull();
+        assertThat(cache.get(a)).isEqualTo("A");
+
+        // An entry put again isn't removed for its old value
+        cache.put(a, "A2");
+        cache.remove(a, "A");
+        assertThat(cache.get(a)).isEqualTo("A2");
+        cache.remove(a, "A2");
+        assertThat(cache.get(a)).isNull();
+
+        cache.clear();
+        assertThat(cache.size()).isZero();
+    }
+}
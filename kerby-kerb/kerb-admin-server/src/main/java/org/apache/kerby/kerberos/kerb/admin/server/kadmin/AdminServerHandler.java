@@ -45,11 +45,10 @@ import org.xnio.sasl.SaslWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
-import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -243,16 +242,11 @@ public class AdminServerHandler {
             List<String> princList = stringToList(principals);
             if (princList.size() != 0) {
                 LOG.info("Exporting keytab file for " + principals + "...");
-                File tempDir = Files.createTempDirectory("ktadd").toFile();
-                File keytabFile = new File(tempDir, princList.get(0)
-                        .replace('/', '-')
-                        .replace('*', '-')
-                        .replace('?', '-')
-                        + ".keytab");
+                ByteArrayOutputStream keytabBytes = new ByteArrayOutputStream();
                 try {
-                    localKadmin.exportKeytab(keytabFile, princList);
+                    localKadmin.exportKeytab(keytabBytes, princList);
                     LOG.info("Create keytab file for principals successfully.");
-                    ByteBuffer responseMessage = infoPackageTool(keytabFile, "exportKeytab");
+                    ByteBuffer responseMessage = infoPackageTool(keytabBytes.toByteArray(), "exportKeytab");
                     return responseMessage;
                 } catch (KrbException e) {
                     String error = "Failed to export keytab. " + e.toString();
@@ -340,7 +334,7 @@ public class AdminServerHandler {
         return KadminCode.encodeWrapMessage(adminMessage, getSaslServerWrapper());
     }
     
-    private ByteBuffer infoPackageTool(File keytabFile, String dealType) throws IOException {
+    private ByteBuffer infoPackageTool(byte[] keytabBytes, String dealType) throws IOException {
         AdminMessage adminMessage = null;
         XdrFieldInfo[] xdrFieldInfos = new XdrFieldInfo[3];
         if ("exportKeytab".equals(dealType)) {
@@ -349,7 +343,7 @@ public class AdminServerHandler {
         }
         
         xdrFieldInfos[1] = new XdrFieldInfo(1, XdrDataType.INTEGER, 1);
-        xdrFieldInfos[2] = new XdrFieldInfo(2, XdrDataType.BYTES, Files.readAllBytes(keytabFile.toPath()));
+        xdrFieldInfos[2] = new XdrFieldInfo(2, XdrDataType.BYTES, keytabBytes);
 
         KeytabMessageCode value = new KeytabMessageCode(xdrFieldInfos);
         adminMessage.setMessageBuffer(ByteBuffer.wrap(value.encode()));
@@ -26,6 +26,7 @@ import org.apache.kerby.kerberos.kerb.identity.CacheableIdentityService;
 import org.apache.kerby.kerberos.kerb.identity.IdentityService;
 import org.apache.kerby.kerberos.kerb.identity.backend.BackendConfig;
 import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackend;
+import org.apache.kerby.kerberos.kerb.identity.backend.InstrumentedIdentityBackend;
 import org.apache.kerby.kerberos.kerb.identity.backend.MemoryIdentityBackend;
 import org.apache.kerby.kerberos.kerb.server.KdcUtil;
 
@@ -61,7 +62,8 @@ public class AbstractInternalAdminServer implements InternalAdminServer {
 
     protected IdentityService getIdentityService() {
         if (identityService == null) {
-            if (backend instanceof MemoryIdentityBackend) { // Already in memory
+            // Already in memory, even with its calls recorded
+            if (InstrumentedIdentityBackend.unwrap(backend) instanceof MemoryIdentityBackend) {
                 identityService = backend;
             } else {
                 identityService = new CacheableIdentityService(
@@ -24,15 +24,19 @@ import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.admin.kadmin.KadminOption;
 import org.apache.kerby.kerberos.kerb.keytab.Keytab;
 import org.apache.kerby.kerberos.kerb.keytab.KeytabEntry;
+import org.apache.kerby.kerberos.kerb.keytab.KeytabOutputStream;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 import org.apache.kerby.kerberos.kerb.type.KerberosTime;
 import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -168,6 +172,65 @@ public final class AdminHelper {
         }
     }
 
+    /**
+     * Write all the keys of the specified identity to the keytab stream.
+     *
+     * @param kos The keytab output stream, with the version already written
+     * @param identity  The identity
+     * @throws KrbException If there is a problem writing the keytab entries
+     */
+    public static void exportToKeytab(KeytabOutputStream kos, KrbIdentity identity)
+        throws KrbException {
+
+        PrincipalName principal = identity.getPrincipal();
+        KerberosTime timestamp = KerberosTime.now();
+        try {
+            for (EncryptionKey ekey : identity.getKeys().values()) {
+                kos.writeEntry(new KeytabEntry(principal, timestamp, ekey.getKvno(), ekey));
+            }
+        } catch (IOException e) {
+            throw new KrbException("Failed to write keytab entries of "
+                + identity.getPrincipalName(), e);
+        }
+    }
+
+    /**
+     * Open the keytab file for entries to be streamed into it. A new or
+     * empty file gets the keytab version first, entries of an existing
+     * keytab are kept and the new ones are appended after them.
+     *
+     * @param keytabFile The keytab file
+     * @return The keytab output stream, to be closed by the caller
+     * @throws KrbException If the file isn't a keytab or can't be opened
+     */
+    public static KeytabOutputStream openKeytabForAppend(File keytabFile) throws KrbException {
+        boolean hasContent = keytabFile.exists() && keytabFile.length() > 0;
+        try {
+            if (hasContent) {
+                try (InputStream is = Files.newInputStream(keytabFile.toPath())) {
+                    if (is.read() != 0x05 || !isKeytabMinorVersion(is.read())) {
+                        throw new KrbException("Not a keytab file: "
+                            + keytabFile.getAbsolutePath());
+                    }
+                }
+            }
+            KeytabOutputStream kos = new KeytabOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(keytabFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND)));
+            if (!hasContent) {
+                kos.writeVersion(Keytab.V502);
+            }
+            return kos;
+        } catch (IOException e) {
+            throw new KrbException("Failed to open keytab "
+                + keytabFile.getAbsolutePath(), e);
+        }
+    }
+
+    private static boolean isKeytabMinorVersion(int minor) {
+        return minor == 0x01 || minor == 0x02;
+    }
+
     /**
      * Store the keytab to keytab file.
      *
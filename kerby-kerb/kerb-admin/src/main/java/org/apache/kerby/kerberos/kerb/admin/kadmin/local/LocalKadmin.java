@@ -19,13 +19,18 @@
  */
 package org.apache.kerby.kerberos.kerb.admin.kadmin.local;
 
+import org.apache.kerby.KOptions;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.admin.kadmin.Kadmin;
+import org.apache.kerby.kerberos.kerb.identity.IdentityPage;
 import org.apache.kerby.kerberos.kerb.identity.backend.BackendConfig;
 import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackend;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.apache.kerby.kerberos.kerb.server.KdcConfig;
 
+import java.io.OutputStream;
+import java.util.List;
+
 /**
  * Server side admin facilities for local, similar to MIT kadmin local mode. It
  * may be not accurate regarding 'local' because, if the identity backend itself
@@ -75,6 +80,32 @@ public interface LocalKadmin extends Kadmin {
      */
     IdentityBackend getIdentityBackend();
 
+    /**
+     * Add principals to backend in bulk. The keys of the principals are
+     * derived in parallel, and the identities are stored in one batch
+     * transaction if the backend supports it. Principals that already exist
+     * are skipped.
+     *
+     * @param principals The principals to be added into backend
+     * @param password The password to create encryption keys, null for random keys
+     * @param kOptions The KOptions with principal info
+     * @return The principals that were added
+     * @throws KrbException e
+     */
+    List<String> addPrincipals(List<String> principals, String password,
+                               KOptions kOptions) throws KrbException;
+
+    /**
+     * Write a keytab with all the keys of the specified principals to the
+     * output stream. The identities are read and written one at a time.
+     *
+     * @param outputStream The output stream, left open
+     * @param principals The principal names
+     * @throws KrbException e
+     */
+    void exportKeytab(OutputStream outputStream,
+                      List<String> principals) throws KrbException;
+
     /**
      * Get the identity from backend.
      *
@@ -84,5 +115,19 @@ public interface LocalKadmin extends Kadmin {
      */
     KrbIdentity getPrincipal(String principalName) throws KrbException;
 
+    /**
+     * Get a page of the principal names that meet the pattern, ordered by
+     * principal name. The page may hold fewer names than the limit even when
+     * more follow, the continuation token tells if there is a next page.
+     *
+     * @param globString The glob string for matching, null to get all
+     * @param continuationToken The token of the previous page, null for the first page
+     * @param limit The max number of principal names scanned for the page
+     * @return principal page
+     * @throws KrbException e
+     */
+    IdentityPage getPrincipals(String globString, String continuationToken,
+                               int limit) throws KrbException;
+
     int size() throws KrbException;
 }
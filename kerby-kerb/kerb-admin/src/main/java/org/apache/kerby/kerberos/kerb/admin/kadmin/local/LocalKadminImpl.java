@@ -21,14 +21,18 @@ package org.apache.kerby.kerberos.kerb.admin.kadmin.local;
 
 import org.apache.kerby.KOptions;
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.BatchTrans;
+import org.apache.kerby.kerberos.kerb.identity.IdentityPage;
 import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackend;
 import org.apache.kerby.kerberos.kerb.keytab.Keytab;
+import org.apache.kerby.kerberos.kerb.keytab.KeytabOutputStream;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.apache.kerby.kerberos.kerb.server.KdcConfig;
 import org.apache.kerby.kerberos.kerb.server.KdcSetting;
 import org.apache.kerby.kerberos.kerb.server.KdcUtil;
 import org.apache.kerby.kerberos.kerb.server.ServerSetting;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 import org.apache.kerby.kerberos.kerb.common.EncryptionUtil;
 import org.apache.kerby.kerberos.kerb.common.KrbUtil;
 import org.apache.kerby.kerberos.kerb.identity.backend.BackendConfig;
@@ -37,10 +41,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,6 +60,7 @@ import java.util.regex.Pattern;
  */
 public class LocalKadminImpl implements LocalKadmin {
     private static final Logger LOG = LoggerFactory.getLogger(LocalKadminImpl.class);
+    private static final int PRINCIPALS_PAGE_SIZE = 1000;
 
     private final ServerSetting serverSetting;
     private final IdentityBackend backend;
@@ -183,9 +195,7 @@ public class LocalKadminImpl implements LocalKadmin {
             throws KrbException {
         principal = fixPrincipal(principal);
         KrbIdentity identity = AdminHelper.createIdentity(principal, kOptions);
-        List<EncryptionKey> keys = EncryptionUtil.generateKeys(
-                getKdcConfig().getEncryptionTypes());
-        identity.addKeys(keys);
+        identity.addKeys(generateKeys(principal, null, getKdcConfig().getEncryptionTypes()));
         backend.addIdentity(identity);
     }
 
@@ -201,12 +211,99 @@ public class LocalKadminImpl implements LocalKadmin {
             throws KrbException {
         principal = fixPrincipal(principal);
         KrbIdentity identity = AdminHelper.createIdentity(principal, kOptions);
-        List<EncryptionKey> keys = EncryptionUtil.generateKeys(principal, password,
-                getKdcConfig().getEncryptionTypes());
-        identity.addKeys(keys);
+        identity.addKeys(generateKeys(principal, password, getKdcConfig().getEncryptionTypes()));
         backend.addIdentity(identity);
     }
 
+    @Override
+    public List<String> addPrincipals(List<String> principals, String password,
+                                      KOptions kOptions) throws KrbException {
+        Set<String> requested = new LinkedHashSet<>();
+        for (String principal : principals) {
+            requested.add(fixPrincipal(principal));
+        }
+        Set<String> existing = requested.isEmpty()
+            ? Collections.<String>emptySet() : backend.getExistingIdentities(requested);
+        List<String> newPrincipals = new ArrayList<>(requested.size());
+        for (String principal : requested) {
+            if (existing.contains(principal)) {
+                LOG.info("Principal already exists, skip adding: " + principal);
+                continue;
+            }
+            newPrincipals.add(principal);
+        }
+        if (newPrincipals.isEmpty()) {
+            return newPrincipals;
+        }
+
+        // Key derivation (PBKDF2 for the AES types) is the costly part, so
+        // run it for all the principals on the fork-join pool.
+        List<EncryptionType> encTypes = getKdcConfig().getEncryptionTypes();
+        List<KrbIdentity> identities = new ArrayList<>(newPrincipals.size());
+        List<ForkJoinTask<List<EncryptionKey>>> keyTasks = new ArrayList<>(newPrincipals.size());
+        for (String principal : newPrincipals) {
+            identities.add(AdminHelper.createIdentity(principal, kOptions));
+            keyTasks.add(ForkJoinPool.commonPool().submit(
+                () -> generateKeys(principal, password, encTypes)));
+        }
+        for (int i = 0; i < identities.size(); i++) {
+            identities.get(i).addKeys(joinKeys(keyTasks.get(i)));
+        }
+
+        addIdentities(identities);
+        return newPrincipals;
+    }
+
+    private List<EncryptionKey> generateKeys(String principal, String password,
+                                             List<EncryptionType> encTypes) throws KrbException {
+        if (password == null) {
+            return EncryptionUtil.generateKeys(encTypes);
+        }
+        return EncryptionUtil.generateKeys(principal, password, encTypes);
+    }
+
+    private List<EncryptionKey> joinKeys(ForkJoinTask<List<EncryptionKey>> keyTask)
+            throws KrbException {
+        try {
+            return keyTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KrbException("Interrupted while generating keys", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof KrbException) {
+                throw (KrbException) e.getCause();
+            }
+            throw new KrbException("Failed to generate keys", e.getCause());
+        }
+    }
+
+    /**
+     * Store the identities in one batch transaction if the backend supports
+     * it, otherwise one by one.
+     */
+    private void addIdentities(List<KrbIdentity> identities) throws KrbException {
+        BatchTrans batchTrans = null;
+        if (backend.supportBatchTrans()) {
+            batchTrans = backend.startBatchTrans();
+        }
+        if (batchTrans == null) {
+            for (KrbIdentity identity : identities) {
+                backend.addIdentity(identity);
+            }
+            return;
+        }
+
+        try {
+            for (KrbIdentity identity : identities) {
+                batchTrans.addIdentity(identity);
+            }
+        } catch (KrbException e) {
+            batchTrans.rollback();
+            throw e;
+        }
+        batchTrans.commit();
+    }
+
     @Override
     public void exportKeytab(File keytabFile, String principal)
             throws KrbException {
@@ -232,18 +329,45 @@ public class LocalKadminImpl implements LocalKadmin {
     }
 
     @Override
-    public void exportKeytab(File keytabFile) throws KrbException {
-        Keytab keytab = AdminHelper.createOrLoadKeytab(keytabFile);
-
-        Iterable<String> principals = backend.getIdentities();
-        for (String principal : principals) {
-            KrbIdentity identity = backend.getIdentity(principal);
-            if (identity != null) {
-                AdminHelper.exportToKeytab(keytab, identity);
+    public void exportKeytab(OutputStream outputStream, List<String> principals)
+            throws KrbException {
+        KeytabOutputStream kos = new KeytabOutputStream(outputStream);
+        try {
+            kos.writeVersion(Keytab.V502);
+            for (String principal : principals) {
+                KrbIdentity identity = backend.getIdentity(principal);
+                if (identity == null) {
+                    throw new KrbException("Can not find the identity for principal "
+                            + principal);
+                }
+                AdminHelper.exportToKeytab(kos, identity);
             }
+            kos.flush();
+        } catch (IOException e) {
+            throw new KrbException("Failed to write keytab", e);
         }
+    }
 
-        AdminHelper.storeKeytab(keytab, keytabFile);
+    @Override
+    public void exportKeytab(File keytabFile) throws KrbException {
+        // Stream the entries to the file page by page, so the whole keytab
+        // is never held in memory.
+        try (KeytabOutputStream kos = AdminHelper.openKeytabForAppend(keytabFile)) {
+            String continuationToken = null;
+            do {
+                IdentityPage page = backend.getIdentities(null, continuationToken,
+                        PRINCIPALS_PAGE_SIZE);
+                for (String principal : page.getPrincipals()) {
+                    KrbIdentity identity = backend.getIdentity(principal);
+                    if (identity != null) {
+                        AdminHelper.exportToKeytab(kos, identity);
+                    }
+                }
+                continuationToken = page.getContinuationToken();
+            } while (continuationToken != null);
+        } catch (IOException e) {
+            throw new KrbException("Failed to store keytab", e);
+        }
     }
 
     @Override
@@ -316,34 +440,51 @@ public class LocalKadminImpl implements LocalKadmin {
 
     @Override
     public List<String> getPrincipals() throws KrbException {
-        Iterable<String> principalNames = backend.getIdentities();
-        List<String> principalList = new LinkedList<>();
-        Iterator<String> iterator = principalNames.iterator();
-        while (iterator.hasNext()) {
-            principalList.add(iterator.next());
-        }
-        return principalList;
+        return getPrincipals(null);
     }
 
     @Override
     public List<String> getPrincipals(String globString) throws KrbException {
+        List<String> result = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            IdentityPage page = getPrincipals(globString, continuationToken, PRINCIPALS_PAGE_SIZE);
+            result.addAll(page.getPrincipals());
+            continuationToken = page.getContinuationToken();
+        } while (continuationToken != null);
+        return result;
+    }
+
+    @Override
+    public IdentityPage getPrincipals(String globString, String continuationToken,
+                                      int limit) throws KrbException {
         Pattern pt = AdminHelper.getPatternFromGlobPatternString(globString);
         if (pt == null) {
-            return getPrincipals();
+            return backend.getIdentities(null, continuationToken, limit);
         }
 
-        boolean containsAt = pt.pattern().indexOf('@') != -1;
-        List<String> result = new LinkedList<>();
+        // Only the names starting with the literal head of the glob can match
+        int wildcard = 0;
+        while (wildcard < globString.length() && "*?[".indexOf(globString.charAt(wildcard)) == -1) {
+            wildcard++;
+        }
+        IdentityPage page = backend.getIdentities(globString.substring(0, wildcard),
+                continuationToken, limit);
 
-        List<String> principalNames = getPrincipals();
-        for (String principal: principalNames) {
-            String toMatch = containsAt ? principal : principal.split("@")[0];
-            Matcher m = pt.matcher(toMatch);
-            if (m.matches()) {
+        boolean containsAt = pt.pattern().indexOf('@') != -1;
+        Matcher m = pt.matcher("");
+        List<String> result = new ArrayList<>();
+        for (String principal : page.getPrincipals()) {
+            int at = principal.indexOf('@');
+            CharSequence toMatch = principal;
+            if (!containsAt && at != -1) {
+                toMatch = principal.subSequence(0, at);
+            }
+            if (m.reset(toMatch).matches()) {
                 result.add(principal);
             }
         }
-        return result;
+        return new IdentityPage(result, page.getContinuationToken());
     }
 
     @Override
@@ -388,7 +529,14 @@ public class LocalKadminImpl implements LocalKadmin {
      */
     @Override
     public int size() throws KrbException {
-        return this.getPrincipals().size();
+        int size = 0;
+        String continuationToken = null;
+        do {
+            IdentityPage page = backend.getIdentities(null, continuationToken, PRINCIPALS_PAGE_SIZE);
+            size += page.getPrincipals().size();
+            continuationToken = page.getContinuationToken();
+        } while (continuationToken != null);
+        return size;
     }
 
     /**
@@ -23,9 +23,13 @@ import org.apache.kerby.KOptions;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.ccache.Credential;
 import org.apache.kerby.kerberos.kerb.ccache.CredentialCache;
+import org.apache.kerby.kerberos.kerb.ccache.CredentialCacheFile;
+import org.apache.kerby.kerberos.kerb.ccache.MemoryCredentialCache;
 import org.apache.kerby.kerberos.kerb.client.impl.DefaultInternalKrbClient;
 import org.apache.kerby.kerberos.kerb.client.impl.InternalKrbClient;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
 import org.apache.kerby.kerberos.kerb.type.kdc.EncAsRepPart;
+import org.apache.kerby.kerberos.kerb.type.kdc.EncTgsRepPart;
 import org.apache.kerby.kerberos.kerb.type.ticket.SgtTicket;
 import org.apache.kerby.kerberos.kerb.type.ticket.TgtTicket;
 import org.slf4j.Logger;
@@ -237,6 +241,32 @@ public class KrbClientBase {
         return sgtTicket;
     }
 
+    /**
+     * Request a service ticket, reusing the one in the memory credential
+     * cache if it hasn't expired. A new service ticket is added to the cache.
+     * @param tgt The tgt ticket
+     * @param serverPrincipal The server principal
+     * @param ccache The memory credential cache
+     * @return service ticket
+     * @throws KrbException e
+     */
+    public SgtTicket requestSgt(TgtTicket tgt, String serverPrincipal,
+                                MemoryCredentialCache ccache) throws KrbException {
+        PrincipalName server = new PrincipalName(serverPrincipal);
+        if (server.getRealm() == null) {
+            server.setRealm(tgt.getRealm());
+        }
+        Credential credential = ccache.getCredential(tgt.getClientPrincipal(), server);
+        if (credential != null) {
+            return getSgtTicketFromCredential(credential);
+        }
+
+        SgtTicket sgtTicket = requestSgt(tgt, serverPrincipal);
+        sgtTicket.setClientPrincipal(tgt.getClientPrincipal());
+        storeTicket(sgtTicket, ccache);
+        return sgtTicket;
+    }
+
 
     /**
      * Store tgt into the specified credential cache file.
@@ -253,7 +283,7 @@ public class KrbClientBase {
         if (ccacheFile.exists() && ccacheFile.canWrite()) {
             CredentialCache cCache = new CredentialCache(tgtTicket);
             try {
-                cCache.store(ccacheFile);
+                new CredentialCacheFile(ccacheFile).initialize(cCache);
             } catch (IOException e) {
                 throw new KrbException("Failed to store tgt", e);
             }
@@ -271,26 +301,15 @@ public class KrbClientBase {
      */
     public void storeTicket(SgtTicket sgtTicket, File ccacheFile) throws KrbException {
         LOG.info("Storing the sgt to the credential cache file.");
-        boolean createCache = !ccacheFile.exists() || ccacheFile.length() == 0;
-
-        if (createCache) {
+        if (!ccacheFile.exists()) {
             createCacheFile(ccacheFile);
         }
 
         if (ccacheFile.exists() && ccacheFile.canWrite()) {
             try {
-                CredentialCache cCache;
-
-                if (!createCache) {
-                    cCache = new CredentialCache();
-                    cCache.load(ccacheFile);
-                    cCache.addCredential(new Credential(sgtTicket, sgtTicket.getClientPrincipal()));
-                } else {
-                    //Remind: contructor sets the cCache client principal from the sgtTicket one
-                    cCache = new CredentialCache(sgtTicket);
-                }
-
-                cCache.store(ccacheFile);
+                // Appended in place, an empty cache gets the sgt client principal as primary principal
+                new CredentialCacheFile(ccacheFile).append(
+                    new Credential(sgtTicket, sgtTicket.getClientPrincipal()));
             } catch (IOException e) {
                 throw new KrbException("Failed to store sgt", e);
             }
@@ -301,6 +320,15 @@ public class KrbClientBase {
 
     }
 
+    /**
+     * Store sgt into the memory credential cache.
+     * @param sgtTicket The sgt ticket
+     * @param ccache The memory credential cache
+     */
+    public void storeTicket(SgtTicket sgtTicket, MemoryCredentialCache ccache) {
+        ccache.addCredential(new Credential(sgtTicket, sgtTicket.getClientPrincipal()));
+    }
+
     /**
      * Store sgt into the specified credential cache file.
      * @param sgtTicket The sgt ticket
@@ -315,7 +343,7 @@ public class KrbClientBase {
         if (ccacheFile.exists() && ccacheFile.canWrite()) {
             CredentialCache cCache = new CredentialCache(sgtTicket);
             try {
-                cCache.store(ccacheFile);
+                new CredentialCacheFile(ccacheFile).initialize(cCache);
             } catch (IOException e) {
                 throw new KrbException("Failed to renew ticket", e);
             }
@@ -363,20 +391,36 @@ public class KrbClientBase {
         return tgtTicket;
     }
 
+    public SgtTicket getSgtTicketFromCredential(Credential cc) {
+        EncTgsRepPart encTgsRepPart = new EncTgsRepPart();
+        encTgsRepPart.setAuthTime(cc.getAuthTime());
+        encTgsRepPart.setCaddr(cc.getClientAddresses());
+        encTgsRepPart.setEndTime(cc.getEndTime());
+        encTgsRepPart.setFlags(cc.getTicketFlags());
+        encTgsRepPart.setKey(cc.getKey());
+        encTgsRepPart.setRenewTill(cc.getRenewTill());
+        encTgsRepPart.setSname(cc.getServerName());
+        encTgsRepPart.setSrealm(cc.getServerName().getRealm());
+        encTgsRepPart.setStartTime(cc.getStartTime());
+        SgtTicket sgtTicket = new SgtTicket(cc.getTicket(), encTgsRepPart);
+        sgtTicket.setClientPrincipal(cc.getClientName());
+        return sgtTicket;
+    }
+
     public Credential getCredentialFromFile(File ccFile) throws KrbException {
-        CredentialCache cc;
+        Credential credential;
         try {
-            cc = resolveCredCache(ccFile);
+            credential = new CredentialCacheFile(ccFile).findTgt(krbSetting.getKdcRealm());
         } catch (IOException e) {
             throw new KrbException("Failed to load armor cache file");
         }
-        return cc.getCredentials().iterator().next();
+        if (credential == null) {
+            throw new KrbException("No credential in cache file " + ccFile.getAbsolutePath());
+        }
+        return credential;
     }
 
     public CredentialCache resolveCredCache(File ccacheFile) throws IOException {
-        CredentialCache cc = new CredentialCache();
-        cc.load(ccacheFile);
-
-        return cc;
+        return new CredentialCacheFile(ccacheFile).load();
     }
 }
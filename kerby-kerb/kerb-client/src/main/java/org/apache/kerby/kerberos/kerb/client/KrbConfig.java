@@ -323,6 +323,16 @@ public class KrbConfig extends Krb5Conf {
                 KrbConfigKey.PKINIT_IDENTITIES, true, LIBDEFAULT));
     }
 
+    /**
+     * The curve for the Elliptic Curve Diffie-Hellman key agreement of
+     * PKINIT, RFC 5349, like P-256. If not set the classic Diffie-Hellman
+     * key agreement is used.
+     * @return The curve name, null if not set
+     */
+    public String getPkinitEcdhCurve() {
+        return getString(KrbConfigKey.PKINIT_ECDH_CURVE, true, LIBDEFAULT);
+    }
+
     public String getPkinitKdcHostName() {
         return getString(
                 KrbConfigKey.PKINIT_KDC_HOSTNAME, true, LIBDEFAULT);
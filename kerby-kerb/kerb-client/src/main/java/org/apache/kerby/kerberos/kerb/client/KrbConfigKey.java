@@ -60,6 +60,7 @@ public enum KrbConfigKey implements ConfigKey {
 
     PKINIT_ANCHORS(null),
     PKINIT_IDENTITIES(null),
+    PKINIT_ECDH_CURVE(null),
     PKINIT_KDC_HOSTNAME();
 
     private Object defaultValue;
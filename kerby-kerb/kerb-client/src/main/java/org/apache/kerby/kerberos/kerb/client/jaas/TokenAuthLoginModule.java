@@ -21,6 +21,8 @@ package org.apache.kerby.kerberos.kerb.client.jaas;
 
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.KrbRuntime;
+import org.apache.kerby.kerberos.kerb.ccache.Credential;
+import org.apache.kerby.kerberos.kerb.ccache.MemoryCredentialCache;
 import org.apache.kerby.kerberos.kerb.client.KrbClient;
 import org.apache.kerby.kerberos.kerb.client.KrbConfig;
 import org.apache.kerby.kerberos.kerb.client.KrbTokenClient;
@@ -63,6 +65,7 @@ import java.util.Map;
  * tokenStr: token-string
  * tokenCache: token-cache-file
  * armorCache: armor-cache-file
+ * credentialCache: credential-cache-file, or MEMORY:name for a memory credential cache
  */
 public class TokenAuthLoginModule implements LoginModule {
     public static final String PRINCIPAL = "principal";
@@ -90,6 +93,8 @@ public class TokenAuthLoginModule implements LoginModule {
     private KrbToken krbToken = null;
     private File armorCache;
     private File cCache;
+    private MemoryCredentialCache memoryCache;
+    private Credential memoryCredential;
     private File signKeyFile;
 
     private TgtTicket tgtTicket;
@@ -109,8 +114,11 @@ public class TokenAuthLoginModule implements LoginModule {
         if ((String) options.get(ARMOR_CACHE) != null) {
             armorCache = new File((String) options.get(ARMOR_CACHE));
         }
-        if ((String) options.get(CREDENTIAL_CACHE) != null) {
-            cCache = new File((String) options.get(CREDENTIAL_CACHE));
+        String ccacheName = (String) options.get(CREDENTIAL_CACHE);
+        if (MemoryCredentialCache.isMemoryCache(ccacheName)) {
+            memoryCache = MemoryCredentialCache.getInstance(ccacheName);
+        } else if (ccacheName != null) {
+            cCache = new File(ccacheName);
         }
         if ((String) options.get(SIGN_KEY_FILE) != null) {
             signKeyFile = new File((String) options.get(SIGN_KEY_FILE));
@@ -233,7 +241,7 @@ public class TokenAuthLoginModule implements LoginModule {
             throw new LoginException("An armor cache must be specified via the armorCache configuration option");
         }
 
-        if (cCache == null) {
+        if (cCache == null && memoryCache == null) {
             LOG.info("No credential cache was specified via 'credentialCache'. "
                      + "The TGT will be stored internally instead");
         }
@@ -330,7 +338,11 @@ public class TokenAuthLoginModule implements LoginModule {
         }
 
         // Write the TGT out to the credential cache if it is specified in the configuration
-        if (cCache != null) {
+        // The memory cache is shared, so only the TGT of this login is added to it
+        if (memoryCache != null) {
+            memoryCredential = new Credential(tgtTicket);
+            memoryCache.addCredential(memoryCredential);
+        } else if (cCache != null) {
             try {
                 cCache = makeTgtCache();
             } catch (IOException e) {
@@ -358,6 +370,10 @@ public class TokenAuthLoginModule implements LoginModule {
     }
 
     private void cleanup() {
+        if (memoryCache != null) {
+            memoryCache.removeCredential(memoryCredential);
+            memoryCredential = null;
+        }
         if (cCache != null && cCache.exists()) {
             boolean delete = cCache.delete();
             if (!delete) {
@@ -37,6 +37,8 @@ import org.apache.kerby.kerberos.kerb.common.CheckSumUtil;
 import org.apache.kerby.kerberos.kerb.common.KrbUtil;
 import org.apache.kerby.kerberos.kerb.crypto.dh.DhGroup;
 import org.apache.kerby.kerberos.kerb.crypto.dh.DiffieHellmanClient;
+import org.apache.kerby.kerberos.kerb.crypto.dh.EcGroup;
+import org.apache.kerby.kerberos.kerb.crypto.dh.EcdhClient;
 import org.apache.kerby.kerberos.kerb.preauth.PaFlag;
 import org.apache.kerby.kerberos.kerb.preauth.PaFlags;
 import org.apache.kerby.kerberos.kerb.preauth.PluginRequestContext;
@@ -73,7 +75,9 @@ import javax.crypto.interfaces.DHPublicKey;
 import javax.crypto.spec.DHParameterSpec;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.security.GeneralSecurityException;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -250,7 +254,37 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
         authPack.setPkAuthenticator(pkAuthen);
         authPack.setsupportedCmsTypes(pkinitContext.getPluginOpts().createSupportedCMSTypes());
 
-        if (!usingRsa) {
+        String ecdhCurve = kdcRequest.getContext().getConfig().getPkinitEcdhCurve();
+        if (!usingRsa && ecdhCurve != null) {
+            // ECDH case, RFC 5349
+            LOG.info("ECDH key transport algorithm.");
+
+            EcGroup group = EcGroup.fromName(ecdhCurve);
+            if (group == null) {
+                throw new KrbException("Unsupported PKINIT ECDH curve " + ecdhCurve);
+            }
+            AlgorithmIdentifier ecAlg = new AlgorithmIdentifier();
+            ecAlg.setAlgorithm(EcGroup.EC_PUBLIC_KEY_OID);
+            ecAlg.setParameters(new Asn1ObjectIdentifier(group.getOid()));
+
+            EcdhClient client = new EcdhClient();
+            ECPublicKey clientPubKey;
+            try {
+                clientPubKey = client.init(group);
+            } catch (GeneralSecurityException e) {
+                throw new KrbException("EcdhClient init with failure. " + e);
+            }
+            reqCtx.setEcdhClient(client);
+
+            SubjectPublicKeyInfo pubInfo = new SubjectPublicKeyInfo();
+            pubInfo.setAlgorithm(ecAlg);
+            pubInfo.setSubjectPubKey(group.encodePoint(clientPubKey.getW()));
+            authPack.setClientPublicValue(pubInfo);
+
+            byte[] signedAuthPack = signAuthPack(authPack);
+            paPkAsReq.setSignedAuthPack(signedAuthPack);
+
+        } else if (!usingRsa) {
             // DH case
             LOG.info("DH key transport algorithm.");
 
@@ -408,6 +442,18 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
 
             byte[] subjectPublicKey = kdcDhKeyInfo.getSubjectPublicKey().getValue();
 
+            EcdhClient ecdhClient = reqCtx.getEcdhClient();
+            if (ecdhClient != null) {
+                try {
+                    ecdhClient.doPhase(subjectPublicKey);
+                } catch (GeneralSecurityException e) {
+                    throw new KrbException("Invalid KDC ECDH public value. " + e.getMessage());
+                }
+                // Set the ECDH shared key as the client key
+                kdcRequest.setAsKey(ecdhClient.generateKey(null, null, encType));
+                return;
+            }
+
             Asn1Integer clientPubKey = KrbCodec.decode(subjectPublicKey, Asn1Integer.class);
             BigInteger y = clientPubKey.getValue();
 
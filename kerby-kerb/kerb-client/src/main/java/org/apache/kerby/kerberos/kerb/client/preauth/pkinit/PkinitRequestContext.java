@@ -20,6 +20,7 @@
 package org.apache.kerby.kerberos.kerb.client.preauth.pkinit;
 
 import org.apache.kerby.kerberos.kerb.crypto.dh.DiffieHellmanClient;
+import org.apache.kerby.kerberos.kerb.crypto.dh.EcdhClient;
 import org.apache.kerby.kerberos.kerb.preauth.PluginRequestContext;
 import org.apache.kerby.kerberos.kerb.preauth.pkinit.IdentityOpts;
 import org.apache.kerby.kerberos.kerb.preauth.pkinit.PluginOpts;
@@ -32,6 +33,7 @@ public class PkinitRequestContext implements PluginRequestContext {
     private PaDataType paType;
     private boolean identityInitialized;
     private DiffieHellmanClient dhClient;
+    private EcdhClient ecdhClient;
 
     public void updateRequestOpts(PluginOpts pluginOpts) {
         requestOpts.setRequireEku(pluginOpts.isRequireEku());
@@ -49,6 +51,14 @@ public class PkinitRequestContext implements PluginRequestContext {
         return this.dhClient;
     }
 
+    public void setEcdhClient(EcdhClient client) {
+        this.ecdhClient = client;
+    }
+
+    public EcdhClient getEcdhClient() {
+        return this.ecdhClient;
+    }
+
     public boolean isIdentityInitialized() {
         return identityInitialized;
     }
@@ -23,7 +23,7 @@ import org.apache.kerby.KOptions;
 import org.apache.kerby.kerberos.kerb.KrbCodec;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.ccache.Credential;
-import org.apache.kerby.kerberos.kerb.ccache.CredentialCache;
+import org.apache.kerby.kerberos.kerb.ccache.CredentialCacheFile;
 import org.apache.kerby.kerberos.kerb.client.KrbOption;
 import org.apache.kerby.kerberos.kerb.client.preauth.KrbFastRequestState;
 import org.apache.kerby.kerberos.kerb.common.CheckSumUtil;
@@ -119,22 +119,17 @@ public class ArmoredRequest {
     }
 
     private Credential getCredentialFromFile(String ccache) throws KrbException {
-        File ccacheFile = new File(ccache);
-        CredentialCache cc = null;
+        Credential armorCredential;
         try {
-            cc = resolveCredCache(ccacheFile);
+            armorCredential = new CredentialCacheFile(new File(ccache)).findTgt(
+                kdcRequest.getContext().getKrbSetting().getKdcRealm());
         } catch (IOException e) {
             throw new KrbException("Failed to load armor cache file");
         }
-        // TODO: get the right credential.
-        return cc.getCredentials().iterator().next();
-    }
-
-    private static CredentialCache resolveCredCache(File ccacheFile) throws IOException {
-        CredentialCache cc = new CredentialCache();
-        cc.load(ccacheFile);
-
-        return cc;
+        if (armorCredential == null) {
+            throw new KrbException("No credential in armor cache file " + ccache);
+        }
+        return armorCredential;
     }
 
     private void fastAsArmor(KrbFastRequestState state,
@@ -23,14 +23,17 @@ import org.apache.kerby.KOptions;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.client.KrbContext;
 import org.apache.kerby.kerberos.kerb.client.KrbOption;
-import org.apache.kerby.kerberos.kerb.keytab.Keytab;
+import org.apache.kerby.kerberos.kerb.keytab.MappedKeytab;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
 import org.apache.kerby.kerberos.kerb.type.pa.PaDataType;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class AsRequestWithKeytab extends AsRequest {
+    private static final ConcurrentMap<String, MappedKeytab> KEYTABS = new ConcurrentHashMap<>();
 
     public AsRequestWithKeytab(KrbContext context) {
         super(context);
@@ -38,7 +41,7 @@ public class AsRequestWithKeytab extends AsRequest {
         setAllowedPreauth(PaDataType.ENC_TIMESTAMP);
     }
 
-    private Keytab getKeytab() {
+    private MappedKeytab getKeytab() {
         File keytabFile = null;
         KOptions kOptions = getRequestOptions();
 
@@ -59,9 +62,9 @@ public class AsRequestWithKeytab extends AsRequest {
             }
         }
 
-        Keytab keytab = null;
+        MappedKeytab keytab = null;
         try {
-            keytab = Keytab.loadKeytab(keytabFile);
+            keytab = loadKeytab(keytabFile);
         } catch (IOException e) {
             String path = keytabFile != null ? keytabFile.getAbsolutePath() : "";
             System.err.println("Can not load keytab from file" + path);
@@ -69,6 +72,23 @@ public class AsRequestWithKeytab extends AsRequest {
         return keytab;
     }
 
+    /**
+     * Get the keytab of the file, mapped on the first login with it. The
+     * mapped keytab picks up the changes of the file by itself.
+     */
+    private static MappedKeytab loadKeytab(File keytabFile) throws IOException {
+        String path = keytabFile.getAbsolutePath();
+        MappedKeytab keytab = KEYTABS.get(path);
+        if (keytab == null) {
+            keytab = MappedKeytab.loadKeytab(keytabFile);
+            MappedKeytab existing = KEYTABS.putIfAbsent(path, keytab);
+            if (existing != null) {
+                keytab = existing;
+            }
+        }
+        return keytab;
+    }
+
     @Override
     public EncryptionKey getClientKey() throws KrbException {
         if (super.getClientKey() == null) {
@@ -30,6 +30,7 @@ import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 import org.apache.kerby.kerberos.kerb.type.base.KeyUsage;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -138,13 +139,33 @@ public class EncryptionUtil {
 
     public static EncryptedData seal(Asn1Encodeable asn1Type,
                                      EncryptionKey key, KeyUsage usage) throws KrbException {
-        byte[] encoded = KrbCodec.encode(asn1Type);
-        return EncryptionHandler.encrypt(encoded, key, usage);
+        return EncryptionHandler.encrypt(asn1Type, key, usage);
     }
 
     public static <T extends Asn1Type> T unseal(EncryptedData encrypted, EncryptionKey key,
                                           KeyUsage usage, Class<T> krbType) throws KrbException {
-        byte[] encoded = EncryptionHandler.decrypt(encrypted, key, usage);
+        // Decrypt a copy, the encrypted data may be tried with another key
+        // or be encoded again
+        ByteBuffer cipher = ByteBuffer.wrap(encrypted.getCipher().clone());
+        return unseal(cipher, key, usage, krbType);
+    }
+
+    /**
+     * Decrypt the remaining bytes of the buffer in place and decode the
+     * plain text from the buffer. For the AES and Camellia types no copy
+     * is made, but the cipher in the buffer is lost.
+     *
+     * @param cipher The cipher buffer, overwritten
+     * @param key The encryption key
+     * @param usage The key usage
+     * @param krbType The type to decode
+     * @param <T> The type to decode
+     * @return The decoded object
+     * @throws KrbException e
+     */
+    public static <T extends Asn1Type> T unseal(ByteBuffer cipher, EncryptionKey key,
+                                          KeyUsage usage, Class<T> krbType) throws KrbException {
+        ByteBuffer encoded = EncryptionHandler.decrypt(cipher, key, usage);
         return KrbCodec.decode(encoded, krbType);
     }
 
@@ -123,15 +123,7 @@ public class ApRequest {
                 encKey, KeyUsage.KDC_REP_TICKET, EncTicketPart.class);
         ticket.setEncPart(encPart);
 
-        unsealAuthenticator(encPart.getKey(), apReq);
-
-        Authenticator authenticator = apReq.getAuthenticator();
-        if (!authenticator.getCname().equals(ticket.getEncPart().getCname())) {
-            throw new KrbException(KrbErrorCode.KRB_AP_ERR_BADMATCH);
-        }
-        if (!authenticator.getCrealm().equals(ticket.getEncPart().getCrealm())) {
-            throw new KrbException(KrbErrorCode.KRB_AP_ERR_BADMATCH);
-        }
+        validateAuthenticator(apReq);
     }
 
     /*
@@ -141,8 +133,39 @@ public class ApRequest {
                                 InetAddress initiator,
                                 long timeSkew) throws KrbException {
         validate(encKey, apReq);
+        validateTicketUse(apReq, initiator, timeSkew);
+    }
+
+    /*
+     * Validate the ApReq with channel binding and time, when the ticket has
+     * been decrypted already and its enc part is set. The authenticator is
+     * still unsealed and checked against the ticket.
+     */
+    public static void validate(ApReq apReq, InetAddress initiator,
+                                long timeSkew) throws KrbException {
+        if (apReq.getTicket().getEncPart() == null) {
+            throw new KrbException(KrbErrorCode.KRB_AP_ERR_NOKEY);
+        }
+        validateAuthenticator(apReq);
+        validateTicketUse(apReq, initiator, timeSkew);
+    }
+
+    private static void validateAuthenticator(ApReq apReq) throws KrbException {
         Ticket ticket = apReq.getTicket();
-        EncTicketPart tktEncPart = ticket.getEncPart();
+        unsealAuthenticator(ticket.getEncPart().getKey(), apReq);
+
+        Authenticator authenticator = apReq.getAuthenticator();
+        if (!authenticator.getCname().equals(ticket.getEncPart().getCname())) {
+            throw new KrbException(KrbErrorCode.KRB_AP_ERR_BADMATCH);
+        }
+        if (!authenticator.getCrealm().equals(ticket.getEncPart().getCrealm())) {
+            throw new KrbException(KrbErrorCode.KRB_AP_ERR_BADMATCH);
+        }
+    }
+
+    private static void validateTicketUse(ApReq apReq, InetAddress initiator,
+                                          long timeSkew) throws KrbException {
+        EncTicketPart tktEncPart = apReq.getTicket().getEncPart();
         Authenticator authenticator = apReq.getAuthenticator();
         if (initiator != null) {
             HostAddresses clientAddrs = tktEncPart.getClientAddresses();
@@ -23,6 +23,8 @@ import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.type.base.CheckSumType;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 
+import java.nio.ByteBuffer;
+
 public interface EncTypeHandler extends CryptoTypeHandler {
 
     EncryptionType eType();
@@ -54,6 +56,42 @@ public interface EncTypeHandler extends CryptoTypeHandler {
     byte[] encrypt(byte[] data, byte[] key, byte[] ivec,
         int usage) throws KrbException;
 
+    /**
+     * The length of the cipher of a plain text of the length, with the
+     * confounder, the checksum and the padding.
+     *
+     * @param inputLen The plain text length
+     * @return The cipher length
+     */
+    int encryptedLength(int inputLen);
+
+    /**
+     * Where {@link #encryptInPlace(byte[], int, byte[], int)} expects the
+     * plain text in its work buffer, after the room for the confounder and,
+     * for some types, the checksum.
+     *
+     * @return The plain text offset
+     */
+    int plainTextOffset();
+
+    /**
+     * Encrypt the plain text already written at {@link #plainTextOffset()}
+     * of a work buffer of {@link #encryptedLength(int)} bytes. The cipher
+     * is made in the work buffer, so an encoder can write the plain text
+     * in place and save the copies of {@link #encrypt(byte[], byte[], int)}.
+     *
+     * @param workBuffer The work buffer, the cipher on return
+     * @param inputLen The plain text length
+     * @param key The key
+     * @param usage The key usage
+     * @throws KrbException e
+     */
+    void encryptInPlace(byte[] workBuffer, int inputLen, byte[] key,
+                        int usage) throws KrbException;
+
+    void encryptInPlace(byte[] workBuffer, int inputLen, byte[] key,
+                        byte[] ivec, int usage) throws KrbException;
+
     byte[] encryptRaw(byte[] data, byte[] key, int usage)
             throws KrbException;
 
@@ -66,6 +104,25 @@ public interface EncTypeHandler extends CryptoTypeHandler {
     byte[] decrypt(byte[] cipher, byte[] key, byte[] ivec,
         int usage) throws KrbException;
 
+    /**
+     * Decrypt the remaining bytes of the buffer in place and check their
+     * integrity. The cipher in the buffer may be overwritten, and the
+     * position of the buffer is left as is. The returned read only view of
+     * the plain text may share the buffer content, so an ASN.1 decoder can
+     * work on it with no copy.
+     *
+     * @param cipher The cipher buffer
+     * @param key The key
+     * @param usage The key usage
+     * @return The plain text
+     * @throws KrbException e
+     */
+    ByteBuffer decryptInPlace(ByteBuffer cipher, byte[] key, int usage)
+        throws KrbException;
+
+    ByteBuffer decryptInPlace(ByteBuffer cipher, byte[] key, byte[] ivec,
+        int usage) throws KrbException;
+
     byte[] decryptRaw(byte[] data, byte[] key, int usage)
             throws KrbException;
 
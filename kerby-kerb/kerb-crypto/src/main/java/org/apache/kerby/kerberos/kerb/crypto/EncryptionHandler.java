@@ -19,6 +19,8 @@
  */
 package org.apache.kerby.kerberos.kerb.crypto;
 
+import org.apache.kerby.asn1.type.Asn1Type;
+import org.apache.kerby.kerberos.kerb.KrbCodec;
 import org.apache.kerby.kerberos.kerb.KrbErrorCode;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.crypto.enc.Aes128CtsHmacSha1Enc;
@@ -38,6 +40,9 @@ import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 import org.apache.kerby.kerberos.kerb.type.base.KeyUsage;
 import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * Encryption handler as the highest level API for encryption stuffs defined in
  * Kerberos RFC3961. It supports all the encryption types. New encryption type
@@ -183,7 +188,36 @@ public class EncryptionHandler {
                                         KeyUsage usage) throws KrbException {
         EncTypeHandler handler = getEncHandler(key.getKeyType());
         byte[] cipher = handler.encrypt(plainText, key.getKeyData(), usage.getValue());
+        return newEncryptedData(cipher, key);
+    }
+
+    /**
+     * Encode and encrypt with the encryption key and key usage. The
+     * encoding is written straight into the buffer the cipher is made in.
+     *
+     * @param plainText The object to encode and encrypt
+     * @param key The encryption key
+     * @param usage The key usage
+     * @return The encrypted data
+     * @throws KrbException e
+     */
+    public static EncryptedData encrypt(Asn1Type plainText, EncryptionKey key,
+                                        KeyUsage usage) throws KrbException {
+        EncTypeHandler handler = getEncHandler(key.getKeyType());
+        int inputLen;
+        try {
+            inputLen = plainText.encodingLength();
+        } catch (IOException e) {
+            throw new KrbException("Encoding failed", e);
+        }
+
+        byte[] workBuffer = new byte[handler.encryptedLength(inputLen)];
+        KrbCodec.encode(plainText, ByteBuffer.wrap(workBuffer, handler.plainTextOffset(), inputLen));
+        handler.encryptInPlace(workBuffer, inputLen, key.getKeyData(), usage.getValue());
+        return newEncryptedData(workBuffer, key);
+    }
 
+    private static EncryptedData newEncryptedData(byte[] cipher, EncryptionKey key) {
         EncryptedData ed = new EncryptedData();
         ed.setCipher(cipher);
         ed.setEType(key.getKeyType());
@@ -227,6 +261,24 @@ public class EncryptionHandler {
                 key.getKeyData(), usage.getValue());
     }
 
+    /**
+     * Decrypt the remaining bytes of the buffer in place with the
+     * encryption key and key usage, see
+     * {@link EncTypeHandler#decryptInPlace(ByteBuffer, byte[], int)}.
+     *
+     * @param cipher The cipher buffer, overwritten
+     * @param key The encryption key
+     * @param usage The key usage
+     * @return A read only view of the decrypted data
+     * @throws KrbException e
+     */
+    public static ByteBuffer decrypt(ByteBuffer cipher, EncryptionKey key,
+                                     KeyUsage usage) throws KrbException {
+        EncTypeHandler handler = getEncHandler(key.getKeyType());
+
+        return handler.decryptInPlace(cipher, key.getKeyData(), usage.getValue());
+    }
+
     /**
      * Return true if the the encryption handler is implemented.
      *
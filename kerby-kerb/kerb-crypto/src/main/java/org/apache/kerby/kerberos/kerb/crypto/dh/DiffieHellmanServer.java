@@ -46,6 +46,21 @@ public class DiffieHellmanServer {
     private EncryptionKey serverKey;
 
     public PublicKey initAndDoPhase(byte[] clientPubKeyEnc) throws Exception {
+        return initAndDoPhase(clientPubKeyEnc, null);
+    }
+
+    /**
+     * Do the server side of the key agreement with a key pair generated in
+     * advance for the parameters of the client's key, so the key generation
+     * is out of the request path. The key pair must be used once only.
+     *
+     * @param clientPubKeyEnc The encoded client public key
+     * @param serverKpair The server key pair, generated if null or if it's
+     *                    not for the parameters of the client's key
+     * @return The server public key
+     * @throws Exception e
+     */
+    public PublicKey initAndDoPhase(byte[] clientPubKeyEnc, KeyPair serverKpair) throws Exception {
         /*
          * The server has received the client's public key in encoded format.  The
          * server instantiates a DH public key from the encoded key material.
@@ -61,9 +76,11 @@ public class DiffieHellmanServer {
         DHParameterSpec dhParamSpec = ((DHPublicKey) clientPubKey).getParams();
 
         // The server creates its own DH key pair.
-        KeyPairGenerator serverKpairGen = KeyPairGenerator.getInstance("DH");
-        serverKpairGen.initialize(dhParamSpec);
-        KeyPair serverKpair = serverKpairGen.generateKeyPair();
+        if (serverKpair == null || !sameParams(dhParamSpec, ((DHPublicKey) serverKpair.getPublic()).getParams())) {
+            KeyPairGenerator serverKpairGen = KeyPairGenerator.getInstance("DH");
+            serverKpairGen.initialize(dhParamSpec);
+            serverKpair = serverKpairGen.generateKeyPair();
+        }
 
         // The server creates and initializes its DH KeyAgreement object.
         serverKeyAgree = KeyAgreement.getInstance("DH");
@@ -79,6 +96,10 @@ public class DiffieHellmanServer {
         return serverKpair.getPublic();
     }
 
+    private static boolean sameParams(DHParameterSpec params1, DHParameterSpec params2) {
+        return params1.getP().equals(params2.getP()) && params1.getG().equals(params2.getG());
+    }
+
     public EncryptionKey generateKey(byte[] clientDhNonce, byte[] serverDhNonce, EncryptionType type) {
         // ZZ length will be same as public key.
         byte[] dhSharedSecret = serverKeyAgree.generateSecret();
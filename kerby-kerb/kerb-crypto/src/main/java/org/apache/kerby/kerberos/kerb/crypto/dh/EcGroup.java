@@ -0,0 +1,161 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.crypto.dh;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+import java.util.Arrays;
+
+/**
+ * The named elliptic curves for Elliptic Curve Diffie-Hellman key agreement
+ * in PKINIT, RFC 5349. The public values are the points of the curve,
+ * encoded as the uncompressed ECPoint of SEC 1 in the subjectPublicKey bit
+ * string.
+ */
+public final class EcGroup {
+    /**
+     * The algorithm of the client public value, id-ecPublicKey.
+     */
+    public static final String EC_PUBLIC_KEY_OID = "1.2.840.10045.2.1";
+
+    /**
+     * NIST P-256, secp256r1.
+     */
+    public static final EcGroup P256 = new EcGroup("P-256", "secp256r1", "1.2.840.10045.3.1.7");
+
+    /**
+     * NIST P-384, secp384r1.
+     */
+    public static final EcGroup P384 = new EcGroup("P-384", "secp384r1", "1.3.132.0.34");
+
+    private static final EcGroup[] GROUPS = {P256, P384};
+
+    private final String name;
+    private final String oid;
+    private final ECParameterSpec params;
+
+    private EcGroup(String name, String stdName, String oid) {
+        this.name = name;
+        this.oid = oid;
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(stdName));
+            this.params = parameters.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Curve " + stdName + " not supported", e);
+        }
+    }
+
+    /**
+     * Get the group of the curve name, like P-256.
+     * @param name The curve name
+     * @return The group, null if not supported
+     */
+    public static EcGroup fromName(String name) {
+        for (EcGroup group : GROUPS) {
+            if (group.name.equalsIgnoreCase(name)) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the group of the named curve oid.
+     * @param oid The curve oid
+     * @return The group, null if not supported
+     */
+    public static EcGroup fromOid(String oid) {
+        for (EcGroup group : GROUPS) {
+            if (group.oid.equals(oid)) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOid() {
+        return oid;
+    }
+
+    public ECParameterSpec getParams() {
+        return params;
+    }
+
+    private int getFieldSize() {
+        return (params.getCurve().getField().getFieldSize() + 7) / 8;
+    }
+
+    /**
+     * Encode a point of the curve as an uncompressed ECPoint.
+     * @param point The point
+     * @return The encoded point
+     */
+    public byte[] encodePoint(ECPoint point) {
+        int fieldSize = getFieldSize();
+        byte[] encoded = new byte[1 + 2 * fieldSize];
+        encoded[0] = 0x04;
+        copyUnsigned(point.getAffineX(), encoded, 1, fieldSize);
+        copyUnsigned(point.getAffineY(), encoded, 1 + fieldSize, fieldSize);
+        return encoded;
+    }
+
+    private static void copyUnsigned(BigInteger value, byte[] dest, int offset, int length) {
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length > length ? bytes.length - length : 0;
+        int count = bytes.length - start;
+        System.arraycopy(bytes, start, dest, offset + length - count, count);
+    }
+
+    /**
+     * Decode an uncompressed ECPoint, checking that it's on the curve.
+     * @param encoded The encoded point
+     * @return The point
+     * @throws GeneralSecurityException if it's not a valid point of the curve
+     */
+    public ECPoint decodePoint(byte[] encoded) throws GeneralSecurityException {
+        int fieldSize = getFieldSize();
+        if (encoded == null || encoded.length != 1 + 2 * fieldSize || encoded[0] != 0x04) {
+            throw new GeneralSecurityException("Not an uncompressed point of " + name);
+        }
+        BigInteger x = new BigInteger(1, Arrays.copyOfRange(encoded, 1, 1 + fieldSize));
+        BigInteger y = new BigInteger(1, Arrays.copyOfRange(encoded, 1 + fieldSize, encoded.length));
+
+        // y^2 = x^3 + ax + b (mod p)
+        EllipticCurve curve = params.getCurve();
+        BigInteger p = ((ECFieldFp) curve.getField()).getP();
+        if (x.compareTo(p) >= 0 || y.compareTo(p) >= 0
+            || !y.multiply(y).mod(p).equals(
+                x.multiply(x).add(curve.getA()).multiply(x).add(curve.getB()).mod(p))) {
+            throw new GeneralSecurityException("Point not on the curve " + name);
+        }
+        return new ECPoint(x, y);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.crypto.dh;
+
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.crypto.EncTypeHandler;
+import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.KeyUsage;
+
+import javax.crypto.KeyAgreement;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECPublicKeySpec;
+
+/**
+ * The client-side of Elliptic Curve Diffie-Hellman key agreement for
+ * Kerberos PKINIT, RFC 5349.
+ */
+public class EcdhClient {
+
+    private KeyAgreement clientKeyAgree;
+    private EncryptionKey clientKey;
+    private EcGroup group;
+
+    public EcGroup getGroup() {
+        return group;
+    }
+
+    /**
+     * Generate the client key pair on the curve.
+     * @param ecGroup The curve
+     * @return The client public key
+     * @throws GeneralSecurityException e
+     */
+    public ECPublicKey init(EcGroup ecGroup) throws GeneralSecurityException {
+        group = ecGroup;
+        KeyPairGenerator clientKpairGen = KeyPairGenerator.getInstance("EC");
+        clientKpairGen.initialize(ecGroup.getParams());
+        KeyPair clientKpair = clientKpairGen.generateKeyPair();
+
+        clientKeyAgree = KeyAgreement.getInstance("ECDH");
+        clientKeyAgree.init(clientKpair.getPrivate());
+
+        return (ECPublicKey) clientKpair.getPublic();
+    }
+
+    /**
+     * Do the key agreement with the server public value.
+     * @param serverPoint The encoded server point
+     * @throws GeneralSecurityException if the point isn't valid
+     */
+    public void doPhase(byte[] serverPoint) throws GeneralSecurityException {
+        PublicKey serverPubKey = KeyFactory.getInstance("EC").generatePublic(
+            new ECPublicKeySpec(group.decodePoint(serverPoint), group.getParams()));
+        clientKeyAgree.doPhase(serverPubKey, true);
+    }
+
+    public EncryptionKey generateKey(byte[] clientDhNonce, byte[] serverDhNonce,
+                                     EncryptionType type) throws KrbException {
+        clientKey = OctetString2Key.octetString2Key(clientKeyAgree.generateSecret(),
+            clientDhNonce, serverDhNonce, type);
+        return clientKey;
+    }
+
+    /**
+     * Decrypt
+     *
+     * @param cipherText The cipher text
+     * @param usage The key usage
+     * @return The decrypted byte
+     * @throws KrbException e
+     */
+    public byte[] decrypt(byte[] cipherText, KeyUsage usage) throws KrbException {
+        EncTypeHandler encType = EncryptionHandler.getEncHandler(clientKey.getKeyType());
+        return encType.decrypt(cipherText, clientKey.getKeyData(), usage.getValue());
+    }
+}
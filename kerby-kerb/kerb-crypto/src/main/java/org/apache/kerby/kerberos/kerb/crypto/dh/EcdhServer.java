@@ -0,0 +1,94 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.crypto.dh;
+
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.crypto.EncTypeHandler;
+import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.KeyUsage;
+
+import javax.crypto.KeyAgreement;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECPublicKeySpec;
+
+/**
+ * The server-side of Elliptic Curve Diffie-Hellman key agreement for
+ * Kerberos PKINIT, RFC 5349.
+ */
+public class EcdhServer {
+
+    private KeyAgreement serverKeyAgree;
+    private EncryptionKey serverKey;
+
+    /**
+     * Do the server side of the key agreement.
+     *
+     * @param group The curve of the client public value
+     * @param clientPoint The encoded client point
+     * @param serverKpair The server key pair on the curve, generated in
+     *                    advance and used once, or null to generate it
+     * @return The encoded server point
+     * @throws GeneralSecurityException if the client point isn't valid
+     */
+    public byte[] initAndDoPhase(EcGroup group, byte[] clientPoint,
+                                 KeyPair serverKpair) throws GeneralSecurityException {
+        PublicKey clientPubKey = KeyFactory.getInstance("EC").generatePublic(
+            new ECPublicKeySpec(group.decodePoint(clientPoint), group.getParams()));
+
+        if (serverKpair == null) {
+            KeyPairGenerator serverKpairGen = KeyPairGenerator.getInstance("EC");
+            serverKpairGen.initialize(group.getParams());
+            serverKpair = serverKpairGen.generateKeyPair();
+        }
+
+        serverKeyAgree = KeyAgreement.getInstance("ECDH");
+        serverKeyAgree.init(serverKpair.getPrivate());
+        serverKeyAgree.doPhase(clientPubKey, true);
+
+        return group.encodePoint(((ECPublicKey) serverKpair.getPublic()).getW());
+    }
+
+    public EncryptionKey generateKey(byte[] clientDhNonce, byte[] serverDhNonce,
+                                     EncryptionType type) throws KrbException {
+        serverKey = OctetString2Key.octetString2Key(serverKeyAgree.generateSecret(),
+            clientDhNonce, serverDhNonce, type);
+        return serverKey;
+    }
+
+    /**
+     * Encrypt
+     *
+     * @param clearText The clear test
+     * @param usage The key usage
+     * @return The cipher text.
+     * @throws KrbException e
+     */
+    public byte[] encrypt(byte[] clearText, KeyUsage usage) throws KrbException {
+        EncTypeHandler encType = EncryptionHandler.getEncHandler(serverKey.getKeyType());
+        return encType.encrypt(clearText, serverKey.getKeyData(), usage.getValue());
+    }
+}
@@ -19,6 +19,12 @@
  */
 package org.apache.kerby.kerberos.kerb.crypto.dh;
 
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.crypto.EncTypeHandler;
+import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -78,6 +84,35 @@ public class OctetString2Key {
     }
 
 
+    /**
+     * Makes the AS reply key of the enctype from the shared secret of the
+     * key agreement, octetstring2key(ZZ | n_c | n_k), with K and
+     * random-to-key() of the enctype.
+     *
+     * @param sharedSecret The shared secret ZZ
+     * @param clientDhNonce The client nonce, may be null
+     * @param serverDhNonce The server nonce, may be null
+     * @param type The enctype of the AS reply key
+     * @return The AS reply key
+     * @throws KrbException e
+     */
+    public static EncryptionKey octetString2Key(byte[] sharedSecret, byte[] clientDhNonce,
+                                                byte[] serverDhNonce, EncryptionType type) throws KrbException {
+        byte[] x = sharedSecret;
+        if (clientDhNonce != null && clientDhNonce.length > 0
+                && serverDhNonce != null && serverDhNonce.length > 0) {
+            x = new byte[sharedSecret.length + clientDhNonce.length + serverDhNonce.length];
+            System.arraycopy(sharedSecret, 0, x, 0, sharedSecret.length);
+            System.arraycopy(clientDhNonce, 0, x, sharedSecret.length, clientDhNonce.length);
+            System.arraycopy(serverDhNonce, 0, x, sharedSecret.length + clientDhNonce.length,
+                serverDhNonce.length);
+        }
+
+        EncTypeHandler handler = EncryptionHandler.getEncHandler(type);
+        byte[] randomBits = kTruncate(handler.keyInputSize() * 8, x);
+        return new EncryptionKey(type, handler.random2Key(randomBits));
+    }
+
     private static byte[] calculateIntegrity(byte count, byte[] data) {
         try {
             MessageDigest digester = MessageDigest.getInstance("SHA1");
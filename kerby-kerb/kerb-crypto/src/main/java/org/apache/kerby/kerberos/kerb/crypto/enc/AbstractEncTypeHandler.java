@@ -25,6 +25,8 @@ import org.apache.kerby.kerberos.kerb.crypto.cksum.HashProvider;
 import org.apache.kerby.kerberos.kerb.crypto.key.KeyMaker;
 import org.apache.kerby.kerberos.kerb.KrbException;
 
+import java.nio.ByteBuffer;
+
 public abstract class AbstractEncTypeHandler
         extends AbstractCryptoTypeHandler implements EncTypeHandler {
 
@@ -104,27 +106,41 @@ public abstract class AbstractEncTypeHandler
 
     @Override
     public byte[] encrypt(byte[] data, byte[] key, byte[] iv, int usage) throws KrbException {
-        int confounderLen = confounderSize();
-        int checksumLen = checksumSize();
-        int headerLen = confounderLen + checksumLen;
-        int inputLen = data.length;
-        int paddingLen = paddingLength(inputLen);
+        byte[] workBuffer = new byte[encryptedLength(data.length)];
+        System.arraycopy(data, 0, workBuffer, plainTextOffset(), data.length);
+
+        encryptInPlace(workBuffer, data.length, key, iv, usage);
+        return workBuffer;
+    }
 
+    @Override
+    public int encryptedLength(int inputLen) {
         /**
          *  E(Confounder | Checksum | Plaintext | Padding), or
          *  header | data | padding | trailer, where trailer may be absent
          */
+        return confounderSize() + checksumSize() + inputLen + paddingLength(inputLen);
+    }
 
-        int workLength = headerLen + inputLen + paddingLen;
+    @Override
+    public int plainTextOffset() {
+        return confounderSize() + checksumSize();
+    }
 
-        byte[] workBuffer = new byte[workLength];
-        System.arraycopy(data, 0, workBuffer, headerLen, data.length);
+    @Override
+    public void encryptInPlace(byte[] workBuffer, int inputLen, byte[] key,
+                               int usage) throws KrbException {
+        byte[] iv = new byte[encProvider().blockSize()];
+        encryptInPlace(workBuffer, inputLen, key, iv, usage);
+    }
 
-        int[] workLens = new int[] {confounderLen, checksumLen,
-                inputLen, paddingLen};
+    @Override
+    public void encryptInPlace(byte[] workBuffer, int inputLen, byte[] key,
+                               byte[] iv, int usage) throws KrbException {
+        int[] workLens = new int[] {confounderSize(), checksumSize(),
+                inputLen, paddingLength(inputLen)};
 
         encryptWith(workBuffer, workLens, key, iv, usage, false);
-        return workBuffer;
     }
 
     @Override
@@ -167,6 +183,25 @@ public abstract class AbstractEncTypeHandler
         return decryptWith(cipher, workLens, key, iv, usage, false);
     }
 
+    @Override
+    public ByteBuffer decryptInPlace(ByteBuffer cipher, byte[] key, int usage)
+            throws KrbException {
+        byte[] iv = new byte[encProvider().blockSize()];
+        return decryptInPlace(cipher, key, iv, usage);
+    }
+
+    /**
+     * Decrypt a copy of the cipher, for the types that don't decrypt in
+     * place.
+     */
+    @Override
+    public ByteBuffer decryptInPlace(ByteBuffer cipher, byte[] key, byte[] iv, int usage)
+            throws KrbException {
+        byte[] cipherBytes = new byte[cipher.remaining()];
+        cipher.duplicate().get(cipherBytes);
+        return ByteBuffer.wrap(decrypt(cipherBytes, key, iv, usage)).asReadOnlyBuffer();
+    }
+
     @Override
     public byte[] decryptRaw(byte[] cipher, byte[] key, int usage)
             throws KrbException {
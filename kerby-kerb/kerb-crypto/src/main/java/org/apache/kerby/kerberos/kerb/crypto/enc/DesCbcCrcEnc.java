@@ -24,6 +24,8 @@ import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.type.base.CheckSumType;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 
+import java.nio.ByteBuffer;
+
 public class DesCbcCrcEnc extends DesCbcEnc {
 
     public DesCbcCrcEnc() {
@@ -45,6 +47,14 @@ public class DesCbcCrcEnc extends DesCbcEnc {
         return encrypt(data, key, iv, usage);
     }
 
+    @Override
+    public void encryptInPlace(byte[] workBuffer, int inputLen, byte[] key,
+                               int usage) throws KrbException {
+        byte[] iv = new byte[encProvider().blockSize()];
+        System.arraycopy(key, 0, iv, 0, key.length);
+        encryptInPlace(workBuffer, inputLen, key, iv, usage);
+    }
+
     @Override
     public byte[] decrypt(byte[] cipher, byte[] key, int usage)
             throws KrbException {
@@ -52,4 +62,12 @@ public class DesCbcCrcEnc extends DesCbcEnc {
         System.arraycopy(key, 0, iv, 0, key.length);
         return decrypt(cipher, key, iv, usage);
     }
+
+    @Override
+    public ByteBuffer decryptInPlace(ByteBuffer cipher, byte[] key, int usage)
+            throws KrbException {
+        byte[] iv = new byte[encProvider().blockSize()];
+        System.arraycopy(key, 0, iv, 0, key.length);
+        return decryptInPlace(cipher, key, iv, usage);
+    }
 }
@@ -26,6 +26,9 @@ import org.apache.kerby.kerberos.kerb.crypto.cksum.HashProvider;
 import org.apache.kerby.kerberos.kerb.crypto.key.DkKeyMaker;
 import org.apache.kerby.kerberos.kerb.KrbException;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 public abstract class KeKiEnc extends AbstractEncTypeHandler {
 
     public KeKiEnc(EncryptProvider encProvider,
@@ -50,6 +53,15 @@ public abstract class KeKiEnc extends AbstractEncTypeHandler {
         return padding - (payloadLen % padding);
     }
 
+    /**
+     * The checksum follows the cipher, only the confounder is before the
+     * plain text.
+     */
+    @Override
+    public int plainTextOffset() {
+        return confounderSize();
+    }
+
     @Override
     protected void encryptWith(byte[] workBuffer, int[] workLens,
                                byte[] key, byte[] iv, int usage, boolean raw) throws KrbException {
@@ -71,31 +83,24 @@ public abstract class KeKiEnc extends AbstractEncTypeHandler {
 
         /**
          * Instead of E(Confounder | Checksum | Plaintext | Padding),
-         * E(Confounder | Plaintext | Padding) | Checksum,
-         * so need to adjust the workBuffer arrangement
+         * E(Confounder | Plaintext | Padding) | Checksum, the plain text
+         * being already after the confounder, see plainTextOffset()
          */
 
         if (!raw) {
-            byte[] tmpEnc = new byte[confounderLen + inputLen + paddingLen];
+            int encLen = confounderLen + inputLen + paddingLen;
             // confounder
             byte[] confounder = Confounder.makeBytes(confounderLen);
-            System.arraycopy(confounder, 0, tmpEnc, 0, confounderLen);
-
-            // data
-            System.arraycopy(workBuffer, confounderLen + checksumLen,
-                    tmpEnc, confounderLen, inputLen);
+            System.arraycopy(confounder, 0, workBuffer, 0, confounderLen);
 
             // padding
-            for (int i = confounderLen + inputLen; i < paddingLen; ++i) {
-                tmpEnc[i] = 0;
-            }
+            Arrays.fill(workBuffer, confounderLen + inputLen, encLen, (byte) 0);
 
             // checksum & encrypt
-            byte[] checksum = makeChecksum(ki, tmpEnc, checksumLen);
-            encProvider().encrypt(ke, iv, tmpEnc);
+            byte[] checksum = makeChecksum(ki, workBuffer, 0, encLen, checksumLen);
+            encProvider().encrypt(ke, iv, workBuffer, 0, encLen);
 
-            System.arraycopy(tmpEnc, 0, workBuffer, 0, tmpEnc.length);
-            System.arraycopy(checksum, 0, workBuffer, tmpEnc.length, checksum.length);
+            System.arraycopy(checksum, 0, workBuffer, encLen, checksumLen);
         } else {
             encProvider().encrypt(ke, iv, workBuffer);
         }
@@ -105,42 +110,77 @@ public abstract class KeKiEnc extends AbstractEncTypeHandler {
     protected byte[] decryptWith(byte[] workBuffer, int[] workLens,
                                  byte[] key, byte[] iv, int usage, boolean raw) throws KrbException {
         int confounderLen = workLens[0];
-        int checksumLen = workLens[1];
         int dataLen = workLens[2];
 
-        byte[] constant = new byte[5];
-        BytesUtil.int2bytes(usage, constant, 0, true);
-        constant[4] = (byte) 0xaa;
-        byte[] ke = ((DkKeyMaker) keyMaker()).dk(key, constant);
-        constant[4] = (byte) 0x55;
-        byte[] ki = ((DkKeyMaker) keyMaker()).dk(key, constant);
-
         // decrypt and verify checksum
 
         byte[] tmpEnc = new byte[confounderLen + dataLen];
         System.arraycopy(workBuffer, 0,
                 tmpEnc, 0, confounderLen + dataLen);
         if (!raw) {
-            byte[] checksum = new byte[checksumLen];
-            System.arraycopy(workBuffer, confounderLen + dataLen,
-                    checksum, 0, checksumLen);
-
-            encProvider().decrypt(ke, iv, tmpEnc);
-            byte[] newChecksum = makeChecksum(ki, tmpEnc, checksumLen);
-
-            if (!checksumEqual(checksum, newChecksum)) {
-                throw new KrbException(KrbErrorCode.KRB_AP_ERR_BAD_INTEGRITY);
-            }
+            decryptAndVerify(key, usage, iv, tmpEnc, 0, tmpEnc.length,
+                workBuffer, confounderLen + dataLen);
 
             byte[] data = new byte[dataLen];
             System.arraycopy(tmpEnc, confounderLen, data, 0, dataLen);
             return data;
         } else {
-            encProvider().decrypt(ke, iv, tmpEnc);
+            encProvider().decrypt(deriveKey(key, usage, (byte) 0xaa), iv, tmpEnc);
             return tmpEnc;
         }
     }
 
-    protected abstract byte[] makeChecksum(byte[] key, byte[] data, int hashSize)
-            throws KrbException;
+    /**
+     * Decrypt E(Confounder | Plaintext | Padding) | Checksum in the buffer
+     * itself when it's backed by a writable array, so the plain text is
+     * returned as a view of the buffer.
+     */
+    @Override
+    public ByteBuffer decryptInPlace(ByteBuffer cipher, byte[] key, byte[] iv, int usage)
+            throws KrbException {
+        if (!cipher.hasArray()) {
+            return super.decryptInPlace(cipher, key, iv, usage);
+        }
+
+        int confounderLen = confounderSize();
+        int checksumLen = checksumSize();
+        int encLen = cipher.remaining() - checksumLen;
+        if (encLen < confounderLen) {
+            throw new KrbException(KrbErrorCode.KRB_AP_ERR_BAD_INTEGRITY);
+        }
+
+        byte[] data = cipher.array();
+        int start = cipher.arrayOffset() + cipher.position();
+        decryptAndVerify(key, usage, iv, data, start, encLen, data, start + encLen);
+
+        ByteBuffer plainText = ByteBuffer.wrap(data, start + confounderLen, encLen - confounderLen);
+        return plainText.slice().asReadOnlyBuffer();
+    }
+
+    private byte[] deriveKey(byte[] key, int usage, byte type) throws KrbException {
+        byte[] constant = new byte[5];
+        BytesUtil.int2bytes(usage, constant, 0, true);
+        constant[4] = type;
+        return ((DkKeyMaker) keyMaker()).dk(key, constant);
+    }
+
+    /**
+     * Decrypt the encLen bytes of enc from encStart in place and check them
+     * against the checksum at checksumStart.
+     */
+    private void decryptAndVerify(byte[] key, int usage, byte[] iv,
+                                  byte[] enc, int encStart, int encLen,
+                                  byte[] checksum, int checksumStart) throws KrbException {
+        int checksumLen = checksumSize();
+        encProvider().decrypt(deriveKey(key, usage, (byte) 0xaa), iv, enc, encStart, encLen);
+        byte[] newChecksum = makeChecksum(deriveKey(key, usage, (byte) 0x55),
+            enc, encStart, encLen, checksumLen);
+
+        if (!checksumEqual(newChecksum, checksum, checksumStart, checksumLen)) {
+            throw new KrbException(KrbErrorCode.KRB_AP_ERR_BAD_INTEGRITY);
+        }
+    }
+
+    protected abstract byte[] makeChecksum(byte[] key, byte[] data, int start,
+                                           int len, int hashSize) throws KrbException;
 }
@@ -58,6 +58,18 @@ public abstract class AbstractEncryptProvider implements EncryptProvider {
         doEncrypt(data, key, cipherState, false);
     }
 
+    @Override
+    public void encrypt(byte[] key, byte[] cipherState, byte[] data,
+                        int start, int len) throws KrbException {
+        doEncrypt(data, start, len, key, cipherState, true);
+    }
+
+    @Override
+    public void decrypt(byte[] key, byte[] cipherState, byte[] data,
+                        int start, int len) throws KrbException {
+        doEncrypt(data, start, len, key, cipherState, false);
+    }
+
     @Override
     public void encrypt(byte[] key, byte[] data) throws KrbException {
         byte[] cipherState = new byte[blockSize()];
@@ -72,6 +84,24 @@ public abstract class AbstractEncryptProvider implements EncryptProvider {
 
     protected abstract void doEncrypt(byte[] data, byte[] key, byte[] cipherState, boolean encrypt) throws KrbException;
 
+    /**
+     * Encrypt or decrypt the len bytes of data from start, in place.
+     * Providers able to work on a part of an array override it, the others
+     * go through a copy of the part.
+     */
+    protected void doEncrypt(byte[] data, int start, int len, byte[] key,
+                             byte[] cipherState, boolean encrypt) throws KrbException {
+        if (start == 0 && len == data.length) {
+            doEncrypt(data, key, cipherState, encrypt);
+            return;
+        }
+
+        byte[] part = new byte[len];
+        System.arraycopy(data, start, part, 0, len);
+        doEncrypt(part, key, cipherState, encrypt);
+        System.arraycopy(part, 0, data, start, len);
+    }
+
     @Override
     public byte[] cbcMac(byte[] key, byte[] iv, byte[] data) throws KrbException {
         throw new UnsupportedOperationException();
@@ -35,6 +35,12 @@ public abstract class AesProvider extends AbstractEncryptProvider {
     @Override
     protected void doEncrypt(byte[] data, byte[] key,
                                   byte[] cipherState, boolean encrypt) throws KrbException {
+        doEncrypt(data, 0, data.length, key, cipherState, encrypt);
+    }
+
+    @Override
+    protected void doEncrypt(byte[] data, int start, int len, byte[] key,
+                             byte[] cipherState, boolean encrypt) throws KrbException {
         Cipher cipher = null;
         try {
             cipher = Cipher.getInstance("AES/CTS/NoPadding");
@@ -51,8 +57,7 @@ public abstract class AesProvider extends AbstractEncryptProvider {
 
             cipher.init(encrypt
                     ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, secretKey, param);
-            byte[] output = cipher.doFinal(data);
-            System.arraycopy(output, 0, data, 0, output.length);
+            cipher.doFinal(data, start, len, data, start);
         } catch (GeneralSecurityException e) {
             KrbException ke = new KrbException(e.getMessage());
             ke.initCause(e);
@@ -31,13 +31,19 @@ public abstract class CamelliaProvider extends AbstractEncryptProvider {
     @Override
     protected void doEncrypt(byte[] data, byte[] key,
                              byte[] cipherState, boolean encrypt) throws KrbException {
+        doEncrypt(data, 0, data.length, key, cipherState, encrypt);
+    }
+
+    @Override
+    protected void doEncrypt(byte[] data, int start, int len, byte[] key,
+                             byte[] cipherState, boolean encrypt) throws KrbException {
 
         Camellia cipher = new Camellia();
         cipher.setKey(encrypt, key);
         if (encrypt) {
-            cipher.encrypt(data, cipherState);
+            cipher.encrypt(data, start, len, cipherState);
         } else {
-            cipher.decrypt(data, cipherState);
+            cipher.decrypt(data, start, len, cipherState);
         }
     }
 
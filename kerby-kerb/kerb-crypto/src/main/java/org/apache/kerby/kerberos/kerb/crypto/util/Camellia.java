@@ -112,12 +112,23 @@ public class Camellia {
     }
 
     public void encrypt(byte[] data, byte[] iv) {
+        encrypt(data, 0, data.length, iv);
+    }
+
+    /**
+     * CTS encrypt the len bytes of data from start in place.
+     * @param data The data
+     * @param start The offset of the part to encrypt
+     * @param len The length of the part to encrypt
+     * @param iv The iv, updated if not null
+     */
+    public void encrypt(byte[] data, int start, int len, byte[] iv) {
         byte[] cipherState = new byte[BLOCK_SIZE];
 
-        int blocksNum = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
-        int lastBlockLen = data.length - (blocksNum - 1) * BLOCK_SIZE;
+        int blocksNum = (len + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int lastBlockLen = len - (blocksNum - 1) * BLOCK_SIZE;
         if (blocksNum == 1) {
-            cbcEnc(data, 0, 1, cipherState);
+            cbcEnc(data, start, 1, cipherState);
             return;
         }
 
@@ -125,9 +136,9 @@ public class Camellia {
             System.arraycopy(iv, 0, cipherState, 0, BLOCK_SIZE);
         }
 
-        int contBlocksNum, offset = 0;
+        int contBlocksNum, offset = start;
         while (blocksNum > 2) {
-            contBlocksNum = (data.length - offset) / BLOCK_SIZE;
+            contBlocksNum = (start + len - offset) / BLOCK_SIZE;
             if (contBlocksNum > 0) {
                 // Encrypt a series of contiguous blocks in place if we can, but
                 // don't touch the last two blocks.
@@ -160,12 +171,23 @@ public class Camellia {
     }
 
     public void decrypt(byte[] data, byte[] iv) {
+        decrypt(data, 0, data.length, iv);
+    }
+
+    /**
+     * CTS decrypt the len bytes of data from start in place.
+     * @param data The data
+     * @param start The offset of the part to decrypt
+     * @param len The length of the part to decrypt
+     * @param iv The iv, updated if not null
+     */
+    public void decrypt(byte[] data, int start, int len, byte[] iv) {
         byte[] cipherState = new byte[BLOCK_SIZE];
 
-        int blocksNum = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
-        int lastBlockLen = data.length - (blocksNum - 1) * BLOCK_SIZE;
+        int blocksNum = (len + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int lastBlockLen = len - (blocksNum - 1) * BLOCK_SIZE;
         if (blocksNum == 1) {
-            cbcDec(data, 0, 1, cipherState);
+            cbcDec(data, start, 1, cipherState);
             return;
         }
 
@@ -173,9 +195,9 @@ public class Camellia {
             System.arraycopy(iv, 0, cipherState, 0, BLOCK_SIZE);
         }
 
-        int contBlocksNum, offset = 0;
+        int contBlocksNum, offset = start;
         while (blocksNum > 2) {
-            contBlocksNum = (data.length - offset) / BLOCK_SIZE;
+            contBlocksNum = (start + len - offset) / BLOCK_SIZE;
             if (contBlocksNum > 0) {
                 // Decrypt a series of contiguous blocks in place if we can, but
                 // don't touch the last two blocks.
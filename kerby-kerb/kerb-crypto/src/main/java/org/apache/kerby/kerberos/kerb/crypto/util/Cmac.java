@@ -87,7 +87,7 @@ public class Cmac {
         byte[] cipherState = new byte[blockSize];
         byte[] cipher = new byte[blockSize];
         for (int i = 0; i < n - 1; i++) {
-            System.arraycopy(data, i * blockSize, cipher, 0, blockSize);
+            System.arraycopy(data, start + i * blockSize, cipher, 0, blockSize);
             encryptBlock(encProvider, key, cipherState, cipher);
             System.arraycopy(cipher, 0, cipherState, 0, blockSize);
         }
@@ -96,7 +96,7 @@ public class Cmac {
         System.arraycopy(cipher, 0, y, 0, blockSize);
 
         // step 4
-        int lastPos = (n - 1) * blockSize;
+        int lastPos = start + (n - 1) * blockSize;
         int lastLen = lastIsComplete ? blockSize : len % blockSize;
         byte[] lastBlock = new byte[lastLen];
         System.arraycopy(data, lastPos, lastBlock, 0, lastLen);
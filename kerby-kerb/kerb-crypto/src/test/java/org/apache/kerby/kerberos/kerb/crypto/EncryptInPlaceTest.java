@@ -0,0 +1,152 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.crypto;
+
+import org.apache.kerby.kerberos.kerb.KrbCodec;
+import org.apache.kerby.kerberos.kerb.KrbErrorCode;
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.crypto.util.Camellia;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptedData;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.KeyUsage;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Encryption with the plain text written in place in the work buffer,
+ * and decryption in place.
+ */
+public class EncryptInPlaceTest {
+    private static final EncryptionType[] ENC_TYPES = {
+        EncryptionType.DES_CBC_CRC, EncryptionType.DES_CBC_MD5,
+        EncryptionType.DES3_CBC_SHA1, EncryptionType.RC4_HMAC,
+        EncryptionType.AES128_CTS_HMAC_SHA1_96, EncryptionType.AES256_CTS_HMAC_SHA1_96,
+        EncryptionType.CAMELLIA128_CTS_CMAC, EncryptionType.CAMELLIA256_CTS_CMAC
+    };
+
+    @Test
+    public void testEncryptAndDecrypt() throws KrbException {
+        Random random = new Random(0);
+        for (EncryptionType encType : ENC_TYPES) {
+            EncTypeHandler handler = EncryptionHandler.getEncHandler(encType);
+            EncryptionKey key = EncryptionHandler.random2Key(encType);
+            for (int len : new int[] {0, 1, 15, 16, 17, 33, 100}) {
+                byte[] plainText = new byte[len];
+                random.nextBytes(plainText);
+
+                byte[] cipher = handler.encrypt(plainText, key.getKeyData(), 3);
+                assertThat(cipher.length).isEqualTo(handler.encryptedLength(len));
+                byte[] decrypted = handler.decrypt(cipher, key.getKeyData(), 3);
+                assertThat(Arrays.copyOf(decrypted, len)).as(encType + " " + len).isEqualTo(plainText);
+            }
+        }
+    }
+
+    @Test
+    public void testEncryptEncoded() throws KrbException {
+        PrincipalName principal = new PrincipalName("HTTP/host1@EXAMPLE.COM");
+        for (EncryptionType encType : ENC_TYPES) {
+            EncryptionKey key = EncryptionHandler.random2Key(encType);
+            key.setKvno(2);
+
+            EncryptedData encrypted = EncryptionHandler.encrypt(principal, key, KeyUsage.KDC_REP_TICKET);
+            assertThat(encrypted.getEType().getValue()).isEqualTo(encType.getValue());
+            assertThat(encrypted.getKvno()).isEqualTo(2);
+
+            byte[] decrypted = EncryptionHandler.decrypt(encrypted, key, KeyUsage.KDC_REP_TICKET);
+            PrincipalName decoded = KrbCodec.decode(decrypted, PrincipalName.class);
+            assertThat(decoded.getNameStrings()).as(encType.getName()).isEqualTo(principal.getNameStrings());
+        }
+    }
+
+    @Test
+    public void testDecryptInPlace() throws KrbException {
+        PrincipalName principal = new PrincipalName("HTTP/host1@EXAMPLE.COM");
+        for (EncryptionType encType : ENC_TYPES) {
+            EncryptionKey key = EncryptionHandler.random2Key(encType);
+            byte[] cipher = EncryptionHandler.encrypt(principal, key, KeyUsage.KDC_REP_TICKET).getCipher();
+
+            // The cipher as a part of a larger message
+            byte[] message = new byte[cipher.length + 8];
+            System.arraycopy(cipher, 0, message, 4, cipher.length);
+            ByteBuffer part = ByteBuffer.wrap(message, 4, cipher.length);
+            ByteBuffer plainText = EncryptionHandler.decrypt(part, key, KeyUsage.KDC_REP_TICKET);
+            assertThat(plainText.isReadOnly()).isTrue();
+            assertThat(part.position()).isEqualTo(4);
+            PrincipalName decoded = KrbCodec.decode(plainText, PrincipalName.class);
+            assertThat(decoded.getNameStrings()).as(encType.getName()).isEqualTo(principal.getNameStrings());
+
+            // Read only buffers are decrypted through a copy
+            ByteBuffer readOnly = ByteBuffer.wrap(cipher).asReadOnlyBuffer();
+            plainText = EncryptionHandler.decrypt(readOnly, key, KeyUsage.KDC_REP_TICKET);
+            decoded = KrbCodec.decode(plainText, PrincipalName.class);
+            assertThat(decoded.getNameStrings()).isEqualTo(principal.getNameStrings());
+        }
+    }
+
+    @Test
+    public void testDecryptInPlaceIntegrity() throws KrbException {
+        for (EncryptionType encType : new EncryptionType[] {
+            EncryptionType.AES128_CTS_HMAC_SHA1_96, EncryptionType.CAMELLIA256_CTS_CMAC}) {
+            EncryptionKey key = EncryptionHandler.random2Key(encType);
+            byte[] cipher = EncryptionHandler.encrypt(new byte[20], key, KeyUsage.KDC_REP_TICKET).getCipher();
+            cipher[cipher.length - 1] ^= 1;
+
+            KrbException error = null;
+            try {
+                EncryptionHandler.decrypt(ByteBuffer.wrap(cipher), key, KeyUsage.KDC_REP_TICKET);
+            } catch (KrbException e) {
+                error = e;
+            }
+            assertThat(error).isNotNull();
+            assertThat(error.getKrbErrorCode()).isEqualTo(KrbErrorCode.KRB_AP_ERR_BAD_INTEGRITY);
+        }
+    }
+
+    @Test
+    public void testCamelliaPart() {
+        byte[] key = new byte[16];
+        Arrays.fill(key, (byte) 7);
+        for (int len : new int[] {16, 17, 40, 64}) {
+            byte[] data = new byte[len];
+            new Random(len).nextBytes(data);
+            byte[] withMargins = new byte[len + 10];
+            System.arraycopy(data, 0, withMargins, 5, len);
+
+            Camellia cipher = new Camellia();
+            cipher.setKey(true, key);
+            cipher.encrypt(data, new byte[16]);
+            cipher.encrypt(withMargins, 5, len, new byte[16]);
+            assertThat(Arrays.copyOfRange(withMargins, 5, 5 + len)).isEqualTo(data);
+
+            cipher.setKey(false, key);
+            cipher.decrypt(withMargins, 5, len, new byte[16]);
+            cipher.decrypt(data, new byte[16]);
+            assertThat(Arrays.copyOfRange(withMargins, 5, 5 + len)).isEqualTo(data);
+        }
+    }
+}
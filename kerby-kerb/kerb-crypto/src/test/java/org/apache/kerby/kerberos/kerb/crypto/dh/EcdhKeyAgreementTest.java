@@ -0,0 +1,90 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.crypto.dh;
+
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.KeyUsage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Tests the Elliptic Curve Diffie-Hellman key agreement between a client and
+ * server, RFC 5349.
+ */
+public class EcdhKeyAgreementTest {
+    private static SecureRandom secureRandom = new SecureRandom();
+
+    private void testKeyAgreement(EcGroup group, byte[] clientDhNonce, byte[] serverDhNonce,
+                                  EncryptionType type) throws Exception {
+        EcdhClient client = new EcdhClient();
+        EcdhServer server = new EcdhServer();
+
+        byte[] clientPoint = group.encodePoint(client.init(group).getW());
+        byte[] serverPoint = server.initAndDoPhase(EcGroup.fromOid(group.getOid()), clientPoint, null);
+        EncryptionKey serverKey = server.generateKey(clientDhNonce, serverDhNonce, type);
+
+        client.doPhase(serverPoint);
+        EncryptionKey clientKey = client.generateKey(clientDhNonce, serverDhNonce, type);
+        Assert.assertEquals(serverKey, clientKey);
+
+        byte[] clearText = "This is just an example".getBytes(StandardCharsets.UTF_8);
+        byte[] cipherText = server.encrypt(clearText, KeyUsage.UNKNOWN);
+        byte[] recovered = client.decrypt(cipherText, KeyUsage.UNKNOWN);
+
+        Assert.assertTrue(Arrays.equals(clearText, recovered));
+    }
+
+    @Test
+    public void testP256() throws Exception {
+        testKeyAgreement(EcGroup.P256, null, null, EncryptionType.AES128_CTS_HMAC_SHA1_96);
+    }
+
+    @Test
+    public void testP384WithNonce() throws Exception {
+        byte[] clientDhNonce = new byte[32];
+        secureRandom.nextBytes(clientDhNonce);
+        byte[] serverDhNonce = new byte[32];
+        secureRandom.nextBytes(serverDhNonce);
+
+        testKeyAgreement(EcGroup.P384, clientDhNonce, serverDhNonce, EncryptionType.AES256_CTS_HMAC_SHA1_96);
+    }
+
+    @Test
+    public void testGroups() {
+        Assert.assertSame(EcGroup.P256, EcGroup.fromName("p-256"));
+        Assert.assertSame(EcGroup.P384, EcGroup.fromOid("1.3.132.0.34"));
+        Assert.assertNull(EcGroup.fromName("P-521"));
+    }
+
+    @Test(expected = GeneralSecurityException.class)
+    public void testPointNotOnCurve() throws Exception {
+        EcdhClient client = new EcdhClient();
+        byte[] point = EcGroup.P256.encodePoint(client.init(EcGroup.P256).getW());
+        point[point.length - 1] ^= 1;
+
+        new EcdhServer().initAndDoPhase(EcGroup.P256, point, null);
+    }
+}
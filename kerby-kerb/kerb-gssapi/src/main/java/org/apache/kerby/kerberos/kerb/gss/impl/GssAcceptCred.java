@@ -40,7 +40,17 @@ public final class GssAcceptCred extends GssCredElement {
 
     private static final Logger LOG = LoggerFactory.getLogger(GssAcceptCred.class);
 
+    /**
+     * The system property of the max number of decrypted service tickets the
+     * acceptors keep, so the ticket a client presents again isn't decrypted
+     * again. Not set or 0 to not cache the tickets.
+     */
+    public static final String TICKET_CACHE_SIZE = "kerby.gss.acceptor.ticket.cache.size";
+
+    private static final TicketCache TICKET_CACHE = newTicketCache();
+
     private final KeyTab keyTab;
+    private final KeyTabIndex keyTabIndex;
     private final Set<KerberosKey> kerberosKeySet;
 
     public static GssAcceptCred getInstance(final GSSCaller caller,
@@ -103,6 +113,7 @@ public final class GssAcceptCred extends GssCredElement {
                           int lifeTime, Set<KerberosKey> kerberosKeySet) {
         super(caller, name);
         this.keyTab = keyTab;
+        this.keyTabIndex = keyTab != null ? KeyTabIndex.of(keyTab) : null;
         this.accLifeTime = lifeTime;
         this.kerberosKeySet = kerberosKeySet;
     }
@@ -130,7 +141,28 @@ public final class GssAcceptCred extends GssCredElement {
         // Otherwise get it from the keytab
         KerberosPrincipal princ = new KerberosPrincipal(name.getPrincipalName().getName(),
                                                         name.getPrincipalName().getNameType().getValue());
-        KerberosKey[] keys = keyTab.getKeys(princ);
-        return GssUtil.getEncryptionKey(keys, encryptType, kvno);
+        return keyTabIndex.getKey(keyTab, princ, encryptType, kvno);
+    }
+
+    /**
+     * Get the cache of decrypted service tickets shared by the acceptors.
+     * @return The ticket cache, null if tickets aren't cached
+     */
+    TicketCache getTicketCache() {
+        return TICKET_CACHE;
+    }
+
+    private static TicketCache newTicketCache() {
+        String size = GssUtil.getSystemProperty(TICKET_CACHE_SIZE);
+        if (size == null) {
+            return null;
+        }
+        try {
+            int capacity = Integer.parseInt(size.trim());
+            return capacity > 0 ? new TicketCache(capacity) : null;
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid " + TICKET_CACHE_SIZE + ": " + size + ", tickets won't be cached");
+            return null;
+        }
     }
 }
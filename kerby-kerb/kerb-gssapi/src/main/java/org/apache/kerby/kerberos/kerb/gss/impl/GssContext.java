@@ -49,8 +49,10 @@ import javax.security.auth.kerberos.KerberosTicket;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.security.Provider;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("PMD")
 public class GssContext implements GSSContextSpi {
@@ -106,9 +108,6 @@ public class GssContext implements GSSContextSpi {
         this.myCred = myCred;
         this.lifeTime = lifeTime;
         this.initiator = true;
-
-        mySequenceNumberLock = new Object();
-        peerSequenceNumberLock = new Object();
     }
 
     public GssContext(GSSCaller caller, GssAcceptCred myCred)
@@ -116,9 +115,6 @@ public class GssContext implements GSSContextSpi {
         this.caller = caller;
         this.myCred = myCred;
         this.initiator = false;
-
-        mySequenceNumberLock = new Object();
-        peerSequenceNumberLock = new Object();
     }
 
     public GssContext(GSSCaller caller, byte[] interProcessToken)
@@ -278,9 +274,11 @@ public class GssContext implements GSSContextSpi {
             sgtTicket = GssUtil.getSgtCredentialFromContext(caller, clientPrincipal.getName(), serviceName);
 
             if (sgtTicket == null) {
-                sgtTicket = GssUtil.applySgtCredential(((GssInitCred) myCred).getKerberosTicket(),
-                                                       ((GssInitCred) myCred).getKrbToken(),
-                                                       serviceName);
+                GssInitCred initCred = (GssInitCred) myCred;
+                sgtTicket = GssUtil.applySgtCredential(initCred.getKerberosTicket(),
+                                                       initCred.getKrbToken(),
+                                                       serviceName,
+                                                       initCred.getCredentialCache());
 
                 // add this service credential to context
                 final KerberosTicket ticket =
@@ -443,9 +441,20 @@ public class GssContext implements GSSContextSpi {
         }
         peerName = (GssNameElement) acceptCred.getName();
 
+        TicketCache ticketCache = acceptCred.getTicketCache();
+        byte[] ticketCipher = apReq.getTicket().getEncryptedEncPart().getCipher();
+        EncTicketPart cachedEncPart = ticketCache != null ? ticketCache.get(ticketCipher, serverKey) : null;
+        InetAddress initiator = channelBinding == null ? null : channelBinding.getInitiatorAddress();
         try {
-            ApRequest.validate(serverKey, apReq,
-                    channelBinding == null ? null : channelBinding.getInitiatorAddress(), 5 * 60 * 1000);
+            if (cachedEncPart != null) {
+                apReq.getTicket().setEncPart(cachedEncPart);
+                ApRequest.validate(apReq, initiator, 5 * 60 * 1000);
+            } else {
+                ApRequest.validate(serverKey, apReq, initiator, 5 * 60 * 1000);
+                if (ticketCache != null) {
+                    ticketCache.put(ticketCipher, serverKey, apReq.getTicket().getEncPart());
+                }
+            }
         } catch (KrbException e) {
             throw new GSSException(GSSException.UNAUTHORIZED, -1, "ApReq verification failed: " + e.getMessage());
         }
@@ -572,6 +581,52 @@ public class GssContext implements GSSContextSpi {
         return ret;
     }
 
+    /**
+     * Wrap the remaining bytes of the message into a new token. The message is
+     * copied once, straight into the token, and sealed there.
+     * @param message The message, consumed
+     * @param msgProp The message properties
+     * @return The token
+     * @throws GSSException e
+     */
+    public ByteBuffer wrap(ByteBuffer message, MessageProp msgProp) throws GSSException {
+        if (ctxState != STATE_ESTABLISHED) {
+            throw new GSSException(GSSException.NO_CONTEXT, -1, "Context invalid for wrap");
+        }
+
+        if (gssEncryptor.isV2()) {
+            WrapTokenV2 token = new WrapTokenV2(this, message, msgProp);
+            return ByteBuffer.wrap(token.wrap());
+        }
+        byte[] inBuf = new byte[message.remaining()];
+        message.get(inBuf);
+        return ByteBuffer.wrap(wrap(inBuf, 0, inBuf.length, msgProp));
+    }
+
+    /**
+     * Unwrap the token in the remaining bytes of the buffer. For RFC 4121 tokens
+     * in an array backed, writable buffer, the token is decrypted and verified
+     * in place, so the buffer content is overwritten, and the returned buffer is
+     * a view of the message within it.
+     * @param token The token, consumed
+     * @param msgProp The message properties
+     * @return The message
+     * @throws GSSException e
+     */
+    public ByteBuffer unwrap(ByteBuffer token, MessageProp msgProp) throws GSSException {
+        if (ctxState != STATE_ESTABLISHED) {
+            throw new GSSException(GSSException.NO_CONTEXT, -1, "Context invalid for unwrap");
+        }
+
+        if (gssEncryptor.isV2()) {
+            WrapTokenV2 wrapToken = new WrapTokenV2(this, msgProp, token);
+            return wrapToken.unwrapInPlace();
+        }
+        byte[] inBuf = new byte[token.remaining()];
+        token.get(inBuf);
+        return ByteBuffer.wrap(unwrap(inBuf, 0, inBuf.length, msgProp));
+    }
+
     public void getMIC(InputStream is, OutputStream os,
                        MessageProp msgProp) throws GSSException {
         if (ctxState != STATE_ESTABLISHED) {
@@ -735,33 +790,23 @@ public class GssContext implements GSSContextSpi {
     }
 
 
-    private int mySequenceNumber;
-    private int peerSequenceNumber;
-    private Object mySequenceNumberLock;
-    private Object peerSequenceNumberLock;
+    private final AtomicInteger mySequenceNumber = new AtomicInteger();
+    private final AtomicInteger peerSequenceNumber = new AtomicInteger();
 
     public void setMySequenceNumber(int sequenceNumber) {
-        synchronized (mySequenceNumberLock) {
-            mySequenceNumber = sequenceNumber;
-        }
+        mySequenceNumber.set(sequenceNumber);
     }
 
     public int incMySequenceNumber() {
-        synchronized (mySequenceNumberLock) {
-            return mySequenceNumber++;
-        }
+        return mySequenceNumber.getAndIncrement();
     }
 
     public void setPeerSequenceNumber(int sequenceNumber) {
-        synchronized (peerSequenceNumberLock) {
-            peerSequenceNumber = sequenceNumber;
-        }
+        peerSequenceNumber.set(sequenceNumber);
     }
 
     public int incPeerSequenceNumber() {
-        synchronized (peerSequenceNumberLock) {
-            return peerSequenceNumber++;
-        }
+        return peerSequenceNumber.getAndIncrement();
     }
 
     public GssEncryptor getGssEncryptor() {
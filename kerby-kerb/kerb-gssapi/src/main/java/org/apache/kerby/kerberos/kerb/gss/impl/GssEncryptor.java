@@ -26,16 +26,26 @@ import org.apache.kerby.kerberos.kerb.crypto.CheckSumTypeHandler;
 import org.apache.kerby.kerberos.kerb.crypto.EncTypeHandler;
 import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
 import org.apache.kerby.kerberos.kerb.crypto.cksum.provider.Md5Provider;
+import org.apache.kerby.kerberos.kerb.crypto.enc.provider.AesProvider;
 import org.apache.kerby.kerberos.kerb.crypto.enc.provider.DesProvider;
 import org.apache.kerby.kerberos.kerb.crypto.enc.provider.Rc4Provider;
+import org.apache.kerby.kerberos.kerb.crypto.key.AesKeyMaker;
+import org.apache.kerby.kerberos.kerb.crypto.key.DkKeyMaker;
+import org.apache.kerby.kerberos.kerb.crypto.util.BytesUtil;
+import org.apache.kerby.kerberos.kerb.crypto.util.Confounder;
 import org.apache.kerby.kerberos.kerb.type.base.CheckSumType;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 import org.ietf.jgss.GSSException;
 
+import javax.crypto.Cipher;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class implements encryption related function used in GSS tokens
@@ -46,7 +56,6 @@ public class GssEncryptor {
     private final EncryptionType encKeyType; // The following two variables used for convenience
     private final byte[] encKeyBytes;
 
-    private CheckSumType checkSumTypeDef;
     private int checkSumSize;
 
     private boolean isV2 = false;
@@ -56,6 +65,32 @@ public class GssEncryptor {
 
     private static final byte[] IV_ZEROR_8B = new byte[8];
 
+    // RFC 3961 key derivation constants for Ke, Ki and Kc
+    private static final byte DERIVE_KE = (byte) 0xAA;
+    private static final byte DERIVE_KI = (byte) 0x55;
+    private static final byte DERIVE_KC = (byte) 0x99;
+    private static final IvParameterSpec IV_ZERO_16B = new IvParameterSpec(new byte[16]);
+
+    private static final ThreadLocal<Cipher> AES_CTS = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/CTS/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JCE provider may not be installed. " + e.getMessage(), e);
+        }
+    });
+    private static final ThreadLocal<Mac> HMAC_SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA1");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JCE provider may not be installed. " + e.getMessage(), e);
+        }
+    });
+
+    // The keys derived from the session key for the RFC 4121 tokens, per key
+    // usage and derivation constant, so they are derived once per context
+    private final ConcurrentMap<Integer, SecretKeySpec> derivedKeys = new ConcurrentHashMap<>();
+    private DkKeyMaker keyMaker;
+
     public GssEncryptor(EncryptionKey key) throws GSSException {
         encKey = key;
         encKeyBytes = encKey.getKeyData();
@@ -63,12 +98,12 @@ public class GssEncryptor {
 
         if (encKeyType == EncryptionType.AES128_CTS_HMAC_SHA1_96) {
             checkSumSize = 12;
-            checkSumTypeDef = CheckSumType.HMAC_SHA1_96_AES128;
             isV2 = true;
+            keyMaker = newAesKeyMaker(encKeyType);
         } else if (encKeyType == EncryptionType.AES256_CTS_HMAC_SHA1_96) {
             checkSumSize = 12;
-            checkSumTypeDef = CheckSumType.HMAC_SHA1_96_AES256;
             isV2 = true;
+            keyMaker = newAesKeyMaker(encKeyType);
         } else if (encKeyType == EncryptionType.DES_CBC_CRC || encKeyType == EncryptionType.DES_CBC_MD5) {
             sgnAlg = GssTokenV1.SGN_ALG_DES_MAC_MD5;
             sealAlg = GssTokenV1.SEAL_ALG_DES;
@@ -108,17 +143,113 @@ public class GssEncryptor {
         return isArcFourHmac;
     }
 
+    private static DkKeyMaker newAesKeyMaker(EncryptionType encType) throws GSSException {
+        try {
+            return new AesKeyMaker((AesProvider) EncryptionHandler.getEncHandler(encType).encProvider());
+        } catch (KrbException e) {
+            throw new GSSException(GSSException.FAILURE, -1, e.getMessage());
+        }
+    }
+
     public byte[] encryptData(byte[] tokenHeader, byte[] data,
                               int offset, int len, int keyUsage) throws GSSException {
-        byte[] ret;
-        byte[] toProcess = new byte[tokenHeader.length + len];
-        System.arraycopy(data, offset, toProcess, 0, len);
-        System.arraycopy(tokenHeader, 0, toProcess, len, tokenHeader.length);
-
-        ret = encryptData(toProcess, keyUsage);
+        int plainLen = GssTokenV2.CONFOUNDER_SIZE + len + tokenHeader.length;
+        byte[] ret = new byte[plainLen + checkSumSize];
+        System.arraycopy(data, offset, ret, GssTokenV2.CONFOUNDER_SIZE, len);
+        System.arraycopy(tokenHeader, 0, ret, GssTokenV2.CONFOUNDER_SIZE + len, tokenHeader.length);
+        encryptData(ret, 0, plainLen, keyUsage);
         return ret;
     }
 
+    /**
+     * Encrypt in place the plain text in buf[offset, offset + len), of which the
+     * first CONFOUNDER_SIZE bytes are filled with the confounder, and put the
+     * checksum right after it, as the RFC 3961 simplified profile does for
+     * the AES encryption types. The keys are derived once per context.
+     * @param buf The buffer, with room for the checksum after the plain text
+     * @param offset The offset of the plain text, confounder included
+     * @param len The length of the plain text, confounder included
+     * @param keyUsage The key usage
+     * @throws GSSException e
+     */
+    public void encryptData(byte[] buf, int offset, int len, int keyUsage) throws GSSException {
+        byte[] confounder = Confounder.makeBytes(GssTokenV2.CONFOUNDER_SIZE);
+        System.arraycopy(confounder, 0, buf, offset, confounder.length);
+        try {
+            Mac mac = HMAC_SHA1.get();
+            mac.init(getDerivedKey(keyUsage, DERIVE_KI));
+            mac.update(buf, offset, len);
+            byte[] hmac = mac.doFinal();
+
+            Cipher cipher = AES_CTS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, getDerivedKey(keyUsage, DERIVE_KE), IV_ZERO_16B);
+            cipher.doFinal(buf, offset, len, buf, offset);
+            System.arraycopy(hmac, 0, buf, offset + len, checkSumSize);
+        } catch (GeneralSecurityException e) {
+            throw new GSSException(GSSException.FAILURE, -1, e.getMessage());
+        }
+    }
+
+    /**
+     * Decrypt in place the cipher text in buf[offset, offset + len), which ends
+     * with the checksum, and verify the checksum. The plain text, confounder
+     * included, is left in buf[offset, offset + len - getCheckSumSize()).
+     * @param buf The buffer
+     * @param offset The offset of the cipher text
+     * @param len The length of the cipher text, checksum included
+     * @param keyUsage The key usage
+     * @throws GSSException e
+     */
+    public void decryptData(byte[] buf, int offset, int len, int keyUsage) throws GSSException {
+        int plainLen = len - checkSumSize;
+        if (plainLen < GssTokenV2.CONFOUNDER_SIZE) {
+            throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid token length");
+        }
+        byte[] hmac;
+        try {
+            Cipher cipher = AES_CTS.get();
+            cipher.init(Cipher.DECRYPT_MODE, getDerivedKey(keyUsage, DERIVE_KE), IV_ZERO_16B);
+            cipher.doFinal(buf, offset, plainLen, buf, offset);
+
+            Mac mac = HMAC_SHA1.get();
+            mac.init(getDerivedKey(keyUsage, DERIVE_KI));
+            mac.update(buf, offset, plainLen);
+            hmac = mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new GSSException(GSSException.FAILURE, -1, e.getMessage());
+        }
+
+        int diff = 0;
+        for (int i = 0; i < checkSumSize; i++) {
+            diff |= hmac[i] ^ buf[offset + plainLen + i];
+        }
+        if (diff != 0) {
+            throw new GSSException(GSSException.BAD_MIC, -1, "Corrupt token checksum");
+        }
+    }
+
+    private SecretKeySpec getDerivedKey(int keyUsage, byte constant) throws GSSException {
+        if (keyMaker == null) {
+            throw new GSSException(GSSException.FAILURE, -1,
+                    "No derived keys for encryption type: " + encKeyType.getDisplayName());
+        }
+        Integer id = keyUsage << 8 | constant & 0xFF;
+        SecretKeySpec key = derivedKeys.get(id);
+        if (key == null) {
+            byte[] constantBytes = new byte[5];
+            BytesUtil.int2bytes(keyUsage, constantBytes, 0, true);
+            constantBytes[4] = constant;
+            try {
+                String algorithm = constant == DERIVE_KE ? "AES" : "HmacSHA1";
+                key = new SecretKeySpec(keyMaker.dk(encKeyBytes, constantBytes), algorithm);
+            } catch (KrbException e) {
+                throw new GSSException(GSSException.FAILURE, -1, e.getMessage());
+            }
+            derivedKeys.putIfAbsent(id, key);
+        }
+        return key;
+    }
+
     public byte[] encryptData(byte[] toProcess, int keyUsage) throws GSSException {
         byte[] ret;
         try {
@@ -143,17 +274,17 @@ public class GssEncryptor {
 
     public byte[] calculateCheckSum(byte[] header, byte[] data, int offset, int len, int keyUsage)
             throws GSSException {
-        int totalLen = len + (header == null ? 0 : header.length);
-        byte[] buffer = new byte[totalLen];
-        System.arraycopy(data, offset, buffer, 0, len);
-        if (header != null) {
-            System.arraycopy(header, 0, buffer, len, header.length);
-        }
-
         try {
-            return CheckSumHandler.getCheckSumHandler(checkSumTypeDef)
-                    .checksumWithKey(buffer, encKey.getKeyData(), keyUsage);
-        } catch (KrbException e) {
+            Mac mac = HMAC_SHA1.get();
+            mac.init(getDerivedKey(keyUsage, DERIVE_KC));
+            mac.update(data, offset, len);
+            if (header != null) {
+                mac.update(header);
+            }
+            byte[] ret = new byte[checkSumSize];
+            System.arraycopy(mac.doFinal(), 0, ret, 0, checkSumSize);
+            return ret;
+        } catch (GeneralSecurityException e) {
             throw new GSSException(GSSException.FAILURE, -1,
                     "Exception in checksum calculation:" + e.getMessage());
         }
@@ -19,6 +19,7 @@
  */
 package org.apache.kerby.kerberos.kerb.gss.impl;
 
+import org.apache.kerby.kerberos.kerb.ccache.MemoryCredentialCache;
 import org.apache.kerby.kerberos.kerb.type.base.KrbToken;
 import org.ietf.jgss.GSSException;
 import org.ietf.jgss.GSSName;
@@ -31,6 +32,14 @@ import javax.security.auth.kerberos.KerberosTicket;
 
 public final class GssInitCred extends GssCredElement {
 
+    /**
+     * The system property naming the memory credential cache, MEMORY:name,
+     * that initiators keep their service tickets in besides the Subject,
+     * so they're reused by the contexts created without one. Not set to
+     * not use a memory credential cache.
+     */
+    public static final String CREDENTIAL_CACHE = "kerby.gss.initiator.ccache";
+
     private KerberosTicket ticket;
     private KrbToken krbToken;
 
@@ -71,4 +80,16 @@ public final class GssInitCred extends GssCredElement {
     public KrbToken getKrbToken() {
         return krbToken;
     }
+
+    /**
+     * Get the memory credential cache to keep the service tickets in.
+     * @return The memory credential cache, null if not configured
+     */
+    public MemoryCredentialCache getCredentialCache() {
+        String ccacheName = GssUtil.getSystemProperty(CREDENTIAL_CACHE);
+        if (ccacheName == null || ccacheName.isEmpty()) {
+            return null;
+        }
+        return MemoryCredentialCache.getInstance(ccacheName);
+    }
 }
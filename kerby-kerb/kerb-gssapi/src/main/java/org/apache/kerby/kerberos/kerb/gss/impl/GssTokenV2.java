@@ -23,11 +23,12 @@ import org.ietf.jgss.GSSException;
 import org.ietf.jgss.MessageProp;
 import org.apache.kerby.kerberos.kerb.crypto.util.BytesUtil;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.util.Arrays;
 
 /**
  * This class implements the token formats defined in RFC 4121.
@@ -48,6 +49,9 @@ abstract class GssTokenV2 extends GssTokenBase {
     protected int tokenType;
     private byte[] header = new byte[TOKEN_HEADER_SIZE];
     protected byte[] tokenData;
+    // Where the body of a reconstructed token is in tokenData
+    protected int tokenOffset;
+    protected int tokenLength;
 
     protected byte[] checkSum;
     private int ec;
@@ -94,19 +98,32 @@ abstract class GssTokenV2 extends GssTokenBase {
     // Reconstruct token from bytes received
     GssTokenV2(int tokenType, GssContext context,
                MessageProp prop, byte[] token, int offset, int len) throws GSSException {
-        this(tokenType, context, prop, new ByteArrayInputStream(token, offset, len));
+        // A wrap token is rotated and decrypted in place, so work on a copy of it
+        this(tokenType, context, prop, tokenType == TOKEN_WRAP_V2
+                ? ByteBuffer.wrap(Arrays.copyOfRange(token, offset, offset + len))
+                : ByteBuffer.wrap(token, offset, len));
     }
 
     // Reconstruct token from input stream
     GssTokenV2(int tokenType, GssContext context,
                MessageProp prop, InputStream is) throws GSSException {
+        this(tokenType, context, prop, readToken(is));
+    }
+
+    // Reconstruct token from the bytes in a buffer, the token body is kept in place
+    GssTokenV2(int tokenType, GssContext context,
+               MessageProp prop, ByteBuffer token) throws GSSException {
         initialize(tokenType, context, true);
 
         if (!confState) {
             prop.setPrivacy(false);
         }
 
-        reconstructTokenHeader(prop, is);
+        if (token.remaining() < TOKEN_HEADER_SIZE) {
+            throw new GSSException(GSSException.FAILURE, -1, "Token header can not be read");
+        }
+        token.get(header);
+        reconstructTokenHeader(prop);
 
         int minSize;
         if (tokenType == TOKEN_WRAP_V2 && prop.getPrivacy()) {
@@ -115,53 +132,75 @@ abstract class GssTokenV2 extends GssTokenBase {
             minSize = encryptor.getCheckSumSize();
         }
 
-        try {
-            int tokenLen = is.available();
-
-            if (tokenType == TOKEN_MIC_V2) {
-                tokenLen = minSize;
-                tokenData = new byte[tokenLen];
-                is.read(tokenData);
-            } else {
-                if (tokenLen >= minSize) {
-                    tokenData = new byte[tokenLen];
-                    is.read(tokenData);
-                } else {
-                    throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid token length");
-                }
-            }
+        int tokenLen = token.remaining();
+        if (tokenLen < minSize) {
+            throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid token length");
+        }
+        if (tokenType == TOKEN_MIC_V2) {
+            tokenLen = minSize;
+        }
+
+        if (token.hasArray() && !token.isReadOnly()) {
+            tokenData = token.array();
+            tokenOffset = token.arrayOffset() + token.position();
+        } else {
+            tokenData = new byte[tokenLen];
+            token.duplicate().get(tokenData);
+            tokenOffset = 0;
+        }
+        tokenLength = tokenLen;
+        token.position(token.position() + tokenLen);
+
+        if (tokenType == TOKEN_WRAP_V2) {
+            rotate();
+        }
 
-            if (tokenType == TOKEN_WRAP_V2) {
-                tokenData = rotate(tokenData);
+        if (tokenType == TOKEN_MIC_V2
+                || tokenType == TOKEN_WRAP_V2 && !prop.getPrivacy()) {
+            int checksumLen = encryptor.getCheckSumSize();
+
+            if (tokenType != TOKEN_MIC_V2 && checksumLen != ec) {
+                throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid EC");
             }
 
-            if (tokenType == TOKEN_MIC_V2
-                    || tokenType == TOKEN_WRAP_V2 && !prop.getPrivacy()) {
-                int checksumLen = encryptor.getCheckSumSize();
+            checkSum = new byte[checksumLen];
+            System.arraycopy(tokenData, tokenOffset + tokenLen - checksumLen, checkSum, 0, checksumLen);
+        }
+    }
 
-                if (tokenType != TOKEN_MIC_V2 && checksumLen != ec) {
-                    throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid EC");
+    private static ByteBuffer readToken(InputStream is) throws GSSException {
+        try {
+            byte[] token = new byte[is.available()];
+            int readLen = 0;
+            while (readLen < token.length) {
+                int n = is.read(token, readLen, token.length - readLen);
+                if (n < 0) {
+                    break;
                 }
-
-                checkSum = new byte[checksumLen];
-                System.arraycopy(tokenData, tokenLen - checksumLen, checkSum, 0, checksumLen);
+                readLen += n;
             }
+            return ByteBuffer.wrap(token, 0, readLen);
         } catch (IOException e) {
             throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid token");
         }
     }
 
-    private byte[] rotate(byte[] data) {
-        int dataLen = data.length;
-        if (rrc % dataLen != 0) {
-            rrc = rrc % dataLen;
-            byte[] newBytes = new byte[dataLen];
+    // Undo the right rotation by RRC bytes of the token body, in place
+    private void rotate() {
+        if (rrc % tokenLength != 0) {
+            rrc = rrc % tokenLength;
+            reverse(tokenOffset, tokenOffset + rrc);
+            reverse(tokenOffset + rrc, tokenOffset + tokenLength);
+            reverse(tokenOffset, tokenOffset + tokenLength);
+        }
+    }
 
-            System.arraycopy(data, rrc, newBytes, 0, dataLen - rrc);
-            System.arraycopy(data, 0, newBytes, dataLen - rrc, rrc);
-            data = newBytes;
+    private void reverse(int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            byte tmp = tokenData[i];
+            tokenData[i] = tokenData[j];
+            tokenData[j] = tmp;
         }
-        return data;
     }
 
     public int getKeyUsage() {
@@ -226,49 +265,42 @@ abstract class GssTokenV2 extends GssTokenBase {
     }
 
     // Reconstruct a token header
-    private void reconstructTokenHeader(MessageProp prop, InputStream is) throws GSSException {
-        try {
-            if (is.read(header, 0, header.length) != header.length) {
-                throw new GSSException(GSSException.FAILURE, -1, "Token header can not be read");
-            }
-            int tokenIDRecv = (((int) header[0]) << 8) + header[1];
-            if (tokenIDRecv != tokenType) {
-                throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1,
-                        "Token ID should be " + tokenType + " instead of " + tokenIDRecv);
-            }
+    private void reconstructTokenHeader(MessageProp prop) throws GSSException {
+        int tokenIDRecv = (((int) header[0]) << 8) + header[1];
+        if (tokenIDRecv != tokenType) {
+            throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1,
+                    "Token ID should be " + tokenType + " instead of " + tokenIDRecv);
+        }
 
-            int senderFlag = isInitiator ? FLAG_SENT_BY_ACCEPTOR : 0;
-            int senderFlagRecv = header[2] & FLAG_SENT_BY_ACCEPTOR;
-            if (senderFlagRecv != senderFlag) {
-                throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid acceptor flag");
-            }
+        int senderFlag = isInitiator ? FLAG_SENT_BY_ACCEPTOR : 0;
+        int senderFlagRecv = header[2] & FLAG_SENT_BY_ACCEPTOR;
+        if (senderFlagRecv != senderFlag) {
+            throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid acceptor flag");
+        }
 
-            int confFlagRecv = header[2] & FLAG_SEALED;
-            if (confFlagRecv == FLAG_SEALED && tokenType == TOKEN_WRAP_V2) {
-                prop.setPrivacy(true);
-            } else {
-                prop.setPrivacy(false);
-            }
+        int confFlagRecv = header[2] & FLAG_SEALED;
+        if (confFlagRecv == FLAG_SEALED && tokenType == TOKEN_WRAP_V2) {
+            prop.setPrivacy(true);
+        } else {
+            prop.setPrivacy(false);
+        }
 
-            if (tokenType == TOKEN_WRAP_V2) {
-                if (header[3] != (byte) 0xFF) {
+        if (tokenType == TOKEN_WRAP_V2) {
+            if (header[3] != (byte) 0xFF) {
+                throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid token filler");
+            }
+            ec = BytesUtil.bytes2short(header, OFFSET_EC, true);
+            rrc = BytesUtil.bytes2short(header, OFFSET_RRC, true);
+        } else if (tokenType == TOKEN_MIC_V2) {
+            for (int i = 3; i < 8; i++) {
+                if ((header[i] & 0xFF) != 0xFF) {
                     throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid token filler");
                 }
-                ec = BytesUtil.bytes2short(header, OFFSET_EC, true);
-                rrc = BytesUtil.bytes2short(header, OFFSET_RRC, true);
-            } else if (tokenType == TOKEN_MIC_V2) {
-                for (int i = 3; i < 8; i++) {
-                    if ((header[i] & 0xFF) != 0xFF) {
-                        throw new GSSException(GSSException.DEFECTIVE_TOKEN, -1, "Invalid token filler");
-                    }
-                }
             }
-
-            prop.setQOP(0);
-            sequenceNumber = (int) BytesUtil.bytes2long(header, 0, true);
-        } catch (IOException e) {
-            throw new GSSException(GSSException.FAILURE, -1, "Phrase token header failed");
         }
+
+        prop.setQOP(0);
+        sequenceNumber = (int) BytesUtil.bytes2long(header, 0, true);
     }
 
     public int encodeHeader(byte[] buf, int offset) {
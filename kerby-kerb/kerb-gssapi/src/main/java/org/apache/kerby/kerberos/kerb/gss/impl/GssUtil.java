@@ -20,6 +20,8 @@
 package org.apache.kerby.kerberos.kerb.gss.impl;
 
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.ccache.Credential;
+import org.apache.kerby.kerberos.kerb.ccache.MemoryCredentialCache;
 import org.apache.kerby.kerberos.kerb.client.KrbClientBase;
 import org.apache.kerby.kerberos.kerb.client.KrbTokenClient;
 import org.apache.kerby.kerberos.kerb.type.KerberosTime;
@@ -233,6 +235,39 @@ public class GssUtil {
         return applySgtCredential(tgt, krbToken, service);
     }
 
+    /**
+     *  Apply SgtTicket from the memory credential cache, or by sending
+     *  TGS_REQ to KDC and adding the ticket to the cache
+     * @param ticket
+     * @param krbToken
+     * @param service
+     * @param ccache The memory credential cache, null if none
+     * @return
+     */
+    public static SgtTicket applySgtCredential(KerberosTicket ticket, KrbToken krbToken, String service,
+                                               MemoryCredentialCache ccache) throws GSSException {
+        if (ccache == null) {
+            return applySgtCredential(ticket, krbToken, service);
+        }
+
+        TgtTicket tgt = getTgtTicketFromKerberosTicket(ticket);
+        KrbClientBase client = getKrbClient();
+        PrincipalName server = new PrincipalName(service);
+        if (server.getRealm() == null) {
+            server.setRealm(tgt.getRealm());
+        }
+        Credential credential = ccache.getCredential(tgt.getClientPrincipal(), server);
+        if (credential != null) {
+            return client.getSgtTicketFromCredential(credential);
+        }
+
+        SgtTicket sgt = krbToken == null ? applySgtCredential(tgt, service)
+            : applySgtCredential(tgt, krbToken, service);
+        sgt.setClientPrincipal(tgt.getClientPrincipal());
+        client.storeTicket(sgt, ccache);
+        return sgt;
+    }
+
     public static SgtTicket applySgtCredential(TgtTicket tgt, String server) throws GSSException {
         KrbClientBase client = getKrbClient();
 
@@ -402,7 +437,7 @@ public class GssUtil {
      * @param name
      * @return
      */
-    private static String getSystemProperty(String name) {
+    static String getSystemProperty(String name) {
         if (name == null) {
             return null;
         }
@@ -0,0 +1,100 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.gss.impl;
+
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+
+import javax.security.auth.kerberos.KerberosKey;
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KeyTab;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An in-memory index of the keys of an acceptor keytab, by principal, kvno
+ * and encryption type. Reading keys from a KeyTab reads the keytab file
+ * every time, so the keys of a principal are kept here and read again from
+ * the keytab at most once every CHECK_INTERVAL, which picks up a changed
+ * keytab file. The acceptor credentials made for each context share the
+ * index of their keytab. The indexes are weakly keyed by keytab and don't
+ * refer to it, so an index goes away with the keytabs it was made for.
+ */
+final class KeyTabIndex {
+    /**
+     * Min milliseconds between two reads of the keys of a principal.
+     */
+    private static final long CHECK_INTERVAL = 1000L;
+
+    private static final Map<KeyTab, KeyTabIndex> INDEXES =
+        Collections.synchronizedMap(new WeakHashMap<KeyTab, KeyTabIndex>());
+
+    private final ConcurrentMap<KerberosPrincipal, PrincipalKeys> principalKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Get the index of the keytab, shared by all its users.
+     * @param keyTab The keytab
+     * @return The index of the keytab
+     */
+    static KeyTabIndex of(KeyTab keyTab) {
+        return INDEXES.computeIfAbsent(keyTab, k -> new KeyTabIndex());
+    }
+
+    /**
+     * Get the key of the principal with the kvno and encryption type.
+     * @param keyTab The keytab of the index, to read the keys from
+     * @param princ The principal
+     * @param encType The encryption type
+     * @param kvno The key version number
+     * @return The key, null if not found
+     */
+    EncryptionKey getKey(KeyTab keyTab, KerberosPrincipal princ, int encType, int kvno) {
+        long now = System.currentTimeMillis();
+        PrincipalKeys keys = principalKeys.get(princ);
+        if (keys == null || now - keys.loadedAt >= CHECK_INTERVAL) {
+            PrincipalKeys stale = keys;
+            keys = principalKeys.compute(princ, (p, current) ->
+                current != null && current != stale ? current : new PrincipalKeys(keyTab.getKeys(p), now));
+        }
+        return keys.keys.get(keyId(encType, kvno));
+    }
+
+    private static long keyId(int encType, int kvno) {
+        return (long) kvno << 32 | encType & 0xFFFFFFFFL;
+    }
+
+    private static final class PrincipalKeys {
+        private final Map<Long, EncryptionKey> keys = new HashMap<>();
+        private final long loadedAt;
+
+        PrincipalKeys(KerberosKey[] krbKeys, long loadedAt) {
+            this.loadedAt = loadedAt;
+            for (KerberosKey krbKey : krbKeys) {
+                if (!krbKey.isDestroyed()) {
+                    keys.putIfAbsent(keyId(krbKey.getKeyType(), krbKey.getVersionNumber()),
+                        new EncryptionKey(krbKey.getKeyType(), krbKey.getEncoded()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.gss.impl;
+
+import org.apache.kerby.kerberos.kerb.type.KerberosTime;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.ticket.EncTicketPart;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of decrypted service tickets, keyed by the SHA-256 of the
+ * ticket cipher text. A client presents the same service ticket on each new
+ * connection until it expires, so the ticket is decrypted once and its enc
+ * part is kept until the ticket end time. An entry is only used with the
+ * server key the ticket was decrypted with. The least recently used entries
+ * are dropped when the cache is full.
+ *
+ * The authenticator of each AP-REQ is still up to the caller to decrypt and
+ * check against the cached ticket.
+ */
+final class TicketCache {
+    private final Map<ByteBuffer, CachedTicket> tickets;
+
+    /**
+     * @param capacity The max number of tickets kept
+     */
+    TicketCache(final int capacity) {
+        this.tickets = new LinkedHashMap<ByteBuffer, CachedTicket>(16, 0.75f, true) {
+            private static final long serialVersionUID = -3547810932958574264L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CachedTicket> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the decrypted enc part of the ticket, if it's cached, was decrypted
+     * with the server key and isn't expired yet.
+     * @param ticketCipher The cipher text of the ticket enc part
+     * @param serverKey The server key to decrypt the ticket with
+     * @return The ticket enc part, null if not cached
+     */
+    EncTicketPart get(byte[] ticketCipher, EncryptionKey serverKey) {
+        ByteBuffer key = digest(ticketCipher);
+        CachedTicket cached;
+        synchronized (tickets) {
+            cached = tickets.get(key);
+            if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+                tickets.remove(key);
+                return null;
+            }
+        }
+        if (cached == null || !MessageDigest.isEqual(cached.serverKeyData, serverKey.getKeyData())) {
+            return null;
+        }
+        return cached.encPart;
+    }
+
+    /**
+     * Cache the enc part of a ticket that has been decrypted and validated.
+     * @param ticketCipher The cipher text of the ticket enc part
+     * @param serverKey The server key the ticket was decrypted with
+     * @param encPart The decrypted ticket enc part
+     */
+    void put(byte[] ticketCipher, EncryptionKey serverKey, EncTicketPart encPart) {
+        KerberosTime endTime = encPart.getEndTime();
+        if (endTime == null) {
+            return;
+        }
+        CachedTicket cached = new CachedTicket(encPart, serverKey.getKeyData(), endTime.getTime());
+        if (cached.isExpired(System.currentTimeMillis())) {
+            return;
+        }
+        ByteBuffer key = digest(ticketCipher);
+        synchronized (tickets) {
+            tickets.put(key, cached);
+        }
+    }
+
+    int size() {
+        synchronized (tickets) {
+            return tickets.size();
+        }
+    }
+
+    private static ByteBuffer digest(byte[] ticketCipher) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(ticketCipher));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 isn't available", e);
+        }
+    }
+
+    private static final class CachedTicket {
+        private final EncTicketPart encPart;
+        private final byte[] serverKeyData;
+        private final long endTime;
+
+        CachedTicket(EncTicketPart encPart, byte[] serverKeyData, long endTime) {
+            this.encPart = encPart;
+            this.serverKeyData = serverKeyData;
+            this.endTime = endTime;
+        }
+
+        boolean isExpired(long now) {
+            return now >= endTime;
+        }
+    }
+}
@@ -25,10 +25,13 @@ import org.ietf.jgss.MessageProp;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 
 public class WrapTokenV2 extends GssTokenV2 {
     private MessageProp prop;
+    // The bytes of a token generated from user input data
+    private byte[] token;
 
     // Generate a token from user input data
     WrapTokenV2(GssContext context,
@@ -36,6 +39,12 @@ public class WrapTokenV2 extends GssTokenV2 {
               int dataOffset,
               int dataLength,
               MessageProp messageProp) throws GSSException {
+        this(context, ByteBuffer.wrap(data, dataOffset, dataLength), messageProp);
+    }
+
+    // Generate a token from the remaining user input data in the buffer,
+    // which is copied into the token bytes and sealed there
+    WrapTokenV2(GssContext context, ByteBuffer data, MessageProp messageProp) throws GSSException {
         super(TOKEN_WRAP_V2, context);
 
         prop = messageProp;
@@ -48,16 +57,26 @@ public class WrapTokenV2 extends GssTokenV2 {
             prop.setPrivacy(false);
         }
 
-        generateCheckSum(prop, data, dataOffset, dataLength);
-
+        int dataLength = data.remaining();
+        int ckSize = encryptor.getCheckSumSize();
         if (prop.getPrivacy()) {
-            byte[] toProcess = new byte[dataLength + TOKEN_HEADER_SIZE];
-            System.arraycopy(data, dataOffset, toProcess, 0, dataLength);
-            encodeHeader(toProcess, dataLength);
-
-            tokenData = encryptor.encryptData(toProcess, getKeyUsage());
+            // header | E(confounder | data | header) | checksum
+            int dataOffset = TOKEN_HEADER_SIZE + CONFOUNDER_SIZE;
+            token = new byte[dataOffset + dataLength + TOKEN_HEADER_SIZE + ckSize];
+            data.get(token, dataOffset, dataLength);
+            generateCheckSum(prop, token, dataOffset, dataLength);
+            encodeHeader(token, 0);
+            encodeHeader(token, dataOffset + dataLength);
+
+            encryptor.encryptData(token, TOKEN_HEADER_SIZE,
+                    CONFOUNDER_SIZE + dataLength + TOKEN_HEADER_SIZE, getKeyUsage());
         } else {
-            tokenData = data; // keep it for now
+            // header | data | checksum
+            token = new byte[TOKEN_HEADER_SIZE + dataLength + ckSize];
+            data.get(token, TOKEN_HEADER_SIZE, dataLength);
+            generateCheckSum(prop, token, TOKEN_HEADER_SIZE, dataLength);
+            encodeHeader(token, 0);
+            System.arraycopy(checkSum, 0, token, TOKEN_HEADER_SIZE + dataLength, checkSum.length);
         }
     }
 
@@ -66,25 +85,12 @@ public class WrapTokenV2 extends GssTokenV2 {
      * @return
      */
     public byte[] wrap() {
-        int dataSize = tokenData.length;
-        int ckSize = checkSum == null ? 0 : checkSum.length;
-        byte[] ret = new byte[TOKEN_HEADER_SIZE + dataSize + ckSize];
-        encodeHeader(ret, 0);
-        System.arraycopy(tokenData, 0, ret, TOKEN_HEADER_SIZE, dataSize);
-        if (ckSize > 0) {
-            System.arraycopy(checkSum, 0, ret, TOKEN_HEADER_SIZE + dataSize, ckSize);
-        }
-        return ret;
+        return token;
     }
 
     public void wrap(OutputStream os) throws GSSException {
         try {
-            encodeHeader(os);
-            os.write(tokenData);
-            int ckSize = checkSum == null ? 0 : checkSum.length;
-            if (ckSize > 0) {
-                os.write(checkSum);
-            }
+            os.write(token);
         } catch (IOException e) {
             throw new GSSException(GSSException.FAILURE, -1, "Output token error:" + e.getMessage());
         }
@@ -102,6 +108,12 @@ public class WrapTokenV2 extends GssTokenV2 {
         this.prop = prop;
     }
 
+    // Reconstruct a token from the remaining token bytes in the buffer, to be unwrapped in place
+    WrapTokenV2(GssContext context, MessageProp prop, ByteBuffer token) throws GSSException {
+        super(TOKEN_WRAP_V2, context, prop, token);
+        this.prop = prop;
+    }
+
     /**
      * Get plain text data from token bytes
      * @param outBuffer
@@ -110,27 +122,13 @@ public class WrapTokenV2 extends GssTokenV2 {
      * @throws GSSException
      */
     public byte[] unwrap(byte[] outBuffer, int offset) throws GSSException {
-        int lenToCopy;
-        if (prop.getPrivacy()) {
-            byte[] plainText = encryptor.decryptData(tokenData, getKeyUsage());
-            lenToCopy = plainText.length - TOKEN_HEADER_SIZE;
-            if (outBuffer == null) {
-                outBuffer = new byte[lenToCopy];
-                offset = 0;
-            }
-            System.arraycopy(plainText, 0, outBuffer, offset, lenToCopy);
-        } else {
-            lenToCopy = tokenData.length - encryptor.getCheckSumSize();
-            if (outBuffer == null) {
-                outBuffer = new byte[lenToCopy];
-                offset = 0;
-            }
-            System.arraycopy(tokenData, 0, outBuffer, offset, lenToCopy);
-
-            if (!verifyCheckSum(outBuffer, offset, lenToCopy)) {
-                throw new GSSException(GSSException.BAD_MIC, -1, "Corrupt token checksum");
-            }
+        ByteBuffer plainText = unwrapInPlace();
+        int lenToCopy = plainText.remaining();
+        if (outBuffer == null) {
+            outBuffer = new byte[lenToCopy];
+            offset = 0;
         }
+        plainText.get(outBuffer, offset, lenToCopy);
         return outBuffer;
     }
 
@@ -139,14 +137,35 @@ public class WrapTokenV2 extends GssTokenV2 {
     }
 
     public void unwrap(OutputStream os) throws GSSException {
-        byte[] data = unwrap();
+        ByteBuffer plainText = unwrapInPlace();
         try {
-            os.write(data);
+            os.write(plainText.array(), plainText.arrayOffset() + plainText.position(), plainText.remaining());
         } catch (IOException e) {
             throw new GSSException(GSSException.FAILURE, -1, "Output token error:" + e.getMessage());
         }
     }
 
+    /**
+     * Decrypt or verify the token body where it is, and get the plain text
+     * contained in the wrap token as a view of the token bytes.
+     * @return plain text contained in the wrap token
+     * @throws GSSException
+     */
+    ByteBuffer unwrapInPlace() throws GSSException {
+        int ckSize = encryptor.getCheckSumSize();
+        if (prop.getPrivacy()) {
+            encryptor.decryptData(tokenData, tokenOffset, tokenLength, getKeyUsage());
+            int dataLen = tokenLength - CONFOUNDER_SIZE - TOKEN_HEADER_SIZE - ckSize;
+            return ByteBuffer.wrap(tokenData, tokenOffset + CONFOUNDER_SIZE, dataLen).slice();
+        }
+
+        int dataLen = tokenLength - ckSize;
+        if (!verifyCheckSum(tokenData, tokenOffset, dataLen)) {
+            throw new GSSException(GSSException.BAD_MIC, -1, "Corrupt token checksum");
+        }
+        return ByteBuffer.wrap(tokenData, tokenOffset, dataLen).slice();
+    }
+
     public static int getMsgSizeLimit(int qop, boolean confReq, int maxTokSize, GssEncryptor encryptor)
             throws GSSException {
         if (confReq) {
@@ -0,0 +1,96 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.gss.impl;
+
+import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
+import org.apache.kerby.kerberos.kerb.keytab.Keytab;
+import org.apache.kerby.kerberos.kerb.keytab.KeytabEntry;
+import org.apache.kerby.kerberos.kerb.type.KerberosTime;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.security.auth.kerberos.KerberosPrincipal;
+import javax.security.auth.kerberos.KeyTab;
+import java.io.File;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyTabIndexTest {
+    private static final String PRINCIPAL = "service/localhost@EXAMPLE.COM";
+    private static final EncryptionType ENC_TYPE = EncryptionType.AES128_CTS_HMAC_SHA1_96;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testGetKey() throws Exception {
+        File keytabFile = tempFolder.newFile("service.keytab");
+        EncryptionKey key = writeKeytab(keytabFile, 1);
+        KeyTab keyTab = KeyTab.getUnboundInstance(keytabFile);
+        KerberosPrincipal princ = new KerberosPrincipal(PRINCIPAL);
+
+        KeyTabIndex index = KeyTabIndex.of(keyTab);
+        assertThat(KeyTabIndex.of(keyTab)).isSameAs(index);
+
+        EncryptionKey found = index.getKey(keyTab, princ, ENC_TYPE.getValue(), 1);
+        assertThat(found).isNotNull();
+        assertThat(found.getKeyData()).isEqualTo(key.getKeyData());
+
+        assertThat(index.getKey(keyTab, princ, ENC_TYPE.getValue(), 2)).isNull();
+        assertThat(index.getKey(keyTab, princ, EncryptionType.DES3_CBC_SHA1_KD.getValue(), 1)).isNull();
+        assertThat(index.getKey(keyTab, new KerberosPrincipal("other@EXAMPLE.COM"),
+            ENC_TYPE.getValue(), 1)).isNull();
+    }
+
+    @Test
+    public void testKeysReadAgainOnChange() throws Exception {
+        File keytabFile = tempFolder.newFile("service.keytab");
+        EncryptionKey firstKey = writeKeytab(keytabFile, 1);
+        KeyTab keyTab = KeyTab.getUnboundInstance(keytabFile);
+        KerberosPrincipal princ = new KerberosPrincipal(PRINCIPAL);
+        KeyTabIndex index = KeyTabIndex.of(keyTab);
+
+        assertThat(index.getKey(keyTab, princ, ENC_TYPE.getValue(), 1).getKeyData())
+            .isEqualTo(firstKey.getKeyData());
+
+        EncryptionKey secondKey = writeKeytab(keytabFile, 2);
+        // Still the keys read before, until the check interval is over
+        assertThat(index.getKey(keyTab, princ, ENC_TYPE.getValue(), 2)).isNull();
+
+        Thread.sleep(1100L);
+        assertThat(index.getKey(keyTab, princ, ENC_TYPE.getValue(), 2).getKeyData())
+            .isEqualTo(secondKey.getKeyData());
+        assertThat(index.getKey(keyTab, princ, ENC_TYPE.getValue(), 1)).isNull();
+    }
+
+    private static EncryptionKey writeKeytab(File keytabFile, int kvno) throws Exception {
+        EncryptionKey key = EncryptionHandler.random2Key(ENC_TYPE);
+        Keytab keytab = new Keytab();
+        keytab.addKeytabEntries(Collections.singletonList(
+            new KeytabEntry(new PrincipalName(PRINCIPAL), KerberosTime.now(), kvno, key)));
+        keytab.store(keytabFile);
+        return key;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.gss.impl;
+
+import org.apache.kerby.kerberos.kerb.crypto.EncryptionHandler;
+import org.apache.kerby.kerberos.kerb.type.KerberosTime;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.ticket.EncTicketPart;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TicketCacheTest {
+    private static final long HOUR = 3600 * 1000L;
+
+    @Test
+    public void testGet() throws Exception {
+        TicketCache cache = new TicketCache(10);
+        EncryptionKey serverKey = EncryptionHandler.random2Key(EncryptionType.AES128_CTS_HMAC_SHA1_96);
+        EncTicketPart encPart = newEncPart(System.currentTimeMillis() + HOUR);
+        byte[] cipher = {1, 2, 3, 4};
+
+        assertThat(cache.get(cipher, serverKey)).isNull();
+        cache.put(cipher, serverKey, encPart);
+        assertThat(cache.get(cipher.clone(), serverKey)).isSameAs(encPart);
+        assertThat(cache.get(new byte[] {1, 2, 3, 5}, serverKey)).isNull();
+
+        EncryptionKey otherKey = EncryptionHandler.random2Key(EncryptionType.AES128_CTS_HMAC_SHA1_96);
+        assertThat(cache.get(cipher, otherKey)).isNull();
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        TicketCache cache = new TicketCache(10);
+        EncryptionKey serverKey = EncryptionHandler.random2Key(EncryptionType.AES128_CTS_HMAC_SHA1_96);
+        byte[] cipher = {1, 2, 3, 4};
+
+        cache.put(cipher, serverKey, newEncPart(System.currentTimeMillis() - 1000L));
+        assertThat(cache.size()).isEqualTo(0);
+
+        cache.put(cipher, serverKey, newEncPart(System.currentTimeMillis() + 200L));
+        assertThat(cache.get(cipher, serverKey)).isNotNull();
+        Thread.sleep(300L);
+        assertThat(cache.get(cipher, serverKey)).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedDropped() throws Exception {
+        TicketCache cache = new TicketCache(2);
+        EncryptionKey serverKey = EncryptionHandler.random2Key(EncryptionType.AES128_CTS_HMAC_SHA1_96);
+        EncTicketPart encPart = newEncPart(System.currentTimeMillis() + HOUR);
+        byte[] first = {1};
+        byte[] second = {2};
+        byte[] third = {3};
+
+        cache.put(first, serverKey, encPart);
+        cache.put(second, serverKey, encPart);
+        assertThat(cache.get(first, serverKey)).isNotNull();
+        cache.put(third, serverKey, encPart);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(first, serverKey)).isNotNull();
+        assertThat(cache.get(second, serverKey)).isNull();
+        assertThat(cache.get(third, serverKey)).isNotNull();
+    }
+
+    private static EncTicketPart newEncPart(long endTime) {
+        EncTicketPart encPart = new EncTicketPart();
+        encPart.setEndTime(new KerberosTime(endTime));
+        return encPart;
+    }
+}
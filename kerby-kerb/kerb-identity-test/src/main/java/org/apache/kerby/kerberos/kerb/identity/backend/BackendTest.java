@@ -20,10 +20,13 @@
 package org.apache.kerby.kerberos.kerb.identity.backend;
 
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.IdentityPage;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -128,6 +131,71 @@ public abstract class BackendTest {
         }
     }
 
+    protected void testGetIdentitiesPaged(IdentityBackend backend) throws KrbException {
+        KrbIdentity[] identities = BackendTestUtil.createManyIdentities();
+
+        for (KrbIdentity identity : identities) {
+            backend.addIdentity(identity);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (KrbIdentity identity : identities) {
+            if (identity.getPrincipalName().startsWith("test1")) {
+                expected.add(identity.getPrincipalName());
+            }
+        }
+        Collections.sort(expected);
+
+        List<String> principalList = new ArrayList<>();
+        String continuationToken = null;
+        int pages = 0;
+        do {
+            IdentityPage page = backend.getIdentities("test1", continuationToken, 4);
+            assertThat(page.getPrincipals().size()).isLessThanOrEqualTo(4);
+            principalList.addAll(page.getPrincipals());
+            continuationToken = page.getContinuationToken();
+            pages++;
+        } while (continuationToken != null);
+
+        assertThat(principalList).isEqualTo(expected);
+        assertThat(pages).isEqualTo(3);
+
+        int total = 0;
+        Iterator<String> iterator = backend.getIdentities().iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            total++;
+        }
+        IdentityPage all = backend.getIdentities(null, null, total);
+        assertThat(all.getPrincipals()).hasSize(total);
+        assertThat(all.hasMore()).isFalse();
+
+        //tearDown
+        for (KrbIdentity identity : identities) {
+            backend.deleteIdentity(identity.getPrincipalName());
+        }
+    }
+
+    protected void testGetExistingIdentities(IdentityBackend backend) throws KrbException {
+        KrbIdentity[] identities = BackendTestUtil.createManyIdentities();
+
+        for (KrbIdentity identity : identities) {
+            backend.addIdentity(identity);
+        }
+
+        List<String> principals = new ArrayList<>();
+        principals.add(identities[0].getPrincipalName());
+        principals.add("missing@EXAMPLE.COM");
+        principals.add(identities[3].getPrincipalName());
+        assertThat(backend.getExistingIdentities(principals))
+                .containsOnly(identities[0].getPrincipalName(), identities[3].getPrincipalName());
+
+        //tearDown
+        for (KrbIdentity identity : identities) {
+            backend.deleteIdentity(identity.getPrincipalName());
+        }
+    }
+
     protected void cleanIdentities(IdentityBackend backend) throws KrbException {
         Iterable<String> identities = backend.getIdentities();
         Iterator<String> iterator = identities.iterator();
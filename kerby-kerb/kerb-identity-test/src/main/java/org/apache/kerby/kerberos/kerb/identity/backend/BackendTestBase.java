@@ -64,6 +64,16 @@ public abstract class BackendTestBase extends BackendTest {
         testGetIdentities(backend);
     }
 
+    @Test
+    public void testGetIdentitiesPaged() throws KrbException {
+        testGetIdentitiesPaged(backend);
+    }
+
+    @Test
+    public void testGetExistingIdentities() throws KrbException {
+        testGetExistingIdentities(backend);
+    }
+
     @AfterClass
     public static void tearDown() throws KrbException {
         if (backend != null) {
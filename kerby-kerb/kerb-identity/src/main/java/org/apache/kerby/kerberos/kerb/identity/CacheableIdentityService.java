@@ -22,20 +22,25 @@ package org.apache.kerby.kerberos.kerb.identity;
 import org.apache.kerby.config.Config;
 import org.apache.kerby.config.Configured;
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackendMetrics;
+import org.apache.kerby.kerberos.kerb.identity.backend.InstrumentedIdentityBackend;
 import org.apache.kerby.kerberos.kerb.request.KdcClientRequest;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.apache.kerby.kerberos.kerb.type.ad.AuthorizationData;
 import org.apache.kerby.kerberos.kerb.type.ticket.EncTicketPart;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A cacheable identity backend that provides a cache with FIFO and size limit.
  * Note only limited recently active identities are kept in the cache, and other
  * identities are meant to be loaded from the underlying backend like memory,
- * file, SQL DB, LDAP, and etc.
+ * file, SQL DB, LDAP, and etc. The cache hits and misses are recorded in the
+ * metrics of the underlying backend if it's an {@link InstrumentedIdentityBackend}.
  */
 public class CacheableIdentityService
         extends Configured implements IdentityService {
@@ -46,10 +51,14 @@ public class CacheableIdentityService
     private int cacheSize = DEFAULT_CACHE_SIZE;
 
     private IdentityService underlying;
+    private IdentityBackendMetrics metrics;
 
     public CacheableIdentityService(Config config, IdentityService underlying) {
         super(config);
         this.underlying = underlying;
+        if (underlying instanceof InstrumentedIdentityBackend) {
+            this.metrics = ((InstrumentedIdentityBackend) underlying).getMetrics();
+        }
 
         init();
     }
@@ -92,15 +101,31 @@ public class CacheableIdentityService
         return underlying.getIdentities();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityPage getIdentities(String prefix, String continuationToken,
+                                      int limit) throws KrbException {
+        return underlying.getIdentities(prefix, continuationToken, limit);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public KrbIdentity getIdentity(String principalName) throws KrbException {
-        if (idCache.containsKey(principalName)) {
-            return idCache.get(principalName);
+        KrbIdentity cached = idCache.get(principalName);
+        if (cached != null) {
+            if (metrics != null) {
+                metrics.recordCacheHit();
+            }
+            return cached;
         }
 
+        if (metrics != null) {
+            metrics.recordCacheMiss();
+        }
         KrbIdentity identity = underlying.getIdentity(principalName);
         if (identity != null) {
             idCache.put(principalName, identity);
@@ -109,6 +134,14 @@ public class CacheableIdentityService
         return identity;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getExistingIdentities(Collection<String> principalNames) throws KrbException {
+        return underlying.getExistingIdentities(principalNames);
+    }
+
     /**
      * {@inheritDoc}
      */
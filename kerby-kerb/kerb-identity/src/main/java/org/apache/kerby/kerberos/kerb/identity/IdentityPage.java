@@ -0,0 +1,113 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.identity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A page of identity principal names, ordered by principal name, with the
+ * token to pass back to get the next page.
+ */
+public class IdentityPage {
+    private final List<String> principals;
+    private final String continuationToken;
+
+    /**
+     * @param principals The principal names in this page
+     * @param continuationToken The token of the next page, null if this is the last one
+     */
+    public IdentityPage(List<String> principals, String continuationToken) {
+        this.principals = Collections.unmodifiableList(principals);
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Make the page out of the principal names got for one more than the
+     * limit, the extra one telling there is a next page.
+     * @param principals The principal names, up to limit + 1
+     * @param limit The max number of principal names in the page
+     * @return The page
+     */
+    public static IdentityPage of(List<String> principals, int limit) {
+        if (principals.size() <= limit) {
+            return new IdentityPage(principals, null);
+        }
+        List<String> page = new ArrayList<>(principals.subList(0, limit));
+        return new IdentityPage(page, page.get(limit - 1));
+    }
+
+    /**
+     * Select the first principal names after startAfter that start with the
+     * prefix, in principal name order, keeping no more than limit names in
+     * memory whatever the number of names scanned.
+     * @param principals The principal names to scan, in any order
+     * @param prefix The principal name prefix, null to select all
+     * @param startAfter Only principal names after it are selected, null to
+     *                   start from the first one
+     * @param limit The max number of principal names to select
+     * @return The selected principal names
+     */
+    public static List<String> select(Iterable<String> principals, String prefix,
+                                      String startAfter, int limit) {
+        TreeSet<String> page = new TreeSet<>();
+        for (String principal : principals) {
+            if (prefix != null && !principal.startsWith(prefix)) {
+                continue;
+            }
+            if (startAfter != null && principal.compareTo(startAfter) <= 0) {
+                continue;
+            }
+            if (page.size() < limit) {
+                page.add(principal);
+            } else if (principal.compareTo(page.last()) < 0) {
+                page.pollLast();
+                page.add(principal);
+            }
+        }
+        return new ArrayList<>(page);
+    }
+
+    /**
+     * Get the principal names in this page.
+     * @return principal names
+     */
+    public List<String> getPrincipals() {
+        return principals;
+    }
+
+    /**
+     * Get the token to get the next page with, null if this is the last page.
+     * @return The continuation token
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * Query to know if there are more principals after this page.
+     * @return true if there are more pages
+     */
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
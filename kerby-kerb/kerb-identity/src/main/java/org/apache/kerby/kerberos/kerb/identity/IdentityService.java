@@ -25,6 +25,10 @@ import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.apache.kerby.kerberos.kerb.type.ad.AuthorizationData;
 import org.apache.kerby.kerberos.kerb.type.ticket.EncTicketPart;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Identity service for KDC backend to create, get and manage principal accounts.
  */
@@ -51,6 +55,33 @@ public interface IdentityService {
      */
     Iterable<String> getIdentities() throws KrbException;
 
+    /**
+     * Get a page of the identity principal names that start with the given
+     * prefix, ordered by principal name. The next page is got by passing the
+     * continuation token of the current page, until there is no more. The
+     * token is opaque, only meaningful to the service that returned it.
+     *
+     * The default implementation scans all the identities and only keeps
+     * the page, services that can seek or filter natively should override it.
+     * @param prefix The principal name prefix, null or empty to get all
+     * @param continuationToken The token of the previous page, null for the first page
+     * @param limit The max number of principal names in the page
+     * @return identity page
+     * @throws KrbException e
+     */
+    default IdentityPage getIdentities(String prefix, String continuationToken,
+                                       int limit) throws KrbException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid page limit " + limit);
+        }
+        if (prefix != null && prefix.isEmpty()) {
+            prefix = null;
+        }
+        // Ask for one more to know if there is a next page
+        return IdentityPage.of(IdentityPage.select(getIdentities(), prefix,
+                continuationToken, limit + 1), limit);
+    }
+
     /**
      * Get the identity account specified by name.
      * @param principalName The principal name
@@ -59,6 +90,26 @@ public interface IdentityService {
      */
     KrbIdentity getIdentity(String principalName) throws KrbException;
 
+    /**
+     * Find out which of the given principals exist, with as few backend
+     * queries as the backend allows.
+     *
+     * The default implementation looks the principals up one by one,
+     * services that can query many principals at once should override it.
+     * @param principalNames The principal names
+     * @return The principal names that exist
+     * @throws KrbException e
+     */
+    default Set<String> getExistingIdentities(Collection<String> principalNames) throws KrbException {
+        Set<String> existing = new HashSet<>();
+        for (String principalName : principalNames) {
+            if (getIdentity(principalName) != null) {
+                existing.add(principalName);
+            }
+        }
+        return existing;
+    }
+
     /**
      * Get an identity's Authorization Data.
      * @param kdcClientRequest The KdcClientRequest
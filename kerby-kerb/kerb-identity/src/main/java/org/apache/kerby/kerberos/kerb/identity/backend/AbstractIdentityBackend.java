@@ -20,11 +20,16 @@
 package org.apache.kerby.kerberos.kerb.identity.backend;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.kerby.config.Configured;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.identity.BatchTrans;
+import org.apache.kerby.kerberos.kerb.identity.IdentityPage;
 import org.apache.kerby.kerberos.kerb.request.KdcClientRequest;
 import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
 import org.apache.kerby.kerberos.kerb.type.ad.AdToken;
@@ -148,6 +153,56 @@ public abstract class AbstractIdentityBackend
      */
     protected abstract Iterable<String> doGetIdentities() throws KrbException;
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityPage getIdentities(String prefix, String continuationToken,
+                                      int limit) throws KrbException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid page limit " + limit);
+        }
+        if (prefix != null && prefix.isEmpty()) {
+            prefix = null;
+        }
+
+        logger.debug("getIdentities called, prefix = {}, continuationToken = {}, limit = {}",
+                prefix, continuationToken, limit);
+
+        // Ask for one more to know if there is a next page
+        return IdentityPage.of(doGetIdentities(prefix, continuationToken, limit + 1), limit);
+    }
+
+    /**
+     * Perform the real work to get a page of identities, ordered by principal
+     * name. The default implementation scans all the identities and only keeps
+     * the page, backends that can seek or filter natively should override it.
+     * @param prefix The principal name prefix, null to get all
+     * @param startAfter Only principal names after it are returned, null to start
+     *                   from the first one
+     * @param limit The max number of principal names to return
+     * @return The principal names
+     * @throws KrbException e
+     */
+    protected List<String> doGetIdentities(String prefix, String startAfter,
+                                           int limit) throws KrbException {
+        return selectPage(doGetIdentities(), prefix, startAfter, limit);
+    }
+
+    /**
+     * Select a page of principal names, see {@link IdentityPage#select}.
+     * @param principals The principal names to scan, in any order
+     * @param prefix The principal name prefix, null to select all
+     * @param startAfter Only principal names after it are selected, null to
+     *                   start from the first one
+     * @param limit The max number of principal names to select
+     * @return The selected principal names
+     */
+    protected static List<String> selectPage(Iterable<String> principals, String prefix,
+                                             String startAfter, int limit) {
+        return IdentityPage.select(principals, prefix, startAfter, limit);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -174,6 +229,38 @@ public abstract class AbstractIdentityBackend
      */
     protected abstract KrbIdentity doGetIdentity(String principalName) throws KrbException;
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getExistingIdentities(Collection<String> principalNames) throws KrbException {
+        if (principalNames.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        logger.debug("getExistingIdentities called, {} principals", principalNames.size());
+        return doGetExistingIdentities(principalNames);
+    }
+
+    /**
+     * Perform the real work to find out which principals exist. The default
+     * implementation looks the principals up one by one, backends that can
+     * query many principals at once should override it.
+     * @param principalNames The principal names, not empty
+     * @return The principal names that exist
+     * @throws KrbException e
+     */
+    protected Set<String> doGetExistingIdentities(Collection<String> principalNames)
+            throws KrbException {
+        Set<String> existing = new HashSet<>();
+        for (String principalName : principalNames) {
+            if (doGetIdentity(principalName) != null) {
+                existing.add(principalName);
+            }
+        }
+        return existing;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,197 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.identity.backend;
+
+import org.apache.kerby.util.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the calls to an identity backend, recorded by
+ * {@link InstrumentedIdentityBackend}: latencies, errors and calls in
+ * progress by operation, and the hits and misses of a cache layered on it.
+ * Recording is lock free.
+ */
+public class IdentityBackendMetrics implements IdentityBackendMetricsMXBean {
+
+    /**
+     * The operations of a backend that are recorded.
+     */
+    public enum Operation {
+        GET_IDENTITY,
+        GET_IDENTITIES,
+        GET_EXISTING_IDENTITIES,
+        ADD_IDENTITY,
+        UPDATE_IDENTITY,
+        DELETE_IDENTITY,
+        GET_AUTHORIZATION_DATA,
+        START_BATCH_TRANS
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final AtomicLongArray inFlight = new AtomicLongArray(OPERATIONS.length);
+    private volatile Counters counters = new Counters();
+
+    /**
+     * Record the start of a call.
+     * @param operation The operation
+     * @return The start time to give to {@link #end(Operation, long, boolean)}
+     */
+    public long start(Operation operation) {
+        inFlight.incrementAndGet(operation.ordinal());
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the end of a call.
+     * @param operation The operation
+     * @param start The start time returned by {@link #start(Operation)}
+     * @param failed Whether the call failed
+     */
+    public void end(Operation operation, long start, boolean failed) {
+        long nanos = System.nanoTime() - start;
+        inFlight.decrementAndGet(operation.ordinal());
+        Counters current = counters;
+        current.latencies[operation.ordinal()].record(nanos);
+        if (failed) {
+            current.errors[operation.ordinal()].increment();
+        }
+    }
+
+    public void recordCacheHit() {
+        counters.cacheHits.increment();
+    }
+
+    public void recordCacheMiss() {
+        counters.cacheMisses.increment();
+    }
+
+    public LatencyHistogram getLatencyHistogram(Operation operation) {
+        return counters.latencies[operation.ordinal()];
+    }
+
+    public long getErrorCount(Operation operation) {
+        return counters.errors[operation.ordinal()].sum();
+    }
+
+    public long getInFlightCount(Operation operation) {
+        return inFlight.get(operation.ordinal());
+    }
+
+    private static String keyOf(Operation operation) {
+        return operation.name().toLowerCase();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Counters current = counters;
+        Map<String, Long> result = new TreeMap<>();
+        for (Operation operation : OPERATIONS) {
+            result.put(keyOf(operation), current.latencies[operation.ordinal()].getCount());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Counters current = counters;
+        Map<String, Long> result = new TreeMap<>();
+        for (Operation operation : OPERATIONS) {
+            result.put(keyOf(operation), current.errors[operation.ordinal()].sum());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getInFlightCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Operation operation : OPERATIONS) {
+            result.put(keyOf(operation), inFlight.get(operation.ordinal()));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Double> getLatencies() {
+        Counters current = counters;
+        Map<String, Double> result = new TreeMap<>();
+        for (Operation operation : OPERATIONS) {
+            current.latencies[operation.ordinal()].snapshot().summarize(result, keyOf(operation));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCacheHits() {
+        return counters.cacheHits.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCacheMisses() {
+        return counters.cacheMisses.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        counters = new Counters();
+    }
+
+    /**
+     * The counters and histograms, replaced as a whole on reset.
+     */
+    private static final class Counters {
+        private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+        private final LongAdder[] errors = new LongAdder[OPERATIONS.length];
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+
+        Counters() {
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                latencies[i] = new LatencyHistogram();
+                errors[i] = new LongAdder();
+            }
+        }
+    }
+}
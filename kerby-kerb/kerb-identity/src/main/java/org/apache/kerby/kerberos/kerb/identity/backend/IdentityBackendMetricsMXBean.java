@@ -0,0 +1,66 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.identity.backend;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link IdentityBackendMetrics}.
+ */
+public interface IdentityBackendMetricsMXBean {
+
+    /**
+     * @return The number of calls by operation, like "get_identity"
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return The number of failed calls by operation
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * @return The number of calls in progress by operation
+     */
+    Map<String, Long> getInFlightCounts();
+
+    /**
+     * @return The count, mean, p50, p99, p999 and max latencies in
+     * microseconds by operation, like "get_identity.p99"
+     */
+    Map<String, Double> getLatencies();
+
+    /**
+     * @return The number of identities found in the cache layered on the
+     * backend, if any
+     */
+    long getCacheHits();
+
+    /**
+     * @return The number of identities not found in the cache layered on
+     * the backend, if any
+     */
+    long getCacheMisses();
+
+    /**
+     * Reset the counters and histograms, but the in flight counts.
+     */
+    void reset();
+}
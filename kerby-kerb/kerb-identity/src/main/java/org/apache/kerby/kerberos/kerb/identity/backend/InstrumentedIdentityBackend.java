@@ -0,0 +1,305 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.identity.backend;
+
+import org.apache.kerby.config.Config;
+import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.identity.BatchTrans;
+import org.apache.kerby.kerberos.kerb.identity.IdentityPage;
+import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackendMetrics.Operation;
+import org.apache.kerby.kerberos.kerb.request.KdcClientRequest;
+import org.apache.kerby.kerberos.kerb.request.KrbIdentity;
+import org.apache.kerby.kerberos.kerb.type.ad.AuthorizationData;
+import org.apache.kerby.kerberos.kerb.type.ticket.EncTicketPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * An identity backend that records the latencies, errors and calls in
+ * progress of another one in {@link IdentityBackendMetrics}. It's put
+ * around the configured backend when {@link #METRICS_ENABLED} is true in
+ * the backend configuration, and the metrics are registered as an MXBean
+ * while the backend is started.
+ */
+public class InstrumentedIdentityBackend implements IdentityBackend {
+    private static final Logger LOG = LoggerFactory.getLogger(InstrumentedIdentityBackend.class);
+
+    /**
+     * The backend configuration key to enable the backend metrics.
+     */
+    public static final String METRICS_ENABLED = "backend.metrics.enabled";
+
+    /**
+     * The backend configuration key of the name the metrics MXBean is
+     * registered under, the backend class name by default.
+     */
+    public static final String METRICS_NAME = "backend.metrics.name";
+
+    private final IdentityBackend backend;
+    private final IdentityBackendMetrics metrics = new IdentityBackendMetrics();
+    private ObjectName objectName;
+
+    /**
+     * @param backend The backend to record the calls of
+     */
+    public InstrumentedIdentityBackend(IdentityBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Query to know if the backend metrics are enabled in the configuration.
+     * @param backendConfig The backend configuration
+     * @return true if enabled
+     */
+    public static boolean isMetricsEnabled(BackendConfig backendConfig) {
+        return backendConfig.getBoolean(METRICS_ENABLED, false);
+    }
+
+    /**
+     * Get the backend under the instrumented one, if it is.
+     * @param backend The backend
+     * @return The backend the calls are recorded of, or the given one
+     */
+    public static IdentityBackend unwrap(IdentityBackend backend) {
+        return backend instanceof InstrumentedIdentityBackend
+            ? ((InstrumentedIdentityBackend) backend).getBackend() : backend;
+    }
+
+    /**
+     * Get the name the metrics of a backend are registered under, from
+     * {@link #METRICS_NAME} in its configuration or the backend class name.
+     * @param backend The backend, instrumented or not
+     * @return The MXBean name
+     * @throws MalformedObjectNameException if the name is invalid
+     */
+    public static ObjectName getObjectName(IdentityBackend backend) throws MalformedObjectNameException {
+        Config config = backend.getConfig();
+        String name = config != null ? config.getString(METRICS_NAME) : null;
+        if (name == null) {
+            name = unwrap(backend).getClass().getName();
+        }
+        return new ObjectName("org.apache.kerby:type=IdentityBackendMetrics,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * @return The backend the calls are recorded of
+     */
+    public IdentityBackend getBackend() {
+        return backend;
+    }
+
+    public IdentityBackendMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setConfig(Config config) {
+        backend.setConfig(config);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Config getConfig() {
+        return backend.getConfig();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize() throws KrbException {
+        backend.initialize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void start() {
+        backend.start();
+
+        if (objectName == null) {
+            registerMBean();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void stop() throws KrbException {
+        try {
+            backend.stop();
+        } finally {
+            unregisterMBean();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() {
+        backend.release();
+    }
+
+    private void registerMBean() {
+        try {
+            ObjectName newName = getObjectName(this);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(newName)) {
+                LOG.warn("Backend metrics MBean " + newName + " already registered, not registering it");
+                return;
+            }
+            server.registerMBean(metrics, newName);
+            objectName = newName;
+        } catch (JMException e) {
+            LOG.warn("Failed to register the backend metrics MBean", e);
+        }
+    }
+
+    private void unregisterMBean() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn("Failed to unregister the backend metrics MBean", e);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean supportBatchTrans() {
+        return backend.supportBatchTrans();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BatchTrans startBatchTrans() throws KrbException {
+        return record(Operation.START_BATCH_TRANS, () -> backend.startBatchTrans());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<String> getIdentities() throws KrbException {
+        return record(Operation.GET_IDENTITIES, () -> backend.getIdentities());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IdentityPage getIdentities(String prefix, String continuationToken,
+                                      int limit) throws KrbException {
+        return record(Operation.GET_IDENTITIES,
+            () -> backend.getIdentities(prefix, continuationToken, limit));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KrbIdentity getIdentity(String principalName) throws KrbException {
+        return record(Operation.GET_IDENTITY, () -> backend.getIdentity(principalName));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getExistingIdentities(Collection<String> principalNames) throws KrbException {
+        return record(Operation.GET_EXISTING_IDENTITIES,
+            () -> backend.getExistingIdentities(principalNames));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AuthorizationData getIdentityAuthorizationData(KdcClientRequest kdcClientRequest,
+            EncTicketPart encTicketPart) throws KrbException {
+        return record(Operation.GET_AUTHORIZATION_DATA,
+            () -> backend.getIdentityAuthorizationData(kdcClientRequest, encTicketPart));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KrbIdentity addIdentity(KrbIdentity identity) throws KrbException {
+        return record(Operation.ADD_IDENTITY, () -> backend.addIdentity(identity));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KrbIdentity updateIdentity(KrbIdentity identity) throws KrbException {
+        return record(Operation.UPDATE_IDENTITY, () -> backend.updateIdentity(identity));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteIdentity(String principalName) throws KrbException {
+        record(Operation.DELETE_IDENTITY, () -> {
+            backend.deleteIdentity(principalName);
+            return null;
+        });
+    }
+
+    private <T> T record(Operation operation, BackendCall<T> call) throws KrbException {
+        long start = metrics.start(operation);
+        boolean failed = true;
+        try {
+            T result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            metrics.end(operation, start, failed);
+        }
+    }
+
+    private interface BackendCall<T> {
+        T call() throws KrbException;
+    }
+}
@@ -97,4 +97,12 @@ public class MemoryIdentityBackend extends AbstractIdentityBackend {
         Collections.sort(identities);
         return identities;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<String> doGetIdentities(String prefix, String startAfter, int limit) {
+        return selectPage(storage.keySet(), prefix, startAfter, limit);
+    }
 }
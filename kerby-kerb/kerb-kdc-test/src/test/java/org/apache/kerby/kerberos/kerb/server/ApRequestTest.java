@@ -19,6 +19,7 @@
  */
 package org.apache.kerby.kerberos.kerb.server;
 
+import org.apache.kerby.kerberos.kerb.KrbErrorCode;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.request.ApRequest;
 import org.apache.kerby.kerberos.kerb.response.ApResponse;
@@ -72,4 +73,33 @@ public class ApRequestTest extends KdcTestBase {
         assertThat(apRep.getPvno()).isEqualTo(5);
         assertThat(apRep.getMsgType()).isEqualTo(KrbMessageType.AP_REP);
     }
+
+    @Test
+    public void testValidateWithDecryptedTicket() throws IOException, KrbException {
+        TgtTicket tgt = getKrbClient().requestTgt(getClientPrincipal(), getClientPassword());
+        SgtTicket tkt = getKrbClient().requestSgt(tgt, getServerPrincipal());
+        byte[] apReqBytes = new ApRequest(new PrincipalName(getClientPrincipal()), tkt).getApReq().encode();
+
+        EncryptionKey serverKey = getKdcServer().getKadmin().getPrincipal(
+                getServerPrincipal()).getKey(tkt.getTicket().getEncryptedEncPart().getEType());
+        ApReq firstApReq = new ApReq();
+        firstApReq.decode(apReqBytes);
+        ApRequest.validate(serverKey, firstApReq, null, 5 * 60 * 1000);
+
+        // The ticket decrypted once is used again, the authenticator is still unsealed
+        ApReq secondApReq = new ApReq();
+        secondApReq.decode(apReqBytes);
+        secondApReq.getTicket().setEncPart(firstApReq.getTicket().getEncPart());
+        ApRequest.validate(secondApReq, null, 5 * 60 * 1000);
+        assertThat(secondApReq.getAuthenticator().getCname()).isEqualTo(firstApReq.getAuthenticator().getCname());
+
+        ApReq notDecryptedApReq = new ApReq();
+        notDecryptedApReq.decode(apReqBytes);
+        try {
+            ApRequest.validate(notDecryptedApReq, null, 5 * 60 * 1000);
+            Assert.fail("Validated an ApReq whose ticket isn't decrypted");
+        } catch (KrbException e) {
+            assertThat(e.getKrbErrorCode()).isEqualTo(KrbErrorCode.KRB_AP_ERR_NOKEY);
+        }
+    }
 }
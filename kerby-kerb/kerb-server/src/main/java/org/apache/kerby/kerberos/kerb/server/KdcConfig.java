@@ -180,4 +180,38 @@ public class KdcConfig extends Krb5Conf {
         return getString(
                 KdcConfigKey.PKINIT_IDENTITY, true, KDCDEFAULT);
     }
+
+    /**
+     * The number of ephemeral key pairs generated in advance per PKINIT key
+     * agreement group, 0 to generate them per request.
+     * @return The key pair pool size
+     */
+    public int getPkinitKeyPoolSize() {
+        return getInt(KdcConfigKey.PKINIT_KEY_POOL_SIZE, true, KDCDEFAULT);
+    }
+
+    /**
+     * The curves accepted for the Elliptic Curve Diffie-Hellman key
+     * agreement of PKINIT, RFC 5349, empty to accept none.
+     * @return The curve names, like P-256
+     */
+    public List<String> getPkinitEcdhCurves() {
+        return Arrays.asList(getStringArray(KdcConfigKey.PKINIT_ECDH_CURVES, true, KDCDEFAULT));
+    }
+
+    public boolean isMetricsEnabled() {
+        return getBoolean(KdcConfigKey.KDC_METRICS_ENABLED, true, KDCDEFAULT);
+    }
+
+    public boolean isMetricsJmxEnabled() {
+        return getBoolean(KdcConfigKey.KDC_METRICS_JMX_ENABLED, true, KDCDEFAULT);
+    }
+
+    public String getMetricsReporter() {
+        return getString(KdcConfigKey.KDC_METRICS_REPORTER, true, KDCDEFAULT);
+    }
+
+    public long getMetricsReportInterval() {
+        return getLong(KdcConfigKey.KDC_METRICS_REPORT_INTERVAL, true, KDCDEFAULT);
+    }
 }
@@ -53,7 +53,13 @@ public enum KdcConfigKey implements ConfigKey {
     TOKEN_DECRYPTION_KEYS(),
     TOKEN_ISSUERS(),
     PKINIT_IDENTITY(null),
-    PKINIT_ANCHORS(null);
+    PKINIT_ANCHORS(null),
+    PKINIT_KEY_POOL_SIZE(16),
+    PKINIT_ECDH_CURVES("P-256 P-384"),
+    KDC_METRICS_ENABLED(true),
+    KDC_METRICS_JMX_ENABLED(true),
+    KDC_METRICS_REPORTER(null),
+    KDC_METRICS_REPORT_INTERVAL(60L);
 
     private Object defaultValue;
 
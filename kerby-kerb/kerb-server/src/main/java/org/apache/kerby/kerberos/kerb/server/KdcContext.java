@@ -20,6 +20,7 @@
 package org.apache.kerby.kerberos.kerb.server;
 
 import org.apache.kerby.kerberos.kerb.identity.IdentityService;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcMetrics;
 import org.apache.kerby.kerberos.kerb.server.preauth.PreauthHandler;
 import org.apache.kerby.kerberos.kerb.server.replay.ReplayCheckService;
 
@@ -29,6 +30,7 @@ public class KdcContext {
     private IdentityService identityService;
     private ReplayCheckService replayCache;
     private PreauthHandler preauthHandler;
+    private KdcMetrics metrics;
 
     public KdcContext(KdcSetting kdcSetting) {
         this.kdcSetting = kdcSetting;
@@ -66,6 +68,17 @@ public class KdcContext {
         return identityService;
     }
 
+    public void setMetrics(KdcMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The request metrics, null if disabled
+     */
+    public KdcMetrics getMetrics() {
+        return metrics;
+    }
+
     public String getKdcRealm() {
         return kdcSetting.getKdcRealm();
     }
@@ -22,6 +22,8 @@ package org.apache.kerby.kerberos.kerb.server;
 import org.apache.kerby.kerberos.kerb.KrbCodec;
 import org.apache.kerby.kerberos.kerb.KrbErrorCode;
 import org.apache.kerby.kerberos.kerb.KrbException;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcMetrics;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcStage;
 import org.apache.kerby.kerberos.kerb.server.request.AsRequest;
 import org.apache.kerby.kerberos.kerb.server.request.KdcRequest;
 import org.apache.kerby.kerberos.kerb.server.request.TgsRequest;
@@ -70,6 +72,8 @@ public class KdcHandler {
         KrbMessage krbRequest;
         KdcRequest kdcRequest = null;
         KrbMessage krbResponse;
+        KdcMetrics metrics = kdcContext.getMetrics();
+        long start = System.nanoTime();
 
         ByteBuffer message = receivedMessage.duplicate();
 
@@ -77,16 +81,21 @@ public class KdcHandler {
             krbRequest = KrbCodec.decodeMessage(receivedMessage);
         } catch (IOException e) {
             LOG.error("Krb decoding message failed", e);
+            recordError(KrbErrorCode.KRB_AP_ERR_MSG_TYPE);
             throw new KrbException(KrbErrorCode.KRB_AP_ERR_MSG_TYPE, "Krb decoding message failed");
         }
 
         KrbMessageType messageType = krbRequest.getMsgType();
         if (messageType == KrbMessageType.TGS_REQ || messageType
                 == KrbMessageType.AS_REQ) {
+            if (metrics != null) {
+                metrics.recordStage(messageType, KdcStage.DECODE, System.nanoTime() - start);
+            }
             KdcReq kdcReq = (KdcReq) krbRequest;
             String realm = getRequestRealm(kdcReq);
             if (realm == null || !kdcContext.getKdcRealm().equals(realm)) {
                 LOG.error("Invalid realm from kdc request: " + realm);
+                recordError(KrbErrorCode.WRONG_REALM);
                 throw new KrbException(KrbErrorCode.WRONG_REALM,
                     "Invalid realm from kdc request: " + realm);
             }
@@ -103,6 +112,7 @@ public class KdcHandler {
 
         // For checksum
         if (kdcRequest == null) {
+            recordError(KrbErrorCode.KRB_AP_ERR_MSG_TYPE);
             throw new KrbException("Kdc request is null.");
         }
         kdcRequest.setReqPackage(message);
@@ -150,6 +160,11 @@ public class KdcHandler {
             }
         }
 
+        if (krbResponse instanceof KrbError) {
+            recordError(((KrbError) krbResponse).getErrorCode());
+        }
+
+        long encodeStart = System.nanoTime();
         int bodyLen = krbResponse.encodingLength();
         ByteBuffer responseMessage;
         if (isTcp) {
@@ -161,9 +176,22 @@ public class KdcHandler {
         KrbCodec.encode(krbResponse, responseMessage);
         responseMessage.flip();
 
+        if (metrics != null) {
+            long end = System.nanoTime();
+            metrics.recordStage(messageType, KdcStage.ENCODE, end - encodeStart);
+            metrics.recordRequest(messageType, isTcp, end - start);
+        }
+
         return responseMessage;
     }
 
+    private void recordError(KrbErrorCode errorCode) {
+        KdcMetrics metrics = kdcContext.getMetrics();
+        if (metrics != null) {
+            metrics.recordError(errorCode);
+        }
+    }
+
     /**
      * Process the recoverable exception.
      *
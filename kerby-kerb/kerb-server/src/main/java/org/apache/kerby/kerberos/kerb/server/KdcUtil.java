@@ -22,7 +22,9 @@ package org.apache.kerby.kerberos.kerb.server;
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.identity.backend.BackendConfig;
 import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackend;
+import org.apache.kerby.kerberos.kerb.identity.backend.InstrumentedIdentityBackend;
 import org.apache.kerby.kerberos.kerb.identity.backend.MemoryIdentityBackend;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcMetricsReporter;
 import org.apache.kerby.kerberos.kerb.transport.TransportPair;
 
 import java.io.File;
@@ -81,7 +83,8 @@ public final class KdcUtil {
     }
 
     /**
-     * Init the identity backend from backend configuration.
+     * Init the identity backend from backend configuration, in an
+     * InstrumentedIdentityBackend when the backend metrics are enabled.
      *
      * @throws org.apache.kerby.kerberos.kerb.KrbException e.
      * @param backendConfig backend configuration information
@@ -113,9 +116,42 @@ public final class KdcUtil {
 
         backend.setConfig(backendConfig);
         backend.initialize();
+        if (InstrumentedIdentityBackend.isMetricsEnabled(backendConfig)) {
+            return new InstrumentedIdentityBackend(backend);
+        }
         return backend;
     }
 
+    /**
+     * Create the metrics reporter set in the KDC configuration.
+     *
+     * @throws org.apache.kerby.kerberos.kerb.KrbException e.
+     * @param kdcConfig kdc configuration information
+     * @return The reporter, null if none is set
+     */
+    public static KdcMetricsReporter getMetricsReporter(
+            KdcConfig kdcConfig) throws KrbException {
+        String reporterClassName = kdcConfig.getMetricsReporter();
+        if (reporterClassName == null || reporterClassName.isEmpty()) {
+            return null;
+        }
+
+        Class<?> reporterClass;
+        try {
+            reporterClass = Class.forName(reporterClassName);
+        } catch (ClassNotFoundException e) {
+            throw new KrbException("Failed to load metrics reporter class: "
+                    + reporterClassName);
+        }
+
+        try {
+            return (KdcMetricsReporter) reporterClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new KrbException("Failed to create metrics reporter: "
+                    + reporterClassName);
+        }
+    }
+
     /**
      * Get KDC network transport addresses according to KDC setting.
      * @param setting kdc setting
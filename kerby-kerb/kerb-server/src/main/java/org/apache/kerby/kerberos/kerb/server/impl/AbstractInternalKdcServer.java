@@ -26,6 +26,8 @@ import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackend;
 import org.apache.kerby.kerberos.kerb.server.KdcConfig;
 import org.apache.kerby.kerberos.kerb.server.KdcSetting;
 import org.apache.kerby.kerberos.kerb.server.KdcUtil;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcMetrics;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcMetricsReporter;
 
 /**
  * Abstract KDC server implementation.
@@ -36,6 +38,8 @@ public class AbstractInternalKdcServer implements InternalKdcServer {
     private final BackendConfig backendConfig;
     private final KdcSetting kdcSetting;
     private IdentityBackend backend;
+    private KdcMetrics metrics;
+    private KdcMetricsReporter metricsReporter;
 
     public AbstractInternalKdcServer(KdcSetting kdcSetting) {
         this.kdcSetting = kdcSetting;
@@ -63,6 +67,10 @@ public class AbstractInternalKdcServer implements InternalKdcServer {
     @Override
     public void init() throws KrbException {
         backend = KdcUtil.getBackend(backendConfig);
+        if (kdcConfig.isMetricsEnabled()) {
+            metrics = new KdcMetrics();
+            metricsReporter = KdcUtil.getMetricsReporter(kdcConfig);
+        }
     }
 
     @Override
@@ -85,8 +93,25 @@ public class AbstractInternalKdcServer implements InternalKdcServer {
         return backend;
     }
 
+    /**
+     * @return The request metrics, null if disabled
+     */
+    public KdcMetrics getMetrics() {
+        return metrics;
+    }
+
     protected void doStart() throws Exception {
         backend.start();
+
+        if (metrics != null) {
+            if (kdcConfig.isMetricsJmxEnabled()) {
+                int port = kdcSetting.allowTcp() ? kdcSetting.getKdcTcpPort() : kdcSetting.getKdcUdpPort();
+                metrics.registerMBean(kdcSetting.getKdcRealm() + "-" + port);
+            }
+            if (metricsReporter != null) {
+                metrics.startReporter(metricsReporter, kdcConfig.getMetricsReportInterval());
+            }
+        }
     }
 
     public void stop() throws KrbException {
@@ -101,5 +126,9 @@ public class AbstractInternalKdcServer implements InternalKdcServer {
 
     protected void doStop() throws Exception {
         backend.stop();
+
+        if (metrics != null) {
+            metrics.stop();
+        }
     }
 }
@@ -71,6 +71,7 @@ public class DefaultInternalKdcServerImpl extends AbstractInternalKdcServer {
     private void prepareHandler() {
         kdcContext = new KdcContext(getSetting());
         kdcContext.setIdentityService(getIdentityService());
+        kdcContext.setMetrics(getMetrics());
         PreauthHandler preauthHandler = new PreauthHandler();
         preauthHandler.init();
         kdcContext.setPreauthHandler(preauthHandler);
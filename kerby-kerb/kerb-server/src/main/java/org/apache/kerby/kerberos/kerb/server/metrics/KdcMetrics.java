@@ -0,0 +1,257 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.server.metrics;
+
+import org.apache.kerby.kerberos.kerb.KrbErrorCode;
+import org.apache.kerby.kerberos.kerb.type.base.KrbMessageType;
+import org.apache.kerby.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Request metrics of a KDC: the latencies of the requests by message type
+ * and transport, the latencies of the processing stages by message type,
+ * and the errors by KrbErrorCode. Recording is lock free and doesn't
+ * allocate, so the metrics can be left on under load.
+ *
+ * The metrics can be exposed as an MXBean with
+ * {@link #registerMBean(String)} and periodically given to a
+ * {@link KdcMetricsReporter}.
+ */
+public class KdcMetrics implements KdcMetricsMXBean {
+    private static final Logger LOG = LoggerFactory.getLogger(KdcMetrics.class);
+
+    private static final String[] MESSAGE_TYPES = {"as", "tgs"};
+    private static final String[] TRANSPORTS = {"tcp", "udp"};
+    private static final KrbErrorCode[] ERROR_CODES = KrbErrorCode.values();
+    private static final KdcStage[] STAGES = KdcStage.values();
+
+    private volatile Counters counters = new Counters();
+    private ObjectName objectName;
+    private ScheduledExecutorService reportExecutor;
+    private KdcMetricsReporter reporter;
+
+    /**
+     * Record a request handled, from the receiving of the message to the
+     * encoding of the reply.
+     * @param messageType The request message type, AS_REQ or TGS_REQ
+     * @param isTcp Whether the request came over TCP
+     * @param nanos The latency in nanoseconds
+     */
+    public void recordRequest(KrbMessageType messageType, boolean isTcp, long nanos) {
+        counters.requests[typeIndex(messageType)][isTcp ? 0 : 1].record(nanos);
+    }
+
+    /**
+     * Record the time spent in a stage of a request.
+     * @param messageType The request message type, AS_REQ or TGS_REQ
+     * @param stage The stage
+     * @param nanos The time in nanoseconds
+     */
+    public void recordStage(KrbMessageType messageType, KdcStage stage, long nanos) {
+        counters.stages[typeIndex(messageType)][stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Record an error replied, or a request failed without a reply.
+     * @param errorCode The error code, null for an unknown error
+     */
+    public void recordError(KrbErrorCode errorCode) {
+        KrbErrorCode code = errorCode != null ? errorCode : KrbErrorCode.UNKNOWN_ERR;
+        counters.errors.incrementAndGet(code.ordinal());
+    }
+
+    public LatencyHistogram getRequestHistogram(KrbMessageType messageType, boolean isTcp) {
+        return counters.requests[typeIndex(messageType)][isTcp ? 0 : 1];
+    }
+
+    public LatencyHistogram getStageHistogram(KrbMessageType messageType, KdcStage stage) {
+        return counters.stages[typeIndex(messageType)][stage.ordinal()];
+    }
+
+    public long getErrorCount(KrbErrorCode errorCode) {
+        return counters.errors.get(errorCode.ordinal());
+    }
+
+    private static int typeIndex(KrbMessageType messageType) {
+        return messageType == KrbMessageType.TGS_REQ ? 1 : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getRequestCounts() {
+        Counters current = counters;
+        Map<String, Long> result = new TreeMap<>();
+        for (int i = 0; i < MESSAGE_TYPES.length; i++) {
+            for (int j = 0; j < TRANSPORTS.length; j++) {
+                result.put(MESSAGE_TYPES[i] + "." + TRANSPORTS[j], current.requests[i][j].getCount());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Counters current = counters;
+        Map<String, Long> result = new TreeMap<>();
+        for (int i = 0; i < ERROR_CODES.length; i++) {
+            long count = current.errors.get(i);
+            if (count > 0) {
+                result.put(ERROR_CODES[i].name(), count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Double> getLatencies() {
+        Counters current = counters;
+        Map<String, Double> result = new TreeMap<>();
+        for (int i = 0; i < MESSAGE_TYPES.length; i++) {
+            for (int j = 0; j < TRANSPORTS.length; j++) {
+                current.requests[i][j].snapshot().summarize(result, MESSAGE_TYPES[i] + "." + TRANSPORTS[j]);
+            }
+            for (KdcStage stage : STAGES) {
+                current.stages[i][stage.ordinal()].snapshot()
+                    .summarize(result, MESSAGE_TYPES[i] + "." + stage.name().toLowerCase());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        counters = new Counters();
+    }
+
+    /**
+     * Register the metrics to the platform MBean server, under
+     * org.apache.kerby:type=KdcMetrics,name=the name.
+     * @param name The name, like the realm and port of the KDC
+     */
+    public synchronized void registerMBean(String name) {
+        try {
+            ObjectName newName = new ObjectName("org.apache.kerby:type=KdcMetrics,name="
+                + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(newName)) {
+                LOG.warn("KDC metrics MBean " + newName + " already registered, not registering it");
+                return;
+            }
+            server.registerMBean(this, newName);
+            objectName = newName;
+        } catch (JMException e) {
+            LOG.warn("Failed to register the KDC metrics MBean", e);
+        }
+    }
+
+    /**
+     * Report the metrics periodically, and a last time when stopped.
+     * @param metricsReporter The reporter
+     * @param intervalSeconds The seconds between two reports
+     */
+    public synchronized void startReporter(KdcMetricsReporter metricsReporter, long intervalSeconds) {
+        if (reportExecutor != null) {
+            throw new IllegalStateException("KDC metrics reporter already started");
+        }
+        this.reporter = metricsReporter;
+        reportExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "kdc-metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reportExecutor.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void report() {
+        try {
+            reporter.report(this);
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to report the KDC metrics", e);
+        }
+    }
+
+    /**
+     * Stop the reporter after a last report and unregister the MBean.
+     */
+    public synchronized void stop() {
+        if (reportExecutor != null) {
+            reportExecutor.shutdownNow();
+            reportExecutor = null;
+            report();
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOG.warn("Failed to unregister the KDC metrics MBean", e);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * The counters and histograms, replaced as a whole on reset.
+     */
+    private static final class Counters {
+        private final LatencyHistogram[][] requests =
+            new LatencyHistogram[MESSAGE_TYPES.length][TRANSPORTS.length];
+        private final LatencyHistogram[][] stages =
+            new LatencyHistogram[MESSAGE_TYPES.length][STAGES.length];
+        private final AtomicLongArray errors = new AtomicLongArray(ERROR_CODES.length);
+
+        Counters() {
+            for (int i = 0; i < MESSAGE_TYPES.length; i++) {
+                for (int j = 0; j < TRANSPORTS.length; j++) {
+                    requests[i][j] = new LatencyHistogram();
+                }
+                for (int j = 0; j < STAGES.length; j++) {
+                    stages[i][j] = new LatencyHistogram();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.server.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link KdcMetrics}.
+ */
+public interface KdcMetricsMXBean {
+
+    /**
+     * @return The number of requests, by "as" or "tgs" and "tcp" or "udp",
+     * like "as.tcp"
+     */
+    Map<String, Long> getRequestCounts();
+
+    /**
+     * @return The number of errors replied or failed requests, by
+     * KrbErrorCode
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * @return The count, mean, p50, p99, p999 and max latencies in
+     * microseconds, of the requests by message type and transport, like
+     * "as.tcp.p99", and of the stages by message type, like "tgs.preauth.p99"
+     */
+    Map<String, Double> getLatencies();
+
+    /**
+     * Reset all the counters and histograms.
+     */
+    void reset();
+}
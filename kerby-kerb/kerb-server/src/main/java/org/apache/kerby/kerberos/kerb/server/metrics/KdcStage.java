@@ -0,0 +1,50 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.server.metrics;
+
+/**
+ * The stages of the processing of a KDC request that are timed.
+ */
+public enum KdcStage {
+    /**
+     * Decoding the request message.
+     */
+    DECODE,
+    /**
+     * Getting the client, server and TGS identities from the backend.
+     */
+    LOOKUP,
+    /**
+     * Verifying the preauthentication, or the AP-REQ of a TGS request.
+     */
+    PREAUTH,
+    /**
+     * Making and encrypting the ticket.
+     */
+    ISSUE,
+    /**
+     * Making and encrypting the reply part.
+     */
+    REPLY,
+    /**
+     * Encoding the reply or error message.
+     */
+    ENCODE
+}
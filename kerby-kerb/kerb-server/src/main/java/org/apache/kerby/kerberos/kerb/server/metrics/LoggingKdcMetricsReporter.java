@@ -0,0 +1,39 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.server.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs a summary of the KDC metrics.
+ */
+public class LoggingKdcMetricsReporter implements KdcMetricsReporter {
+    private static final Logger LOG = LoggerFactory.getLogger(LoggingKdcMetricsReporter.class);
+
+    @Override
+    public void report(KdcMetrics metrics) {
+        if (LOG.isInfoEnabled()) {
+            LOG.info("KDC metrics: " + metrics.getRequestCounts()
+                + ", errors: " + metrics.getErrorCounts()
+                + ", latencies (us): " + metrics.getLatencies());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.server.preauth.pkinit;
+
+import org.apache.kerby.kerberos.kerb.crypto.dh.EcGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.spec.DHParameterSpec;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Ephemeral key pairs generated in advance by a background thread, so a
+ * burst of PKINIT logins doesn't wait on the key generation. There's a pool
+ * per key agreement group, made when the group is first asked for, and a
+ * pool is filled up again after each take. A key pair is handed out once.
+ * If a pool is empty the key pair is generated by the caller.
+ */
+public class KeyPairPool {
+    public static final int DEFAULT_SIZE = 16;
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyPairPool.class);
+
+    private final int size;
+    private final ConcurrentMap<Object, BlockingQueue<KeyPair>> pools = new ConcurrentHashMap<>();
+    private final Set<Object> filling = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+
+    /**
+     * @param size The number of key pairs kept per group
+     */
+    public KeyPairPool(int size) {
+        this.size = size;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pkinit-keypair-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Take a DH key pair of the group.
+     * @param params The DH group
+     * @return The key pair
+     * @throws GeneralSecurityException e
+     */
+    public KeyPair takeDh(DHParameterSpec params) throws GeneralSecurityException {
+        return take(Arrays.asList(params.getP(), params.getG()), "DH", params);
+    }
+
+    /**
+     * Take an EC key pair on the curve.
+     * @param group The curve
+     * @return The key pair
+     * @throws GeneralSecurityException e
+     */
+    public KeyPair takeEc(EcGroup group) throws GeneralSecurityException {
+        return take(group.getName(), "EC", group.getParams());
+    }
+
+    private KeyPair take(Object group, String algorithm,
+                         AlgorithmParameterSpec params) throws GeneralSecurityException {
+        BlockingQueue<KeyPair> pool = pools.computeIfAbsent(group,
+            key -> new ArrayBlockingQueue<>(size));
+        KeyPair keyPair = pool.poll();
+        fill(group, pool, algorithm, params);
+        return keyPair != null ? keyPair : generate(algorithm, params);
+    }
+
+    private void fill(Object group, BlockingQueue<KeyPair> pool, String algorithm,
+                      AlgorithmParameterSpec params) {
+        if (pool.remainingCapacity() == 0 || !filling.add(group)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    while (pool.remainingCapacity() > 0) {
+                        pool.offer(generate(algorithm, params));
+                    }
+                } catch (GeneralSecurityException e) {
+                    LOG.warn("Failed to generate a " + algorithm + " key pair.", e);
+                } finally {
+                    filling.remove(group);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            filling.remove(group);
+        }
+    }
+
+    private static KeyPair generate(String algorithm,
+                                    AlgorithmParameterSpec params) throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        generator.initialize(params);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * @return The number of key pairs ready, for all the groups
+     */
+    public int available() {
+        int available = 0;
+        for (BlockingQueue<KeyPair> pool : pools.values()) {
+            available += pool.size();
+        }
+        return available;
+    }
+
+    /**
+     * Stop the background generation and drop the key pairs.
+     */
+    public void destroy() {
+        executor.shutdownNow();
+        pools.clear();
+    }
+}
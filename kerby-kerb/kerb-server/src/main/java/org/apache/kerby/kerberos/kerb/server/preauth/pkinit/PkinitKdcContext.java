@@ -18,6 +18,7 @@
  */
 package org.apache.kerby.kerberos.kerb.server.preauth.pkinit;
 
+import org.apache.kerby.cms.type.CertificateSet;
 import org.apache.kerby.kerberos.kerb.preauth.pkinit.IdentityOpts;
 import org.apache.kerby.kerberos.kerb.preauth.pkinit.PkinitPlgCryptoContext;
 import org.apache.kerby.kerberos.kerb.preauth.pkinit.PluginOpts;
@@ -28,4 +29,6 @@ public class PkinitKdcContext {
     public PluginOpts pluginOpts = new PluginOpts();
     public IdentityOpts identityOpts = new IdentityOpts();
     public String realm;
+    /** The certificates of the KDC identity, sent in every reply */
+    public CertificateSet certificates;
 }
@@ -23,6 +23,7 @@ import org.apache.kerby.asn1.Asn1;
 import org.apache.kerby.asn1.parse.Asn1Container;
 import org.apache.kerby.asn1.parse.Asn1ParseResult;
 import org.apache.kerby.asn1.type.Asn1Integer;
+import org.apache.kerby.asn1.type.Asn1ObjectIdentifier;
 import org.apache.kerby.cms.type.CertificateChoices;
 import org.apache.kerby.cms.type.CertificateSet;
 import org.apache.kerby.cms.type.ContentInfo;
@@ -34,6 +35,8 @@ import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.common.CheckSumUtil;
 import org.apache.kerby.kerberos.kerb.common.KrbUtil;
 import org.apache.kerby.kerberos.kerb.crypto.dh.DiffieHellmanServer;
+import org.apache.kerby.kerberos.kerb.crypto.dh.EcGroup;
+import org.apache.kerby.kerberos.kerb.crypto.dh.EcdhServer;
 import org.apache.kerby.kerberos.kerb.preauth.PluginRequestContext;
 import org.apache.kerby.kerberos.kerb.preauth.pkinit.CertificateHelper;
 import org.apache.kerby.kerberos.kerb.preauth.pkinit.CmsMessageType;
@@ -64,38 +67,68 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.crypto.interfaces.DHPublicKey;
+import javax.crypto.spec.DHParameterSpec;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PkinitPreauth extends AbstractPreauthPlugin {
 
     private static final Logger LOG = LoggerFactory.getLogger(PkinitPreauth.class);
     private final Map<String, PkinitKdcContext> pkinitContexts;
+    private volatile KeyPairPool keyPairPool;
 
     public PkinitPreauth() {
         super(new PkinitPreauthMeta());
 
-        pkinitContexts = new HashMap<>(1);
+        pkinitContexts = new ConcurrentHashMap<>(1);
     }
 
     @Override
     public void initWith(KdcContext kdcContext) {
         super.initWith(kdcContext);
 
-        PkinitKdcContext tmp = new PkinitKdcContext();
-        tmp.realm = kdcContext.getKdcRealm();
-
+        // Called for every request, so keep the context of the realm, with
+        // the certificates loaded once, unless the identity has been changed.
+        String realm = kdcContext.getKdcRealm();
         String pkinitIdentity = kdcContext.getConfig().getPkinitIdentity();
-        tmp.identityOpts.setIdentity(pkinitIdentity);
+        PkinitKdcContext current = pkinitContexts.get(realm);
+        if (current == null || !Objects.equals(current.identityOpts.getIdentity(), pkinitIdentity)) {
+            PkinitKdcContext tmp = new PkinitKdcContext();
+            tmp.realm = realm;
+            tmp.identityOpts.setIdentity(pkinitIdentity);
+            tmp.certificates = loadCertificates(pkinitIdentity);
+
+            pkinitContexts.put(realm, tmp);
+        }
+
+        if (keyPairPool == null) {
+            int poolSize = kdcContext.getConfig().getPkinitKeyPoolSize();
+            if (poolSize > 0) {
+                synchronized (this) {
+                    if (keyPairPool == null) {
+                        keyPairPool = new KeyPairPool(poolSize);
+                    }
+                }
+            }
+        }
+    }
 
-        pkinitContexts.put(kdcContext.getKdcRealm(), tmp);
+    @Override
+    public void destroy() {
+        KeyPairPool pool = keyPairPool;
+        if (pool != null) {
+            pool.destroy();
+        }
     }
 
     @Override
@@ -221,7 +254,13 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
             SubjectPublicKeyInfo publicKeyInfo = authPack.getClientPublicValue();
 
             DhParameter dhParameter;
-            if (publicKeyInfo.getSubjectPubKey() != null) {
+            if (publicKeyInfo.getSubjectPubKey() != null
+                    && EcGroup.EC_PUBLIC_KEY_OID.equals(publicKeyInfo.getAlgorithm().getAlgorithm())) {
+                byte[] serverPoint = ecdhAgreement(kdcRequest, publicKeyInfo);
+
+                PaPkAsRep paPkAsRep = makePaPkAsRep(serverPoint, pkinitContext.certificates);
+                kdcRequest.getPreauthContext().getOutputPaData().add(makeEntry(paPkAsRep));
+            } else if (publicKeyInfo.getSubjectPubKey() != null) {
                 dhParameter = authPack.getClientPublicValue().getAlgorithm().getParametersAs(DhParameter.class);
                 PkinitCrypto.serverCheckDH(pkinitContext.pluginOpts, pkinitContext.cryptoctx, dhParameter);
 
@@ -236,7 +275,12 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
                 DiffieHellmanServer server = new DiffieHellmanServer();
                 DHPublicKey serverPubKey = null;
                 try {
-                    serverPubKey = (DHPublicKey) server.initAndDoPhase(dhPublicKey.getEncoded());
+                    KeyPair serverKeyPair = null;
+                    KeyPairPool pool = keyPairPool;
+                    if (pool != null) {
+                        serverKeyPair = pool.takeDh(new DHParameterSpec(p, g));
+                    }
+                    serverPubKey = (DHPublicKey) server.initAndDoPhase(dhPublicKey.getEncoded(), serverKeyPair);
                 } catch (Exception e) {
                     LOG.error("Fail to create server public key.", e);
                 }
@@ -245,9 +289,8 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
                 // Set the DH shared key as the client key
                 kdcRequest.setClientKey(secretKey);
 
-                String identity = pkinitContext.identityOpts.getIdentity();
-
-                PaPkAsRep paPkAsRep = makePaPkAsRep(serverPubKey, identity);
+                byte[] pubKeyData = KrbCodec.encode(new Asn1Integer(serverPubKey.getY()));
+                PaPkAsRep paPkAsRep = makePaPkAsRep(pubKeyData, pkinitContext.certificates);
                 PaDataEntry paDataEntry = makeEntry(paPkAsRep);
 
                 kdcRequest.getPreauthContext().getOutputPaData().add(paDataEntry);
@@ -267,6 +310,44 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
         return true;
     }
 
+    /**
+     * Do the Elliptic Curve Diffie-Hellman key agreement of RFC 5349 and
+     * set the shared key as the client key.
+     *
+     * @return The encoded server point
+     */
+    private byte[] ecdhAgreement(KdcRequest kdcRequest,
+                                 SubjectPublicKeyInfo publicKeyInfo) throws KrbException {
+        Asn1ObjectIdentifier curve = publicKeyInfo.getAlgorithm().getParametersAs(Asn1ObjectIdentifier.class);
+        EcGroup group = curve != null ? EcGroup.fromOid(curve.getValue()) : null;
+        if (group == null || !kdcRequest.getKdcContext().getConfig().getPkinitEcdhCurves()
+                .contains(group.getName())) {
+            String errMsg = "Client sent an ECDH public value on a curve not accepted.";
+            LOG.error(errMsg);
+            throw new KrbException(KrbErrorCode.KDC_ERR_DH_KEY_PARAMETERS_NOT_ACCEPTED, errMsg);
+        }
+
+        EcdhServer server = new EcdhServer();
+        byte[] serverPoint;
+        try {
+            KeyPair serverKeyPair = null;
+            KeyPairPool pool = keyPairPool;
+            if (pool != null) {
+                serverKeyPair = pool.takeEc(group);
+            }
+            serverPoint = server.initAndDoPhase(group, publicKeyInfo.getSubjectPubKey().getValue(),
+                serverKeyPair);
+        } catch (GeneralSecurityException e) {
+            String errMsg = "Invalid ECDH public value. " + e.getMessage();
+            LOG.error(errMsg);
+            throw new KrbException(KrbErrorCode.KDC_ERR_PREAUTH_FAILED, errMsg);
+        }
+
+        // Set the ECDH shared key as the client key
+        kdcRequest.setClientKey(server.generateKey(null, null, kdcRequest.getEncryptionType()));
+        return serverPoint;
+    }
+
     private PkinitKdcContext findContext(PrincipalName principal) {
         String realm = principal.getRealm();
         if (pkinitContexts.containsKey(realm)) {
@@ -295,7 +376,14 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
         return paDataEntry;
     }
 
-    private PaPkAsRep makePaPkAsRep(DHPublicKey severPubKey, String identityString) throws KrbException {
+    /**
+     * Load the certificates of the KDC identity, converted to be sent in the
+     * replies.
+     *
+     * @param identityString The PKINIT identity
+     * @return The certificate set
+     */
+    private CertificateSet loadCertificates(String identityString) {
 
         List<X509Certificate> certificates = new ArrayList<>();
         if (identityString != null) {
@@ -314,12 +402,23 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
             LOG.warn("No PKINIT identity keys specified");
         }
 
+        CertificateSet certificateSet = new CertificateSet();
+        for (X509Certificate x509Certificate : certificates) {
+            Certificate certificate = PkinitCrypto.changeToCertificate(x509Certificate);
+            CertificateChoices certificateChoices = new CertificateChoices();
+            certificateChoices.setCertificate(certificate);
+            certificateSet.addElement(certificateChoices);
+        }
+        return certificateSet;
+    }
+
+    private PaPkAsRep makePaPkAsRep(byte[] pubKeyData,
+                                    CertificateSet certificateSet) throws KrbException {
+
         PaPkAsRep paPkAsRep = new PaPkAsRep();
         DhRepInfo dhRepInfo = new DhRepInfo();
         KdcDhKeyInfo kdcDhKeyInfo = new KdcDhKeyInfo();
 
-        Asn1Integer publickey = new Asn1Integer(severPubKey.getY());
-        byte[] pubKeyData = KrbCodec.encode(publickey);
         kdcDhKeyInfo.setSubjectPublicKey(pubKeyData);
         kdcDhKeyInfo.setNonce(0);
         kdcDhKeyInfo.setDHKeyExpiration(
@@ -327,14 +426,6 @@ public class PkinitPreauth extends AbstractPreauthPlugin {
 
         byte[] signedDataBytes = null;
 
-        CertificateSet certificateSet = new CertificateSet();
-        for (X509Certificate x509Certificate : certificates) {
-            Certificate certificate = PkinitCrypto.changeToCertificate(x509Certificate);
-            CertificateChoices certificateChoices = new CertificateChoices();
-            certificateChoices.setCertificate(certificate);
-            certificateSet.addElement(certificateChoices);
-        }
-
         String oid = PkinitPlgCryptoContext.getIdPkinitDHKeyDataOID();
         signedDataBytes = PkinitCrypto.cmsSignedDataCreate(KrbCodec.encode(kdcDhKeyInfo), oid, 3, null,
                                                            certificateSet, null, null);
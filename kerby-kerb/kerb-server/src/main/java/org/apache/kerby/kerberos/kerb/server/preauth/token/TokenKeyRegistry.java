@@ -0,0 +1,263 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.server.preauth.token;
+
+import org.apache.kerby.kerberos.kerb.KrbRuntime;
+import org.apache.kerby.kerberos.kerb.common.PrivateKeyReader;
+import org.apache.kerby.kerberos.kerb.common.PublicKeyReader;
+import org.apache.kerby.kerberos.kerb.provider.TokenDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the keys to verify and decrypt the tokens of each issuer.
+ * The keys are read from the configured key paths the first time an issuer
+ * is seen, and read again only when the key file changes. Each thread gets
+ * its own token decoder per issuer, prepared with the keys, so a token
+ * request doesn't touch the disk or set up a new decoder. The tokens
+ * verified with the keys of an issuer are cached along with the keys.
+ */
+public class TokenKeyRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(TokenKeyRegistry.class);
+
+    /**
+     * Min milliseconds between two checks of the key files of an issuer.
+     */
+    private static final long CHECK_INTERVAL = 1000L;
+
+    private final String verifyKeyPath;
+    private final String decryptionKeyPath;
+    private final ConcurrentMap<String, IssuerKeys> issuerKeys = new ConcurrentHashMap<>();
+
+    /**
+     * @param verifyKeyPath The verify key file or directory, null if none
+     * @param decryptionKeyPath The decryption key file or directory, null if none
+     */
+    public TokenKeyRegistry(String verifyKeyPath, String decryptionKeyPath) {
+        this.verifyKeyPath = verifyKeyPath;
+        this.decryptionKeyPath = decryptionKeyPath;
+    }
+
+    /**
+     * Query to know if this registry reads the keys from the given paths.
+     * @param verifyKeyPath The verify key file or directory
+     * @param decryptionKeyPath The decryption key file or directory
+     * @return true if both paths are the ones of this registry
+     */
+    public boolean isFor(String verifyKeyPath, String decryptionKeyPath) {
+        return Objects.equals(this.verifyKeyPath, verifyKeyPath)
+            && Objects.equals(this.decryptionKeyPath, decryptionKeyPath);
+    }
+
+    /**
+     * Get the token decoder of the calling thread for the issuer.
+     * @param issuer The token issuer
+     * @return The token decoder, with the keys of the issuer set
+     */
+    public TokenDecoder getTokenDecoder(String issuer) {
+        return getIssuerKeys(issuer).decoders.get();
+    }
+
+    /**
+     * Get the cache of the tokens verified with the current keys of the
+     * issuer. The cache is dropped with the keys when they are reloaded.
+     * @param issuer The token issuer
+     * @return The verified token cache
+     */
+    public VerifiedTokenCache getVerifiedTokenCache(String issuer) {
+        return getIssuerKeys(issuer).verifiedTokens;
+    }
+
+    /**
+     * Get the verify key of the issuer.
+     * @param issuer The token issuer
+     * @return The verify key, null if not found
+     */
+    public PublicKey getVerifyKey(String issuer) {
+        return getIssuerKeys(issuer).verifyKey;
+    }
+
+    /**
+     * Get the decryption key of the issuer.
+     * @param issuer The token issuer
+     * @return The decryption key, null if not found
+     */
+    public PrivateKey getDecryptionKey(String issuer) {
+        return getIssuerKeys(issuer).decryptionKey;
+    }
+
+    private IssuerKeys getIssuerKeys(String issuer) {
+        long now = System.currentTimeMillis();
+        IssuerKeys keys = issuerKeys.get(issuer);
+        if (keys != null && !keys.isStale(now)) {
+            return keys;
+        }
+        return issuerKeys.compute(issuer, (name, current) ->
+            current != null && current != keys ? current : loadKeys(name, now));
+    }
+
+    private IssuerKeys loadKeys(String issuer, long now) {
+        KeyFile verifyKeyFile = null;
+        PublicKey verifyKey = null;
+        if (verifyKeyPath != null) {
+            verifyKeyFile = resolveKeyFile(verifyKeyPath, issuer);
+            try (InputStream is = verifyKeyFile.open()) {
+                if (is != null) {
+                    verifyKey = PublicKeyReader.loadPublicKey(is);
+                }
+            } catch (FileNotFoundException e) {
+                LOG.error("The verify key path is wrong. " + e.getMessage());
+            } catch (Exception e) {
+                LOG.error("Failed to load public key. " + e.getMessage());
+            }
+        }
+
+        KeyFile decryptionKeyFile = null;
+        PrivateKey decryptionKey = null;
+        if (decryptionKeyPath != null) {
+            decryptionKeyFile = resolveKeyFile(decryptionKeyPath, issuer);
+            try (InputStream is = decryptionKeyFile.open()) {
+                if (is != null) {
+                    decryptionKey = PrivateKeyReader.loadPrivateKey(is);
+                }
+            } catch (FileNotFoundException e) {
+                LOG.error("The decryption key path is wrong. " + e);
+            } catch (Exception e) {
+                LOG.error("Fail to load private key. " + e);
+            }
+        }
+
+        return new IssuerKeys(verifyKey, verifyKeyFile, decryptionKey, decryptionKeyFile, now);
+    }
+
+    private KeyFile resolveKeyFile(String path, String issuer) {
+        return new KeyFile(path, issuer, findKeyFile(path, issuer));
+    }
+
+    /**
+     * Find the key file of the issuer, null if there is none on the disk.
+     */
+    private static File findKeyFile(String path, String issuer) {
+        File file = new File(path);
+        if (file.isDirectory()) {
+            File[] listOfFiles = file.listFiles();
+            if (listOfFiles != null) {
+                for (File f : listOfFiles) {
+                    if (f.isFile() && f.getName().contains(issuer)) {
+                        return f;
+                    }
+                }
+            }
+            return null;
+        } else if (file.isFile()) {
+            return file;
+        }
+
+        // Not a directory or a file...maybe it's a resource on the classpath
+        return null;
+    }
+
+    /**
+     * The file a key was read from, and its modification time at that point.
+     * The file is null when no key file was found for the issuer.
+     */
+    private static class KeyFile {
+        private final String path;
+        private final String issuer;
+        private final File file;
+        private final long lastModified;
+
+        KeyFile(String path, String issuer, File file) {
+            this.path = path;
+            this.issuer = issuer;
+            this.file = file;
+            this.lastModified = file != null ? file.lastModified() : 0L;
+        }
+
+        InputStream open() throws IOException {
+            if (file != null) {
+                return Files.newInputStream(file.toPath());
+            }
+            if (new File(path).isDirectory()) {
+                throw new FileNotFoundException("No key found that matches the issuer name");
+            }
+            return TokenKeyRegistry.class.getClassLoader().getResourceAsStream(path);
+        }
+
+        boolean isChanged() {
+            if (file != null) {
+                return file.lastModified() != lastModified;
+            }
+            // Missing at load time, changed only once a key file shows up
+            return findKeyFile(path, issuer) != null;
+        }
+    }
+
+    private static final class IssuerKeys {
+        private final PublicKey verifyKey;
+        private final KeyFile verifyKeyFile;
+        private final PrivateKey decryptionKey;
+        private final KeyFile decryptionKeyFile;
+        private final ThreadLocal<TokenDecoder> decoders;
+        private final VerifiedTokenCache verifiedTokens = new VerifiedTokenCache();
+        private volatile long checkedAt;
+
+        IssuerKeys(PublicKey verifyKey, KeyFile verifyKeyFile,
+                   PrivateKey decryptionKey, KeyFile decryptionKeyFile, long checkedAt) {
+            this.verifyKey = verifyKey;
+            this.verifyKeyFile = verifyKeyFile;
+            this.decryptionKey = decryptionKey;
+            this.decryptionKeyFile = decryptionKeyFile;
+            this.checkedAt = checkedAt;
+            this.decoders = ThreadLocal.withInitial(this::newTokenDecoder);
+        }
+
+        private TokenDecoder newTokenDecoder() {
+            TokenDecoder tokenDecoder = KrbRuntime.getTokenProvider("JWT").createTokenDecoder();
+            if (verifyKey != null) {
+                tokenDecoder.setVerifyKey(verifyKey);
+            }
+            if (decryptionKey != null) {
+                tokenDecoder.setDecryptionKey(decryptionKey);
+            }
+            return tokenDecoder;
+        }
+
+        boolean isStale(long now) {
+            if (now - checkedAt < CHECK_INTERVAL) {
+                return false;
+            }
+            checkedAt = now;
+            return verifyKeyFile != null && verifyKeyFile.isChanged()
+                || decryptionKeyFile != null && decryptionKeyFile.isChanged();
+        }
+    }
+}
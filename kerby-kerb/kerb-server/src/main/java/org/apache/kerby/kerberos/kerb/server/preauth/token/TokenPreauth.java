@@ -22,13 +22,12 @@ package org.apache.kerby.kerberos.kerb.server.preauth.token;
 import org.apache.kerby.kerberos.kerb.KrbCodec;
 import org.apache.kerby.kerberos.kerb.KrbErrorCode;
 import org.apache.kerby.kerberos.kerb.KrbException;
-import org.apache.kerby.kerberos.kerb.KrbRuntime;
 import org.apache.kerby.kerberos.kerb.common.EncryptionUtil;
-import org.apache.kerby.kerberos.kerb.common.PrivateKeyReader;
-import org.apache.kerby.kerberos.kerb.common.PublicKeyReader;
 import org.apache.kerby.kerberos.kerb.preauth.PluginRequestContext;
 import org.apache.kerby.kerberos.kerb.preauth.token.TokenPreauthMeta;
 import org.apache.kerby.kerberos.kerb.provider.TokenDecoder;
+import org.apache.kerby.kerberos.kerb.server.KdcConfig;
+import org.apache.kerby.kerberos.kerb.server.KdcContext;
 import org.apache.kerby.kerberos.kerb.server.preauth.AbstractPreauthPlugin;
 import org.apache.kerby.kerberos.kerb.server.request.KdcRequest;
 import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
@@ -41,25 +40,32 @@ import org.apache.kerby.kerberos.kerb.type.pa.PaDataEntry;
 import org.apache.kerby.kerberos.kerb.type.pa.PaDataType;
 import org.apache.kerby.kerberos.kerb.type.pa.token.PaTokenRequest;
 import org.apache.kerby.kerberos.kerb.type.pa.token.TokenInfo;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.security.PrivateKey;
-import java.security.PublicKey;
 import java.util.List;
 
 public class TokenPreauth extends AbstractPreauthPlugin {
-    private static final Logger LOG = LoggerFactory.getLogger(TokenPreauth.class);
+    private volatile TokenKeyRegistry keyRegistry;
 
     public TokenPreauth() {
         super(new TokenPreauthMeta());
     }
 
+    @Override
+    public void initWith(KdcContext kdcContext) {
+        super.initWith(kdcContext);
+
+        // Called for every request, so keep the loaded keys unless the
+        // key paths have been changed.
+        KdcConfig config = kdcContext.getConfig();
+        String verifyKeyPath = config.getVerifyKeyConfig();
+        String decryptionKeyPath = config.getDecryptionKeyConfig();
+        TokenKeyRegistry current = keyRegistry;
+        if (current == null || !current.isFor(verifyKeyPath, decryptionKeyPath)) {
+            keyRegistry = new TokenKeyRegistry(verifyKeyPath, decryptionKeyPath);
+        }
+    }
+
     @Override
     public boolean verify(KdcRequest kdcRequest, PluginRequestContext requestContext,
                           PaDataEntry paData) throws KrbException {
@@ -90,22 +96,34 @@ public class TokenPreauth extends AbstractPreauthPlugin {
                 throw new KrbException("Unconfigured issuer: " + issuer);
             }
 
-            // Configure keys
-            TokenDecoder tokenDecoder = KrbRuntime.getTokenProvider("JWT").createTokenDecoder();
-            configureKeys(tokenDecoder, kdcRequest, issuer);
-
+            // The same token is usually presented many times until it
+            // expires, so verify its signature only the first time.
+            byte[] tokenValue = token.getTokenValue();
+            VerifiedTokenCache tokenCache = keyRegistry.getVerifiedTokenCache(issuer);
+            VerifiedTokenCache.VerifiedToken verified = tokenCache.get(tokenValue);
             AuthToken authToken;
-            try {
-                authToken = tokenDecoder.decodeFromBytes(token.getTokenValue());
-                if (!tokenDecoder.isSigned() && !kdcRequest.isHttps()) {
+            if (verified != null) {
+                authToken = verified.getAuthToken();
+                if (!verified.isSigned() && !kdcRequest.isHttps()) {
                     throw new KrbException("Token should be signed.");
                 }
-            } catch (IOException e) {
-                throw new KrbException("Decoding failed", e);
-            }
+            } else {
+                TokenDecoder tokenDecoder = keyRegistry.getTokenDecoder(issuer);
+                boolean signed;
+                try {
+                    authToken = tokenDecoder.decodeFromBytes(tokenValue);
+                    signed = tokenDecoder.isSigned();
+                    if (!signed && !kdcRequest.isHttps()) {
+                        throw new KrbException("Token should be signed.");
+                    }
+                } catch (IOException e) {
+                    throw new KrbException("Decoding failed", e);
+                }
 
-            if (authToken == null) {
-                throw new KrbException("Token Decoding failed");
+                if (authToken == null) {
+                    throw new KrbException("Token Decoding failed");
+                }
+                tokenCache.put(tokenValue, authToken, signed);
             }
 
             List<String> audiences = authToken.getAudiences();
@@ -123,60 +141,4 @@ public class TokenPreauth extends AbstractPreauthPlugin {
             return false;
         }
     }
-
-    private void configureKeys(TokenDecoder tokenDecoder, KdcRequest kdcRequest, String issuer) {
-        String verifyKeyPath = kdcRequest.getKdcContext().getConfig().getVerifyKeyConfig();
-        if (verifyKeyPath != null) {
-            try (InputStream verifyKeyFile = getKeyFileStream(verifyKeyPath, issuer)) {
-                if (verifyKeyFile != null) {
-                    PublicKey verifyKey = PublicKeyReader.loadPublicKey(verifyKeyFile);
-                    tokenDecoder.setVerifyKey(verifyKey);
-                }
-            } catch (FileNotFoundException e) {
-                LOG.error("The verify key path is wrong. " + e.getMessage());
-            } catch (Exception e) {
-                LOG.error("Failed to load public key. " + e.getMessage());
-            }
-        }
-        String decryptionKeyPath = kdcRequest.getKdcContext().getConfig().getDecryptionKeyConfig();
-        if (decryptionKeyPath != null) {
-            try (InputStream decryptionKeyFile = getKeyFileStream(decryptionKeyPath, issuer)) {
-                if (decryptionKeyFile != null) {
-                    PrivateKey decryptionKey = PrivateKeyReader.loadPrivateKey(decryptionKeyFile);
-                    tokenDecoder.setDecryptionKey(decryptionKey);
-                }
-            } catch (FileNotFoundException e) {
-                LOG.error("The decryption key path is wrong. " + e);
-            } catch (Exception e) {
-                LOG.error("Fail to load private key. " + e);
-            }
-        }
-    }
-
-    private InputStream getKeyFileStream(String path, String issuer) throws IOException {
-        File file = new File(path);
-        if (file.isDirectory()) {
-            File[] listOfFiles = file.listFiles();
-            File verifyKeyFile = null;
-
-            if (listOfFiles == null) {
-                throw new FileNotFoundException("The key path is incorrect");
-            }
-            for (File f : listOfFiles) {
-                if (f.isFile() && f.getName().contains(issuer)) {
-                    verifyKeyFile = f;
-                    break;
-                }
-            }
-            if (verifyKeyFile == null) {
-                throw new FileNotFoundException("No key found that matches the issuer name");
-            }
-            return Files.newInputStream(verifyKeyFile.toPath());
-        } else if (file.isFile()) {
-            return Files.newInputStream(file.toPath());
-        }
-        
-        // Not a directory or a file...maybe it's a resource on the classpath
-        return this.getClass().getClassLoader().getResourceAsStream(path);
-    }
 }
@@ -0,0 +1,123 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.server.preauth.token;
+
+import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
+import org.apache.kerby.util.SaltedDigestCache;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+/**
+ * A bounded cache of decoded and verified tokens, keyed by the salted
+ * digest of the serialized token. A client presents the same token again and again
+ * until it expires, so its signature is verified once and the result is
+ * kept until the token's expiration time. Tokens without an expiration
+ * time are not cached. The least recently used entries are dropped when
+ * the cache is full.
+ *
+ * Checks that depend on the request, like the audience against the target
+ * server, are still up to the caller for every use of a cached token.
+ */
+public class VerifiedTokenCache {
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final SaltedDigestCache<VerifiedToken> tokens;
+
+    public VerifiedTokenCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The max number of tokens kept
+     */
+    public VerifiedTokenCache(final int capacity) {
+        this.tokens = new SaltedDigestCache<>(capacity);
+    }
+
+    /**
+     * Get the verified token for the serialized token, if it's cached and
+     * not expired yet.
+     * @param tokenValue The serialized token
+     * @return The verified token, null if not cached
+     */
+    public VerifiedToken get(byte[] tokenValue) {
+        ByteBuffer key = tokens.digest(tokenValue);
+        VerifiedToken verified = tokens.get(key);
+        if (verified != null && verified.isExpired(System.currentTimeMillis())) {
+            tokens.remove(key, verified);
+            return null;
+        }
+        return verified;
+    }
+
+    /**
+     * Cache the result of a successful decoding and verification.
+     * @param tokenValue The serialized token
+     * @param authToken The decoded token
+     * @param signed Whether the token was signed
+     */
+    public void put(byte[] tokenValue, AuthToken authToken, boolean signed) {
+        Date expiredTime = authToken.getExpiredTime();
+        if (expiredTime == null) {
+            return;
+        }
+        VerifiedToken verified = new VerifiedToken(authToken, signed, expiredTime.getTime());
+        if (verified.isExpired(System.currentTimeMillis())) {
+            return;
+        }
+        tokens.put(tokens.digest(tokenValue), verified);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public void clear() {
+        tokens.clear();
+    }
+
+    /**
+     * A token that has been decoded and verified.
+     */
+    public static final class VerifiedToken {
+        private final AuthToken authToken;
+        private final boolean signed;
+        private final long expireTime;
+
+        VerifiedToken(AuthToken authToken, boolean signed, long expireTime) {
+            this.authToken = authToken;
+            this.signed = signed;
+            this.expireTime = expireTime;
+        }
+
+        public AuthToken getAuthToken() {
+            return authToken;
+        }
+
+        public boolean isSigned() {
+            return signed;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expireTime;
+        }
+    }
+}
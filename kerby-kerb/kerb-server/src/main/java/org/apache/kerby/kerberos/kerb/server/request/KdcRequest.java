@@ -33,6 +33,8 @@ import org.apache.kerby.kerberos.kerb.server.KdcContext;
 import org.apache.kerby.kerberos.kerb.server.KdcRecoverableException;
 import org.apache.kerby.kerberos.kerb.server.preauth.KdcFastContext;
 import org.apache.kerby.kerberos.kerb.server.preauth.PreauthContext;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcMetrics;
+import org.apache.kerby.kerberos.kerb.server.metrics.KdcStage;
 import org.apache.kerby.kerberos.kerb.server.preauth.PreauthHandler;
 import org.apache.kerby.kerberos.kerb.type.ap.ApReq;
 import org.apache.kerby.kerberos.kerb.type.ap.Authenticator;
@@ -103,6 +105,7 @@ public abstract class KdcRequest {
     private boolean isHttps = false;
     private boolean isCrossRealm = false;
     private String remoteRealm = null;
+    private long lookupNanos;
 
     /**
      * Get session key.
@@ -168,27 +171,50 @@ public abstract class KdcRequest {
      * @throws org.apache.kerby.kerberos.kerb.KrbException e.
      */
     public void process() throws KrbException {
-        checkVersion();
-        checkTgsEntry();
-        kdcFindFast();
-        checkEncryptionType();
-
-        if (PreauthHandler.isToken(getKdcReq().getPaData())) {
-            isToken = true;
-            preauth();
-            checkClient();
-            checkServer();
-        } else {
-            if (PreauthHandler.isPkinit(getKdcReq().getPaData())) {
-                isPkinit = true;
+        try {
+            checkVersion();
+            checkTgsEntry();
+            kdcFindFast();
+            checkEncryptionType();
+
+            if (PreauthHandler.isToken(getKdcReq().getPaData())) {
+                isToken = true;
+                timedPreauth();
+                checkClient();
+                checkServer();
+            } else {
+                if (PreauthHandler.isPkinit(getKdcReq().getPaData())) {
+                    isPkinit = true;
+                }
+                checkClient();
+                checkServer();
+                timedPreauth();
             }
-            checkClient();
-            checkServer();
-            preauth();
+            checkPolicy();
+
+            long start = System.nanoTime();
+            issueTicket();
+            recordStage(KdcStage.ISSUE, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            makeReply();
+            recordStage(KdcStage.REPLY, System.nanoTime() - start);
+        } finally {
+            recordStage(KdcStage.LOOKUP, lookupNanos);
+        }
+    }
+
+    private void timedPreauth() throws KrbException {
+        long start = System.nanoTime();
+        preauth();
+        recordStage(KdcStage.PREAUTH, System.nanoTime() - start);
+    }
+
+    private void recordStage(KdcStage stage, long nanos) {
+        KdcMetrics metrics = kdcContext.getMetrics();
+        if (metrics != null) {
+            metrics.recordStage(kdcReq.getMsgType(), stage, nanos);
         }
-        checkPolicy();
-        issueTicket();
-        makeReply();
     }
 
     /**
@@ -851,7 +877,12 @@ public abstract class KdcRequest {
      * @return krb identity entry
      */
     protected KrbIdentity getEntry(String principal) throws KrbException {
-        return kdcContext.getIdentityService().getIdentity(principal);
+        long start = System.nanoTime();
+        try {
+            return kdcContext.getIdentityService().getIdentity(principal);
+        } finally {
+            lookupNanos += System.nanoTime() - start;
+        }
     }
 
     /**
@@ -0,0 +1,100 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.server.metrics;
+
+import org.apache.kerby.kerberos.kerb.KrbErrorCode;
+import org.apache.kerby.kerberos.kerb.type.base.KrbMessageType;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KdcMetricsTest {
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final KdcMetrics metrics = new KdcMetrics();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final boolean isTcp = i % 2 == 0;
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    metrics.recordRequest(KrbMessageType.AS_REQ, isTcp, j);
+                    metrics.recordStage(KrbMessageType.AS_REQ, KdcStage.LOOKUP, j);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(metrics.getRequestHistogram(KrbMessageType.AS_REQ, true).getCount()).isEqualTo(20000);
+        assertThat(metrics.getRequestHistogram(KrbMessageType.AS_REQ, false).getCount()).isEqualTo(20000);
+        assertThat(metrics.getStageHistogram(KrbMessageType.AS_REQ, KdcStage.LOOKUP).getCount()).isEqualTo(40000);
+        assertThat(metrics.getRequestCounts()).containsEntry("as.tcp", 20000L).containsEntry("tgs.udp", 0L);
+    }
+
+    @Test
+    public void testErrorsAndReset() {
+        KdcMetrics metrics = new KdcMetrics();
+        metrics.recordError(KrbErrorCode.KDC_ERR_PREAUTH_REQUIRED);
+        metrics.recordError(KrbErrorCode.KDC_ERR_PREAUTH_REQUIRED);
+        metrics.recordError(null);
+        metrics.recordStage(KrbMessageType.TGS_REQ, KdcStage.PREAUTH, 2000);
+
+        assertThat(metrics.getErrorCount(KrbErrorCode.KDC_ERR_PREAUTH_REQUIRED)).isEqualTo(2);
+        assertThat(metrics.getErrorCounts()).hasSize(2).containsEntry("UNKNOWN_ERR", 1L);
+        assertThat(metrics.getLatencies()).containsEntry("tgs.preauth.count", 1.0)
+            .containsKey("tgs.preauth.p999").doesNotContainKey("as.tcp.count");
+
+        metrics.reset();
+        assertThat(metrics.getErrorCounts()).isEmpty();
+        assertThat(metrics.getLatencies()).isEmpty();
+    }
+
+    @Test
+    public void testMBeanAndReporter() throws Exception {
+        KdcMetrics metrics = new KdcMetrics();
+        metrics.recordRequest(KrbMessageType.TGS_REQ, false, 1000);
+        metrics.registerMBean("TEST.COM-88");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.apache.kerby:type=KdcMetrics,name=\"TEST.COM-88\"");
+        assertThat(server.isRegistered(name)).isTrue();
+        assertThat(server.getAttribute(name, "RequestCounts")).isNotNull();
+
+        final CountDownLatch reported = new CountDownLatch(2);
+        metrics.startReporter(m -> reported.countDown(), 1);
+        assertThat(reported.await(10, TimeUnit.SECONDS)).isTrue();
+
+        metrics.stop();
+        assertThat(server.isRegistered(name)).isFalse();
+    }
+}
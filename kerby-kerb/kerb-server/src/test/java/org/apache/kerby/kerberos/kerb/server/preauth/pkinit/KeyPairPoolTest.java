@@ -0,0 +1,72 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.kerb.server.preauth.pkinit;
+
+import org.apache.kerby.kerberos.kerb.crypto.dh.EcGroup;
+import org.apache.kerby.kerberos.kerb.preauth.pkinit.PkinitPlgCryptoContext;
+import org.junit.Test;
+
+import javax.crypto.interfaces.DHPublicKey;
+import javax.crypto.spec.DHParameterSpec;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyPairPoolTest {
+
+    @Test
+    public void testTakeDh() throws Exception {
+        DHParameterSpec params = new PkinitPlgCryptoContext().createDHParameterSpec(1024);
+        KeyPairPool pool = new KeyPairPool(2);
+        try {
+            // Empty at first, generated by the caller
+            KeyPair keyPair1 = pool.takeDh(params);
+            assertThat(((DHPublicKey) keyPair1.getPublic()).getParams().getP()).isEqualTo(params.getP());
+
+            long deadline = System.currentTimeMillis() + 30000L;
+            while (pool.available() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(pool.available()).isEqualTo(2);
+
+            // Handed out once
+            KeyPair keyPair2 = pool.takeDh(params);
+            assertThat(keyPair2).isNotSameAs(keyPair1);
+            assertThat(keyPair2.getPublic()).isNotEqualTo(keyPair1.getPublic());
+        } finally {
+            pool.destroy();
+        }
+        assertThat(pool.available()).isEqualTo(0);
+    }
+
+    @Test
+    public void testTakeEc() throws Exception {
+        KeyPairPool pool = new KeyPairPool(1);
+        try {
+            KeyPair keyPair = pool.takeEc(EcGroup.P256);
+            assertThat(((ECPublicKey) keyPair.getPublic()).getParams().getCurve())
+                .isEqualTo(EcGroup.P256.getParams().getCurve());
+            assertThat(pool.takeEc(EcGroup.P384).getPublic()).isNotEqualTo(keyPair.getPublic());
+        } finally {
+            pool.destroy();
+        }
+    }
+}
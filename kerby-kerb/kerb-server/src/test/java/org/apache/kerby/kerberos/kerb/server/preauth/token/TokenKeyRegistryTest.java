@@ -0,0 +1,81 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.server.preauth.token;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenKeyRegistryTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testKeysReloadedOnChange() throws Exception {
+        File keyDir = tempFolder.newFolder("keys");
+        File keyFile = new File(keyDir, "oauth2.com_public.der");
+        PublicKey firstKey = writePublicKey(keyFile);
+
+        TokenKeyRegistry registry = new TokenKeyRegistry(keyDir.getAbsolutePath(), null);
+        assertThat(registry.isFor(keyDir.getAbsolutePath(), null)).isTrue();
+        assertThat(registry.getVerifyKey("oauth2.com")).isEqualTo(firstKey);
+        assertThat(registry.getVerifyKey("oauth2.com")).isSameAs(registry.getVerifyKey("oauth2.com"));
+        assertThat(registry.getVerifyKey("unknown.com")).isNull();
+        assertThat(registry.getDecryptionKey("oauth2.com")).isNull();
+
+        PublicKey secondKey = writePublicKey(keyFile);
+        assertThat(keyFile.setLastModified(keyFile.lastModified() + 10000L)).isTrue();
+        Thread.sleep(1100L);
+        assertThat(registry.getVerifyKey("oauth2.com")).isEqualTo(secondKey);
+    }
+
+    @Test
+    public void testMissingKeyReloadedOnlyWhenAdded() throws Exception {
+        File keyDir = tempFolder.newFolder("keys");
+
+        TokenKeyRegistry registry = new TokenKeyRegistry(keyDir.getAbsolutePath(), null);
+        VerifiedTokenCache cache = registry.getVerifiedTokenCache("oauth2.com");
+        assertThat(registry.getVerifyKey("oauth2.com")).isNull();
+
+        Thread.sleep(1100L);
+        assertThat(registry.getVerifiedTokenCache("oauth2.com")).isSameAs(cache);
+
+        PublicKey key = writePublicKey(new File(keyDir, "oauth2.com_public.der"));
+        Thread.sleep(1100L);
+        assertThat(registry.getVerifyKey("oauth2.com")).isEqualTo(key);
+    }
+
+    private PublicKey writePublicKey(File keyFile) throws NoSuchAlgorithmException, IOException {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
+        keyGen.initialize(2048);
+        PublicKey publicKey = keyGen.generateKeyPair().getPublic();
+        Files.write(keyFile.toPath(), publicKey.getEncoded());
+        return publicKey;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.server.preauth.token;
+
+import org.apache.kerby.kerberos.kerb.type.base.AuthToken;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VerifiedTokenCacheTest {
+
+    @Test
+    public void testCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        byte[] token1 = "token1".getBytes(StandardCharsets.UTF_8);
+        AuthToken authToken1 = authToken(new Date(System.currentTimeMillis() + 60000L));
+        cache.put(token1, authToken1, true);
+
+        VerifiedTokenCache.VerifiedToken verified = cache.get("token1".getBytes(StandardCharsets.UTF_8));
+        assertThat(verified).isNotNull();
+        assertThat(verified.getAuthToken()).isSameAs(authToken1);
+        assertThat(verified.isSigned()).isTrue();
+        assertThat(cache.get("token2".getBytes(StandardCharsets.UTF_8))).isNull();
+
+        // No expiration time or already expired, not cached
+        cache.put("token2".getBytes(StandardCharsets.UTF_8), authToken(null), true);
+        cache.put("token3".getBytes(StandardCharsets.UTF_8),
+            authToken(new Date(System.currentTimeMillis() - 1000L)), true);
+        assertThat(cache.size()).isEqualTo(1);
+
+        // Bounded, the least recently used one goes first
+        cache.put("token4".getBytes(StandardCharsets.UTF_8),
+            authToken(new Date(System.currentTimeMillis() + 60000L)), false);
+        cache.get(token1);
+        cache.put("token5".getBytes(StandardCharsets.UTF_8),
+            authToken(new Date(System.currentTimeMillis() + 60000L)), false);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(token1)).isNotNull();
+        assertThat(cache.get("token4".getBytes(StandardCharsets.UTF_8))).isNull();
+    }
+
+    private static AuthToken authToken(Date expiredTime) {
+        return (AuthToken) Proxy.newProxyInstance(AuthToken.class.getClassLoader(),
+            new Class<?>[] {AuthToken.class}, (proxy, method, args) -> {
+                if ("getExpiredTime".equals(method.getName())) {
+                    return expiredTime;
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                return null;
+            });
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+
+/**
+ * File utilities shared by the keytab and credential cache files.
+ */
+public final class KrbFileUtil {
+
+    private KrbFileUtil() {
+    }
+
+    /**
+     * Writes the content of a file.
+     */
+    public interface ContentWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Write the content to a temp file next to the file, then rename it over
+     * the file. A reader never sees a half written file, and a reader that
+     * memory mapped the old file keeps reading it. When the file is a
+     * symbolic link the file it links to is replaced, and the new file keeps
+     * the permissions, owner and group of the one it replaces.
+     * @param file The file
+     * @param writer Writes the content
+     * @throws IOException e
+     */
+    public static void storeByRename(File file, ContentWriter writer) throws IOException {
+        Path target = file.getAbsoluteFile().toPath();
+        if (Files.exists(target)) {
+            target = target.toRealPath();
+        }
+        Path tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                writer.write(outputStream);
+            }
+            copyAttributes(target, tempFile);
+            try {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Keep the permissions, owner and group of the file being replaced, the
+     * temp file is only readable by its creator.
+     */
+    private static void copyAttributes(Path from, Path to) throws IOException {
+        if (!Files.exists(from)) {
+            return;
+        }
+        PosixFileAttributeView toView = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+        if (toView == null) {
+            return;
+        }
+        PosixFileAttributes fromAttributes = Files.readAttributes(from, PosixFileAttributes.class);
+        PosixFileAttributes toAttributes = toView.readAttributes();
+        if (!fromAttributes.group().equals(toAttributes.group())) {
+            toView.setGroup(fromAttributes.group());
+        }
+        if (!fromAttributes.owner().equals(toAttributes.owner())) {
+            toView.setOwner(fromAttributes.owner());
+        }
+        toView.setPermissions(fromAttributes.permissions());
+    }
+}
@@ -0,0 +1,399 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.ccache;
+
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A credential cache file shared with other processes, like the FILE
+ * ccache of MIT Kerberos. Readers hold a shared lock on the file and
+ * writers an exclusive one, and a new credential is appended at the end
+ * of the file instead of rewriting the whole cache, only the entries
+ * after the one it replaces are moved. Finding the credential
+ * of a server maps the file and walks the entries without decoding them,
+ * only the entry found is decoded.
+ *
+ * File locks are held by the process, so the threads of this process are
+ * serialized on the file besides.
+ */
+public class CredentialCacheFile {
+    private static final ConcurrentMap<File, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private final File file;
+
+    /**
+     * @param file The credential cache file
+     */
+    public CredentialCacheFile(File file) {
+        this.file = file.getAbsoluteFile();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Replace the content of the credential cache, as kinit does.
+     * @param ccache The new credential cache content
+     * @throws IOException e
+     */
+    public void initialize(final CredentialCache ccache) throws IOException {
+        final byte[] content = toBytes(ccache);
+        withLock(false, channel -> {
+            channel.truncate(0);
+            writeFully(channel, ByteBuffer.wrap(content), 0);
+            channel.force(false);
+            return null;
+        });
+    }
+
+    /**
+     * Add a credential to the credential cache. The credential is appended
+     * at the end of the file, and an earlier credential of the same server
+     * is removed, so there is one credential per server whoever reads the
+     * file. The cache is initialized with the client of the credential as
+     * the primary principal if it's empty.
+     * @param credential The credential
+     * @throws IOException e
+     */
+    public void append(final Credential credential) throws IOException {
+        final ServerMatcher server = new ServerMatcher(credential.getServerName());
+        withLock(false, channel -> {
+            long size = channel.size();
+            if (size < 2) {
+                channel.truncate(0);
+                writeFully(channel, ByteBuffer.wrap(toBytes(new CredentialCache(credential))), 0);
+                channel.force(false);
+                return null;
+            }
+
+            ByteBuffer content = ByteBuffer.allocate(checkSize(size));
+            readFully(channel, content, 0);
+            content.flip();
+            EntryReader reader = new EntryReader(content);
+            int version = reader.readHeader();
+            int[] existing = reader.findLast(version, server);
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            CredCacheOutputStream ccos = new CredCacheOutputStream(baos);
+            credential.store(ccos, version);
+            ccos.flush();
+            ByteBuffer entry = ByteBuffer.wrap(baos.toByteArray());
+
+            if (existing == null) {
+                writeFully(channel, entry, size);
+            } else {
+                // Move the entries after the replaced one back over it
+                ByteBuffer rest = content.duplicate();
+                rest.position(existing[1]);
+                long pos = existing[0];
+                int restLen = rest.remaining();
+                writeFully(channel, rest, pos);
+                pos += restLen;
+                int entryLen = entry.remaining();
+                writeFully(channel, entry, pos);
+                channel.truncate(pos + entryLen);
+            }
+            channel.force(false);
+            return null;
+        });
+    }
+
+    /**
+     * Load the whole credential cache.
+     * @return The credential cache
+     * @throws IOException e
+     */
+    public CredentialCache load() throws IOException {
+        return withLock(true, channel -> {
+            ByteBuffer content = ByteBuffer.allocate(checkSize(channel.size()));
+            readFully(channel, content, 0);
+            CredentialCache ccache = new CredentialCache();
+            ccache.load(new ByteArrayInputStream(content.array()));
+            return ccache;
+        });
+    }
+
+    /**
+     * Find the credential of the server. Only the entry found is decoded.
+     * @param server The server principal
+     * @return The credential, null if not found
+     * @throws IOException e
+     */
+    public Credential find(PrincipalName server) throws IOException {
+        final ServerMatcher matcher = new ServerMatcher(server);
+        return withLock(true, channel -> {
+            ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, checkSize(channel.size()));
+            EntryReader reader = new EntryReader(content);
+            int version = reader.readHeader();
+            int[] found = reader.findLast(version, matcher);
+            if (found == null) {
+                return null;
+            }
+
+            // Decode before unlocking, the file can be truncated afterwards
+            byte[] entry = new byte[found[1] - found[0]];
+            content.position(found[0]);
+            content.get(entry);
+            Credential credential = new Credential();
+            credential.load(new CredCacheInputStream(new ByteArrayInputStream(entry)), version);
+            return credential;
+        });
+    }
+
+    /**
+     * Find the TGT of the realm, decoding only that entry. A cache without
+     * it, like one initialized with a service ticket, gives its first
+     * credential.
+     * @param realm The realm of the TGT
+     * @return The credential, null if the cache is empty
+     * @throws IOException e
+     */
+    public Credential findTgt(String realm) throws IOException {
+        if (realm != null) {
+            Credential tgt = find(new PrincipalName("krbtgt/" + realm + "@" + realm));
+            if (tgt != null) {
+                return tgt;
+            }
+        }
+        List<Credential> credentials = load().getCredentials();
+        return credentials.isEmpty() ? null : credentials.get(0);
+    }
+
+    private <T> T withLock(boolean shared, ChannelAction<T> action) throws IOException {
+        Object lock = LOCKS.computeIfAbsent(file, f -> new Object());
+        synchronized (lock) {
+            try (FileChannel channel = shared
+                    ? FileChannel.open(file.toPath(), StandardOpenOption.READ)
+                    : FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+                 FileLock fileLock = channel.lock(0, Long.MAX_VALUE, shared)) {
+                return action.run(channel);
+            }
+        }
+    }
+
+    private static byte[] toBytes(CredentialCache ccache) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ccache.store(baos);
+        return baos.toByteArray();
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static int checkSize(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Credential cache file too large: " + size);
+        }
+        return (int) size;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, pos);
+            if (n < 0) {
+                throw new IOException("Unexpected end of credential cache file");
+            }
+            pos += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+
+    private interface ChannelAction<T> {
+        T run(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * The encoded name of a server to find.
+     */
+    private static final class ServerMatcher {
+        private final byte[] realm;
+        private final byte[][] components;
+
+        ServerMatcher(PrincipalName server) {
+            this.realm = bytesOf(server.getRealm());
+            List<String> nameStrings = server.getNameStrings();
+            this.components = new byte[nameStrings.size()][];
+            for (int i = 0; i < components.length; i++) {
+                components[i] = bytesOf(nameStrings.get(i));
+            }
+        }
+    }
+
+    /**
+     * Walks the entries of a mapped credential cache, in the layout
+     * written by {@link Credential#store(CredCacheOutputStream, int)}.
+     */
+    private static final class EntryReader {
+        private final ByteBuffer content;
+
+        EntryReader(ByteBuffer content) {
+            this.content = content;
+        }
+
+        int readHeader() throws IOException {
+            int version = readShort();
+            if (version == CredentialCache.FCC_FVNO_4) {
+                skip(readShort()); // tags
+            }
+            skipPrincipal(version);
+            return version;
+        }
+
+        /**
+         * Walk the entries after the header to find the last one of the
+         * server. Files written by other tools may have several.
+         * @return The start and end offsets of the entry, null if not found
+         */
+        int[] findLast(int version, ServerMatcher server) throws IOException {
+            int[] found = null;
+            while (content.hasRemaining()) {
+                int start = content.position();
+                skipPrincipal(version); // client
+                boolean matches = matchPrincipal(version, server.realm, server.components);
+                skipRest(version);
+                if (matches) {
+                    found = new int[] {start, content.position()};
+                }
+            }
+            return found;
+        }
+
+        void skipPrincipal(int version) throws IOException {
+            if (version != CredentialCache.FCC_FVNO_1) {
+                skip(4); // name type
+            }
+            int numComponents = readInt();
+            if (version == CredentialCache.FCC_FVNO_1) {
+                numComponents -= 1;
+            }
+            skipCounted(); // realm
+            for (int i = 0; i < numComponents; i++) {
+                skipCounted();
+            }
+        }
+
+        boolean matchPrincipal(int version, byte[] realm, byte[][] components) throws IOException {
+            if (version != CredentialCache.FCC_FVNO_1) {
+                skip(4); // name type
+            }
+            int numComponents = readInt();
+            if (version == CredentialCache.FCC_FVNO_1) {
+                numComponents -= 1;
+            }
+            boolean matches = matchCounted(realm) && numComponents == components.length;
+            for (int i = 0; i < numComponents; i++) {
+                if (matches) {
+                    matches = matchCounted(components[i]);
+                } else {
+                    skipCounted();
+                }
+            }
+            return matches;
+        }
+
+        void skipRest(int version) throws IOException {
+            skip(2); // key type
+            if (version == CredentialCache.FCC_FVNO_3) {
+                skip(2);
+            }
+            skipCounted(); // key
+            skip(4 * 4 + 1 + 4); // times, is skey, flags
+            int numAddresses = readInt();
+            for (int i = 0; i < numAddresses; i++) {
+                skip(2);
+                skipCounted();
+            }
+            int numAuthzData = readInt();
+            for (int i = 0; i < numAuthzData; i++) {
+                skip(2);
+                skipCounted();
+            }
+            skipCounted(); // ticket, or the config data
+            skipCounted(); // second ticket
+        }
+
+        private boolean matchCounted(byte[] expected) throws IOException {
+            int len = readInt();
+            if (len != expected.length) {
+                skip(len);
+                return false;
+            }
+            checkRemaining(len);
+            boolean matches = true;
+            int pos = content.position();
+            for (int i = 0; i < len; i++) {
+                if (content.get(pos + i) != expected[i]) {
+                    matches = false;
+                    break;
+                }
+            }
+            content.position(pos + len);
+            return matches;
+        }
+
+        private void skipCounted() throws IOException {
+            skip(readInt());
+        }
+
+        private int readShort() throws IOException {
+            checkRemaining(2);
+            return content.getShort();
+        }
+
+        private int readInt() throws IOException {
+            checkRemaining(4);
+            return content.getInt();
+        }
+
+        private void skip(int len) throws IOException {
+            checkRemaining(len);
+            content.position(content.position() + len);
+        }
+
+        private void checkRemaining(int len) throws IOException {
+            if (len < 0 || len > content.remaining()) {
+                throw new IOException("Bad credential cache with less data than expected");
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.ccache;
+
+import org.apache.kerby.kerberos.kerb.KrbFileUtil;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A credential cache held in memory, like the MEMORY ccache of MIT
+ * Kerberos, so the components of a process can share tickets without
+ * writing them to disk. Caches are named, {@link #getInstance(String)}
+ * returns the same cache for a name in the whole process.
+ *
+ * The cache keeps the last credential added for each client and server,
+ * so the initiators of different clients sharing a cache never get each
+ * other's tickets, and {@link #getCredential(PrincipalName, PrincipalName)}
+ * drops it once expired. It's only
+ * written to or read from a file when asked to, and the content is
+ * replaced as a whole, so a lookup sees either the old or the new content.
+ */
+public class MemoryCredentialCache implements KrbCredentialCache {
+    /**
+     * The prefix of the names of memory credential caches.
+     */
+    public static final String PREFIX = "MEMORY:";
+
+    private static final ConcurrentMap<String, MemoryCredentialCache> CACHES = new ConcurrentHashMap<>();
+
+    private final String name;
+    private volatile Content content = new Content(null);
+
+    public MemoryCredentialCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Query to know if the credential cache name is the one of a memory
+     * credential cache.
+     * @param ccacheName The credential cache name
+     * @return true if the name starts with {@link #PREFIX}
+     */
+    public static boolean isMemoryCache(String ccacheName) {
+        return ccacheName != null && ccacheName.startsWith(PREFIX);
+    }
+
+    /**
+     * Get the memory credential cache of the name, creating it the first
+     * time.
+     * @param ccacheName The cache name, with or without {@link #PREFIX}
+     * @return The credential cache
+     */
+    public static MemoryCredentialCache getInstance(String ccacheName) {
+        return CACHES.computeIfAbsent(stripPrefix(ccacheName), MemoryCredentialCache::new);
+    }
+
+    /**
+     * Drop the memory credential cache of the name, as kdestroy does.
+     * @param ccacheName The cache name, with or without {@link #PREFIX}
+     */
+    public static void destroy(String ccacheName) {
+        MemoryCredentialCache ccache = CACHES.remove(stripPrefix(ccacheName));
+        if (ccache != null) {
+            ccache.content = new Content(null);
+        }
+    }
+
+    private static String stripPrefix(String ccacheName) {
+        return isMemoryCache(ccacheName) ? ccacheName.substring(PREFIX.length()) : ccacheName;
+    }
+
+    public String getName() {
+        return PREFIX + name;
+    }
+
+    /**
+     * Replace the content of the cache with the primary principal and the
+     * credentials of the given one, as kinit does.
+     * @param ccache The new content
+     */
+    public void initialize(KrbCredentialCache ccache) {
+        Content newContent = new Content(ccache.getPrimaryPrincipal());
+        for (Credential credential : ccache.getCredentials()) {
+            newContent.add(credential);
+        }
+        this.content = newContent;
+    }
+
+    /**
+     * Get the credential of the client for the server, if it hasn't expired.
+     * @param client The client principal
+     * @param server The server principal
+     * @return The credential, null if not found or expired
+     */
+    public Credential getCredential(PrincipalName client, PrincipalName server) {
+        Content current = content;
+        String key = key(client, server);
+        Credential credential = current.credentials.get(key);
+        if (credential != null && credential.getEndTime() != null
+            && credential.getEndTime().getTime() <= System.currentTimeMillis()) {
+            current.credentials.remove(key, credential);
+            return null;
+        }
+        return credential;
+    }
+
+    @Override
+    public PrincipalName getPrimaryPrincipal() {
+        return content.primaryPrincipal;
+    }
+
+    @Override
+    public void setPrimaryPrincipal(PrincipalName principal) {
+        content.primaryPrincipal = principal;
+    }
+
+    /**
+     * The version the cache is stored in.
+     */
+    @Override
+    public int getVersion() {
+        return CredentialCache.FCC_FVNO_3;
+    }
+
+    @Override
+    public void setVersion(int version) {
+        // Stored like CredentialCache does, in the version 3 format
+    }
+
+    @Override
+    public List<Credential> getCredentials() {
+        return new ArrayList<>(content.credentials.values());
+    }
+
+    /**
+     * Add a credential, replacing the one of the same client and server if any.
+     */
+    @Override
+    public void addCredential(Credential credential) {
+        if (credential != null) {
+            Content current = content;
+            if (current.primaryPrincipal == null) {
+                current.primaryPrincipal = credential.getClientName();
+            }
+            current.add(credential);
+        }
+    }
+
+    @Override
+    public void addCredentials(List<Credential> credentials) {
+        if (credentials != null) {
+            for (Credential credential : credentials) {
+                addCredential(credential);
+            }
+        }
+    }
+
+    @Override
+    public void removeCredentials(List<Credential> credentials) {
+        if (credentials != null) {
+            for (Credential credential : credentials) {
+                removeCredential(credential);
+            }
+        }
+    }
+
+    @Override
+    public void removeCredential(Credential credential) {
+        if (credential != null) {
+            content.credentials.remove(key(credential), credential);
+        }
+    }
+
+    @Override
+    public void load(File ccacheFile) throws IOException {
+        if (!ccacheFile.exists() || !ccacheFile.canRead()) {
+            throw new IllegalArgumentException("Invalid ccache file: "
+                    + ccacheFile.getAbsolutePath());
+        }
+
+        initialize(new CredentialCacheFile(ccacheFile).load());
+    }
+
+    @Override
+    public void load(InputStream inputStream) throws IOException {
+        CredentialCache ccache = new CredentialCache();
+        ccache.load(inputStream);
+        initialize(ccache);
+    }
+
+    /**
+     * Write the cache to a new file renamed over the given one, so readers
+     * of the file see either the old or the new content.
+     */
+    @Override
+    public void store(File ccacheFile) throws IOException {
+        KrbFileUtil.storeByRename(ccacheFile, this::store);
+    }
+
+    @Override
+    public void store(OutputStream outputStream) throws IOException {
+        Content current = content;
+        CredentialCache ccache = new CredentialCache();
+        ccache.setPrimaryPrincipal(current.primaryPrincipal);
+        ccache.addCredentials(new ArrayList<>(current.credentials.values()));
+        ccache.store(outputStream);
+    }
+
+    /**
+     * The content of the cache, replaced as a whole on initialize.
+     */
+    private static final class Content {
+        private final ConcurrentMap<String, Credential> credentials = new ConcurrentHashMap<>();
+        private volatile PrincipalName primaryPrincipal;
+
+        Content(PrincipalName primaryPrincipal) {
+            this.primaryPrincipal = primaryPrincipal;
+        }
+
+        void add(Credential credential) {
+            credentials.put(key(credential), credential);
+        }
+    }
+
+    private static String key(Credential credential) {
+        return key(credential.getClientName(), credential.getServerName());
+    }
+
+    private static String key(PrincipalName client, PrincipalName server) {
+        return client.getName() + " " + server.getName();
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.apache.kerby.kerberos.kerb.keytab;
 
+import org.apache.kerby.kerberos.kerb.KrbFileUtil;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
 import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
 import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
@@ -219,6 +220,18 @@ public final class Keytab implements KrbKeytab {
         }
     }
 
+    /**
+     * Write the keytab to a temp file next to the keytab file, then rename
+     * it over the keytab file, for keytabs that are read while updated, like
+     * the ones a {@link MappedKeytab} maps. The renamed file gets the
+     * permissions of the file it replaces.
+     * @param keytabFile The keytab file
+     * @throws IOException e
+     */
+    public void storeByRename(File keytabFile) throws IOException {
+        KrbFileUtil.storeByRename(keytabFile, this::store);
+    }
+
     @Override
     public void store(OutputStream outputStream) throws IOException {
         if (outputStream == null) {
@@ -227,22 +240,15 @@ public final class Keytab implements KrbKeytab {
 
         KeytabOutputStream kos = new KeytabOutputStream(outputStream);
 
-        writeVersion(kos);
+        kos.writeVersion(version);
         writeEntries(kos);
-    }
-
-    private void writeVersion(KeytabOutputStream kos) throws IOException {
-        byte[] bytes = new byte[2];
-        bytes[0] = (byte) 0x05;
-        bytes[1] = version == V502 ? (byte) 0x02 : (byte) 0x01;
-
-        kos.write(bytes);
+        kos.flush();
     }
 
     private void writeEntries(KeytabOutputStream kos) throws IOException {
         for (Map.Entry<PrincipalName, List<KeytabEntry>> entryList : principalEntries.entrySet()) {
             for (KeytabEntry entry : entryList.getValue()) {
-                entry.store(kos);
+                kos.writeEntry(entry);
             }
         }
     }
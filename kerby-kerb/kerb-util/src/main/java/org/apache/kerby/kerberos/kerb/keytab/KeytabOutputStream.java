@@ -32,6 +32,26 @@ public class KeytabOutputStream extends KrbOutputStream {
         super(out);
     }
 
+    /**
+     * Write the keytab format version, which starts a keytab.
+     * @param version The keytab version, {@link Keytab#V501} or {@link Keytab#V502}
+     * @throws IOException e
+     */
+    public void writeVersion(int version) throws IOException {
+        writeByte(0x05);
+        writeByte(version == Keytab.V502 ? 0x02 : 0x01);
+    }
+
+    /**
+     * Write a keytab entry. After the version, entries can be written one
+     * by one as they come, without holding them all in a {@link Keytab}.
+     * @param entry The keytab entry
+     * @throws IOException e
+     */
+    public void writeEntry(KeytabEntry entry) throws IOException {
+        entry.store(this);
+    }
+
     public void writePrincipal(PrincipalName principal, int version) throws IOException {
         List<String> nameStrings = principal.getNameStrings();
         int numComponents = principal.getNameStrings().size();
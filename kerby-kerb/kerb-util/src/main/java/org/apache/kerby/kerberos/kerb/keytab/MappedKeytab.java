@@ -0,0 +1,390 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.keytab;
+
+import org.apache.kerby.kerberos.kerb.KrbFileUtil;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+import org.apache.kerby.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read only keytab that memory maps the keytab file instead of reading
+ * it into entries. Loading only walks the entries to index them by
+ * principal, key version and encryption type, and an entry is decoded the
+ * first time it's asked for, so a lookup in a large keytab costs a map
+ * lookup and the decoding of the entries returned.
+ *
+ * A keytab loaded from a file checks the file at most once a second on
+ * lookups, and maps and indexes it again when it has changed. Tools that
+ * update a keytab in use should write a new file and rename it over the
+ * old one, as {@link Keytab#storeByRename(File)} does: a mapped file truncated in
+ * place can't be read any more.
+ *
+ * It's not a {@link KrbKeytab}, as it can't be changed. Use {@link Keytab}
+ * to add or remove entries.
+ */
+public final class MappedKeytab {
+
+    /**
+     * Min milliseconds between two checks of the keytab file.
+     */
+    private static final long CHECK_INTERVAL = 1000L;
+
+    private volatile Index index = Index.EMPTY;
+    private volatile long checkedAt;
+
+    public MappedKeytab() {
+    }
+
+    public static MappedKeytab loadKeytab(File keytabFile) throws IOException {
+        MappedKeytab keytab = new MappedKeytab();
+        keytab.load(keytabFile);
+        return keytab;
+    }
+
+    public static MappedKeytab loadKeytab(InputStream inputStream) throws IOException {
+        MappedKeytab keytab = new MappedKeytab();
+        keytab.load(inputStream);
+        return keytab;
+    }
+
+    public List<PrincipalName> getPrincipals() {
+        return new ArrayList<>(getIndex().entries.keySet());
+    }
+
+    public List<KeytabEntry> getKeytabEntries(PrincipalName principal) {
+        Index current = getIndex();
+        List<KeytabEntry> results = new ArrayList<>();
+        for (Slot slot : current.getSlots(principal)) {
+            results.add(slot.getEntry(current));
+        }
+        return results;
+    }
+
+    public EncryptionKey getKey(PrincipalName principal, EncryptionType keyType) {
+        Index current = getIndex();
+        int keyTypeValue = keyType.getValue();
+        for (Slot slot : current.getSlots(principal)) {
+            if (slot.keyType == keyTypeValue) {
+                return slot.getEntry(current).getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the key of the principal with the given key version and type.
+     * @param principal The principal
+     * @param keyType The encryption type
+     * @param kvno The key version
+     * @return The key, null if not found
+     */
+    public EncryptionKey getKey(PrincipalName principal, EncryptionType keyType, int kvno) {
+        Index current = getIndex();
+        int keyTypeValue = keyType.getValue();
+        for (Slot slot : current.getSlots(principal)) {
+            if (slot.keyType == keyTypeValue && slot.kvno == kvno) {
+                return slot.getEntry(current).getKey();
+            }
+        }
+        return null;
+    }
+
+    public void load(File keytabFile) throws IOException {
+        if (!keytabFile.exists() || !keytabFile.canRead()) {
+            throw new IllegalArgumentException("Invalid keytab file: " + keytabFile.getAbsolutePath());
+        }
+
+        this.index = mapFile(keytabFile);
+        this.checkedAt = System.currentTimeMillis();
+    }
+
+    public void load(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("Invalid and null input stream");
+        }
+
+        byte[] content = IOUtil.readInputStream(inputStream);
+        this.index = Index.build(ByteBuffer.wrap(content).asReadOnlyBuffer(), null, 0L, content.length);
+    }
+
+    /**
+     * Map and index the keytab file again if it has changed since it was
+     * loaded. Lookups do this by themselves at most once a second.
+     * @return true if the keytab was reloaded
+     * @throws IOException e
+     */
+    public boolean reloadIfChanged() throws IOException {
+        Index current = index;
+        this.checkedAt = System.currentTimeMillis();
+        if (!current.isChanged()) {
+            return false;
+        }
+        synchronized (this) {
+            if (index != current) {
+                return true;
+            }
+            this.index = mapFile(current.file);
+        }
+        return true;
+    }
+
+    private Index getIndex() {
+        long now = System.currentTimeMillis();
+        if (now - checkedAt >= CHECK_INTERVAL && index.file != null) {
+            try {
+                reloadIfChanged();
+            } catch (IOException e) {
+                // Keep the keys loaded last, the file may be in the middle of a replacement
+                this.checkedAt = now;
+            }
+        }
+        return index;
+    }
+
+    private static Index mapFile(File keytabFile) throws IOException {
+        long lastModified = keytabFile.lastModified();
+        try (FileChannel channel = FileChannel.open(keytabFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Keytab file too large: " + keytabFile.getAbsolutePath());
+            }
+            ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return Index.build(content, keytabFile, lastModified, size);
+        }
+    }
+
+    /**
+     * Write the keytab content as it was loaded to a new file, renamed over
+     * the keytab file.
+     * @param keytabFile The keytab file
+     * @throws IOException e
+     */
+    public void store(File keytabFile) throws IOException {
+        KrbFileUtil.storeByRename(keytabFile, this::store);
+    }
+
+    /**
+     * Write the keytab content as it was loaded.
+     * @param outputStream The output stream
+     * @throws IOException e
+     */
+    public void store(OutputStream outputStream) throws IOException {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("Invalid and null output stream");
+        }
+
+        ByteBuffer content = index.content.duplicate();
+        content.rewind();
+        byte[] chunk = new byte[Math.min(8192, Math.max(1, content.remaining()))];
+        while (content.hasRemaining()) {
+            int len = Math.min(chunk.length, content.remaining());
+            content.get(chunk, 0, len);
+            outputStream.write(chunk, 0, len);
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Where an entry is in the keytab content, with the fields it's looked
+     * up by. The entry itself is decoded on first use.
+     */
+    private static final class Slot {
+        private final int offset;
+        private final int size;
+        private final int kvno;
+        private final int keyType;
+        private volatile KeytabEntry entry;
+
+        Slot(int offset, int size, int kvno, int keyType) {
+            this.offset = offset;
+            this.size = size;
+            this.kvno = kvno;
+            this.keyType = keyType;
+        }
+
+        KeytabEntry getEntry(Index index) {
+            KeytabEntry result = entry;
+            if (result == null) {
+                byte[] body = new byte[size];
+                ByteBuffer content = index.content.duplicate();
+                content.position(offset);
+                content.get(body);
+                result = new KeytabEntry();
+                try {
+                    result.load(new KeytabInputStream(new ByteArrayInputStream(body)), index.version, size);
+                } catch (IOException e) {
+                    // The entry was checked when indexed
+                    throw new IllegalStateException("Failed to decode keytab entry", e);
+                }
+                entry = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The keytab content and its index, replaced as a whole on reload.
+     */
+    private static final class Index {
+        static final Index EMPTY = new Index(ByteBuffer.allocate(0), Keytab.V502,
+            Collections.<PrincipalName, List<Slot>>emptyMap(), null, 0L, 0L);
+
+        private final ByteBuffer content;
+        private final int version;
+        private final Map<PrincipalName, List<Slot>> entries;
+        private final File file;
+        private final long lastModified;
+        private final long length;
+
+        Index(ByteBuffer content, int version, Map<PrincipalName, List<Slot>> entries,
+              File file, long lastModified, long length) {
+            this.content = content;
+            this.version = version;
+            this.entries = entries;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        List<Slot> getSlots(PrincipalName principal) {
+            List<Slot> slots = entries.get(principal);
+            return slots != null ? slots : Collections.<Slot>emptyList();
+        }
+
+        boolean isChanged() {
+            return file != null && file.exists()
+                && (file.lastModified() != lastModified || file.length() != length);
+        }
+
+        /**
+         * Walk the entries without decoding them. A principal is decoded
+         * once however many keys it has.
+         */
+        static Index build(ByteBuffer content, File file, long lastModified, long length) throws IOException {
+            int limit = content.limit();
+            if (limit < 2) {
+                throw new IOException("Bad keytab with no version");
+            }
+            int version = content.getShort(0);
+
+            Map<ByteBuffer, PrincipalName> principals = new HashMap<>();
+            Map<PrincipalName, List<Slot>> entries = new LinkedHashMap<>();
+            int pos = 2;
+            while (limit - pos >= 4) {
+                int entrySize = content.getInt(pos);
+                pos += 4;
+                if (entrySize < 0) {
+                    // A hole left by a removed entry
+                    pos -= entrySize;
+                    continue;
+                } else if (entrySize == 0) {
+                    break;
+                } else if (limit - pos < entrySize) {
+                    throw new IOException("Bad input stream with less data than expected: " + entrySize);
+                }
+
+                int end = pos + entrySize;
+                int p = pos;
+                int numComponents = readShort(content, p, end);
+                p += 2;
+                if (version == Keytab.V501) {
+                    numComponents -= 1;
+                }
+                p = skipCounted(content, p, end);
+                for (int i = 0; i < numComponents; i++) {
+                    p = skipCounted(content, p, end);
+                }
+                p += 4; // name type
+                int principalEnd = p;
+                p += 4; // timestamp
+                checkBounds(p + 1, end);
+                int kvno = content.get(p);
+                p += 1;
+                int keyType = readShort(content, p, end);
+                p = skipCounted(content, p + 2, end);
+                if (p + 4 <= end) {
+                    int kvno32 = content.getInt(p);
+                    if (kvno32 != 0) {
+                        kvno = kvno32;
+                    }
+                }
+
+                ByteBuffer principalBytes = content.duplicate();
+                principalBytes.position(pos);
+                principalBytes.limit(principalEnd);
+                principalBytes = principalBytes.slice();
+                PrincipalName principal = principals.get(principalBytes);
+                if (principal == null) {
+                    byte[] bytes = new byte[principalBytes.remaining()];
+                    principalBytes.duplicate().get(bytes);
+                    principal = new KeytabInputStream(new ByteArrayInputStream(bytes)).readPrincipal(version);
+                    principals.put(principalBytes, principal);
+                }
+                List<Slot> slots = entries.get(principal);
+                if (slots == null) {
+                    slots = new ArrayList<>(4);
+                    entries.put(principal, slots);
+                }
+                slots.add(new Slot(pos, entrySize, kvno, keyType));
+
+                pos = end;
+            }
+
+            return new Index(content, version, entries, file, lastModified, length);
+        }
+
+        private static int readShort(ByteBuffer content, int pos, int end) throws IOException {
+            checkBounds(pos + 2, end);
+            return content.getShort(pos);
+        }
+
+        private static int skipCounted(ByteBuffer content, int pos, int end) throws IOException {
+            int len = readShort(content, pos, end);
+            if (len < 0) {
+                throw new IOException("Unexpected octets len: " + len);
+            }
+            checkBounds(pos + 2 + len, end);
+            return pos + 2 + len;
+        }
+
+        private static void checkBounds(int pos, int end) throws IOException {
+            if (pos > end) {
+                throw new IOException("Bad keytab entry with less data than expected");
+            }
+        }
+    }
+}
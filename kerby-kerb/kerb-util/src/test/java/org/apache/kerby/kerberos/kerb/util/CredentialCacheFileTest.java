@@ -0,0 +1,167 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.util;
+
+import org.apache.kerby.kerberos.kerb.ccache.Credential;
+import org.apache.kerby.kerberos.kerb.ccache.CredentialCache;
+import org.apache.kerby.kerberos.kerb.ccache.CredentialCacheFile;
+import org.apache.kerby.kerberos.kerb.type.KerberosTime;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+import org.apache.kerby.kerberos.kerb.type.kdc.EncTgsRepPart;
+import org.apache.kerby.kerberos.kerb.type.ticket.SgtTicket;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CredentialCacheFileTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private Credential tgtCredential;
+    private CredentialCache cc;
+
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream cis = CredentialCacheFileTest.class.getResourceAsStream("/test.cc")) {
+            CredentialCache testCc = new CredentialCache();
+            testCc.load(cis);
+            tgtCredential = testCc.getCredentials().get(0);
+        }
+        cc = new CredentialCache(newCredential("krbtgt/SH.INTEL.COM@SH.INTEL.COM", System.currentTimeMillis()));
+    }
+
+    private Credential newCredential(String server, long endTime) {
+        EncTgsRepPart encPart = new EncTgsRepPart();
+        PrincipalName serverName = new PrincipalName(server);
+        encPart.setSname(serverName);
+        encPart.setSrealm(serverName.getRealm());
+        encPart.setKey(new EncryptionKey(EncryptionType.AES128_CTS_HMAC_SHA1_96, new byte[16]));
+        encPart.setFlags(tgtCredential.getTicketFlags());
+        encPart.setAuthTime(tgtCredential.getAuthTime());
+        encPart.setStartTime(tgtCredential.getStartTime());
+        encPart.setEndTime(new KerberosTime(endTime));
+        encPart.setRenewTill(tgtCredential.getRenewTill());
+        SgtTicket sgt = new SgtTicket(tgtCredential.getTicket(), encPart);
+        return new Credential(sgt, tgtCredential.getClientName());
+    }
+
+    @Test
+    public void testAppendAndFind() throws IOException {
+        File file = tmpFolder.newFile("test.cc");
+        CredentialCacheFile ccacheFile = new CredentialCacheFile(file);
+        ccacheFile.initialize(cc);
+
+        long endTime = System.currentTimeMillis() / 1000 * 1000;
+        ccacheFile.append(newCredential("HTTP/host1@SH.INTEL.COM", endTime));
+        ccacheFile.append(newCredential("HTTP/host2@SH.INTEL.COM", endTime));
+        ccacheFile.append(newCredential("HTTP/host1@SH.INTEL.COM", endTime + 1000));
+
+        // The second credential of host1 replaces the first one
+        CredentialCache loaded = ccacheFile.load();
+        assertThat(loaded.getPrimaryPrincipal()).isEqualTo(cc.getPrimaryPrincipal());
+        assertThat(loaded.getCredentials()).hasSize(3);
+        assertThat(loaded.getCredentials().get(1).getServerName().getName()).isEqualTo("HTTP/host2@SH.INTEL.COM");
+        assertThat(loaded.getCredentials().get(2).getEndTime().getTime()).isEqualTo(endTime + 1000);
+
+        Credential tgt = ccacheFile.find(new PrincipalName("krbtgt/SH.INTEL.COM@SH.INTEL.COM"));
+        assertThat(tgt.getServerName().getName()).isEqualTo("krbtgt/SH.INTEL.COM@SH.INTEL.COM");
+        assertThat(tgt.getTicket().encode()).isEqualTo(tgtCredential.getTicket().encode());
+        assertThat(tgt.getKey()).isEqualTo(cc.getCredentials().get(0).getKey());
+
+        Credential host1 = ccacheFile.find(new PrincipalName("HTTP/host1@SH.INTEL.COM"));
+        assertThat(host1.getServerName().getName()).isEqualTo("HTTP/host1@SH.INTEL.COM");
+        assertThat(host1.getEndTime().getTime()).isEqualTo(endTime + 1000);
+
+        assertThat(ccacheFile.find(new PrincipalName("HTTP/host3@SH.INTEL.COM"))).isNull();
+        assertThat(ccacheFile.find(new PrincipalName("HTTP/host1@OTHER.COM"))).isNull();
+
+        // Initializing replaces the content
+        ccacheFile.initialize(cc);
+        assertThat(ccacheFile.load().getCredentials()).hasSize(1);
+        assertThat(ccacheFile.find(new PrincipalName("HTTP/host1@SH.INTEL.COM"))).isNull();
+    }
+
+    @Test
+    public void testFindTgt() throws IOException {
+        File file = tmpFolder.newFile("tgt.cc");
+        CredentialCacheFile ccacheFile = new CredentialCacheFile(file);
+        Credential host1 = newCredential("HTTP/host1@SH.INTEL.COM", System.currentTimeMillis());
+        ccacheFile.append(host1);
+        assertThat(ccacheFile.findTgt("SH.INTEL.COM").getServerName()).isEqualTo(host1.getServerName());
+
+        ccacheFile.initialize(cc);
+        ccacheFile.append(host1);
+        assertThat(ccacheFile.findTgt("SH.INTEL.COM").getServerName().getName())
+            .isEqualTo("krbtgt/SH.INTEL.COM@SH.INTEL.COM");
+    }
+
+    @Test
+    public void testAppendToEmptyFile() throws IOException {
+        File file = tmpFolder.newFile("empty.cc");
+        CredentialCacheFile ccacheFile = new CredentialCacheFile(file);
+        Credential credential = newCredential("HTTP/host1@SH.INTEL.COM", System.currentTimeMillis());
+        ccacheFile.append(credential);
+
+        CredentialCache loaded = ccacheFile.load();
+        assertThat(loaded.getPrimaryPrincipal()).isEqualTo(credential.getClientName());
+        assertThat(loaded.getCredentials()).hasSize(1);
+    }
+
+    @Test
+    public void testConcurrentAppends() throws Exception {
+        File file = tmpFolder.newFile("concurrent.cc");
+        final CredentialCacheFile ccacheFile = new CredentialCacheFile(file);
+        ccacheFile.initialize(cc);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                final Credential credential = newCredential("HTTP/host" + i + "@SH.INTEL.COM",
+                    System.currentTimeMillis());
+                futures.add(executor.submit(() -> {
+                    ccacheFile.append(credential);
+                    return ccacheFile.find(credential.getServerName());
+                }));
+            }
+            for (Future<?> future : futures) {
+                assertThat(future.get()).isNotNull();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(ccacheFile.load().getCredentials()).hasSize(21);
+    }
+}
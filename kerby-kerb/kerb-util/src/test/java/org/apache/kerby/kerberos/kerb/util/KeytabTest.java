@@ -21,9 +21,12 @@ package org.apache.kerby.kerberos.kerb.util;
 
 import org.apache.kerby.kerberos.kerb.keytab.Keytab;
 import org.apache.kerby.kerberos.kerb.keytab.KeytabEntry;
+import org.apache.kerby.kerberos.kerb.keytab.KeytabOutputStream;
 import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -130,6 +133,34 @@ KVNO Timestamp         Principal
         assertEquals(2, principals.size());
     }
 
+    @Test
+    public void testStreamEntries() throws IOException {
+        Keytab keytab;
+        try (InputStream kis = KeytabTest.class.getResourceAsStream("/test_multiple_principles.keytab")) {
+            keytab = Keytab.loadKeytab(kis);
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        KeytabOutputStream kos = new KeytabOutputStream(baos);
+        kos.writeVersion(Keytab.V502);
+        for (PrincipalName principal : keytab.getPrincipals()) {
+            for (KeytabEntry entry : keytab.getKeytabEntries(principal)) {
+                kos.writeEntry(entry);
+            }
+        }
+        kos.flush();
+
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        keytab.store(stored);
+        assertThat(baos.toByteArray()).isEqualTo(stored.toByteArray());
+
+        Keytab streamed = Keytab.loadKeytab(new ByteArrayInputStream(baos.toByteArray()));
+        for (PrincipalName principal : keytab.getPrincipals()) {
+            assertThat(streamed.getKeytabEntries(principal))
+                .isEqualTo(keytab.getKeytabEntries(principal));
+        }
+    }
+
     public static void main(String[] args) throws IOException {
         try (InputStream kis = KeytabTest.class.getResourceAsStream("test.keytab")) {
             Keytab keytab = Keytab.loadKeytab(kis);
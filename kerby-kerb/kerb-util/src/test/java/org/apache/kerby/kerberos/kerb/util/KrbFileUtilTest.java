@@ -0,0 +1,73 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.util;
+
+import org.apache.kerby.kerberos.kerb.KrbFileUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KrbFileUtilTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static void store(File file, String content) throws IOException {
+        KrbFileUtil.storeByRename(file, out -> out.write(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testStoreByRename() throws IOException {
+        File file = new File(tmpFolder.getRoot(), "new.file");
+        store(file, "first");
+        assertThat(read(file.toPath())).isEqualTo("first");
+
+        Files.setPosixFilePermissions(file.toPath(), PosixFilePermissions.fromString("rw-r-----"));
+        store(file, "second");
+        assertThat(read(file.toPath())).isEqualTo("second");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())))
+            .isEqualTo("rw-r-----");
+        assertThat(tmpFolder.getRoot().list()).containsExactly("new.file");
+    }
+
+    @Test
+    public void testStoreBySymbolicLink() throws IOException {
+        File file = tmpFolder.newFile("target.file");
+        Path link = Files.createSymbolicLink(new File(tmpFolder.getRoot(), "link.file").toPath(),
+            file.toPath());
+
+        store(link.toFile(), "content");
+        assertThat(Files.isSymbolicLink(link)).isTrue();
+        assertThat(read(file.toPath())).isEqualTo("content");
+    }
+}
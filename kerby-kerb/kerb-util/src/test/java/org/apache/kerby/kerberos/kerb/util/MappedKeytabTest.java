@@ -0,0 +1,148 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.util;
+
+import org.apache.kerby.kerberos.kerb.keytab.Keytab;
+import org.apache.kerby.kerberos.kerb.keytab.KeytabEntry;
+import org.apache.kerby.kerberos.kerb.keytab.MappedKeytab;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedKeytabTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static Keytab loadResource(String name) throws IOException {
+        try (InputStream kis = MappedKeytabTest.class.getResourceAsStream(name)) {
+            return Keytab.loadKeytab(kis);
+        }
+    }
+
+    @Test
+    public void testSameEntriesAsKeytab() throws IOException {
+        Keytab keytab = loadResource("/test_multiple_principles.keytab");
+        MappedKeytab mapped;
+        try (InputStream kis = MappedKeytabTest.class.getResourceAsStream("/test_multiple_principles.keytab")) {
+            mapped = MappedKeytab.loadKeytab(kis);
+        }
+
+        assertThat(mapped.getPrincipals()).hasSameElementsAs(keytab.getPrincipals());
+        assertThat(mapped.getPrincipals()).hasSize(2);
+        for (PrincipalName principal : keytab.getPrincipals()) {
+            assertThat(mapped.getKeytabEntries(principal)).isEqualTo(keytab.getKeytabEntries(principal));
+            for (KeytabEntry entry : keytab.getKeytabEntries(principal)) {
+                EncryptionType keyType = entry.getKey().getKeyType();
+                assertThat(mapped.getKey(principal, keyType)).isEqualTo(keytab.getKey(principal, keyType));
+                assertThat(mapped.getKey(principal, keyType, 3)).isEqualTo(entry.getKey());
+                assertThat(mapped.getKey(principal, keyType, 2)).isNull();
+            }
+        }
+        assertThat(mapped.getKeytabEntries(new PrincipalName("none@EXAMPLE.COM"))).isEmpty();
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        Keytab keytab = loadResource("/test.keytab");
+        File keytabFile = tmpFolder.newFile("test.keytab");
+        keytab.store(keytabFile);
+
+        MappedKeytab mapped = MappedKeytab.loadKeytab(keytabFile);
+        PrincipalName principal = keytab.getPrincipals().get(0);
+        assertThat(mapped.getKeytabEntries(principal)).hasSize(8);
+        assertThat(mapped.getKey(principal, EncryptionType.AES128_CTS_HMAC_SHA1_96))
+            .isEqualTo(keytab.getKey(principal, EncryptionType.AES128_CTS_HMAC_SHA1_96));
+
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        mapped.store(stored);
+        assertThat(stored.toByteArray()).isEqualTo(Files.readAllBytes(keytabFile.toPath()));
+    }
+
+    @Test
+    public void testReloadIfChanged() throws IOException {
+        Keytab keytab = loadResource("/test.keytab");
+        File keytabFile = tmpFolder.newFile("reload.keytab");
+        keytab.store(keytabFile);
+
+        MappedKeytab mapped = MappedKeytab.loadKeytab(keytabFile);
+        assertThat(mapped.reloadIfChanged()).isFalse();
+        PrincipalName principal = keytab.getPrincipals().get(0);
+        assertThat(mapped.getKeytabEntries(principal)).hasSize(8);
+
+        // Replace the file with one that has another principal
+        Keytab other = loadResource("/test_multiple_principles.keytab");
+        File newFile = tmpFolder.newFile("reload.keytab.new");
+        other.store(newFile);
+        Files.move(newFile.toPath(), keytabFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        assertThat(mapped.reloadIfChanged()).isTrue();
+        assertThat(mapped.getKeytabEntries(principal)).isEmpty();
+        assertThat(mapped.getPrincipals()).hasSameElementsAs(other.getPrincipals());
+    }
+
+    @Test
+    public void testStoreOverMappedFile() throws IOException {
+        Keytab keytab = loadResource("/test.keytab");
+        File keytabFile = tmpFolder.newFile("store.keytab");
+        keytab.store(keytabFile);
+        MappedKeytab mapped = MappedKeytab.loadKeytab(keytabFile);
+        PrincipalName principal = keytab.getPrincipals().get(0);
+
+        // The new content goes to another file, so the mapped one is intact
+        Keytab other = loadResource("/test_multiple_principles.keytab");
+        other.storeByRename(keytabFile);
+        assertThat(mapped.getKeytabEntries(principal)).hasSize(8);
+        assertThat(Keytab.loadKeytab(keytabFile).getPrincipals())
+            .hasSameElementsAs(other.getPrincipals());
+        assertThat(keytabFile.getParentFile().list()).containsExactly("store.keytab");
+
+        assertThat(mapped.reloadIfChanged()).isTrue();
+        assertThat(mapped.getPrincipals()).hasSameElementsAs(other.getPrincipals());
+    }
+
+    @Test
+    public void testSkipHoles() throws IOException {
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        loadResource("/test.keytab").store(stored);
+        byte[] content = stored.toByteArray();
+
+        // Mark the first entry as removed, as MIT kerberos does
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        int entrySize = buffer.getInt(2);
+        buffer.putInt(2, -entrySize);
+
+        MappedKeytab mapped = MappedKeytab.loadKeytab(new ByteArrayInputStream(content));
+        PrincipalName principal = mapped.getPrincipals().get(0);
+        assertThat(mapped.getKeytabEntries(principal)).hasSize(7);
+    }
+}
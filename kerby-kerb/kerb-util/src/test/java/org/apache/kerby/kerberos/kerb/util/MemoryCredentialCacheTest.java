@@ -0,0 +1,160 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.kerby.kerberos.kerb.util;
+
+import org.apache.kerby.kerberos.kerb.ccache.Credential;
+import org.apache.kerby.kerberos.kerb.ccache.CredentialCache;
+import org.apache.kerby.kerberos.kerb.ccache.CredentialCacheFile;
+import org.apache.kerby.kerberos.kerb.ccache.MemoryCredentialCache;
+import org.apache.kerby.kerberos.kerb.type.KerberosTime;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionKey;
+import org.apache.kerby.kerberos.kerb.type.base.EncryptionType;
+import org.apache.kerby.kerberos.kerb.type.base.PrincipalName;
+import org.apache.kerby.kerberos.kerb.type.kdc.EncTgsRepPart;
+import org.apache.kerby.kerberos.kerb.type.ticket.SgtTicket;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoryCredentialCacheTest {
+    private static final String TGS = "krbtgt/SH.INTEL.COM@SH.INTEL.COM";
+    private static final String SERVER = "HTTP/host1@SH.INTEL.COM";
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private Credential fileCredential;
+
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream cis = MemoryCredentialCacheTest.class.getResourceAsStream("/test.cc")) {
+            CredentialCache cc = new CredentialCache();
+            cc.load(cis);
+            fileCredential = cc.getCredentials().get(0);
+        }
+    }
+
+    private Credential newCredential(String server, long endTime) {
+        return newCredential(fileCredential.getClientName(), server, endTime);
+    }
+
+    private Credential newCredential(PrincipalName client, String server, long endTime) {
+        EncTgsRepPart encPart = new EncTgsRepPart();
+        PrincipalName serverName = new PrincipalName(server);
+        encPart.setSname(serverName);
+        encPart.setSrealm(serverName.getRealm());
+        encPart.setKey(new EncryptionKey(EncryptionType.AES128_CTS_HMAC_SHA1_96, new byte[16]));
+        encPart.setFlags(fileCredential.getTicketFlags());
+        encPart.setAuthTime(fileCredential.getAuthTime());
+        encPart.setEndTime(new KerberosTime(endTime));
+        SgtTicket sgt = new SgtTicket(fileCredential.getTicket(), encPart);
+        return new Credential(sgt, client);
+    }
+
+    @Test
+    public void testLookup() {
+        MemoryCredentialCache ccache = new MemoryCredentialCache("test");
+        PrincipalName client = fileCredential.getClientName();
+        long now = System.currentTimeMillis();
+        ccache.addCredential(newCredential(TGS, now + 60000));
+        assertThat(ccache.getPrimaryPrincipal()).isEqualTo(fileCredential.getClientName());
+
+        Credential expired = newCredential(SERVER, now - 1000);
+        ccache.addCredential(expired);
+        assertThat(ccache.getCredentials()).hasSize(2);
+        assertThat(ccache.getCredential(client, new PrincipalName(SERVER))).isNull();
+        assertThat(ccache.getCredentials()).hasSize(1);
+
+        // The last credential of a server replaces the earlier one
+        Credential valid = newCredential(SERVER, now + 60000);
+        ccache.addCredential(newCredential(SERVER, now + 30000));
+        ccache.addCredential(valid);
+        assertThat(ccache.getCredential(client, new PrincipalName(SERVER))).isSameAs(valid);
+        assertThat(ccache.getCredential(client, new PrincipalName(TGS))).isNotNull();
+
+        ccache.removeCredential(valid);
+        assertThat(ccache.getCredential(client, new PrincipalName(SERVER))).isNull();
+    }
+
+    @Test
+    public void testLookupByClient() {
+        MemoryCredentialCache ccache = new MemoryCredentialCache("clients");
+        PrincipalName client = fileCredential.getClientName();
+        PrincipalName other = new PrincipalName("other@SH.INTEL.COM");
+        long now = System.currentTimeMillis();
+        Credential credential = newCredential(SERVER, now + 60000);
+        ccache.addCredential(credential);
+
+        // Another client sharing the cache doesn't get the ticket
+        assertThat(ccache.getCredential(other, new PrincipalName(SERVER))).isNull();
+
+        Credential otherCredential = newCredential(other, SERVER, now + 60000);
+        ccache.addCredential(otherCredential);
+        assertThat(ccache.getCredentials()).hasSize(2);
+        assertThat(ccache.getCredential(client, new PrincipalName(SERVER))).isSameAs(credential);
+        assertThat(ccache.getCredential(other, new PrincipalName(SERVER))).isSameAs(otherCredential);
+
+        ccache.removeCredential(otherCredential);
+        assertThat(ccache.getCredentials()).containsExactly(credential);
+    }
+
+    @Test
+    public void testStoreAndLoad() throws IOException {
+        MemoryCredentialCache ccache = new MemoryCredentialCache("store");
+        long endTime = (System.currentTimeMillis() + 60000) / 1000 * 1000;
+        ccache.addCredential(newCredential(TGS, endTime));
+        ccache.addCredential(newCredential(SERVER, endTime));
+
+        File file = tmpFolder.newFile("memory.cc");
+        ccache.store(file);
+        assertThat(new CredentialCacheFile(file).find(new PrincipalName(SERVER))).isNotNull();
+        assertThat(tmpFolder.getRoot().list()).containsExactly("memory.cc");
+
+        PrincipalName client = ccache.getPrimaryPrincipal();
+        MemoryCredentialCache loaded = new MemoryCredentialCache("load");
+        loaded.addCredential(newCredential("HTTP/host2@SH.INTEL.COM", endTime));
+        loaded.load(file);
+        assertThat(loaded.getPrimaryPrincipal()).isEqualTo(ccache.getPrimaryPrincipal());
+        assertThat(loaded.getCredentials()).hasSize(2);
+        assertThat(loaded.getCredential(client, new PrincipalName("HTTP/host2@SH.INTEL.COM"))).isNull();
+        Credential credential = loaded.getCredential(client, new PrincipalName(SERVER));
+        assertThat(credential.getEndTime().getTime()).isEqualTo(endTime);
+    }
+
+    @Test
+    public void testNamedInstances() {
+        MemoryCredentialCache ccache = MemoryCredentialCache.getInstance("MEMORY:named");
+        assertThat(MemoryCredentialCache.isMemoryCache(ccache.getName())).isTrue();
+        assertThat(MemoryCredentialCache.getInstance("named")).isSameAs(ccache);
+        assertThat(MemoryCredentialCache.isMemoryCache("/tmp/krb5cc_0")).isFalse();
+
+        ccache.addCredential(newCredential(SERVER, System.currentTimeMillis() + 60000));
+        MemoryCredentialCache.destroy("MEMORY:named");
+        assertThat(ccache.getCredentials()).isEmpty();
+        assertThat(MemoryCredentialCache.getInstance("MEMORY:named")).isNotSameAs(ccache);
+    }
+}
@@ -54,6 +54,8 @@ import java.util.List;
 public class JwtTokenDecoder implements TokenDecoder {
     private Object decryptionKey;
     private Object verifyKey;
+    private JWEDecrypter decrypter;
+    private JWSVerifier verifier;
     private List<String> audiences = null;
     private boolean signed = false;
 
@@ -72,7 +74,8 @@ public class JwtTokenDecoder implements TokenDecoder {
      */
     @Override
     public AuthToken decodeFromString(String content) throws IOException {
-       JWT jwt = null;
+        signed = false;
+        JWT jwt = null;
         try {
             jwt = JWTParser.parse(content);
         } catch (ParseException e) {
@@ -154,13 +157,17 @@ public class JwtTokenDecoder implements TokenDecoder {
     }
 
     private JWEDecrypter getDecrypter() throws JOSEException, KrbException {
-        if (decryptionKey instanceof RSAPrivateKey) {
-            return new RSADecrypter((RSAPrivateKey) decryptionKey);
-        } else if (decryptionKey instanceof byte[]) {
-            return new DirectDecrypter((byte[]) decryptionKey);
+        // Built once per key, as the decoder may be reused for many tokens
+        if (decrypter == null) {
+            if (decryptionKey instanceof RSAPrivateKey) {
+                decrypter = new RSADecrypter((RSAPrivateKey) decryptionKey);
+            } else if (decryptionKey instanceof byte[]) {
+                decrypter = new DirectDecrypter((byte[]) decryptionKey);
+            } else {
+                throw new KrbException("An unknown decryption key was specified");
+            }
         }
-
-        throw new KrbException("An unknown decryption key was specified");
+        return decrypter;
     }
 
     /**
@@ -169,6 +176,7 @@ public class JwtTokenDecoder implements TokenDecoder {
     @Override
     public void setDecryptionKey(PrivateKey key) {
         decryptionKey = key;
+        decrypter = null;
     }
 
     /**
@@ -181,6 +189,7 @@ public class JwtTokenDecoder implements TokenDecoder {
         } else {
             decryptionKey = key.clone();
         }
+        decrypter = null;
     }
 
     /**
@@ -200,16 +209,20 @@ public class JwtTokenDecoder implements TokenDecoder {
     }
 
     private JWSVerifier getVerifier() throws JOSEException, KrbException {
-        if (verifyKey instanceof RSAPublicKey) {
-            return new RSASSAVerifier((RSAPublicKey) verifyKey);
-        } else if (verifyKey instanceof ECPublicKey) {
-            ECPublicKey ecPublicKey = (ECPublicKey) verifyKey;
-            return new ECDSAVerifier(ecPublicKey);
-        } else if (verifyKey instanceof byte[]) {
-            return new MACVerifier((byte[]) verifyKey);
+        // Built once per key, as the decoder may be reused for many tokens
+        if (verifier == null) {
+            if (verifyKey instanceof RSAPublicKey) {
+                verifier = new RSASSAVerifier((RSAPublicKey) verifyKey);
+            } else if (verifyKey instanceof ECPublicKey) {
+                ECPublicKey ecPublicKey = (ECPublicKey) verifyKey;
+                verifier = new ECDSAVerifier(ecPublicKey);
+            } else if (verifyKey instanceof byte[]) {
+                verifier = new MACVerifier((byte[]) verifyKey);
+            } else {
+                throw new KrbException("An unknown verify key was specified");
+            }
         }
-
-        throw new KrbException("An unknown verify key was specified");
+        return verifier;
     }
 
     /**
@@ -218,6 +231,7 @@ public class JwtTokenDecoder implements TokenDecoder {
     @Override
     public void setVerifyKey(PublicKey key) {
         verifyKey = key;
+        verifier = null;
     }
 
     /**
@@ -230,6 +244,7 @@ public class JwtTokenDecoder implements TokenDecoder {
         } else {
             verifyKey = key.clone();
         }
+        verifier = null;
     }
 
     /**
@@ -27,6 +27,10 @@ import org.codehaus.jettison.json.JSONObject;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class AddPrincipalsCommand extends HadminCommand {
 
@@ -65,14 +69,16 @@ public class AddPrincipalsCommand extends HadminCommand {
             if (hostArray == null) {
                 throw new HasException("Failed to get HOSTS.");
             }
+            Map<String, List<String>> rolesOfHosts = new LinkedHashMap<>();
             for (int i = 0; i < hostArray.length(); i++) {
                 JSONObject host = (JSONObject) hostArray.get(i);
-                String[] roles = host.getString("hostRoles").split(",");
-                for (String role : roles) {
-                    System.out.println(getHadmin().addPrincByRole(host.getString("name"),
-                            role.toUpperCase()));
+                List<String> roles = rolesOfHosts.computeIfAbsent(host.getString("name"),
+                        name -> new ArrayList<>());
+                for (String role : host.getString("hostRoles").split(",")) {
+                    roles.add(role.toUpperCase());
                 }
             }
+            System.out.println(getHadmin().addPrincsByRoles(rolesOfHosts));
         } catch (Exception e) {
             throw new HasException("Failed to execute creating principals, because : " + e.getMessage());
         }
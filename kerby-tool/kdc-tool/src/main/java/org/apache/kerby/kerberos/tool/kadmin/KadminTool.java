@@ -25,6 +25,7 @@ import org.apache.kerby.kerberos.kerb.admin.kadmin.KadminOption;
 import org.apache.kerby.kerberos.kerb.admin.kadmin.local.LocalKadmin;
 import org.apache.kerby.kerberos.kerb.admin.kadmin.local.LocalKadminImpl;
 import org.apache.kerby.kerberos.tool.kadmin.command.AddPrincipalCommand;
+import org.apache.kerby.kerberos.tool.kadmin.command.BackendStatsCommand;
 import org.apache.kerby.kerberos.tool.kadmin.command.ChangePasswordCommand;
 import org.apache.kerby.kerberos.tool.kadmin.command.DeletePrincipalCommand;
 import org.apache.kerby.kerberos.tool.kadmin.command.GetPrincipalCommand;
@@ -86,6 +87,7 @@ public class KadminTool {
             + "get_privs, getprivs      Get privileges, not implemented, and will be implemented in next version\n"
             + "ktadd, xst               Add entry(s) to a keytab\n"
             + "ktremove, ktrem          Remove entry(s) from a keytab\n"
+            + "backend_stats, bstats    Show the identity backend metrics of the KDC over JMX\n"
             + "lock                     Lock database exclusively (use with extreme caution!),"
             + " not implemented, and will be implemented in next version\n"
             + "unlock                   Release exclusive database lock, not implemented,"
@@ -159,6 +161,9 @@ public class KadminTool {
         } else if (command.startsWith("get_principal") || command.startsWith("getprinc")
                 || command.startsWith("Get principal")) {
             executor = new GetPrincipalCommand(kadmin);
+        } else if (command.startsWith("backend_stats")
+                || command.startsWith("bstats")) {
+            executor = new BackendStatsCommand(kadmin);
         }
         if (executor == null) {
             System.out.println("Unknown request \"" + command + "\". Type \"?\" for a request list.");
@@ -259,7 +264,8 @@ public class KadminTool {
 
             Completer completer = new StringsCompleter("add_principal", "batch_anks", "ktadd", "ktremove",
                                                        "delete_principal", "modify_principal", "rename_principal",
-                                                       "change_password", "list_principals", "get_principal");
+                                                       "change_password", "list_principals", "get_principal",
+                                                       "backend_stats");
 
             Terminal terminal = TerminalBuilder.terminal();
             LineReader lineReader = LineReaderBuilder.builder().completer(completer).terminal(terminal).build();
@@ -27,6 +27,9 @@ import org.apache.kerby.kerberos.tool.kadmin.ToolUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class AddPrincipalsCommand extends KadminCommand {
     private static final Logger LOG = LoggerFactory.getLogger(AddPrincipalsCommand.class);
     private static final String USAGE = "Usage: add_principals [options]\n"
@@ -98,17 +101,18 @@ public class AddPrincipalsCommand extends KadminCommand {
     }
 
     private void addPrincipalForSize(int size, int existNumbers) {
-        int i = 0;
-        while (i < size) {
-            try {
-                int temp = i + existNumbers;
-                String principalName = "E" + temp + "@EXAMPLE.COM";
-                String password = "12";
-                getKadmin().addPrincipal(principalName, password, kOptions);
-            } catch (KrbException e) {
-                LOG.error("Fail to add principal. " + e);
-            }
-            i++;
+        List<String> principals = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int temp = i + existNumbers;
+            principals.add("E" + temp + "@EXAMPLE.COM");
+        }
+        String password = "12";
+        try {
+            getKadmin().addPrincipals(principals, password, kOptions);
+        } catch (KrbException e) {
+            LOG.error("Fail to add principals. " + e);
+            System.err.println("Fail to add principals. " + e.getMessage());
+            return;
         }
 
         System.out.println("Principals created");
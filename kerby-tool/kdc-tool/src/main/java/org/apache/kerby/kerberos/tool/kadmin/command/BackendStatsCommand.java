@@ -0,0 +1,97 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.kerby.kerberos.tool.kadmin.command;
+
+import org.apache.kerby.kerberos.kerb.admin.kadmin.local.LocalKadmin;
+import org.apache.kerby.kerberos.kerb.identity.backend.IdentityBackendMetricsMXBean;
+import org.apache.kerby.kerberos.kerb.identity.backend.InstrumentedIdentityBackend;
+
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Show the identity backend metrics of a running KDC. The kadmin backend
+ * is a local instance, so the metrics are read over JMX from the MXBean
+ * the KDC registers, under the name configured in the local backend.conf.
+ */
+public class BackendStatsCommand extends KadminCommand {
+    private static final String USAGE = "Usage: backend_stats <jmx_service_url> [reset]\n"
+            + "\tShow the latencies, errors and calls in progress of the identity backend operations\n"
+            + "\tof the KDC, and the cache hits and misses. They are read over JMX from the KDC at the\n"
+            + "\tservice URL, like service:jmx:rmi:///jndi/rmi://kdc-host:9999/jmxrmi. The KDC needs\n"
+            + "\t" + InstrumentedIdentityBackend.METRICS_ENABLED + " = true in backend.conf, and the same "
+            + InstrumentedIdentityBackend.METRICS_NAME + " as here.";
+
+    public BackendStatsCommand(LocalKadmin kadmin) {
+        super(kadmin);
+    }
+
+    @Override
+    public void execute(String input) {
+        String[] commands = input.split("\\s+");
+        if (commands.length < 2 || commands.length > 3
+            || commands.length == 3 && !commands[2].equals("reset")) {
+            System.err.println(USAGE);
+            return;
+        }
+
+        try (JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(commands[1]))) {
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+            ObjectName name = InstrumentedIdentityBackend.getObjectName(getKadmin().getIdentityBackend());
+            if (!connection.isRegistered(name)) {
+                System.err.println("The backend metrics " + name + " are not registered in the KDC.");
+                System.err.println(USAGE);
+                return;
+            }
+
+            IdentityBackendMetricsMXBean metrics =
+                JMX.newMXBeanProxy(connection, name, IdentityBackendMetricsMXBean.class);
+            if (commands.length == 3) {
+                metrics.reset();
+                System.out.println("Backend metrics reset.");
+                return;
+            }
+
+            System.out.println("Backend metrics: " + name);
+            print("Calls", metrics.getOperationCounts());
+            print("Errors", metrics.getErrorCounts());
+            print("In progress", metrics.getInFlightCounts());
+            print("Latencies (us)", metrics.getLatencies());
+            System.out.println("Cache hits: " + metrics.getCacheHits()
+                + ", misses: " + metrics.getCacheMisses());
+        } catch (IOException | JMException e) {
+            System.err.println("Failed to read the backend metrics from " + commands[1] + ". " + e.getMessage());
+        }
+    }
+
+    private static void print(String title, Map<String, ?> values) {
+        System.out.println(title + ":");
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            System.out.println("\t" + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+}
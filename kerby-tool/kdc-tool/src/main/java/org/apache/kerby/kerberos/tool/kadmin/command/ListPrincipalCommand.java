@@ -21,10 +21,10 @@ package org.apache.kerby.kerberos.tool.kadmin.command;
 
 import org.apache.kerby.kerberos.kerb.KrbException;
 import org.apache.kerby.kerberos.kerb.admin.kadmin.local.LocalKadmin;
-
-import java.util.List;
+import org.apache.kerby.kerberos.kerb.identity.IdentityPage;
 
 public class ListPrincipalCommand extends KadminCommand {
+    private static final int PAGE_SIZE = 1000;
     private static final String USAGE = "Usage: list_principals [expression]\n"
             + "\t'expression' is a shell-style glob expression that can contain the wild-card characters ?, *, and [].";
 
@@ -39,14 +39,19 @@ public class ListPrincipalCommand extends KadminCommand {
         if (commands.length <= 2) {
             String expression = commands.length == 2 ? commands[1] : null;
             try {
-                List<String> principalNames = getKadmin().getPrincipals(expression);
-                if (principalNames.size() == 0) {
-                    return;
-                }
-                System.out.println("Principals are listed:");
-                for (String principalName : principalNames) {
-                    System.out.println("\t" + principalName);
-                }
+                boolean listed = false;
+                String continuationToken = null;
+                do {
+                    IdentityPage page = getKadmin().getPrincipals(expression, continuationToken, PAGE_SIZE);
+                    for (String principalName : page.getPrincipals()) {
+                        if (!listed) {
+                            System.out.println("Principals are listed:");
+                            listed = true;
+                        }
+                        System.out.println("\t" + principalName);
+                    }
+                    continuationToken = page.getContinuationToken();
+                } while (continuationToken != null);
             } catch (KrbException e) {
                 System.err.print("Fail to list principal! " + e.getMessage());
             }